@@ -51,13 +51,14 @@ public class KillCommand implements PlayerCommand {
     }
     // log.info("name:{} defense: {}", target.getTemplate().name(), target.defense);
 
-    // 發起戰鬥
-    combatService.startCombat(player, target.getId());
-
     // 【節奏控制】
     // 攻擊者：立即獲得攻擊機會 (或是很短的延遲)
+    // 必須在發起戰鬥前設定，第一個回合事件會以這個時間排入
     player.nextAttackTime = System.currentTimeMillis();
 
+    // 發起戰鬥
+    combatService.startCombat(player, target.getId());
+
     // 被攻擊對象接收到被攻擊事件
     target.onAttacked(player.getId());
 
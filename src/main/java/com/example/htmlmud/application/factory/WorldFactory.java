@@ -12,6 +12,7 @@ import com.example.htmlmud.domain.actor.impl.Room;
 import com.example.htmlmud.domain.exception.MudException;
 import com.example.htmlmud.domain.model.config.LootEntry;
 import com.example.htmlmud.domain.model.entity.GameItem;
+import com.example.htmlmud.domain.model.entity.RoomDormantState;
 import com.example.htmlmud.domain.model.entity.LivingStats;
 import com.example.htmlmud.domain.model.entity.SkillEntry;
 import com.example.htmlmud.domain.model.enums.ItemType;
@@ -43,10 +44,19 @@ public class WorldFactory {
    * 建立房間 Actor
    */
   public Room createRoom(String roomId) {
+    return createRoom(roomId, null);
+  }
+
+  /**
+   * 建立房間 Actor
+   *
+   * @param restore 區域休眠留下的快照 (null 代表依 spawn rule 初次生怪)
+   */
+  public Room createRoom(String roomId, RoomDormantState restore) {
     log.info("createRoom roomId: {}", roomId);
 
     // 這裡負責組裝：RoomActor
-    Room room = new Room(roomId, roomServiceProvider.getObject());
+    Room room = new Room(roomId, roomServiceProvider.getObject(), restore);
     room.start();
     return room;
   }
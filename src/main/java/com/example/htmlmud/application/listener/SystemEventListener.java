@@ -8,7 +8,6 @@ import java.util.Set;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
-import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import com.example.htmlmud.domain.actor.impl.Player;
 import com.example.htmlmud.domain.context.MudKeys;
@@ -172,7 +171,7 @@ public class SystemEventListener {
     String msg = "【註冊流程】\r\n只能包含英文字母（不分大小寫），不允許數字、空格或特殊符號。\r\n長度必須在 4 到 20 個字元之間。\r\n請輸入您想使用的帳號名稱:";
     // 告訴前端：切換輸入模式為帳號 (透過自定義協議，例如 JSON {type: "USER_MODE"})
     String json = objectMapper.writeValueAsString(Map.of("type", "USER_MODE", "content", msg));
-    session.sendMessage(new TextMessage(json));
+    actor.getOutput().sendSerialized(json);
 
     session.getAttributes().put(MudKeys.AUTH_RETRY_COUNT_KEY, 0); // 重置計數
     actor.setConnectionState(ConnectionState.CREATING_USERNAME);
@@ -219,7 +218,7 @@ public class SystemEventListener {
     String msg = "請輸入密碼:";
     // 告訴前端：切換輸入模式為密碼 (透過自定義協議，例如 JSON {type: "PWD_MODE"})
     String json = objectMapper.writeValueAsString(Map.of("type", "PWD_MODE", "content", msg));
-    session.sendMessage(new TextMessage(json));
+    actor.getOutput().sendSerialized(json);
 
     actor.setConnectionState(ConnectionState.ENTERING_PASSWORD);
   }
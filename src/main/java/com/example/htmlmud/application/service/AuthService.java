@@ -8,7 +8,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import com.example.htmlmud.domain.model.entity.LivingStats;
 import com.example.htmlmud.domain.model.entity.PlayerRecord;
-import com.example.htmlmud.infra.mapper.PlayerMapper;
+import com.example.htmlmud.infra.persistence.codec.PlayerStateCodec;
 import com.example.htmlmud.infra.persistence.entity.CharacterEntity;
 import com.example.htmlmud.infra.persistence.entity.UserEntity;
 import com.example.htmlmud.infra.persistence.repository.CharacterRepository;
@@ -28,7 +28,7 @@ public class AuthService {
   // 使用 BCrypt，Spring Security 內建，或者自己 new 一個
   private final PasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
 
-  private final PlayerMapper mapper; // 注入 MapStruct
+  private final PlayerStateCodec playerStateCodec;
 
   private final UserRepository userRepository;
 
@@ -148,8 +148,8 @@ public class AuthService {
     CharacterEntity entity = characterRepository.findByUidAndName(uid, username)
         .orElseThrow(() -> new IllegalArgumentException("角色不存在 uid:" + uid + ", name:" + username));
 
-    // 2. Entity -> Record (MapStruct 自動轉)
+    // 2. Entity -> Record (二進位欄位優先，還沒轉換的舊資料用 JSON 欄位)
     // 注意：這裡得到的 Record 內含的 State 是 Entity 裡解序列化出來的
-    return mapper.toRecord(entity);
+    return playerStateCodec.toRecord(entity);
   }
 }
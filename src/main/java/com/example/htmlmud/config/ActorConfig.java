@@ -0,0 +1,78 @@
+package com.example.htmlmud.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import com.example.htmlmud.domain.actor.core.ActorMode;
+import com.example.htmlmud.domain.actor.core.ActorScheduler;
+import com.example.htmlmud.domain.actor.core.MailboxSpec;
+import com.example.htmlmud.domain.actor.core.Mailboxes;
+import com.example.htmlmud.domain.actor.core.OverflowPolicy;
+import com.example.htmlmud.domain.actor.impl.Mob;
+import com.example.htmlmud.domain.actor.impl.Player;
+import com.example.htmlmud.domain.actor.impl.Room;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Actor 執行模式設定
+ *
+ * 可以針對 Room / Mob / Player 分別選擇 THREAD_PER_ACTOR 或 SCHEDULED，
+ * 方便在同樣的 WorldPulse 負載下比較兩種模式；信箱容量與溢位策略也各自設定。
+ */
+@Slf4j
+@Configuration
+public class ActorConfig {
+
+  @Value("${mud.actor.mode.room:THREAD_PER_ACTOR}")
+  private ActorMode roomMode;
+
+  @Value("${mud.actor.mode.mob:THREAD_PER_ACTOR}")
+  private ActorMode mobMode;
+
+  @Value("${mud.actor.mode.player:THREAD_PER_ACTOR}")
+  private ActorMode playerMode;
+
+  @Value("${mud.actor.quantum:" + ActorScheduler.DEFAULT_QUANTUM + "}")
+  private int quantum;
+
+  // 信箱容量 (<= 0 代表無上限)
+  // 預設無上限：Enter/Leave、撿放物品、Passivate、ask 都會改變狀態，任何一則被丟掉都會讓世界不一致
+  @Value("${mud.actor.mailbox.room.capacity:0}")
+  private int roomMailboxCapacity;
+
+  @Value("${mud.actor.mailbox.room.policy:REJECT}")
+  private OverflowPolicy roomMailboxPolicy;
+
+  @Value("${mud.actor.mailbox.mob.capacity:0}")
+  private int mobMailboxCapacity;
+
+  @Value("${mud.actor.mailbox.mob.policy:REJECT}")
+  private OverflowPolicy mobMailboxPolicy;
+
+  @Value("${mud.actor.mailbox.player.capacity:0}")
+  private int playerMailboxCapacity;
+
+  @Value("${mud.actor.mailbox.player.policy:REJECT}")
+  private OverflowPolicy playerMailboxPolicy;
+
+  // 在 WorldInitializer 建立任何 Actor 之前套用
+  @PostConstruct
+  public void applyActorModes() {
+    // 房間的訊息幾乎都會改變狀態 (Enter/Leave、撿放物品、Passivate)，丟掉最舊的一則發送端也不會知道
+    // 不偷偷換成別的策略，直接啟動失敗
+    if (roomMailboxCapacity > 0 && roomMailboxPolicy == OverflowPolicy.DROP_OLDEST) {
+      throw new IllegalStateException("mud.actor.mailbox.room.policy 不能是 DROP_OLDEST："
+          + "Room 的訊息會改變房間狀態，丟掉已收下的訊息會讓世界不一致，請改用 REJECT 或 DROP_NEWEST");
+    }
+
+    Mailboxes.setSpec(Room.class, new MailboxSpec(roomMailboxCapacity, roomMailboxPolicy));
+    Mailboxes.setSpec(Mob.class, new MailboxSpec(mobMailboxCapacity, mobMailboxPolicy));
+    Mailboxes.setSpec(Player.class, new MailboxSpec(playerMailboxCapacity, playerMailboxPolicy));
+
+    ActorScheduler.setMode(Room.class, roomMode);
+    ActorScheduler.setMode(Mob.class, mobMode);
+    ActorScheduler.setMode(Player.class, playerMode);
+    ActorScheduler.setQuantum(quantum);
+    log.info("Actor scheduler quantum: {}", quantum);
+  }
+}
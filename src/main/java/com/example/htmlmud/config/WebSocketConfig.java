@@ -1,21 +1,47 @@
 package com.example.htmlmud.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
 import com.example.htmlmud.infra.server.MudWebSocketHandler;
+import com.example.htmlmud.protocol.OutboundLimits;
+import com.example.htmlmud.protocol.WebSocketOutput;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
 
+@Slf4j
 @Configuration
 @EnableWebSocket
 public class WebSocketConfig implements WebSocketConfigurer {
 
   private final MudWebSocketHandler mudWebSocketHandler;
 
+  // 慢速客戶端保護 (見 WebSocketOutput)
+  @Value("${mud.session.outbound.capacity:1024}")
+  private int outboundCapacity;
+
+  @Value("${mud.session.outbound.degrade-depth:256}")
+  private int degradeDepth;
+
+  @Value("${mud.session.outbound.collapse-depth:512}")
+  private int collapseDepth;
+
+  @Value("${mud.session.outbound.send-time-limit-ms:5000}")
+  private long sendTimeLimitMs;
+
   public WebSocketConfig(MudWebSocketHandler mudWebSocketHandler) {
     this.mudWebSocketHandler = mudWebSocketHandler;
   }
 
+  @PostConstruct
+  public void applyOutboundLimits() {
+    WebSocketOutput.setLimits(
+        new OutboundLimits(outboundCapacity, degradeDepth, collapseDepth, sendTimeLimitMs));
+    log.info("WebSocket outbound limits: {}", WebSocketOutput.getLimits());
+  }
+
   @Override
   public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
     registry.addHandler(mudWebSocketHandler, "/ws").setAllowedOrigins("*");
@@ -0,0 +1,120 @@
+package com.example.htmlmud.domain.actor.core;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Actor 執行層的統計數據 (靜態，因為 Actor 不是 Spring Bean)
+ */
+public final class ActorMetrics {
+
+  // 排程模式下被派發的次數
+  private static final LongAdder activations = new LongAdder();
+  // 因 quantum 用完而重新排隊的次數
+  private static final LongAdder requeues = new LongAdder();
+  // 已處理的訊息總數
+  private static final LongAdder processedMessages = new LongAdder();
+  // 信箱滿了被丟掉的訊息 (DROP_OLDEST / DROP_NEWEST)
+  private static final LongAdder droppedMessages = new LongAdder();
+  // 信箱滿了被退回發送端的訊息 (REJECT)
+  private static final LongAdder rejectedMessages = new LongAdder();
+  // ask 次數 (每個 tick 歸零) 與累計
+  private static final LongAdder perTickAsks = new LongAdder();
+  private static final LongAdder asks = new LongAdder();
+  // ask 逾時次數
+  private static final LongAdder askTimeouts = new LongAdder();
+  // RoomMessageBuffer 的 flush 次數與合併的碎片數
+  private static final LongAdder bufferFlushes = new LongAdder();
+  private static final LongAdder mergedFragments = new LongAdder();
+
+  private ActorMetrics() {}
+
+  static void recordActivation(int processed, boolean requeued) {
+    activations.increment();
+    processedMessages.add(processed);
+    if (requeued) {
+      requeues.increment();
+    }
+  }
+
+  static void recordProcessed(int processed) {
+    processedMessages.add(processed);
+  }
+
+  static void recordDropped() {
+    droppedMessages.increment();
+  }
+
+  static void recordRejected() {
+    rejectedMessages.increment();
+  }
+
+  static void recordAsk() {
+    perTickAsks.increment();
+    asks.increment();
+  }
+
+  static void recordAskTimeout() {
+    askTimeouts.increment();
+  }
+
+  static void recordFlush(int fragments) {
+    bufferFlushes.increment();
+    mergedFragments.add(fragments);
+  }
+
+  public static long getBufferFlushes() {
+    return bufferFlushes.sum();
+  }
+
+  public static long getMergedFragments() {
+    return mergedFragments.sum();
+  }
+
+  public static long getActivations() {
+    return activations.sum();
+  }
+
+  public static long getRequeues() {
+    return requeues.sum();
+  }
+
+  public static long getProcessedMessages() {
+    return processedMessages.sum();
+  }
+
+  public static long getDroppedMessages() {
+    return droppedMessages.sum();
+  }
+
+  public static long getRejectedMessages() {
+    return rejectedMessages.sum();
+  }
+
+  public static long getPerTickAsks() {
+    return perTickAsks.sum();
+  }
+
+  public static long getAsks() {
+    return asks.sum();
+  }
+
+  public static long getAskTimeouts() {
+    return askTimeouts.sum();
+  }
+
+  public static void resetPerTick() {
+    perTickAsks.reset();
+  }
+
+  public static void reset() {
+    activations.reset();
+    requeues.reset();
+    processedMessages.reset();
+    droppedMessages.reset();
+    rejectedMessages.reset();
+    asks.reset();
+    askTimeouts.reset();
+    bufferFlushes.reset();
+    mergedFragments.reset();
+  }
+}
@@ -0,0 +1,12 @@
+package com.example.htmlmud.domain.actor.core;
+
+/**
+ * Actor 的執行模式
+ */
+public enum ActorMode {
+  // 每個 Actor 一條專屬 Virtual Thread，閒置時停在 mailbox.take()
+  THREAD_PER_ACTOR,
+
+  // 信箱有訊息時才排進共用的派發器，處理完一個 quantum 就讓出
+  SCHEDULED
+}
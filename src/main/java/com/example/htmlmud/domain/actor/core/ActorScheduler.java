@@ -0,0 +1,69 @@
+package com.example.htmlmud.domain.actor.core;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * SCHEDULED 模式的共用派發器
+ *
+ * 信箱由空變成非空時，Actor 才會被丟進這裡執行一次 activation；處理完 quantum 筆訊息後若還有剩，
+ * 就重新排到隊尾，讓其他 Actor 有機會先跑 (公平性)。
+ *
+ * 每次 activation 跑在一條短命的 Virtual Thread 上，實際的 run queue 就是 JVM 的 carrier pool。
+ * 這樣 handler 裡仍在用的同步 ask (join) 只會停住自己那次 activation，不會卡死共用的 worker。
+ */
+@Slf4j
+public final class ActorScheduler {
+
+  public static final int DEFAULT_QUANTUM = 64;
+
+  // 依 Actor 類別決定執行模式 (Room / Mob / Player 可以各自設定)
+  private static final Map<Class<?>, ActorMode> modes = new ConcurrentHashMap<>();
+
+  private static final Executor dispatcher =
+      Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("actor-dispatch-", 0).factory());
+
+  private static volatile ActorMode defaultMode = ActorMode.THREAD_PER_ACTOR;
+
+  private static volatile int quantum = DEFAULT_QUANTUM;
+
+  private ActorScheduler() {}
+
+  public static void setDefaultMode(ActorMode mode) {
+    defaultMode = mode;
+  }
+
+  public static void setMode(Class<?> actorType, ActorMode mode) {
+    modes.put(actorType, mode);
+    log.info("Actor 執行模式: {} -> {}", actorType.getSimpleName(), mode);
+  }
+
+  public static void setQuantum(int value) {
+    if (value <= 0) {
+      throw new IllegalArgumentException("quantum 必須大於 0: " + value);
+    }
+    quantum = value;
+  }
+
+  public static int getQuantum() {
+    return quantum;
+  }
+
+  // 沿著繼承鏈往上找，找不到就用預設模式
+  public static ActorMode modeFor(Class<?> actorType) {
+    for (Class<?> c = actorType; c != null; c = c.getSuperclass()) {
+      ActorMode mode = modes.get(c);
+      if (mode != null) {
+        return mode;
+      }
+    }
+    return defaultMode;
+  }
+
+  static void dispatch(Runnable activation) {
+    dispatcher.execute(activation);
+  }
+}
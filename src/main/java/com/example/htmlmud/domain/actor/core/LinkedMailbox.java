@@ -0,0 +1,47 @@
+package com.example.htmlmud.domain.actor.core;
+
+import java.util.Collection;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * 無上限信箱，就是原本的 LinkedBlockingQueue (每次 offer 會配置一個 node)
+ */
+public class LinkedMailbox<T> implements Mailbox<T> {
+
+  private final LinkedBlockingQueue<T> queue = new LinkedBlockingQueue<>();
+
+  @Override
+  public boolean offer(T message) {
+    return queue.offer(message);
+  }
+
+  @Override
+  public T poll() {
+    return queue.poll();
+  }
+
+  @Override
+  public T take() throws InterruptedException {
+    return queue.take();
+  }
+
+  @Override
+  public int drainTo(Collection<? super T> target, int maxElements) {
+    return queue.drainTo(target, maxElements);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return queue.isEmpty();
+  }
+
+  @Override
+  public int size() {
+    return queue.size();
+  }
+
+  @Override
+  public int capacity() {
+    return Integer.MAX_VALUE;
+  }
+}
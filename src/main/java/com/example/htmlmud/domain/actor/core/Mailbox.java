@@ -0,0 +1,30 @@
+package com.example.htmlmud.domain.actor.core;
+
+import java.util.Collection;
+
+/**
+ * Actor 信箱抽象
+ *
+ * 多個生產者 (任何執行緒都可以 send)，單一消費者 (Actor 自己)。
+ */
+public interface Mailbox<T> {
+
+  // 投遞訊息，回傳 false 代表這則訊息沒有進入信箱 (被丟棄或被拒絕)
+  boolean offer(T message);
+
+  // 非阻塞取出，沒有訊息時回傳 null
+  T poll();
+
+  // 阻塞取出 (只給 THREAD_PER_ACTOR 模式的專屬執行緒使用)
+  T take() throws InterruptedException;
+
+  // 最多取出 maxElements 筆放進 target，回傳實際取出的數量
+  int drainTo(Collection<? super T> target, int maxElements);
+
+  boolean isEmpty();
+
+  int size();
+
+  // 容量上限，無上限時回傳 Integer.MAX_VALUE
+  int capacity();
+}
@@ -0,0 +1,13 @@
+package com.example.htmlmud.domain.actor.core;
+
+/**
+ * 信箱規格：容量 <= 0 代表無上限 (沿用 LinkedBlockingQueue)
+ */
+public record MailboxSpec(int capacity, OverflowPolicy policy) {
+
+  public static final MailboxSpec UNBOUNDED = new MailboxSpec(0, OverflowPolicy.REJECT);
+
+  public boolean bounded() {
+    return capacity > 0;
+  }
+}
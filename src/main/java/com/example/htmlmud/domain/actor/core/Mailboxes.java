@@ -0,0 +1,43 @@
+package com.example.htmlmud.domain.actor.core;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 依 Actor 類別建立信箱 (Room / Mob / Player 可以各自設定容量與溢位策略)
+ */
+@Slf4j
+public final class Mailboxes {
+
+  private static final Map<Class<?>, MailboxSpec> specs = new ConcurrentHashMap<>();
+
+  private Mailboxes() {}
+
+  public static void setSpec(Class<?> actorType, MailboxSpec spec) {
+    specs.put(actorType, spec);
+    log.info("Actor 信箱: {} -> capacity={}, policy={}", actorType.getSimpleName(),
+        spec.bounded() ? spec.capacity() : "unbounded", spec.policy());
+  }
+
+  public static MailboxSpec specFor(Class<?> actorType) {
+    for (Class<?> c = actorType; c != null; c = c.getSuperclass()) {
+      MailboxSpec spec = specs.get(c);
+      if (spec != null) {
+        return spec;
+      }
+    }
+    return MailboxSpec.UNBOUNDED;
+  }
+
+  public static <T> Mailbox<T> create(MailboxSpec spec) {
+    if (!spec.bounded()) {
+      return new LinkedMailbox<>();
+    }
+    return new MpscArrayMailbox<>(spec.capacity(), spec.policy());
+  }
+
+  public static <T> Mailbox<T> create(Class<?> actorType) {
+    return create(specFor(actorType));
+  }
+}
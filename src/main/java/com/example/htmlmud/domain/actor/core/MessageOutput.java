@@ -1,14 +1,32 @@
 package com.example.htmlmud.domain.actor.core;
 
 import org.springframework.web.socket.WebSocketSession;
+import com.example.htmlmud.protocol.FrameKind;
 
 public interface MessageOutput {
   // void sendMessage(String text);
 
   void sendJson(Object payload); // 處理 STAT_UPDATE 等 JSON
 
+  void sendSerialized(String json); // 已經序列化好的 JSON (廣播時共用同一份字串)
+
+  // 帶分類的版本，連線變慢時輸出端可以依分類丟棄或合併
+  default void sendSerialized(String json, FrameKind kind) {
+    sendSerialized(json);
+  }
+
   void close(); // 關閉連線
 
   WebSocketSession getSession();
 
+  // 尚未寫出的訊息數
+  default int getQueueDepth() {
+    return 0;
+  }
+
+  // 累計寫出的位元組數
+  default long getBytesWritten() {
+    return 0;
+  }
+
 }
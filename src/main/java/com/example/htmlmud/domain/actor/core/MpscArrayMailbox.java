@@ -0,0 +1,173 @@
+package com.example.htmlmud.domain.actor.core;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 固定容量、以陣列實作的 lock-free 信箱 (Vyukov bounded queue)
+ *
+ * 每個格子帶一個序號，生產者以 CAS 搶 tail，消費者以 CAS 推進 head。 消費端也用 CAS 的原因是 DROP_OLDEST
+ * 時生產者需要替消費者丟掉最舊的訊息。 投遞時不配置任何物件，容量會被調整成 2 的次方。
+ */
+public class MpscArrayMailbox<T> implements Mailbox<T> {
+
+  private final int capacity;
+  private final int mask;
+  private final OverflowPolicy policy;
+  private final AtomicReferenceArray<T> buffer;
+  private final AtomicLongArray sequences;
+  private final AtomicLong head = new AtomicLong();
+  private final AtomicLong tail = new AtomicLong();
+
+  // 在 take() 裡 park 的消費者 (THREAD_PER_ACTOR 模式)
+  private volatile Thread waiter;
+
+  public MpscArrayMailbox(int requestedCapacity, OverflowPolicy policy) {
+    if (requestedCapacity <= 0) {
+      throw new IllegalArgumentException("capacity 必須大於 0: " + requestedCapacity);
+    }
+    this.capacity = requestedCapacity <= 1 ? 1
+        : Integer.highestOneBit(requestedCapacity - 1) << 1;
+    this.mask = capacity - 1;
+    this.policy = policy;
+    this.buffer = new AtomicReferenceArray<>(capacity);
+    this.sequences = new AtomicLongArray(capacity);
+    for (int i = 0; i < capacity; i++) {
+      sequences.set(i, i);
+    }
+  }
+
+  @Override
+  public boolean offer(T message) {
+    if (message == null) {
+      throw new NullPointerException("message");
+    }
+    while (!tryOffer(message)) {
+      switch (policy) {
+        case DROP_OLDEST -> {
+          // 替消費者丟掉最舊的一筆後重試
+          if (poll() != null) {
+            ActorMetrics.recordDropped();
+          }
+        }
+        case DROP_NEWEST -> {
+          ActorMetrics.recordDropped();
+          return false;
+        }
+        case REJECT -> {
+          ActorMetrics.recordRejected();
+          return false;
+        }
+      }
+    }
+    Thread w = waiter;
+    if (w != null) {
+      LockSupport.unpark(w);
+    }
+    return true;
+  }
+
+  private boolean tryOffer(T message) {
+    long pos = tail.get();
+    while (true) {
+      int index = (int) (pos & mask);
+      long diff = sequences.get(index) - pos;
+      if (diff == 0) {
+        if (tail.compareAndSet(pos, pos + 1)) {
+          buffer.set(index, message);
+          // 序號 +1 代表格子已經寫好，可以被取走
+          sequences.set(index, pos + 1);
+          return true;
+        }
+        pos = tail.get();
+      } else if (diff < 0) {
+        // 繞了一圈還沒被取走：滿了
+        return false;
+      } else {
+        pos = tail.get();
+      }
+    }
+  }
+
+  @Override
+  public T poll() {
+    long pos = head.get();
+    while (true) {
+      int index = (int) (pos & mask);
+      long diff = sequences.get(index) - (pos + 1);
+      if (diff == 0) {
+        if (head.compareAndSet(pos, pos + 1)) {
+          T message = buffer.getAndSet(index, null);
+          // 把格子交還給下一圈的生產者
+          sequences.set(index, pos + capacity);
+          return message;
+        }
+        pos = head.get();
+      } else if (diff < 0) {
+        // 空的 (或生產者搶到位置但還沒寫完)
+        return null;
+      } else {
+        pos = head.get();
+      }
+    }
+  }
+
+  @Override
+  public T take() throws InterruptedException {
+    while (true) {
+      T message = poll();
+      if (message != null) {
+        return message;
+      }
+      waiter = Thread.currentThread();
+      try {
+        // 登記之後再確認一次，避免錯過生產者的 unpark
+        message = poll();
+        if (message != null) {
+          return message;
+        }
+        LockSupport.park(this);
+        if (Thread.interrupted()) {
+          throw new InterruptedException();
+        }
+      } finally {
+        waiter = null;
+      }
+    }
+  }
+
+  @Override
+  public int drainTo(Collection<? super T> target, int maxElements) {
+    int count = 0;
+    T message;
+    while (count < maxElements && (message = poll()) != null) {
+      target.add(message);
+      count++;
+    }
+    return count;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  @Override
+  public int size() {
+    // 兩個計數器不是同時讀的，結果只是近似值
+    long size = tail.get() - head.get();
+    return (int) Math.max(0, Math.min(size, capacity));
+  }
+
+  @Override
+  public int capacity() {
+    return capacity;
+  }
+
+  public OverflowPolicy getPolicy() {
+    return policy;
+  }
+}
@@ -0,0 +1,15 @@
+package com.example.htmlmud.domain.actor.core;
+
+/**
+ * 信箱滿了的時候怎麼處理新訊息
+ */
+public enum OverflowPolicy {
+  // 丟掉最舊的訊息，讓新訊息進來 (只適合每則訊息都會被後續訊息取代的信箱，Room 不可使用)
+  DROP_OLDEST,
+
+  // 直接丟掉新訊息 (發送端不會知道，只適合可有可無的訊息)
+  DROP_NEWEST,
+
+  // 拒絕新訊息並讓 send() 回傳 false，由發送端自行處理
+  REJECT
+}
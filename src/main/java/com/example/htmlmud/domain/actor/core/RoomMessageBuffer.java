@@ -3,13 +3,13 @@ package com.example.htmlmud.domain.actor.core;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import com.example.htmlmud.domain.actor.impl.Room;
+import com.example.htmlmud.domain.service.TimerService;
 import com.example.htmlmud.protocol.MudMessage;
 import lombok.extern.slf4j.Slf4j;
 
@@ -17,14 +17,18 @@ import lombok.extern.slf4j.Slf4j;
 public class RoomMessageBuffer {
   // 存放一段時間內的碎片訊息
   private final List<MessageFragment> fragments = Collections.synchronizedList(new ArrayList<>());
-  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
   private final AtomicBoolean isScheduled = new AtomicBoolean(false);
   private final Room room; // 引用所屬的 Room Actor
+  // 共用的時間輪 (不再每個房間各開一條執行緒)
+  private final TimerService timerService;
 
   private static final long BATCH_WINDOW_MS = 100; // 100ms 的收集窗口
 
-  public RoomMessageBuffer(Room room) {
+  private static final List<String> PARTICIPANT_KEYS = List.of("actorId", "targetId", "id");
+
+  public RoomMessageBuffer(Room room, TimerService timerService) {
     this.room = room;
+    this.timerService = timerService;
   }
 
   /**
@@ -35,7 +39,7 @@ public class RoomMessageBuffer {
 
     // 如果還沒排程 Flush 任務，則啟動一個
     if (isScheduled.compareAndSet(false, true)) {
-      scheduler.schedule(this::flush, BATCH_WINDOW_MS, TimeUnit.MILLISECONDS);
+      timerService.schedule(BATCH_WINDOW_MS, this::flush);
     }
   }
 
@@ -44,6 +48,8 @@ public class RoomMessageBuffer {
    */
   private void flush() {
     try {
+      // 先放掉排程旗標，flush 期間新進的碎片會排下一次
+      isScheduled.set(false);
       if (fragments.isEmpty())
         return;
 
@@ -52,20 +58,37 @@ public class RoomMessageBuffer {
         snapshot = new ArrayList<>(fragments);
         fragments.clear();
       }
-      isScheduled.set(false);
+
+      ActorMetrics.recordFlush(snapshot.size());
 
       // 執行合併邏輯
       Map<String, Object> combinedPayload = mergeMessages(snapshot);
 
-      // 透過 Room 廣播給所有玩家
+      // 透過 Room 廣播給所有玩家 (房間只序列化一次，每位玩家收到同一個 frame)
       room.broadcastJson(
-          MudMessage.builder().type("BATCHED_UPDATE").payload(combinedPayload).build());
+          MudMessage.builder().type("BATCHED_UPDATE").payload(combinedPayload).build(),
+          participantsOf(snapshot));
 
     } catch (Exception e) {
       log.error("Room Message Flush 失敗", e);
     }
   }
 
+  // 這批碎片裡牽涉到的生物 (出手者、目標、狀態變化的人)
+  private Set<String> participantsOf(List<MessageFragment> snapshot) {
+    Set<String> ids = new HashSet<>();
+    for (MessageFragment frag : snapshot) {
+      if (frag.getPayload() instanceof Map<?, ?> payload) {
+        for (String key : PARTICIPANT_KEYS) {
+          if (payload.get(key) instanceof String id) {
+            ids.add(id);
+          }
+        }
+      }
+    }
+    return ids;
+  }
+
   private Map<String, Object> mergeMessages(List<MessageFragment> snapshot) {
     Map<String, Object> merged = new HashMap<>();
     List<Object> combatEvents = new ArrayList<>();
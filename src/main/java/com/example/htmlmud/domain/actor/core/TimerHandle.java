@@ -0,0 +1,50 @@
+package com.example.htmlmud.domain.actor.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 計時器的取消憑證
+ *
+ * cancel() 只是把狀態改成 CANCELLED (O(1))，時間輪轉到那一格時會直接略過，不會執行。
+ */
+public final class TimerHandle {
+
+  private static final int PENDING = 0;
+  private static final int CANCELLED = 1;
+  private static final int FIRED = 2;
+
+  private final AtomicInteger state = new AtomicInteger(PENDING);
+
+  // 以 tick 為單位的到期時間 (絕對值)
+  final long deadlineTick;
+
+  final Runnable task;
+
+  TimerHandle(long deadlineTick, Runnable task) {
+    this.deadlineTick = deadlineTick;
+    this.task = task;
+  }
+
+  /**
+   * 取消計時器，回傳 false 代表已經執行過或已被取消
+   */
+  public boolean cancel() {
+    return state.compareAndSet(PENDING, CANCELLED);
+  }
+
+  public boolean isCancelled() {
+    return state.get() == CANCELLED;
+  }
+
+  public boolean isFired() {
+    return state.get() == FIRED;
+  }
+
+  public boolean isPending() {
+    return state.get() == PENDING;
+  }
+
+  boolean markFired() {
+    return state.compareAndSet(PENDING, FIRED);
+  }
+}
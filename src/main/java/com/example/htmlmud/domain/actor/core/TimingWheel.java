@@ -0,0 +1,154 @@
+package com.example.htmlmud.domain.actor.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 階層式時間輪 (Hierarchical Timing Wheel)
+ *
+ * 4 層、每層 64 格：第 0 層一格 = 1 tick，第 1 層一格 = 64 tick，以此類推， 以 100ms 的 tick 計算最遠可以排到約 19 天後
+ * (更遠的會先放在最外層，轉到時再重新放置)。
+ *
+ * 任何執行緒都可以 schedule / cancel (O(1))；advance() 只能由單一執行緒 (WorldPulse) 呼叫。 到期的任務直接在 advance()
+ * 的執行緒上執行，所以任務本身只應該投遞訊息，不要做耗時的工作。
+ */
+@Slf4j
+public class TimingWheel {
+
+  private static final int LEVELS = 4;
+  private static final int SLOT_BITS = 6;
+  private static final int SLOTS = 1 << SLOT_BITS;
+  private static final int SLOT_MASK = SLOTS - 1;
+  private static final long MAX_SPAN = 1L << (SLOT_BITS * LEVELS);
+
+  private final long tickMillis;
+
+  // wheels.get(level).get(slot)
+  private final List<List<List<TimerHandle>>> wheels = new ArrayList<>(LEVELS);
+
+  // 其他執行緒新排入的計時器，advance() 開頭再放進時間輪
+  private final ConcurrentLinkedQueue<TimerHandle> inbox = new ConcurrentLinkedQueue<>();
+
+  private final AtomicInteger pending = new AtomicInteger();
+
+  // 目前的 tick (只有 advance() 的執行緒會寫入)
+  private volatile long currentTick = 0;
+
+  public TimingWheel(long tickMillis) {
+    this.tickMillis = tickMillis;
+    for (int level = 0; level < LEVELS; level++) {
+      List<List<TimerHandle>> slots = new ArrayList<>(SLOTS);
+      for (int slot = 0; slot < SLOTS; slot++) {
+        slots.add(new ArrayList<>());
+      }
+      wheels.add(slots);
+    }
+  }
+
+  /**
+   * 排入一個 delayMillis 之後執行的任務 (無條件進位到 tick，最少 1 tick)
+   */
+  public TimerHandle schedule(long delayMillis, Runnable task) {
+    long ticks = Math.max(1, (delayMillis + tickMillis - 1) / tickMillis);
+    TimerHandle handle = new TimerHandle(currentTick + ticks, task);
+    pending.incrementAndGet();
+    inbox.offer(handle);
+    return handle;
+  }
+
+  /**
+   * 前進一個 tick，執行所有到期的任務
+   */
+  public void advance() {
+    long tick = currentTick + 1;
+    currentTick = tick;
+
+    // 1. 新排入的計時器
+    TimerHandle handle;
+    while ((handle = inbox.poll()) != null) {
+      place(handle, tick);
+    }
+
+    // 2. 外層轉到新的一格時，把那一格的計時器往內層重新放置 (由外往內)
+    for (int level = LEVELS - 1; level >= 1; level--) {
+      long lowBits = tick & ((1L << (SLOT_BITS * level)) - 1);
+      if (lowBits == 0) {
+        int slot = (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+        List<TimerHandle> bucket = wheels.get(level).get(slot);
+        if (!bucket.isEmpty()) {
+          List<TimerHandle> moving = new ArrayList<>(bucket);
+          bucket.clear();
+          for (TimerHandle h : moving) {
+            place(h, tick);
+          }
+        }
+      }
+    }
+
+    // 3. 執行第 0 層這一格的任務
+    List<TimerHandle> bucket = wheels.get(0).get((int) (tick & SLOT_MASK));
+    if (bucket.isEmpty()) {
+      return;
+    }
+    List<TimerHandle> due = new ArrayList<>(bucket);
+    bucket.clear();
+    for (TimerHandle h : due) {
+      if (h.deadlineTick > tick) {
+        // 超過時間輪範圍的計時器，還沒到期
+        place(h, tick);
+        continue;
+      }
+      pending.decrementAndGet();
+      if (!h.markFired()) {
+        continue; // 已取消
+      }
+      try {
+        h.task.run();
+      } catch (Exception e) {
+        log.error("Timer task 執行失敗", e);
+      }
+    }
+  }
+
+  private void place(TimerHandle handle, long tick) {
+    if (handle.isCancelled()) {
+      pending.decrementAndGet();
+      return;
+    }
+
+    long delta = handle.deadlineTick - tick;
+    if (delta <= 0) {
+      // 已經到期：放進這一輪馬上要處理的格子
+      wheels.get(0).get((int) (tick & SLOT_MASK)).add(handle);
+      return;
+    }
+
+    // 超出範圍的先放在最外層能放的最遠位置，到時再重新放置
+    long deadline = delta < MAX_SPAN ? handle.deadlineTick : tick + MAX_SPAN - 1;
+    delta = deadline - tick;
+
+    for (int level = 0; level < LEVELS; level++) {
+      if (delta < (1L << (SLOT_BITS * (level + 1)))) {
+        int slot = (int) ((deadline >>> (SLOT_BITS * level)) & SLOT_MASK);
+        wheels.get(level).get(slot).add(handle);
+        return;
+      }
+    }
+  }
+
+  public long getCurrentTick() {
+    return currentTick;
+  }
+
+  public long getTickMillis() {
+    return tickMillis;
+  }
+
+  // 尚未執行也尚未清除的計時器數量 (包含已取消但還沒轉到的)
+  public int getPendingCount() {
+    return pending.get();
+  }
+}
@@ -1,30 +1,53 @@
 package com.example.htmlmud.domain.actor.core;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public abstract class VirtualActor<T> {
 
-  // 每個 Actor 都有自己的信箱
-  protected final BlockingQueue<T> mailbox = new LinkedBlockingQueue<>();
+  // ask 預設的逾時時間
+  public static final Duration DEFAULT_ASK_TIMEOUT = Duration.ofSeconds(1);
+
+  // ask 的回覆改到這裡完成，讓 thenAccept 之類的後續處理不會跑在被詢問者的 handler 裡
+  private static final Executor replyExecutor =
+      Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("actor-reply-", 0).factory());
+
+  // 每個 Actor 都有自己的信箱 (容量與溢位策略依子類別設定)
+  protected final Mailbox<T> mailbox = Mailboxes.create(getClass());
   private final AtomicBoolean running = new AtomicBoolean(false);
   private final AtomicBoolean started = new AtomicBoolean(false);
+  // SCHEDULED 模式：是否已經在派發器排隊 / 執行中 (保證同一時間只有一個 activation)
+  private final AtomicBoolean scheduled = new AtomicBoolean(false);
   private final String actorId;
+  private final ActorMode mode;
   private volatile Thread actorThread;
 
   public VirtualActor(String actorId) {
     this.actorId = actorId;
+    // 依實際的子類別 (Room / Mob / Player) 決定執行模式
+    this.mode = ActorScheduler.modeFor(getClass());
   }
 
-  // 啟動 Actor：這會生成一個專屬的 Virtual Thread
+  // 啟動 Actor：THREAD_PER_ACTOR 會生成一個專屬的 Virtual Thread，SCHEDULED 則等有訊息才派發
   public void start() {
     if (started.compareAndSet(false, true)) {
       running.set(true); // 確保啟動時狀態為 true
+      if (mode == ActorMode.SCHEDULED) {
+        // 啟動前就收到的訊息也要處理
+        scheduleIfNeeded();
+        return;
+      }
       this.actorThread = Thread.ofVirtual().name(actorId).unstarted(this::runLoop);
       this.actorThread.start();
     } else {
@@ -32,9 +55,48 @@ public abstract class VirtualActor<T> {
     }
   }
 
-  // 非阻塞投遞訊息 (給外部呼叫用)
-  public void send(T message) {
-    mailbox.offer(message);
+  // 非阻塞投遞訊息 (給外部呼叫用)，回傳 false 代表信箱滿了訊息沒送進去
+  public boolean send(T message) {
+    boolean accepted = mailbox.offer(message);
+    if (!accepted) {
+      // 大部分呼叫端不檢查回傳值，至少留下記錄 (有上限的信箱才會走到這裡)
+      log.warn("[{}] 信箱已滿 ({}), 訊息未送達: {}", actorId, mailbox.capacity(), message);
+    }
+    if (mode == ActorMode.SCHEDULED) {
+      scheduleIfNeeded();
+    }
+    return accepted;
+  }
+
+  /**
+   * 非阻塞詢問：把 reply 包進訊息送給這個 Actor，立即回傳回覆的 CompletableFuture。
+   *
+   * 呼叫端請用 thenAccept / thenCombine 接續，不要在自己的 handler 裡 join()。 逾時或信箱拒收時 future 會以例外結束。
+   */
+  public <R> CompletableFuture<R> ask(Function<CompletableFuture<R>, ? extends T> request,
+      Duration timeout) {
+    ActorMetrics.recordAsk();
+    CompletableFuture<R> reply = new CompletableFuture<>();
+    reply.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+
+    if (!send(request.apply(reply))) {
+      reply.completeExceptionally(new RejectedExecutionException("[" + actorId + "] 信箱已滿"));
+    }
+
+    return reply.whenCompleteAsync((result, error) -> {
+      if (error instanceof TimeoutException) {
+        ActorMetrics.recordAskTimeout();
+        log.warn("[{}] ask 逾時 ({}ms)", actorId, timeout.toMillis());
+      }
+    }, replyExecutor);
+  }
+
+  public <R> CompletableFuture<R> ask(Function<CompletableFuture<R>, ? extends T> request) {
+    return ask(request, DEFAULT_ASK_TIMEOUT);
+  }
+
+  public ActorMode getMode() {
+    return mode;
   }
 
   // 核心迴圈
@@ -55,6 +117,7 @@ public abstract class VirtualActor<T> {
         for (T msg : batch) {
           handleMessage(msg);
         }
+        ActorMetrics.recordProcessed(batch.size());
         batch.clear();
       }
     } catch (InterruptedException e) {
@@ -68,6 +131,43 @@ public abstract class VirtualActor<T> {
     }
   }
 
+  // -----------------------------------------------------------------------------
+  // SCHEDULED 模式
+  // -----------------------------------------------------------------------------
+
+  private void scheduleIfNeeded() {
+    if (running.get() && !mailbox.isEmpty() && scheduled.compareAndSet(false, true)) {
+      ActorScheduler.dispatch(this::runActivation);
+    }
+  }
+
+  // 一次 activation：最多處理 quantum 筆訊息，剩下的重新排隊
+  private void runActivation() {
+    int quantum = ActorScheduler.getQuantum();
+    int processed = 0;
+    try {
+      T msg;
+      while (processed < quantum && running.get() && (msg = mailbox.poll()) != null) {
+        handleMessage(msg);
+        processed++;
+      }
+    } catch (Exception e) {
+      // 與 THREAD_PER_ACTOR 一致：未預期的錯誤會讓 Actor 終止
+      log.error("Actor [{}] encountered unexpected error", actorId, e);
+      running.set(false);
+      log.info("[{}] has terminated permanently.", actorId);
+    } finally {
+      scheduled.set(false);
+    }
+
+    // 放掉旗標之後再檢查一次，避免與 send() 之間的競態讓訊息卡在信箱裡
+    boolean requeued = running.get() && !mailbox.isEmpty();
+    ActorMetrics.recordActivation(processed, requeued);
+    if (requeued) {
+      scheduleIfNeeded();
+    }
+  }
+
   public void stop() {
     if (running.compareAndSet(true, false)) { // 確保只執行一次
       log.info("Stopping [{}]", actorId);
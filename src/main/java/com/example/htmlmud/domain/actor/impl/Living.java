@@ -3,9 +3,9 @@ package com.example.htmlmud.domain.actor.impl;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
 import com.example.htmlmud.domain.actor.core.VirtualActor;
 import com.example.htmlmud.domain.exception.MudException;
 import com.example.htmlmud.domain.model.entity.GameItem;
@@ -14,10 +14,13 @@ import com.example.htmlmud.domain.model.entity.SkillEntry;
 import com.example.htmlmud.domain.model.enums.EquipmentSlot;
 import com.example.htmlmud.domain.model.enums.LivingPosture;
 import com.example.htmlmud.domain.model.enums.SkillCategory;
+import com.example.htmlmud.domain.model.template.RaceTemplate;
 import com.example.htmlmud.domain.model.vo.DamageSource;
 import com.example.htmlmud.domain.service.LivingService;
+import com.example.htmlmud.infra.persistence.repository.TemplateRepository;
 import com.example.htmlmud.protocol.ActorMessage;
 import com.example.htmlmud.protocol.MudMessage;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
@@ -73,6 +76,9 @@ public abstract sealed class Living extends VirtualActor<ActorMessage> permits P
   public String combatTargetId;
   // 下一次可以攻擊的時間點 (System.currentTimeMillis)
   public long nextAttackTime = 0;
+  // 戰鬥世代，每次離開戰鬥 +1，用來作廢戰鬥佇列中殘留的事件
+  // 只由 CombatService 在持有這個 Living 的鎖時修改；volatile 讓 WorldPulse 執行緒不加鎖也讀得到最新值
+  public volatile int combatEpoch = 0;
   // 附加增益/減益
   // public Map<String, Object> dynamicProps = new HashMap<>();
 
@@ -86,6 +92,14 @@ public abstract sealed class Living extends VirtualActor<ActorMessage> permits P
   public int attackSpeed = 2000; // 攻擊速度 (毫秒，例如 2000 代表 2秒打一次)
   public int weightCapacity = 0;
 
+  // 種族模板的 handle 快取 (種族變了才重新查表)
+  @Getter(AccessLevel.NONE)
+  private volatile RaceRef raceRef = RaceRef.NONE;
+
+  private record RaceRef(String race, int handle) {
+    static final RaceRef NONE = new RaceRef(null, TemplateRepository.NO_HANDLE);
+  }
+
 
 
   public Living(String id, String name, LivingStats stats, LivingService livingService) {
@@ -123,6 +137,10 @@ public abstract sealed class Living extends VirtualActor<ActorMessage> permits P
       case ActorMessage.OnDamage(var amount, var attackerId) -> {
         handleOnDamage(amount, attackerId);
       }
+      case ActorMessage.OnBatchDamage(var damageByAttacker) -> {
+        // 依出手順序逐一扣血，打出致命一擊的人就是兇手 (死亡後 onDamage 會直接略過)
+        damageByAttacker.forEach((attackerId, amount) -> handleOnDamage(amount, attackerId));
+      }
       case ActorMessage.onDeath(var killerId) -> {
         handleOnDeath(killerId);
       }
@@ -244,17 +262,19 @@ public abstract sealed class Living extends VirtualActor<ActorMessage> permits P
     this.send(new ActorMessage.OnDamage(amount, attackerId));
   }
 
+  // 批次受傷處理 (房間合併結算)
+  public void onBatchDamage(Map<String, Integer> damageByAttacker) {
+    this.send(new ActorMessage.OnBatchDamage(damageByAttacker));
+  }
+
   // 死亡處理
   public void onDeath(String killerId) {
     this.send(new ActorMessage.onDeath(killerId));
   }
 
   public boolean equip(GameItem item) {
-    CompletableFuture<Boolean> future = new CompletableFuture<>();
-    this.send(new ActorMessage.Equip(item, future));
     try {
-      future.orTimeout(1, TimeUnit.SECONDS).join();
-      return future.get();
+      return askEquip(item).join();
     } catch (Exception e) {
       log.error("equip itemId:{} itemName:{} error", item.getId(), item.getDisplayName(), e);
     }
@@ -262,12 +282,13 @@ public abstract sealed class Living extends VirtualActor<ActorMessage> permits P
     return false;
   }
 
+  public CompletableFuture<Boolean> askEquip(GameItem item) {
+    return this.<Boolean>ask(reply -> new ActorMessage.Equip(item, reply));
+  }
+
   public boolean unequip(EquipmentSlot slot) {
-    CompletableFuture<Boolean> future = new CompletableFuture<>();
-    this.send(new ActorMessage.Unequip(slot, future));
     try {
-      future.orTimeout(1, TimeUnit.SECONDS).join();
-      return future.get();
+      return this.<Boolean>ask(reply -> new ActorMessage.Unequip(slot, reply)).join();
     } catch (Exception e) {
       log.error("unequip slot:{} error", slot.getDisplayName(), e);
     }
@@ -276,11 +297,8 @@ public abstract sealed class Living extends VirtualActor<ActorMessage> permits P
   }
 
   public MudMessage<?> lookAtMe() {
-    CompletableFuture<MudMessage<?>> future = new CompletableFuture<>();
-    this.send(new ActorMessage.LookAtMe(future));
     try {
-      future.orTimeout(1, TimeUnit.SECONDS).join();
-      return future.get();
+      return this.<MudMessage<?>>ask(ActorMessage.LookAtMe::new).join();
     } catch (Exception e) {
       log.error("lookAtMe error", e);
       throw new MudException("lookAtMe error livingId:" + this.id);
@@ -425,6 +443,17 @@ public abstract sealed class Living extends VirtualActor<ActorMessage> permits P
     return room;
   }
 
+  // 戰鬥中每一擊都會查種族，用 handle 直接取陣列，不必每次都以字串查表
+  public RaceTemplate getRaceTemplate() {
+    String race = stats.getRace();
+    RaceRef ref = raceRef;
+    if (ref.handle() == TemplateRepository.NO_HANDLE || !Objects.equals(ref.race(), race)) {
+      ref = new RaceRef(race, TemplateRepository.raceHandle(race));
+      raceRef = ref;
+    }
+    return TemplateRepository.getRace(ref.handle());
+  }
+
   public Optional<Living> getCombatTarget() {
     if (combatTargetId == null) {
       return Optional.empty();
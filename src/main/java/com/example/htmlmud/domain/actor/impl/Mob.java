@@ -3,9 +3,7 @@ package com.example.htmlmud.domain.actor.impl;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
 import com.example.htmlmud.domain.actor.behavior.AggressiveBehavior;
 import com.example.htmlmud.domain.actor.behavior.MerchantBehavior;
 import com.example.htmlmud.domain.actor.behavior.MobBehavior;
@@ -115,9 +113,6 @@ public final class Mob extends Living {
       case ActorMessage.OnPlayerEnter(var playerId) -> behavior.handle(this, msg);
       case ActorMessage.OnPlayerFlee(var playerId, var direction) -> behavior.handle(this, msg);
       case ActorMessage.OnInteract(var playerId, var command) -> behavior.handle(this, msg);
-      case ActorMessage.GetHighestAggroTarget(var future) -> {
-        future.complete(service.getHighestAggroTarget(this));
-      }
       case ActorMessage.AgroScan() -> behavior.handle(this, msg);
       case ActorMessage.RandomMove() -> behavior.handle(this, msg);
       case ActorMessage.Respawn() -> behavior.handle(this, msg);
@@ -278,17 +273,9 @@ public final class Mob extends Living {
 
 
 
-  // 取得當前仇恨最高目標 ID
-  public Optional<Living> getHighestAggroTarget() {
-    CompletableFuture<Optional<Living>> future = new CompletableFuture<>();
-    this.send(new ActorMessage.GetHighestAggroTarget(future));
-    try {
-      return future.orTimeout(1, TimeUnit.SECONDS).join();
-    } catch (Exception e) {
-      log.error("Mob 取得最高仇恨目標失敗 mobId:{}", id, e);
-    }
-
-    return Optional.empty();
+  // 取得當前仇恨最高目標：仇恨表是 ConcurrentHashMap、房間成員讀的是房間發佈的快照，不必經過 Mob 的信箱 (CombatService 在 tick 內使用)
+  public Optional<Living> peekHighestAggroTarget() {
+    return service.getHighestAggroTarget(this);
   }
 
   // --- 互動與事件 ---
@@ -2,10 +2,14 @@ package com.example.htmlmud.domain.actor.impl;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ThreadLocalRandom;
@@ -16,6 +20,7 @@ import org.springframework.web.socket.WebSocketSession;
 import com.example.htmlmud.domain.actor.behavior.GuestBehavior;
 import com.example.htmlmud.domain.actor.behavior.PlayerBehavior;
 import com.example.htmlmud.domain.actor.core.MessageOutput;
+import com.example.htmlmud.domain.actor.core.TimerHandle;
 import com.example.htmlmud.domain.context.MudContext;
 import com.example.htmlmud.domain.exception.MudException;
 import com.example.htmlmud.domain.model.entity.GameItem;
@@ -23,13 +28,18 @@ import com.example.htmlmud.domain.model.entity.LivingStats;
 import com.example.htmlmud.domain.model.entity.PlayerRecord;
 import com.example.htmlmud.domain.model.entity.SkillEntry;
 import com.example.htmlmud.domain.model.enums.Direction;
+import com.example.htmlmud.domain.model.enums.EquipmentSlot;
 import com.example.htmlmud.domain.service.PlayerService;
 import com.example.htmlmud.domain.service.WorldManager;
+import com.example.htmlmud.infra.persistence.journal.JournalEntry;
+import com.example.htmlmud.infra.persistence.service.PlayerPersistenceService;
 import com.example.htmlmud.protocol.ActorMessage;
+import com.example.htmlmud.protocol.FrameKind;
 import com.example.htmlmud.protocol.ConnectionState;
 import com.example.htmlmud.protocol.GameCommand;
 import com.example.htmlmud.protocol.MessageFactory;
 import com.example.htmlmud.protocol.MudMessage;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
@@ -56,6 +66,10 @@ public final class Player extends Living {
   @Setter
   private volatile long lastDisconnectTime = 0;
 
+  // 斷線清理計時器，重新連線時取消
+  @Setter
+  private volatile TimerHandle reaperTimer;
+
   @Setter
   private String nickname;
 
@@ -66,6 +80,22 @@ public final class Player extends Living {
   @Setter
   private PlayerBehavior currentBehavior;
 
+  // 上次寫入 journal 的狀態 (只在 Actor 執行緒讀寫；登入後才開始記錄)
+  @Getter(AccessLevel.NONE)
+  private final Journaled journaled = new Journaled();
+
+  private static final class Journaled {
+    boolean active = false;
+    int hp;
+    int exp;
+    int coin;
+    String roomId;
+    // itemId -> 數量
+    final Map<String, Integer> items = new HashMap<>();
+    // 部位 -> itemId
+    final Map<EquipmentSlot, String> equipment = new EnumMap<>(EquipmentSlot.class);
+  }
+
 
 
   private Player(MessageOutput output, String id, String name, LivingStats state,
@@ -110,6 +140,7 @@ public final class Player extends Living {
     } catch (Exception e) {
       reply(e.getMessage());
     }
+    journalChanges();
   }
 
   private void handlePlayerMessage(ActorMessage.PlayerMessage msg) {
@@ -132,6 +163,12 @@ public final class Player extends Living {
       case ActorMessage.Relive() -> {
         service.handleRelive(this);
       }
+      case ActorMessage.ReaperTimeout(var disconnectTimestamp) -> {
+        service.handleReaperTimeout(this, disconnectTimestamp);
+      }
+      case ActorMessage.SendFrame(var json, var kind) -> {
+        service.handleSendFrame(this, json, kind);
+      }
 
 
 
@@ -159,6 +196,95 @@ public final class Player extends Living {
     service.getPlayerPersistenceService().saveAsync(this.toRecord());
   }
 
+  // 每則訊息處理完後，把這段期間的狀態變化 (hp/exp/coin、所在房間、背包、裝備) 寫入 journal
+  private void journalChanges() {
+    if (!journaled.active) {
+      return;
+    }
+    PlayerPersistenceService persistence = service.getPlayerPersistenceService();
+
+    if (stats.hp != journaled.hp || stats.exp != journaled.exp || stats.coin != journaled.coin) {
+      persistence.journal(new JournalEntry.StatsChanged(id, stats.hp, stats.exp, stats.coin));
+      journaled.hp = stats.hp;
+      journaled.exp = stats.exp;
+      journaled.coin = stats.coin;
+    }
+
+    if (!Objects.equals(currentRoomId, journaled.roomId)) {
+      persistence.journal(new JournalEntry.RoomChanged(id, currentRoomId));
+      journaled.roomId = currentRoomId;
+    }
+
+    // 背包：大部分訊息不會動到，先快速比對
+    boolean sameItems = inventory.size() == journaled.items.size();
+    for (int i = 0; sameItems && i < inventory.size(); i++) {
+      GameItem item = inventory.get(i);
+      Integer amount = journaled.items.get(item.getId());
+      sameItems = amount != null && amount == item.getAmount();
+    }
+    if (!sameItems) {
+      Set<String> current = new HashSet<>();
+      for (GameItem item : inventory) {
+        current.add(item.getId());
+        Integer amount = journaled.items.get(item.getId());
+        if (amount == null || amount != item.getAmount()) {
+          persistence.journalItem(id, item);
+          journaled.items.put(item.getId(), item.getAmount());
+        }
+      }
+      journaled.items.keySet().removeIf(itemId -> {
+        if (current.contains(itemId)) {
+          return false;
+        }
+        persistence.journal(new JournalEntry.ItemRemoved(id, itemId));
+        return true;
+      });
+    }
+
+    // 裝備
+    boolean sameEquipment = stats.equipment.size() == journaled.equipment.size();
+    if (sameEquipment) {
+      for (Map.Entry<EquipmentSlot, GameItem> e : stats.equipment.entrySet()) {
+        if (!e.getValue().getId().equals(journaled.equipment.get(e.getKey()))) {
+          sameEquipment = false;
+          break;
+        }
+      }
+    }
+    if (!sameEquipment) {
+      for (EquipmentSlot slot : EquipmentSlot.values()) {
+        GameItem item = stats.equipment.get(slot);
+        String itemId = (item == null) ? null : item.getId();
+        if (!Objects.equals(itemId, journaled.equipment.get(slot))) {
+          persistence.journalEquipment(id, slot, item);
+          if (itemId == null) {
+            journaled.equipment.remove(slot);
+          } else {
+            journaled.equipment.put(slot, itemId);
+          }
+        }
+      }
+    }
+  }
+
+  // 登入 (讀取存檔) 後以存檔內容為基準開始記錄
+  private void startJournal() {
+    if (!service.getPlayerPersistenceService().isJournalEnabled()) {
+      return;
+    }
+    journaled.hp = stats.hp;
+    journaled.exp = stats.exp;
+    journaled.coin = stats.coin;
+    journaled.roomId = currentRoomId;
+    journaled.items.clear();
+    for (GameItem item : inventory) {
+      journaled.items.put(item.getId(), item.getAmount());
+    }
+    journaled.equipment.clear();
+    stats.equipment.forEach((slot, item) -> journaled.equipment.put(slot, item.getId()));
+    journaled.active = true;
+  }
+
 
 
   // @Override
@@ -232,6 +358,7 @@ public final class Player extends Living {
     if (this.inventory == null) {
       this.inventory = new ArrayList<>();
     }
+    startJournal();
   }
 
   /**
@@ -263,8 +390,8 @@ public final class Player extends Living {
     // currentRoom.broadcast(name + " 的身影慢慢消失在空氣中。");
     // }
 
-    // // 3. 從全域管理器移除 (Map<String, PlayerActor>)
-    // PlayerManager.remove(this.name);
+    // 2 + 3. 從全域管理器移除 (同時會從房間與玩家位置索引移除)
+    manager.removeLivingActor(this.id);
 
     // 4. 終止 Actor 迴圈
     stop();
@@ -304,7 +431,9 @@ public final class Player extends Living {
 
     reply("$N已經死亡！即將在重生點復活...");
 
-    this.send(new ActorMessage.Relive());
+    // 2 秒後復活 (交給共用的計時器，不讓 Actor 睡著)
+    service.getTimerService().schedule(PlayerService.RELIVE_DELAY_MS,
+        () -> this.send(new ActorMessage.Relive()));
   }
 
   @Override
@@ -372,6 +501,10 @@ public final class Player extends Living {
     sendText(msg);
   }
 
+  public void sendFrame(String json, FrameKind kind) {
+    this.send(new ActorMessage.SendFrame(json, kind));
+  }
+
   public void reconnect(Player guestPlayer) {
     this.send(new ActorMessage.Reconnect(guestPlayer));
   }
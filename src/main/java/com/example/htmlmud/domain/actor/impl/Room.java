@@ -6,17 +6,17 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 import com.example.htmlmud.domain.actor.core.RoomMessageBuffer;
 import com.example.htmlmud.domain.actor.core.VirtualActor; // 引用您的基礎類別
 import com.example.htmlmud.domain.exception.MudException;
 import com.example.htmlmud.domain.model.entity.GameItem;
+import com.example.htmlmud.domain.model.entity.RoomDormantState;
 import com.example.htmlmud.domain.model.enums.Direction;
 import com.example.htmlmud.domain.model.template.RoomTemplate;
 import com.example.htmlmud.domain.model.template.ZoneTemplate;
 import com.example.htmlmud.domain.service.RoomService;
+import com.example.htmlmud.infra.persistence.repository.TemplateRepository;
 import com.example.htmlmud.protocol.MudMessage;
 import com.example.htmlmud.protocol.RoomMessage;
 import lombok.Getter;
@@ -31,10 +31,12 @@ public class Room extends VirtualActor<RoomMessage> {
   @Getter
   private final String id;
 
-  @Getter
-  private final RoomTemplate template;
+  // 模板以 handle 持有：熱更新換掉模板後，下一次取用就是新版
+  private final int templateHandle;
+  private final int zoneHandle;
 
-  @Getter
+  // 建立時 (或最後一次渲染 look 標題時) 的模板，handle 查不到時沿用
+  private RoomTemplate template;
   private final ZoneTemplate zoneTemplate;
 
   // 房間內的玩家 (Runtime State)
@@ -49,15 +51,39 @@ public class Room extends VirtualActor<RoomMessage> {
   private Map<String, Set<String>> trackedMobs = new HashMap<>();
 
   @Getter
-  private RoomMessageBuffer buffer = new RoomMessageBuffer(this);
+  private final RoomMessageBuffer buffer;
+
+  // 戰鬥批次模式下，這個 tick 尚未結算的攻擊
+  private final List<RoomMessage.CombatHit> pendingHits = new ArrayList<>();
+
+  // 存檔的地上物品讀回來之前，不寫整個房間的快照、也不休眠 (否則會蓋掉還沒讀到的物品)
+  private boolean itemsLoaded;
+
+  // look 畫面：固定的標題/描述/出口 (模板換新時重新渲染) + 依快照版本快取的內容區段
+  private String lookHeader;
+
+  @Getter
+  private final RoomLookCache lookCache = new RoomLookCache();
+
+  // 對外發佈的唯讀快照 (只有 Actor 自己會寫入)
+  private volatile RoomSnapshot snapshot = RoomSnapshot.EMPTY;
 
 
 
   public Room(String id, RoomService roomService) {
+    this(id, roomService, null);
+  }
+
+  /**
+   * @param restore 區域休眠時留下的快照 (null 代表第一次建立，依 spawn rule 生怪)
+   */
+  public Room(String id, RoomService roomService, RoomDormantState restore) {
     super("room-" + id);
     this.roomService = roomService;
+    this.buffer = new RoomMessageBuffer(this, roomService.getTimerService());
 
     this.id = id;
+    this.templateHandle = TemplateRepository.roomHandle(id);
     this.template = roomService.getRoomTemplate(id);
     if (this.template == null) {
       log.error("roomTemplate is null id:{}", id);
@@ -69,8 +95,39 @@ public class Room extends VirtualActor<RoomMessage> {
       // log.error("zoneTemplate is null id:{}", template.zoneId());
       throw new MudException("zoneTemplate is null id:" + template.zoneId());
     }
+    this.zoneHandle = TemplateRepository.zoneHandle(template.zoneId());
+    this.lookHeader = roomService.renderLookHeader(template);
+
+    if (restore == null) {
+      // 地上物品在背景讀取，完成後以 ItemsLoaded 送回 (不在建構子裡等資料庫)
+      roomService.spawnInitial(this, mobs);
+    } else {
+      roomService.restore(this, mobs, items, restore);
+      itemsLoaded = true;
+    }
+    publishSnapshot();
+  }
+
 
-    roomService.spawnInitial(this, mobs, items);
+
+  public RoomTemplate getTemplate() {
+    RoomTemplate current = TemplateRepository.getRoom(templateHandle);
+    return (current != null) ? current : template;
+  }
+
+  public ZoneTemplate getZoneTemplate() {
+    ZoneTemplate current = TemplateRepository.getZone(zoneHandle);
+    return (current != null) ? current : zoneTemplate;
+  }
+
+  // 只在 Actor 執行緒 (look) 呼叫
+  public String getLookHeader() {
+    RoomTemplate current = getTemplate();
+    if (current != template) {
+      template = current;
+      lookHeader = roomService.renderLookHeader(current);
+    }
+    return lookHeader;
   }
 
 
@@ -82,16 +139,23 @@ public class Room extends VirtualActor<RoomMessage> {
     switch (msg) {
       case RoomMessage.Enter(var actor, var direction, var future) -> {
         roomService.enter(this, players, mobs, actor, direction);
+        publishSnapshot();
         future.complete(null);
       }
       case RoomMessage.Leave(var actor, var direction) -> {
         roomService.leave(this, players, mobs, actor, direction);
+        publishSnapshot();
       }
       case RoomMessage.Say(var sourceId, var content) -> {
         roomService.say(players, sourceId, content);
       }
       case RoomMessage.TryPickItem(var args, var picker, var future) -> {
-        future.complete(roomService.tryPickItem(items, args, picker));
+        GameItem picked = roomService.tryPickItem(items, args, picker);
+        if (picked != null) {
+          roomService.itemRemoved(this, picked.getId());
+          publishSnapshot();
+        }
+        future.complete(picked);
       }
       case RoomMessage.Tick(var tickCount, var timestamp) -> {
         roomService.tick(this, tickCount, timestamp);
@@ -99,8 +163,8 @@ public class Room extends VirtualActor<RoomMessage> {
       case RoomMessage.Broadcast(var sourceId, var targetId, var message) -> {
         roomService.broadcast(players, mobs, sourceId, targetId, message);
       }
-      case RoomMessage.BroadcastJson(var message) -> {
-        roomService.broadcastJson(players, message);
+      case RoomMessage.BroadcastJson(var message, var participants) -> {
+        roomService.broadcastJson(players, message, participants);
       }
       case RoomMessage.BroadcastToOthers(var sourceId, var message) -> {
         roomService.broadcastToOthers(players, sourceId, message);
@@ -116,27 +180,36 @@ public class Room extends VirtualActor<RoomMessage> {
         future.complete(players.stream().filter(Player::isValid).toList());
       }
       case RoomMessage.RemovePlayer(var playerId) -> {
-        players.removeIf(player -> player.getId().equals(playerId));
+        if (roomService.removePlayer(this, players, playerId)) {
+          publishSnapshot();
+        }
       }
       case RoomMessage.GetMobs(var future) -> {
         future.complete(mobs.stream().filter(Mob::isValid).toList());
       }
       case RoomMessage.RemoveMob(var mobId) -> {
-        mobs.removeIf(mob -> mob.getId().equals(mobId));
+        if (mobs.removeIf(mob -> mob.getId().equals(mobId))) {
+          publishSnapshot();
+        }
       }
       case RoomMessage.GetItems(var future) -> {
-        future.complete(items);
+        future.complete(List.copyOf(items));
       }
       case RoomMessage.RemoveItem(var itemId) -> {
-        items.removeIf(item -> item.getId().equals(itemId));
-        // 標記為 Dirty (需要存檔)
-        // WorldManager.markDirty(this.template.id());
+        if (items.removeIf(item -> item.getId().equals(itemId))) {
+          roomService.itemRemoved(this, itemId);
+          publishSnapshot();
+        }
       }
       case RoomMessage.DropItem(var item) -> {
         items.add(item);
+        roomService.itemAdded(this, item);
+        publishSnapshot();
       }
       case RoomMessage.Record() -> {
-        roomService.record(this.getTemplate().id(), items);
+        if (itemsLoaded) {
+          roomService.record(this.getTemplate().id(), items);
+        }
       }
       case RoomMessage.LookAtRoom(var playerId, var future) -> {
         future.complete(roomService.lookAtRoom(this, players, mobs, items, playerId));
@@ -144,13 +217,47 @@ public class Room extends VirtualActor<RoomMessage> {
       case RoomMessage.LookDirection(var player, var dir, var future) -> {
         future.complete(roomService.lookDirection(this, player, dir));
       }
+      case RoomMessage.CombatHit hit -> {
+        pendingHits.add(hit);
+      }
+      case RoomMessage.ResolveCombat() -> {
+        roomService.resolveCombat(this, pendingHits);
+        pendingHits.clear();
+      }
+      case RoomMessage.Passivate request -> {
+        // WorldManager 等不到回覆已經撤回：房間維持運作
+        if (!request.claim()) {
+          return;
+        }
+        // 還有玩家、或存檔的物品還沒讀回來就不休眠
+        if (!players.isEmpty() || !itemsLoaded) {
+          request.future().complete(Optional.empty());
+          return;
+        }
+        try {
+          RoomDormantState state = roomService.passivate(this, mobs, items);
+          pendingHits.clear();
+          publishSnapshot();
+          request.future().complete(Optional.of(state));
+        } catch (RuntimeException e) {
+          request.future().completeExceptionally(e);
+        }
+      }
+      case RoomMessage.ItemsLoaded(var saved) -> {
+        roomService.itemsLoaded(this, items, saved);
+        itemsLoaded = true;
+        publishSnapshot();
+      }
 
     }
   }
 
 
 
-  // ---------------------------------------------------------------------------------------------
+  // 每次變動房間內容後呼叫 (只能在 Actor 自己的執行緒上)
+  private void publishSnapshot() {
+    snapshot = RoomSnapshot.of(snapshot.version() + 1, players, mobs, items);
+  }
 
 
 
@@ -163,10 +270,8 @@ public class Room extends VirtualActor<RoomMessage> {
 
 
   public void enter(Living actor, Direction direction) {
-    CompletableFuture<Void> future = new CompletableFuture<>();
-    this.send(new RoomMessage.Enter(actor, direction, future));
     try {
-      future.orTimeout(1, TimeUnit.SECONDS).join();
+      this.<Void>ask(reply -> new RoomMessage.Enter(actor, direction, reply)).join();
     } catch (Exception e) {
       log.error("Room enter 失敗 roomId:{}", id, e);
       if (actor instanceof Player player) {
@@ -188,10 +293,9 @@ public class Room extends VirtualActor<RoomMessage> {
   }
 
   public Optional<GameItem> tryPickItem(String args, Player picker) {
-    CompletableFuture<GameItem> future = new CompletableFuture<>();
-    this.send(new RoomMessage.TryPickItem(args, picker, future));
     try {
-      GameItem item = future.orTimeout(1, TimeUnit.SECONDS).join();
+      GameItem item =
+          this.<GameItem>ask(reply -> new RoomMessage.TryPickItem(args, picker, reply)).join();
       if (item != null) {
         return Optional.of(item);
       }
@@ -206,71 +310,42 @@ public class Room extends VirtualActor<RoomMessage> {
     this.send(new RoomMessage.Broadcast(actorId, targetId, message));
   }
 
-  public void broadcastJson(MudMessage<Object> message) {
-    this.send(new RoomMessage.BroadcastJson(message));
+  public void broadcastJson(MudMessage<Object> message, Set<String> participants) {
+    this.send(new RoomMessage.BroadcastJson(message, participants));
   }
 
   public void broadcastToOthers(String actorId, String message) {
     this.send(new RoomMessage.BroadcastToOthers(actorId, message));
   }
 
-  public Optional<Living> findLiving(String livingId) {
-    CompletableFuture<Living> future = new CompletableFuture<>();
-    this.send(new RoomMessage.FindLiving(livingId, future));
-    try {
-      Living living = future.orTimeout(1, TimeUnit.SECONDS).join();
-      if (living != null) {
-        return Optional.of(living);
-      }
-    } catch (Exception e) {
-      log.error("Room 取得 Living 列表失敗 roomId:{}", id, e);
-    }
+  // 唯讀查詢：直接讀取最新發佈的快照，不經過信箱 -----------------------------------------------
 
-    return Optional.empty();
+  public RoomSnapshot getSnapshot() {
+    return snapshot;
+  }
+
+  public Optional<Living> findLiving(String livingId) {
+    return snapshot.findLiving(livingId);
   }
 
   public List<Living> getLivings() {
-    CompletableFuture<List<Living>> future = new CompletableFuture<>();
-    this.send(new RoomMessage.GetLivings(future));
-    try {
-      return future.orTimeout(1, TimeUnit.SECONDS).join();
-    } catch (Exception e) {
-      log.error("Room 取得 Living 列表失敗 roomId:{}", id, e);
-    }
-    return new ArrayList<>();
+    return snapshot.livings().stream().filter(Living::isValid).toList();
   }
 
   public List<Player> getPlayers() {
-    CompletableFuture<List<Player>> future = new CompletableFuture<>();
-    this.send(new RoomMessage.GetPlayers(future));
-    try {
-      return future.orTimeout(1, TimeUnit.SECONDS).join();
-    } catch (Exception e) {
-      log.error("Room 取得 Player 列表失敗 roomId:{}", id, e);
-    }
-    return new ArrayList<>();
+    return snapshot.players().stream().filter(Player::isValid).toList();
   }
 
   public List<Mob> getMobs() {
-    CompletableFuture<List<Mob>> future = new CompletableFuture<>();
-    this.send(new RoomMessage.GetMobs(future));
-    try {
-      return future.orTimeout(1, TimeUnit.SECONDS).join();
-    } catch (Exception e) {
-      log.error("Room 取得 Mob 列表失敗 roomId:{}", id, e);
-    }
-    return new ArrayList<>();
+    return snapshot.mobs().stream().filter(Mob::isValid).toList();
   }
 
   public List<GameItem> getItems() {
-    CompletableFuture<List<GameItem>> future = new CompletableFuture<>();
-    this.send(new RoomMessage.GetItems(future));
-    try {
-      return future.orTimeout(1, TimeUnit.SECONDS).join();
-    } catch (Exception e) {
-      log.error("Room 取得 GameItem 列表失敗 roomId:{}", id, e);
-    }
-    return new ArrayList<>();
+    return snapshot.items();
+  }
+
+  public boolean hasPlayers() {
+    return snapshot.hasPlayers();
   }
 
   public void record() {
@@ -293,11 +368,22 @@ public class Room extends VirtualActor<RoomMessage> {
     this.send(new RoomMessage.DropItem(item));
   }
 
+  /**
+   * 區域休眠時由 WorldManager 呼叫，回覆快照後即可 stop()；等太久時以 claim() 撤回 (見 RoomMessage.Passivate)
+   */
+  public RoomMessage.Passivate passivate() {
+    RoomMessage.Passivate request = new RoomMessage.Passivate();
+    if (!this.send(request)) {
+      // 信箱滿了：訊息沒有送進去，房間不會休眠
+      request.claim();
+      request.future().complete(Optional.empty());
+    }
+    return request;
+  }
+
   public String lookAtRoom(Player player) {
-    CompletableFuture<String> future = new CompletableFuture<>();
-    this.send(new RoomMessage.LookAtRoom(player.getId(), future));
     try {
-      return future.orTimeout(1, TimeUnit.SECONDS).join();
+      return this.<String>ask(reply -> new RoomMessage.LookAtRoom(player.getId(), reply)).join();
     } catch (Exception e) {
       log.error("Room lookAtRoom 失敗 roomId:{}", this.getId(), e);
       throw new MudException("這個房間發生空間破碎!!!");
@@ -305,10 +391,8 @@ public class Room extends VirtualActor<RoomMessage> {
   }
 
   public String lookDirection(Player player, Direction dir) {
-    CompletableFuture<String> future = new CompletableFuture<>();
-    this.send(new RoomMessage.LookDirection(player, dir, future));
     try {
-      return future.orTimeout(1, TimeUnit.SECONDS).join();
+      return this.<String>ask(reply -> new RoomMessage.LookDirection(player, dir, reply)).join();
     } catch (Exception e) {
       log.error("Room lookDirection 失敗 roomId:{}", this.getId(), e);
       throw new MudException("那個方向發生空間破碎!!!");
@@ -0,0 +1,76 @@
+package com.example.htmlmud.domain.actor.impl;
+
+import java.util.List;
+
+/**
+ * look 畫面的快取 (只有 Room Actor 自己會讀寫)
+ *
+ * 標題、描述、出口在房間建立時就渲染好；玩家、NPC、怪物、物品的部分跟著 RoomSnapshot 的 version 走，
+ * 內容沒變、怪物的血量區間也沒變就直接沿用。玩家名單另外保留，因為每個人看到的都要排除自己。
+ */
+public class RoomLookCache {
+
+  // 玩家名單的一筆 (已排序、已上色)
+  public record PlayerEntry(String id, String text) {
+  }
+
+  private long version = -1;
+  // 建立快取時每隻怪物的血量區間 (順序與 mobs 相同)
+  private int[] healthBuckets = new int[0];
+
+  private List<PlayerEntry> players = List.of();
+  // NPC、怪物、物品的區段
+  private String contents = "";
+
+  /**
+   * 血量區間：0 狀態佳、1 受輕傷、2 受重傷、3 瀕死
+   */
+  public static int healthBucket(Mob mob) {
+    double pct = (double) mob.getStats().getHp() / mob.getStats().getMaxHp();
+    if (pct >= 0.85)
+      return 0;
+    if (pct > 0.5)
+      return 1;
+    if (pct > 0.2)
+      return 2;
+
+    return 3;
+  }
+
+  public static int[] healthBuckets(List<Mob> mobs) {
+    int[] buckets = new int[mobs.size()];
+    for (int i = 0; i < buckets.length; i++) {
+      buckets[i] = healthBucket(mobs.get(i));
+    }
+    return buckets;
+  }
+
+  // version 相同代表 mobs 的內容與順序都沒變，只需要再比對血量區間
+  public boolean isValid(long version, List<Mob> mobs) {
+    if (this.version != version || healthBuckets.length != mobs.size()) {
+      return false;
+    }
+    for (int i = 0; i < healthBuckets.length; i++) {
+      if (healthBuckets[i] != healthBucket(mobs.get(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public void update(long version, int[] healthBuckets, List<PlayerEntry> players,
+      String contents) {
+    this.version = version;
+    this.healthBuckets = healthBuckets;
+    this.players = players;
+    this.contents = contents;
+  }
+
+  public List<PlayerEntry> getPlayers() {
+    return players;
+  }
+
+  public String getContents() {
+    return contents;
+  }
+}
@@ -0,0 +1,47 @@
+package com.example.htmlmud.domain.actor.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import com.example.htmlmud.domain.model.entity.GameItem;
+
+/**
+ * 房間內容的不可變快照
+ *
+ * 由 Room Actor 在每次變動後發佈，讀取端直接拿來用，不需要排進房間的信箱。 version 每次發佈 +1，可以用來判斷內容有沒有變。
+ */
+public record RoomSnapshot(long version, List<Player> players, List<Mob> mobs,
+    List<GameItem> items) {
+
+  public static final RoomSnapshot EMPTY = new RoomSnapshot(0, List.of(), List.of(), List.of());
+
+  public static RoomSnapshot of(long version, List<Player> players, List<Mob> mobs,
+      List<GameItem> items) {
+    return new RoomSnapshot(version, List.copyOf(players), List.copyOf(mobs), List.copyOf(items));
+  }
+
+  public List<Living> livings() {
+    List<Living> livings = new ArrayList<>(players.size() + mobs.size());
+    livings.addAll(players);
+    livings.addAll(mobs);
+    return livings;
+  }
+
+  public Optional<Living> findLiving(String livingId) {
+    for (Player player : players) {
+      if (player.getId().equals(livingId)) {
+        return Optional.of(player);
+      }
+    }
+    for (Mob mob : mobs) {
+      if (mob.getId().equals(livingId)) {
+        return Optional.of(mob);
+      }
+    }
+    return Optional.empty();
+  }
+
+  public boolean hasPlayers() {
+    return !players.isEmpty();
+  }
+}
@@ -0,0 +1,94 @@
+package com.example.htmlmud.domain.model.config;
+
+import java.util.List;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * game-config.json (只取世界載入需要的部分)
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record GameConfig(
+
+    String gameName,
+
+    String version,
+
+    String dataVersion,
+
+    Engine engine,
+
+    Resources resources,
+
+    List<ZoneEntry> zones
+
+) {
+
+  // 找不到 game-config.json 時使用 (與原本寫死的載入內容相同)
+  public static final GameConfig DEFAULT = new GameConfig("JavaMUD", null, null, null, null,
+      List.of(new ZoneEntry("newbie_village", "zones/newbie_village/manifest.json", true)));
+
+  public GameConfig {
+    if (engine == null) {
+      engine = new Engine(false, 0);
+    }
+    if (resources == null) {
+      resources = new Resources(null, null, null);
+    }
+    if (zones == null) {
+      zones = List.of();
+    }
+  }
+
+  public List<ZoneEntry> enabledZones() {
+    return zones.stream().filter(ZoneEntry::enabled).toList();
+  }
+
+  /**
+   * @param hotReload 技能、種族、區域的 JSON 變更時不重啟直接換入新模板
+   * @param saveInterval 每位玩家自動存檔的間隔 (毫秒，沒設定時 5 分鐘)
+   */
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  public record Engine(boolean hotReload, long saveInterval) {
+    public Engine {
+      if (saveInterval <= 0) {
+        saveInterval = 300_000;
+      }
+    }
+  }
+
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  public record Resources(
+
+      String rootPath, // e.g., "data/"
+
+      String skills, // 相對 rootPath 的 pattern，支援萬用字元
+
+      String races
+
+  ) {
+    public Resources {
+      if (rootPath == null) {
+        rootPath = "data/";
+      }
+      if (skills == null) {
+        skills = "global/skills/test/*.json";
+      }
+      if (races == null) {
+        races = "global/races.json";
+      }
+    }
+  }
+
+  /**
+   * @param id 設定檔上的名稱 (實際的 zoneId 以 manifest 為準)
+   * @param path 相對 rootPath 的 manifest 路徑，同一個目錄下要有 mobs/items/rooms.json
+   */
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  public record ZoneEntry(String id, String path, boolean enabled) {
+
+    public String directory() {
+      int slash = path.lastIndexOf('/');
+      return (slash < 0) ? "" : path.substring(0, slash + 1);
+    }
+  }
+}
@@ -84,7 +84,7 @@ public class GameItem {
   }
 
   public boolean isStackable() {
-    return template.isStackable();
+    return template != null && template.isStackable();
   }
 
   /**
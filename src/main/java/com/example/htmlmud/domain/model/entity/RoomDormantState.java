@@ -0,0 +1,30 @@
+package com.example.htmlmud.domain.model.entity;
+
+import java.util.List;
+
+/**
+ * 區域休眠時，單一房間保留下來的內容
+ *
+ * 怪物只記模板 ID 與血量 (還原時重新建立 Actor)，不保留任何執行緒或 Actor 參照。
+ *
+ * @param items 地上的物品
+ * @param mobTemplateIds 怪物模板 ID
+ * @param mobHp 對應的血量 (與 mobTemplateIds 同索引)
+ */
+public record RoomDormantState(
+
+    List<GameItem> items,
+
+    String[] mobTemplateIds,
+
+    int[] mobHp
+
+) {
+
+  public static final RoomDormantState EMPTY =
+      new RoomDormantState(List.of(), new String[0], new int[0]);
+
+  public boolean isEmpty() {
+    return items.isEmpty() && mobTemplateIds.length == 0;
+  }
+}
@@ -0,0 +1,31 @@
+package com.example.htmlmud.domain.model.entity;
+
+/**
+ * 地上物品的一筆增減 (append-only，壓縮時併入 RoomStateRecord 的快照)
+ *
+ * @param item 放下的物品 (移除時為 null，只需要 itemId)
+ */
+public record RoomItemDiff(
+
+    String roomId,
+
+    String zoneId,
+
+    String itemId,
+
+    GameItem item
+
+) implements RoomStateChange {
+
+  public boolean isAdded() {
+    return item != null;
+  }
+
+  public static RoomItemDiff added(String roomId, String zoneId, GameItem item) {
+    return new RoomItemDiff(roomId, zoneId, item.getId(), item);
+  }
+
+  public static RoomItemDiff removed(String roomId, String zoneId, String itemId) {
+    return new RoomItemDiff(roomId, zoneId, itemId, null);
+  }
+}
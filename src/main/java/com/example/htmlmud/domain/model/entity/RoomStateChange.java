@@ -0,0 +1,11 @@
+package com.example.htmlmud.domain.model.entity;
+
+/**
+ * 房間狀態的變動 (依發生順序寫入，見 RoomPersistenceService)
+ */
+public sealed interface RoomStateChange permits RoomItemDiff, RoomStateRecord {
+
+  String roomId();
+
+  String zoneId();
+}
@@ -10,6 +10,6 @@ public record RoomStateRecord(
 
     List<GameItem> droppedItems
 
-) {
+) implements RoomStateChange {
 
 }
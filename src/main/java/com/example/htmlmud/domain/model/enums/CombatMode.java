@@ -0,0 +1,21 @@
+package com.example.htmlmud.domain.model.enums;
+
+public enum CombatMode {
+
+  // 每一擊直接送傷害給目標、戰鬥訊息逐一送給房間內每位玩家
+  PER_HIT("逐擊結算"),
+
+  // 每一擊只送一則訊息給房間，由房間在每個 tick 合併結算
+  ROOM_BATCH("房間批次結算");
+
+  private final String description;
+
+  CombatMode(String description) {
+    this.description = description;
+  }
+
+  public String getDescription() {
+    return description;
+  }
+
+}
@@ -0,0 +1,27 @@
+package com.example.htmlmud.domain.model.enums;
+
+public enum ZoneState {
+
+  // 只有模板，還沒有任何 Room Actor (啟動後、從沒有玩家進入過)
+  TEMPLATE_ONLY("僅模板"),
+
+  // 房間與怪物的 Actor 都在運作
+  ACTIVE("運作中"),
+
+  // 正在把房間內容存成快照並釋放 Actor
+  PASSIVATING("休眠中"),
+
+  // 已釋放 Actor，只保留快照，玩家進入時從快照還原
+  DORMANT("已休眠");
+
+  private final String description;
+
+  ZoneState(String description) {
+    this.description = description;
+  }
+
+  public String getDescription() {
+    return description;
+  }
+
+}
@@ -0,0 +1,65 @@
+package com.example.htmlmud.domain.model.template;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import com.example.htmlmud.infra.util.IdUtils;
+
+/**
+ * 一個區域解析後的完整模板 (ID 已轉為絕對 ID)
+ */
+public record ZoneBundle(
+
+    ZoneTemplate zone,
+
+    List<MobTemplate> mobs,
+
+    List<ItemTemplate> items,
+
+    List<RoomTemplate> rooms
+
+) {
+
+  /**
+   * 把 JSON 讀進來的相對 ID (mob、item、room、出口、生怪規則) 轉為絕對 ID
+   */
+  public static ZoneBundle resolve(ZoneTemplate zone, Collection<MobTemplate> mobs,
+      Collection<ItemTemplate> items, Collection<RoomTemplate> rooms) {
+    String zoneId = zone.id();
+
+    List<MobTemplate> newMobs = (mobs == null) ? List.of()
+        : mobs.stream().map(mob -> mob.toBuilder().id(IdUtils.resolveId(zoneId, mob.id())).build())
+            .toList();
+
+    List<ItemTemplate> newItems = (items == null) ? List.of()
+        : items.stream()
+            .map(item -> item.toBuilder().id(IdUtils.resolveId(zoneId, item.id())).build())
+            .toList();
+
+    List<RoomTemplate> newRooms = new ArrayList<>((rooms == null) ? 0 : rooms.size());
+    if (rooms != null) {
+      for (RoomTemplate room : rooms) {
+        // 1. 處理 Mob Spawn Rules (使用 Stream 避免 ConcurrentModificationException)
+        List<SpawnRule> spawnRules = room.spawnRules() == null ? null
+            : room.spawnRules().stream()
+                .map(rule -> rule.toBuilder().id(IdUtils.resolveId(zoneId, rule.id())).build())
+                .toList();
+
+        // 2. 處理 Exits
+        Map<String, RoomExit> updatedExits = room.exits() == null ? null
+            : room.exits().entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().toBuilder()
+                    .targetRoomId(IdUtils.resolveId(zoneId, e.getValue().targetRoomId())).build()));
+
+        // 更新 room.id
+        String newRoomId = IdUtils.resolveId(zoneId, room.id());
+        newRooms.add(room.toBuilder().id(newRoomId).zoneId(zoneId).exits(updatedExits)
+            .spawnRules(spawnRules).build());
+      }
+    }
+
+    return new ZoneBundle(zone, newMobs, newItems, newRooms);
+  }
+}
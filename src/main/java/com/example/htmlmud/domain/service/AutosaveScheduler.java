@@ -0,0 +1,175 @@
+package com.example.htmlmud.domain.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import com.example.htmlmud.domain.actor.impl.Player;
+import com.example.htmlmud.domain.model.config.GameConfig;
+import com.example.htmlmud.infra.persistence.service.PlayerPersistenceService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 定期自動存檔 (game-config.json 的 engine.saveInterval)
+ *
+ * 把存檔間隔切成固定長度的時段 (slot)，玩家登入時放進目前人數最少的時段，WorldPulse 每次心跳推進到現在的時段，
+ * 對經過的時段裡的玩家送出 SaveData (最後經由 PlayerPersistenceService.saveAsync 寫入)。
+ * 每個時段的人數差距不超過一，不會在同一瞬間全部存檔；存檔佇列太深時暫停推進，等佇列消化後再補上。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AutosaveScheduler {
+
+  private final PlayerPersistenceService playerPersistenceService;
+
+  // 一個時段的長度
+  @Value("${mud.autosave.slot-ms:1000}")
+  private long slotMs;
+
+  // 存檔佇列超過這個深度就暫停推進時段
+  @Value("${mud.autosave.max-queue-depth:200}")
+  private int maxQueueDepth;
+
+  // 暫停後補進度時，一次心跳最多推進的時段數 (避免恢復時瞬間湧入)
+  @Value("${mud.autosave.max-slots-per-tick:2}")
+  private int maxSlotsPerTick;
+
+  // 以下欄位只在持有 this 的鎖時修改 (tick 在 WorldPulse 執行緒，register / unregister 在玩家的 Actor)
+  private List<Set<Player>> slots = newSlots(300);
+  private final Map<String, Integer> slotOf = new HashMap<>();
+  // 最近一次 register 的時段，下一位玩家從這裡往後找人數最少的時段
+  private int nextSlot = 0;
+  // 已處理到的時段序號 (現在時間 / slotMs)，0 代表還沒開始
+  private long cursor = 0;
+
+  // playerId -> 開始追蹤的時間 (還沒存過檔的玩家以此計算)
+  private final Map<String, Long> registeredAt = new ConcurrentHashMap<>();
+
+  // 統計 (WorldPulse 每分鐘記錄一次)
+  private long saves = 0;
+  private long backoffTicks = 0;
+
+  public record SaveAgeStats(int players, long p50Seconds, long p90Seconds, long maxSeconds) {
+  }
+
+  private static List<Set<Player>> newSlots(int count) {
+    List<Set<Player>> list = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      list.add(ConcurrentHashMap.newKeySet());
+    }
+    return list;
+  }
+
+
+
+  /**
+   * 依 game-config 的存檔間隔重新切分時段 (已登記的玩家重新分配)
+   */
+  public synchronized void start(GameConfig config) {
+    long interval = config.engine().saveInterval();
+    int count = (int) Math.max(1, interval / Math.max(1, slotMs));
+
+    List<Player> players = slots.stream().flatMap(Set::stream).toList();
+    slots = newSlots(count);
+    slotOf.clear();
+    nextSlot = 0;
+    players.forEach(this::assign);
+    cursor = 0;
+    log.info("Autosave interval:{}ms slots:{} x {}ms", interval, count, slotMs);
+  }
+
+  public synchronized void register(Player player) {
+    if (slotOf.containsKey(player.getId())) {
+      return;
+    }
+    assign(player);
+    registeredAt.put(player.getId(), System.currentTimeMillis());
+  }
+
+  public synchronized void unregister(String playerId) {
+    Integer slot = slotOf.remove(playerId);
+    if (slot != null) {
+      slots.get(slot).removeIf(p -> p.getId().equals(playerId));
+    }
+    registeredAt.remove(playerId);
+  }
+
+  // 放進人數最少的時段 (從上一位的下一格開始找，人數相同時依序輪流)
+  private void assign(Player player) {
+    int count = slots.size();
+    int best = nextSlot;
+    for (int i = 0; i < count; i++) {
+      int slot = (nextSlot + i) % count;
+      if (slots.get(slot).size() < slots.get(best).size()) {
+        best = slot;
+      }
+    }
+    slots.get(best).add(player);
+    slotOf.put(player.getId(), best);
+    nextSlot = (best + 1) % count;
+  }
+
+
+
+  /**
+   * 由 WorldPulse 每次心跳呼叫：推進到現在的時段，經過的時段裡的玩家送出存檔
+   */
+  public synchronized void tick(long now) {
+    long target = now / slotMs;
+    if (cursor == 0) {
+      cursor = target;
+      return;
+    }
+
+    // 存檔佇列太深：這次不推進，時段往後延
+    if (playerPersistenceService.getQueueDepth() >= maxQueueDepth) {
+      backoffTicks++;
+      return;
+    }
+
+    // 落後超過一整輪時，每位玩家補存一次就夠了
+    int count = slots.size();
+    cursor = Math.max(cursor, target - count);
+
+    int budget = maxSlotsPerTick;
+    while (cursor < target && budget-- > 0) {
+      cursor++;
+      for (Player player : slots.get(Math.floorMod(cursor, count))) {
+        player.saveData();
+        saves++;
+      }
+    }
+  }
+
+  /**
+   * 目前登記中的玩家距離上次存檔的秒數分佈 (這次登入後還沒存過的，以登入時間計算)
+   */
+  public SaveAgeStats getSaveAgeStats(long now) {
+    long[] ages = registeredAt.entrySet().stream().mapToLong(e -> {
+      long saved = playerPersistenceService.getLastSavedAt(e.getKey());
+      return (now - Math.max(saved, e.getValue())) / 1000;
+    }).sorted().toArray();
+
+    if (ages.length == 0) {
+      return new SaveAgeStats(0, 0, 0, 0);
+    }
+    return new SaveAgeStats(ages.length, ages[(ages.length - 1) / 2],
+        ages[(int) Math.ceil(ages.length * 0.9) - 1], ages[ages.length - 1]);
+  }
+
+  public synchronized void logStats(long now) {
+    SaveAgeStats ages = getSaveAgeStats(now);
+    log.info(
+        "Autosave Stats - Players: {}, Saves: {}, Backoff Ticks: {}, Since Last Save p50: {}s p90: {}s max: {}s",
+        ages.players(), saves, backoffTicks, ages.p50Seconds(), ages.p90Seconds(),
+        ages.maxSeconds());
+    saves = 0;
+    backoffTicks = 0;
+  }
+}
@@ -1,23 +1,34 @@
 package com.example.htmlmud.domain.service;
 
-import java.util.List;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import com.example.htmlmud.application.command.parser.BodyPartSelector;
 import com.example.htmlmud.domain.actor.impl.Living;
 import com.example.htmlmud.domain.actor.impl.Mob;
 import com.example.htmlmud.domain.actor.impl.Player;
+import com.example.htmlmud.domain.actor.impl.Room;
 import com.example.htmlmud.domain.model.config.MoveAction;
 import com.example.htmlmud.domain.model.entity.LivingStats;
 import com.example.htmlmud.domain.model.entity.SkillEntry;
+import com.example.htmlmud.domain.model.enums.CombatMode;
 import com.example.htmlmud.domain.model.skill.dto.ActiveSkillResult;
 import com.example.htmlmud.domain.model.template.SkillTemplate;
 import com.example.htmlmud.domain.model.vo.DamageSource;
 import com.example.htmlmud.infra.monitor.GameMetrics;
 import com.example.htmlmud.infra.util.FormulaEvaluator;
+import com.example.htmlmud.infra.util.MessageTemplate;
 import com.example.htmlmud.infra.util.RandomUtil;
+import com.example.htmlmud.protocol.RoomMessage;
 import com.example.htmlmud.protocol.util.ColorText;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -27,23 +38,79 @@ import lombok.extern.slf4j.Slf4j;
 @RequiredArgsConstructor
 public class CombatService {
   private final GameMetrics gameMetrics;
-  // 【戰鬥名單】
-  // 使用 ConcurrentHashMap.newKeySet() 建立一個執行緒安全的 Set
-  // 只有在名單裡的 Actor，系統才會計算它的攻擊 CD
-  private final Set<Living> combatants = ConcurrentHashMap.newKeySet();
+  // 【戰鬥名單】出手者 -> 目前回合事件所屬的戰鬥世代
+  // 只用來判斷「誰在戰鬥中」，實際的出手時間由下方的事件佇列決定
+  // 加入/移出名單與推進世代都在持有該 Living 的鎖時一起完成 (startCombat / endCombat 可能在不同執行緒上呼叫)
+  private final Map<Living, Integer> combatants = new ConcurrentHashMap<>();
+
+  // 【戰鬥事件佇列】依到期時間排序，同一時間再依序號排序，確保每個 tick 的出手順序固定
+  // 只有 WorldPulse 的執行緒會讀寫 (tick 內)
+  private final PriorityQueue<CombatEvent> events = new PriorityQueue<>();
+  // 其他執行緒 (指令、Actor、ask 回覆) 排入的事件先進收件匣，tick 開頭再倒進佇列
+  private final Queue<CombatEvent> inbox = new ConcurrentLinkedQueue<>();
+  private final AtomicLong eventSeq = new AtomicLong();
+
+  // 戰鬥批次模式下，這個 tick 有攻擊需要結算的房間 (只有 WorldPulse 的執行緒會讀寫)
+  private final Set<Room> batchRooms = new LinkedHashSet<>();
 
   private final SkillService skillService;
   private final XpService xpService;
 
+  // PER_HIT: 逐擊結算 / ROOM_BATCH: 每個房間每個 tick 合併結算
+  @Value("${mud.combat.mode:PER_HIT}")
+  private CombatMode mode;
+
+
+
+  /**
+   * 戰鬥事件
+   *
+   * @param dueTime 到期時間 (System.currentTimeMillis)
+   * @param seq 排入順序，相同 dueTime 時決定先後
+   * @param actor 出手者
+   * @param epoch 排入時出手者的戰鬥世代，不符代表戰鬥已經結束過，事件作廢
+   * @param target 多段攻擊的目標 (回合事件為 null，出手時再決定目標)
+   * @param index 回合中的第幾擊
+   * @param attacks 回合總擊數
+   */
+  private record CombatEvent(long dueTime, long seq, Living actor, int epoch, Living target,
+      int index, int attacks) implements Comparable<CombatEvent> {
+
+    boolean isRound() {
+      return target == null;
+    }
+
+    @Override
+    public int compareTo(CombatEvent o) {
+      int c = Long.compare(dueTime, o.dueTime);
+      return c != 0 ? c : Long.compare(seq, o.seq);
+    }
+  }
+
 
 
   /**
    * 【戰鬥系統心跳】 由 WorldPulse 呼叫
    */
   public void tick(long currentTick, long now) {
-    // 只遍歷「正在戰鬥」的生物，效率極高
-    // log.info("tick combatants: {}" + combatants.size());
-    for (Living actor : combatants) {
+    // 先把其他執行緒排入的事件倒進佇列
+    CombatEvent incoming;
+    while ((incoming = inbox.poll()) != null) {
+      events.add(incoming);
+    }
+
+    // 只取出「已經到期」的事件，不再掃描整個戰鬥名單
+    // log.info("tick events: {}" + events.size());
+    while (!events.isEmpty() && events.peek().dueTime() <= now) {
+      CombatEvent event = events.poll();
+      Living actor = event.actor();
+
+      // 戰鬥已經結束 (或結束後又重新開始)，舊事件作廢
+      // 名單上登記的如果還是這個舊世代，代表已經沒有事件會再替它出手，移出名單讓下一次 startCombat 重新排入
+      if (event.epoch() != actor.combatEpoch) {
+        combatants.remove(actor, event.epoch());
+        continue;
+      }
 
       // 檢查是否正在戰鬥
       if (!actor.isValid() || !actor.isInCombat) {
@@ -52,50 +119,78 @@ public class CombatService {
         continue;
       }
 
-      // 檢查攻擊冷卻時間 (CD)
-      if (now < actor.nextAttackTime) {
-        // log.info("actor.nextAttackTime:{} now:{}", actor.nextAttackTime, now);
-        continue;
-      }
-
-      Living target = null;
-      // 如果是 Mob 每次攻擊要先找仇恨最高的目標(如果有的話)
-      if (actor instanceof Mob mob) {
-        target = mob.getHighestAggroTarget().orElse(null);
+      if (event.isRound()) {
+        runRound(actor, event, now);
       } else {
-        target = actor.getCombatTarget().orElse(null);
-      }
-
-      // 檢查戰鬥目標是有效
-      // Living target = actor.getCombatTarget().orElse(null);
-      if (target == null || !target.isValid()
-          || !target.getCurrentRoom().equals(actor.getCurrentRoom())) {
-        // log.info("actor.combatTarget 無效 actor.name:{} isValid:{} isDead:{}", actor.getName(),
-        endCombat(actor); // 對手不見了，脫離戰鬥
-        continue;
+        performAttackHit(actor, event.target(), event.epoch(), event.index(), event.attacks(),
+            now);
       }
+    }
 
+    // 批次模式：每個有攻擊的房間送一則結算訊息
+    // 這個 tick 的攻擊都是上面在這個執行緒上送出的，結算訊息排在它們之後
+    for (Room room : batchRooms) {
+      room.send(new RoomMessage.ResolveCombat());
+    }
+    batchRooms.clear();
+  }
 
-      // 必須在先設定下一次攻擊時間（冷卻鎖），防止 WorldPulse 的下一個 Tick (100ms後) 重複觸發新的回合
-      nextAttackTime(actor);
+  private void runRound(Living actor, CombatEvent event, long now) {
+    // 攻擊冷卻時間 (CD) 可能在排入後被外部改過 (例如反應時間)，還沒到就改排到正確的時間
+    if (now < actor.nextAttackTime) {
+      schedule(actor.nextAttackTime, actor, event.epoch(), null, 0, 0);
+      return;
+    }
 
-      // 執行 passive 攻擊
-      performAttackRound(actor, target, now);
+    // 先設定下一次攻擊時間並排入下一回合，回覆晚到也不會重複觸發
+    nextAttackTime(actor);
+    schedule(actor.nextAttackTime, actor, event.epoch(), null, 0, 0);
+
+    // 如果是 Mob 每次攻擊要先找仇恨最高的目標(如果有的話)
+    // 兩者都只讀房間發佈的快照 (Mob 另外讀仇恨表)，直接在 WorldPulse 執行緒上決定，整個回合在 tick 內依序完成
+    Optional<Living> opt = (actor instanceof Mob mob)
+        ? mob.peekHighestAggroTarget()
+        : actor.getCombatTarget();
+    Living target = opt.orElse(null);
+
+    // 檢查戰鬥目標是有效
+    if (target == null || !target.isValid()
+        || !target.getCurrentRoom().equals(actor.getCurrentRoom())) {
+      endCombat(actor); // 對手不見了，脫離戰鬥
+      return;
     }
+
+    // 執行 passive 攻擊
+    performAttackRound(actor, target, event.epoch(), now);
+  }
+
+  private void schedule(long dueTime, Living actor, int epoch, Living target, int index,
+      int attacks) {
+    inbox.add(new CombatEvent(dueTime, eventSeq.getAndIncrement(), actor, epoch, target, index,
+        attacks));
+  }
+
+  public int getPendingEvents() {
+    return events.size() + inbox.size();
   }
 
   /**
    * 【註冊入口】 當發生攻擊行為時 (Player kill Mob 或 Mob aggro Player) 呼叫此方法
    */
   public void startCombat(Living self, String targetId) {
-    if (self.combatTargetId == null) {
-      self.combatTargetId = targetId;
-    }
+    synchronized (self) {
+      if (self.combatTargetId == null) {
+        self.combatTargetId = targetId;
+      }
 
-    self.isInCombat = true;
+      self.isInCombat = true;
 
-    // 【加入名單】
-    combatants.add(self);
+      // 【加入名單】第一次加入才排入回合事件，已經在戰鬥中的不重複排
+      int epoch = self.combatEpoch;
+      if (combatants.putIfAbsent(self, epoch) == null) {
+        schedule(self.nextAttackTime, self, epoch, null, 0, 0);
+      }
+    }
     // log.info(self.getName() + " 進入戰鬥名單！");
   }
 
@@ -107,11 +202,15 @@ public class CombatService {
       return;
     }
 
-    self.isInCombat = false;
-    self.combatTargetId = null;
+    synchronized (self) {
+      self.isInCombat = false;
+      self.combatTargetId = null;
 
-    // 【移出名單】
-    combatants.remove(self);
+      // 【移出名單】同時推進世代，佇列中殘留的事件在取出時作廢
+      if (combatants.remove(self) != null) {
+        self.combatEpoch++;
+      }
+    }
   }
 
 
@@ -180,57 +279,55 @@ public class CombatService {
 
 
 
-  private void performAttackRound(Living self, Living target, long now) {
+  private void performAttackRound(Living self, Living target, int epoch, long now) {
     // log.info("performAttackRound now:{}", now);
 
-    // 使用虛擬執行緒處理每一次的攻擊，這樣可以使用 Thread.sleep 而不阻塞主引擎
-    Thread.ofVirtual().name("CombatRound-" + self.getId()).start(() -> {
-      try {
-        // 取得攻擊次數：取「種族/生物基礎次數」與「技能額外次數」的最大值 (假設技能模板有此欄位)
-        int attacks = self.getAttacksPerRound();
-
-        for (int i = 0; i < attacks; i++) {
-          // 每次攻擊前檢查雙方是否還具備戰鬥條件 (可能在 sleep 期間有人死了或離開了)
-          if (target == null || !target.isValid()) {
-            break;
-          }
-
-          ActiveSkillResult skill = skillService.getAutoAttackSkill(self);
-          // 由技能里隨機抽出一招
-          MoveAction action = RandomUtil.pickWeighted(skill.getTemplate().getMoves());
-
-          // 範圍攻擊
-          if (skill.getTemplate().getTags().contains("AOE")) {
-            // 優化：直接在取得列表後過濾掉自己，不使用會導致報錯的 remove()
-            List<Living> targets = self.getCurrentRoom().getLivings().stream()
-                .filter(l -> !l.getId().equals(self.getId())).toList();
-
-            for (Living living : targets) {
-              performAttack(self, living, skill, action);
-              gameMetrics.incrementSystemTask(); // 記錄每一次對單體的攻擊行動
-            }
-
-          }
-
-          // 單體攻擊
-          else {
-            performAttack(self, target, skill, action);
-            gameMetrics.incrementSystemTask(); // 記錄一次單體攻擊行動
-          }
-
-
-          // 如果還有下一次攻擊且目標未死，則等待間隔
-          if (i < attacks - 1 && target.isValid()) {
-
-            // 種族的多次攻擊非由 tick 觸發，間隔 0.45 秒 - 0.55 秒
-            long nextAttackTime = ThreadLocalRandom.current().nextLong(450, 551);
-            Thread.sleep(nextAttackTime);
-          }
+    // 取得攻擊次數：取「種族/生物基礎次數」與「技能額外次數」的最大值 (假設技能模板有此欄位)
+    int attacks = self.getAttacksPerRound();
+    performAttackHit(self, target, epoch, 0, attacks, now);
+  }
+
+  /**
+   * 執行回合中的第 index 次攻擊，之後的攻擊排入戰鬥事件佇列 (不再開 VT 去 sleep)
+   */
+  private void performAttackHit(Living self, Living target, int epoch, int index, int attacks,
+      long now) {
+    // 每次攻擊前檢查雙方是否還具備戰鬥條件 (可能在等待期間有人死了或離開了)
+    if (target == null || !target.isValid() || !self.isValid()) {
+      return;
+    }
+
+    ActiveSkillResult skill = skillService.getAutoAttackSkill(self);
+    // 由技能里隨機抽出一招
+    MoveAction action = RandomUtil.pickWeighted(skill.getTemplate().getMoves());
+
+    // 範圍攻擊
+    if (skill.getTemplate().getTags().contains("AOE")) {
+      // 優化：直接在取得列表後過濾掉自己，不使用會導致報錯的 remove()
+      for (Living living : self.getCurrentRoom().getLivings()) {
+        if (living.getId().equals(self.getId())) {
+          continue;
         }
-      } catch (InterruptedException e) {
-        Thread.currentThread().interrupt();
+        performAttack(self, living, skill, action);
+        gameMetrics.incrementSystemTask(); // 記錄每一次對單體的攻擊行動
       }
-    });
+
+    }
+
+    // 單體攻擊
+    else {
+      performAttack(self, target, skill, action);
+      gameMetrics.incrementSystemTask(); // 記錄一次單體攻擊行動
+    }
+
+
+    // 如果還有下一次攻擊且目標未死，則排入下一擊
+    if (index < attacks - 1 && target.isValid()) {
+
+      // 種族的多次攻擊非由回合觸發，間隔 0.45 秒 - 0.55 秒
+      long delay = ThreadLocalRandom.current().nextLong(450, 551);
+      schedule(now + delay, self, epoch, target, index + 1, attacks);
+    }
   }
 
 
@@ -283,35 +380,57 @@ public class CombatService {
     if (target.getMainHandWeapon() != null) {
       tWeapon = target.getMainHandWeapon().getDisplayName();
     }
-    String part = BodyPartSelector.getRandomBodyPart();
-    String msg = action.msg().cast();
+    // 招式訊息在技能載入時已編譯，這裡只填入插槽
+    String[] values = new String[MessageTemplate.SLOT_COUNT];
+    values[MessageTemplate.WEAPON] = sWeapon;
+    values[MessageTemplate.TARGET_WEAPON] = tWeapon;
+    values[MessageTemplate.LIMB] = BodyPartSelector.getRandomBodyPart();
+    MessageTemplate cast = MessageTemplate.of(action.msg().cast());
 
-    List<Player> audiences = self.getCurrentRoom().getPlayers();
+    Room room = self.getCurrentRoom();
+    StringBuilder sb = new StringBuilder(128);
 
     // 招架 parry
     if (dmgAmout <= 0) {
-      msg += "\r\n" + action.msg().miss();
-      for (Player receiver : audiences) {
-        MessageUtil.send(CombineString(msg, sWeapon, tWeapon, part), self, target, receiver);
+      Map<String, Object> views = MessageUtil.perspectives(sb, -1, cast,
+          MessageTemplate.of(action.msg().miss()), values, self, target);
+      if (mode == CombatMode.ROOM_BATCH) {
+        submitHit(room, self, target, 0, views);
+      } else {
+        sendToAudiences(room, views);
       }
       return;
     }
 
-    // 將傷害送給 target
-    target.onDamage(dmgAmout, self.getId());
-
-    msg += "\r\n" + action.msg().hit();
-    msg = CombineString(msg, sWeapon, tWeapon, part);
-    msg = msg.replace("$d", ColorText.damage(dmgAmout));
+    // 將傷害送給 target (批次模式由房間結算時合併送出)
+    if (mode != CombatMode.ROOM_BATCH) {
+      target.onDamage(dmgAmout, self.getId());
+    }
 
-    // 產生 [秒.毫秒] 的時間戳記前綴
-    long nowMs = System.currentTimeMillis();
-    String timestamp = String.format("[%02d.%03d] ", (nowMs / 1000) % 60, nowMs % 1000);
-    for (Player receiver : audiences) {
-      MessageUtil.send(timestamp + msg, self, target, receiver);
+    // 命中的訊息前面加上 [秒.毫秒] 的時間戳記
+    values[MessageTemplate.DAMAGE] = ColorText.damage(dmgAmout);
+    Map<String, Object> views = MessageUtil.perspectives(sb, System.currentTimeMillis(), cast,
+        MessageTemplate.of(action.msg().hit()), values, self, target);
+    if (mode == CombatMode.ROOM_BATCH) {
+      submitHit(room, self, target, dmgAmout, views);
+    } else {
+      sendToAudiences(room, views);
     }
   }
 
+  // 批次模式：每一擊只送一則訊息給房間，等這個 tick 結束時一起結算
+  // 只會在 tick 內 (WorldPulse 執行緒) 呼叫，ResolveCombat 才能保證排在這個 tick 所有的攻擊之後
+  private void submitHit(Room room, Living self, Living target, int damage,
+      Map<String, Object> views) {
+    room.send(new RoomMessage.CombatHit(self, target, damage, views));
+    batchRooms.add(room);
+  }
+
+  // 戰鬥訊息放進房間的合併緩衝，每 100ms 合併成一個 BATCHED_UPDATE 送給房間內所有玩家
+  private void sendToAudiences(Room room, Map<String, Object> views) {
+    room.getBuffer().push("COMBAT", views);
+  }
+
 
 
   // ---------------------------------------------------------------------------------------------
@@ -356,10 +475,6 @@ public class CombatService {
     return ThreadLocalRandom.current().nextInt(min, max + 1);
   }
 
-  private String CombineString(String msg, String W, String w, String l) {
-    return msg.replace("$l", l).replace("$W", W).replace("$w", w);
-  }
-
   private void startRound(Player player) {
     ActiveSkillResult activeSkill = skillService.getAutoAttackSkill(player);
     SkillTemplate template = activeSkill.getTemplate();
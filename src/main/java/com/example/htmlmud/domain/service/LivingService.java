@@ -1,7 +1,6 @@
 package com.example.htmlmud.domain.service;
 
-import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 import java.util.concurrent.ThreadLocalRandom;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
@@ -16,7 +15,6 @@ import com.example.htmlmud.domain.model.enums.EquipmentSlot;
 import com.example.htmlmud.domain.model.enums.ItemType;
 import com.example.htmlmud.domain.model.template.ItemTemplate;
 import com.example.htmlmud.domain.model.template.RaceTemplate;
-import com.example.htmlmud.infra.persistence.repository.TemplateRepository;
 import com.example.htmlmud.protocol.MudMessage;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Getter;
@@ -84,6 +82,13 @@ public class LivingService {
     // 扣除 HP
     self.getStats().setHp(self.getStats().getHp() - amount);
 
+    // 血量變化放進房間的合併緩衝 (STATUS)
+    Room room = self.getCurrentRoom();
+    if (room != null) {
+      room.getBuffer().push("STATUS", Map.of("id", self.getId(), "name", self.getName(), "hp",
+          Math.max(self.getStats().getHp(), 0), "maxHp", self.getStats().getMaxHp()));
+    }
+
     // for test----------------------------------------------------------------------------------
 
     // room.broadcast("log:" + self.getName() + " 目前 HP: " + self.getStats().getHp() + "/"
@@ -135,15 +140,10 @@ public class LivingService {
 
     // 廣播死亡訊息
     String messageTemplate = "$n殺死了$N";
-    // 先找房間里的 living
-    Living killer = room.findLiving(killerId).orElse(null);
-    String killerName = null;
-    if (killer == null) {
-      killer = worldManagerProvider.getObject().findLivingActor(killerId).orElse(null);
-    }
-    if (killer != null) {
-      killerName = killer.getName();
-    }
+    // 先找房間里的 living (讀房間的快照)，找不到再到全世界找
+    Living killer = room.findLiving(killerId)
+        .or(() -> worldManagerProvider.getObject().findLivingActor(killerId)).orElse(null);
+    String killerName = (killer != null) ? killer.getName() : null;
 
     // killer(mob) 也可能在這輪攻擊中死亡(例如30個 monk 用獅子吼互打)，但處理速度比較快造成 null
     if (killer == null) {
@@ -155,9 +155,7 @@ public class LivingService {
     GameItem corpse = worldFactory.createCorpse(self, killerName);
     room.dropItem(corpse);
 
-
-    List<Player> audiences = room.getPlayers();
-    for (Player receiver : audiences) {
+    for (Player receiver : room.getPlayers()) {
       MessageUtil.send(messageTemplate, self, killer, receiver);
     }
   }
@@ -266,12 +264,9 @@ public class LivingService {
   }
 
   public int getAttacksPerRound(Living self) {
-    Optional<RaceTemplate> opt = TemplateRepository.findRace(self.getStats().getRace());
-    if (opt.isPresent()) {
-      RaceTemplate race = opt.get();
-      if (race.combat() != null && race.combat().naturalAttacks() != null) {
-        return race.combat().attacksPerRound();
-      }
+    RaceTemplate race = self.getRaceTemplate();
+    if (race != null && race.combat() != null && race.combat().naturalAttacks() != null) {
+      return race.combat().attacksPerRound();
     }
 
     return 1;
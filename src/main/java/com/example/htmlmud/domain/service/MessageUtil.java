@@ -1,8 +1,11 @@
 package com.example.htmlmud.domain.service;
 
+import java.util.HashMap;
+import java.util.Map;
 import org.springframework.stereotype.Component;
 import com.example.htmlmud.domain.actor.impl.Living;
 import com.example.htmlmud.domain.actor.impl.Player;
+import com.example.htmlmud.infra.util.MessageTemplate;
 
 @Component
 public class MessageUtil {
@@ -53,6 +56,93 @@ public class MessageUtil {
     receiver.reply(msg);
   }
 
+  /**
+   * 一次產生三種視角的訊息 (出手者、對象、旁觀者)，房間合併廣播時只序列化一次，由前端依自己的 ID 挑選
+   *
+   * @param template 原始訊息 (包含 $N, $n 等標記)
+   * @param executor (做動作的人)
+   * @param target (對象)
+   */
+  public static Map<String, Object> perspectives(String template, Living executor, Living target) {
+    Map<String, Object> payload = new HashMap<>();
+    if (executor == null || executor.getStats().getGender() == null) {
+      payload.put("text", template);
+      return payload;
+    }
+
+    String[] values = new String[MessageTemplate.SLOT_COUNT];
+    String executorName = executor.getName();
+    String targetName = (target != null) ? target.getName() : "";
+    if (target != null) {
+      values[MessageTemplate.EXECUTOR] = executorName;
+      values[MessageTemplate.TARGET] = targetYou(target);
+      payload.put("targetId", target.getId());
+      payload.put("targetText", MessageTemplate.render(template, values));
+    }
+
+    values[MessageTemplate.EXECUTOR] = executor.getStats().getGender().getYou();
+    values[MessageTemplate.TARGET] = targetName;
+    payload.put("actorId", executor.getId());
+    payload.put("actorText", MessageTemplate.render(template, values));
+
+    values[MessageTemplate.EXECUTOR] = executorName;
+    payload.put("text", MessageTemplate.render(template, values));
+    return payload;
+  }
+
+  /**
+   * 戰鬥訊息的三種視角：招式樣板已在技能載入時編譯，這裡只依序填入插槽
+   *
+   * @param sb 重複使用的 builder (呼叫端持有)
+   * @param timestampMs 時間戳記 (< 0 代表不加)
+   * @param cast 出招訊息
+   * @param outcome 命中 / 未命中訊息 (接在出招訊息的下一行)
+   * @param values 已填好 $W/$w/$l/$d 的插槽，$N/$n 由這裡依視角填入
+   */
+  public static Map<String, Object> perspectives(StringBuilder sb, long timestampMs,
+      MessageTemplate cast, MessageTemplate outcome, String[] values, Living executor,
+      Living target) {
+    Map<String, Object> payload = new HashMap<>();
+    if (executor == null || executor.getStats().getGender() == null) {
+      values[MessageTemplate.EXECUTOR] = null;
+      values[MessageTemplate.TARGET] = null;
+      payload.put("text", renderCombatLine(sb, timestampMs, cast, outcome, values));
+      return payload;
+    }
+
+    String executorName = executor.getName();
+    values[MessageTemplate.EXECUTOR] = executorName;
+    values[MessageTemplate.TARGET] = targetYou(target);
+    payload.put("targetId", target.getId());
+    payload.put("targetText", renderCombatLine(sb, timestampMs, cast, outcome, values));
+
+    values[MessageTemplate.EXECUTOR] = executor.getStats().getGender().getYou();
+    values[MessageTemplate.TARGET] = target.getName();
+    payload.put("actorId", executor.getId());
+    payload.put("actorText", renderCombatLine(sb, timestampMs, cast, outcome, values));
+
+    values[MessageTemplate.EXECUTOR] = executorName;
+    payload.put("text", renderCombatLine(sb, timestampMs, cast, outcome, values));
+    return payload;
+  }
+
+  private static String renderCombatLine(StringBuilder sb, long timestampMs, MessageTemplate cast,
+      MessageTemplate outcome, String[] values) {
+    sb.setLength(0);
+    if (timestampMs >= 0) {
+      MessageTemplate.appendTimestamp(sb, timestampMs);
+    }
+    cast.appendTo(sb, values);
+    sb.append("\r\n");
+    outcome.appendTo(sb, values);
+    return sb.toString();
+  }
+
+  private static String targetYou(Living target) {
+    return (target.getStats().getGender() != null) ? target.getStats().getGender().getYou()
+        : target.getName();
+  }
+
   public static String format(String template, Living executor, Living target, Living receiver) {
     if (receiver == null || !(receiver instanceof Player)) {
       return template;
@@ -89,9 +179,11 @@ public class MessageUtil {
       executorNoun = executor.getStats().getGender().getYou();
     }
 
-    // 進行替換
-    // 注意：這裡使用簡單的 replace，效能足夠。若要更嚴謹可用 Regex
-    return template.replace("$N", executorNoun).replace("$n", targetNoun);
+    // 進行替換 (單次掃描，不用 regex)
+    String[] values = new String[MessageTemplate.SLOT_COUNT];
+    values[MessageTemplate.EXECUTOR] = executorNoun;
+    values[MessageTemplate.TARGET] = targetNoun;
+    return MessageTemplate.render(template, values);
   }
 
 }
@@ -13,13 +13,16 @@ import com.example.htmlmud.application.service.AuthService;
 import com.example.htmlmud.config.GuiBridge;
 import com.example.htmlmud.domain.actor.behavior.PlayerBehavior;
 import com.example.htmlmud.domain.actor.core.MessageOutput;
+import com.example.htmlmud.domain.actor.core.TimerHandle;
 import com.example.htmlmud.domain.actor.impl.Player;
 import com.example.htmlmud.domain.actor.impl.Room;
 import com.example.htmlmud.domain.context.MudContext;
 import com.example.htmlmud.domain.model.enums.Direction;
 import com.example.htmlmud.infra.persistence.service.PlayerPersistenceService;
 import com.example.htmlmud.infra.server.MudWebSocketHandler;
+import com.example.htmlmud.protocol.ActorMessage;
 import com.example.htmlmud.protocol.ConnectionState;
+import com.example.htmlmud.protocol.FrameKind;
 import com.example.htmlmud.protocol.GameCommand;
 import com.example.htmlmud.protocol.MudMessage;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -33,6 +36,12 @@ import lombok.extern.slf4j.Slf4j;
 @RequiredArgsConstructor
 public class PlayerService {
 
+  // 斷線後保留角色的緩衝時間 (10 分鐘)
+  public static final long LINK_DEAD_GRACE_MS = 10 * 60 * 1000;
+
+  // 死亡到復活的等待時間
+  public static final long RELIVE_DELAY_MS = 2000;
+
   private final ObjectProvider<LivingService> livingServiceProvider;
 
   private final ObjectMapper objectMapper;
@@ -51,6 +60,8 @@ public class PlayerService {
 
   private final GuiBridge guiBridge;
 
+  private final TimerService timerService;
+
 
 
   public void handleInput(Player player, String traceId, GameCommand cmd) {
@@ -119,6 +130,10 @@ public class PlayerService {
     self.getOutput().sendJson(Map.of("type", "TEXT", "content", msg));
   }
 
+  public void handleSendFrame(Player self, String json, FrameKind kind) {
+    self.getOutput().sendSerialized(json, kind);
+  }
+
   // 【當玩家重新連線時呼叫此方法】
   public void handleReconnect(Player player, Player guestPlayer) {
 
@@ -126,7 +141,8 @@ public class PlayerService {
     player.getOutput().close();
 
     // 2. 換上新連線 (必須先更新欄位，確保後續訊息發往正確的連線)
-    // 更新斷線時間戳記，這樣之前的死神 VT 醒來後會發現時間對不上，就不會執行殺人
+    // 取消死神計時器；同時更新斷線時間戳記，就算計時器已經投遞了訊息也會因為時間對不上而不執行
+    cancelDeathTimer(player);
     player.setLastDisconnectTime(System.currentTimeMillis());
     player.setConnectionState(ConnectionState.IN_GAME);
     player.setOutput(guestPlayer.getOutput());
@@ -162,13 +178,14 @@ public class PlayerService {
     // 廣播給房間其他人 (沉浸式體驗)
     player.getCurrentRoom().broadcastToOthers(player.getId(), "$N眼神突然變得呆滯，似乎失去了靈魂。");
 
-    // 【關鍵】啟動一個「死神 VT」
+    // 【關鍵】排入一個「死神計時器」
     startDeathTimer(player, disconnectTimestamp);
   }
 
   public void handleSendStatUpdate(Player self) {
     Map<String, Object> update = new HashMap<>();
     update.put("type", "STAT_UPDATE");
+    update.put("id", self.getId()); // 前端用來辨識合併廣播中哪些是自己
     update.put("hp", self.getStats().hp);
     update.put("maxHp", self.getStats().maxHp);
     update.put("mp", self.getStats().mp);
@@ -179,11 +196,7 @@ public class PlayerService {
 
   public void handleRelive(Player player) {
 
-    // 先暫停 2秒
-    try {
-      Thread.sleep(2000);
-    } catch (InterruptedException ignored) {
-    }
+    // 2 秒的等待已經由 performDeath 排入 TimerService
 
     // 取出 currentRoom 區域的重生點/安全點 或是固定地點墳場 (如果有的話)
     // setCurrentRoomId("newbie_village:cemetery");
@@ -223,29 +236,36 @@ public class PlayerService {
 
 
   private void startDeathTimer(Player player, long disconnectTimestamp) {
-    // 啟動一個虛擬執行緒，成本極低
-    Thread.ofVirtual().name("Reaper-" + player.getName()).start(() -> {
-      try {
-        // 設定緩衝時間：例如 10 分鐘 (600,000 ms)
-        // 這裡直接 sleep，不會佔用系統資源
-        Thread.sleep(10 * 60 * 1000);
-
-        // --- 10 分鐘後醒來 ---
-
-        // 檢查 1: 玩家是否還在斷線狀態？
-        // 檢查 2: 這是當初那次斷線嗎？(防止玩家重連後又斷線，舊的計時器殺錯)
-        if (player.getConnectionState() == ConnectionState.LINK_DEAD
-            && disconnectTimestamp == player.getLastDisconnectTime()) {
-          log.warn("緩衝時間已過，強制清理玩家: {}", player.getName());
-          player.forceLogout();
-        } else {
-          log.info("玩家已重連，死神計時器取消: {}", player.getName());
-        }
-
-      } catch (InterruptedException ignored) {
-        // 計時器被中斷
+    // 重複斷線時先取消上一個
+    cancelDeathTimer(player);
+
+    // 設定緩衝時間：例如 10 分鐘，到期時投遞訊息給玩家自己處理
+    player.setReaperTimer(timerService.schedule(LINK_DEAD_GRACE_MS,
+        () -> player.send(new ActorMessage.ReaperTimeout(disconnectTimestamp))));
+  }
+
+  private void cancelDeathTimer(Player player) {
+    TimerHandle timer = player.getReaperTimer();
+    if (timer != null) {
+      if (timer.cancel()) {
+        log.info("玩家已重連，死神計時器取消: {}", player.getName());
       }
-    });
+      player.setReaperTimer(null);
+    }
+  }
+
+  public void handleReaperTimeout(Player player, long disconnectTimestamp) {
+    // --- 緩衝時間到期 ---
+
+    // 檢查 1: 玩家是否還在斷線狀態？
+    // 檢查 2: 這是當初那次斷線嗎？(防止玩家重連後又斷線，舊的計時器殺錯)
+    if (player.getConnectionState() == ConnectionState.LINK_DEAD
+        && disconnectTimestamp == player.getLastDisconnectTime()) {
+      log.warn("緩衝時間已過，強制清理玩家: {}", player.getName());
+      player.forceLogout();
+    } else {
+      log.info("玩家已重連，死神計時器取消: {}", player.getName());
+    }
   }
 
 }
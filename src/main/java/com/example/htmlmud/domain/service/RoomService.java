@@ -4,9 +4,13 @@ import static java.util.stream.Collectors.counting;
 import static java.util.stream.Collectors.groupingBy;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.springframework.stereotype.Service;
 import com.example.htmlmud.application.factory.WorldFactory;
@@ -14,7 +18,10 @@ import com.example.htmlmud.domain.actor.impl.Living;
 import com.example.htmlmud.domain.actor.impl.Mob;
 import com.example.htmlmud.domain.actor.impl.Player;
 import com.example.htmlmud.domain.actor.impl.Room;
+import com.example.htmlmud.domain.actor.impl.RoomLookCache;
 import com.example.htmlmud.domain.model.entity.GameItem;
+import com.example.htmlmud.domain.model.entity.RoomDormantState;
+import com.example.htmlmud.domain.model.entity.RoomItemDiff;
 import com.example.htmlmud.domain.model.entity.RoomStateRecord;
 import com.example.htmlmud.domain.model.enums.Direction;
 import com.example.htmlmud.domain.model.enums.MobKind;
@@ -23,9 +30,14 @@ import com.example.htmlmud.domain.model.template.RoomTemplate;
 import com.example.htmlmud.domain.model.template.SpawnRule;
 import com.example.htmlmud.domain.model.template.ZoneTemplate;
 import com.example.htmlmud.infra.persistence.repository.TemplateRepository;
+import com.example.htmlmud.infra.persistence.service.RoomPersistenceService;
+import com.example.htmlmud.protocol.FrameKind;
 import com.example.htmlmud.protocol.MudMessage;
+import com.example.htmlmud.protocol.RoomMessage;
 import com.example.htmlmud.protocol.util.AnsiColor;
 import com.example.htmlmud.protocol.util.ColorText;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -40,7 +52,17 @@ public class RoomService {
 
   private final WorldManager manager;
 
+  private final TimerService timerService;
 
+  private final ObjectMapper objectMapper;
+
+  private final RoomPersistenceService roomPersistenceService;
+
+
+
+  public TimerService getTimerService() {
+    return timerService;
+  }
 
   public ZoneTemplate getZoneTemplate(String zoneId) {
     return TemplateRepository.findZone(zoneId).orElse(null);
@@ -61,6 +83,7 @@ public class RoomService {
         if (!players.contains(player)) {
           players.add(player);
         }
+        manager.playerEntered(player.getId(), room.getId(), room.getTemplate().zoneId());
         mobs.forEach(m -> m.onPlayerEnter(player.getId()));
       }
       case Mob mob -> {
@@ -86,6 +109,7 @@ public class RoomService {
     switch (actor) {
       case Player player -> {
         players.remove(player);
+        manager.playerLeft(player.getId(), room.getId());
         livingName = player.getNickname();
       }
       case Mob mob -> {
@@ -132,6 +156,13 @@ public class RoomService {
     broadcastToOthers(players, sourceId, name + ": " + content);
   }
 
+  // 玩家被移出房間 (死亡、登出)，回傳是否真的有移除
+  public boolean removePlayer(Room room, List<Player> players, String playerId) {
+    boolean removed = players.removeIf(player -> player.getId().equals(playerId));
+    manager.playerLeft(playerId, room.getId());
+    return removed;
+  }
+
   public GameItem tryPickItem(List<GameItem> items, String args, Player picker) {
     log.info("tryPickItem: {}", args);
 
@@ -149,7 +180,7 @@ public class RoomService {
     // log.info("{} tickCount: {}", id, tickCount);
 
     // === 1. World/Zone 層級邏輯 (例如：每 60 秒檢查一次重生) ===
-    if (tickCount % room.getZoneTemplate().respawnTime() == 0) {
+    if (isRespawnTick(room.getZoneTemplate(), tickCount)) {
       checkSpawnRule(); // 檢查是否有怪物死掉很久該重生了
     }
 
@@ -189,17 +220,129 @@ public class RoomService {
       }
     }
 
+    sendPerspectives(players, message, actor, target, null);
+  }
+
+  /**
+   * @param participants 訊息中有出手、被打或狀態變化的生物 ID，其他玩家收到的算旁觀訊息 (連線變慢時可丟棄)
+   */
+  public void broadcastJson(List<Player> players, MudMessage<Object> message,
+      Set<String> participants) {
+    if (players.isEmpty()) {
+      return;
+    }
+
+    // 只序列化一次，每位玩家收到同一份字串
+    String json;
+    try {
+      json = objectMapper.writeValueAsString(message);
+    } catch (JsonProcessingException e) {
+      log.error("broadcastJson 序列化失敗 type:{}", message.getType(), e);
+      return;
+    }
+
     for (Player player : players) {
-      MessageUtil.send(message, actor, target, player);
+      if (player.isValid()) {
+        player.sendFrame(json,
+            participants.contains(player.getId()) ? FrameKind.NORMAL : FrameKind.SPECTATOR);
+      }
     }
   }
 
-  public void broadcastJson(List<Player> players, MudMessage<Object> message) {}
-
   public void broadcastToOthers(List<Player> players, String actorId, String message) {
     Living actor = manager.findLivingActor(actorId).orElse(null);
-    players.stream().filter(p -> !p.getId().equals(actorId))
-        .forEach(p -> MessageUtil.send(message, actor, p));
+    sendPerspectives(players, message, actor, null, actorId);
+  }
+
+  /**
+   * 每種視角 (出手者、對象、旁觀者) 只替換並序列化一次，同一份 frame 交給所有同視角的玩家
+   *
+   * @param excludeId 不送給這個 ID (broadcastToOthers 用)，可為 null
+   */
+  private void sendPerspectives(List<Player> players, String message, Living actor, Living target,
+      String excludeId) {
+    // 找不到出手者 (或沒有性別資料) 時沒有視角可分，維持逐一送出 (由玩家自己替換 $N)
+    if (actor == null || actor.getStats().getGender() == null) {
+      players.stream().filter(p -> !p.getId().equals(excludeId))
+          .forEach(p -> MessageUtil.send(message, actor, target, p));
+      return;
+    }
+
+    Map<String, Object> views = MessageUtil.perspectives(message, actor, target);
+    String actorFrame = null;
+    String targetFrame = null;
+    String othersFrame = null;
+
+    for (Player player : players) {
+      String id = player.getId();
+      if (id.equals(excludeId) || !player.isValid()) {
+        continue;
+      }
+
+      String frame;
+      if (id.equals(actor.getId()) && views.containsKey("actorText")) {
+        if (actorFrame == null) {
+          actorFrame = textFrame(views.get("actorText"));
+        }
+        frame = actorFrame;
+      } else if (target != null && id.equals(target.getId()) && views.containsKey("targetText")) {
+        if (targetFrame == null) {
+          targetFrame = textFrame(views.get("targetText"));
+        }
+        frame = targetFrame;
+      } else {
+        if (othersFrame == null) {
+          othersFrame = textFrame(views.get("text"));
+        }
+        frame = othersFrame;
+      }
+
+      if (frame != null) {
+        player.sendFrame(frame, FrameKind.NORMAL);
+      }
+    }
+  }
+
+  // 與 PlayerService.handleSendText 相同的 TEXT 格式
+  private String textFrame(Object content) {
+    try {
+      return objectMapper.writeValueAsString(Map.of("type", "TEXT", "content", content));
+    } catch (JsonProcessingException e) {
+      log.error("textFrame 序列化失敗", e);
+      return null;
+    }
+  }
+
+  /**
+   * 戰鬥批次結算：同一個 tick 內房間裡的所有攻擊一次處理
+   *
+   * 每個目標只收到一則傷害訊息，戰報交給 RoomMessageBuffer 合併成一個 frame
+   */
+  public void resolveCombat(Room room, List<RoomMessage.CombatHit> hits) {
+    if (hits.isEmpty()) {
+      return;
+    }
+
+    // 1. 依目標累計傷害，保留各攻擊者的傷害 (仇恨與兇手判定不變)
+    Map<String, Living> targets = new LinkedHashMap<>();
+    Map<String, Map<String, Integer>> damages = new LinkedHashMap<>();
+    for (RoomMessage.CombatHit hit : hits) {
+      if (hit.damage() <= 0 || !hit.target().isValid()) {
+        continue;
+      }
+      String targetId = hit.target().getId();
+      targets.putIfAbsent(targetId, hit.target());
+      damages.computeIfAbsent(targetId, k -> new LinkedHashMap<>())
+          .merge(hit.attacker().getId(), hit.damage(), Integer::sum);
+    }
+
+    // 2. 扣血與死亡判定交給目標自己的 Actor (HP 只由擁有者修改)
+    damages.forEach((targetId, byAttacker) -> targets.get(targetId).onBatchDamage(byAttacker));
+
+    // 3. 戰報放進房間的合併緩衝，視角由前端挑選
+    for (RoomMessage.CombatHit hit : hits) {
+      room.getBuffer().push("COMBAT", hit.views());
+    }
   }
 
   public Living findLiving(List<Player> players, List<Mob> mobs, String livingId) {
@@ -210,42 +353,71 @@ public class RoomService {
 
   public String lookAtRoom(Room room, List<Player> players, List<Mob> mobs, List<GameItem> items,
       String playerId) {
+    RoomLookCache cache = room.getLookCache();
+
+    // 房間內容或怪物血量區間有變才重新渲染
+    long version = room.getSnapshot().version();
+    if (!cache.isValid(version, mobs)) {
+      rebuildLookCache(cache, version, players, mobs, items);
+    }
+
+    // 標題、描述、出口 (房間建立時就渲染好)
+    StringBuilder sb = new StringBuilder(room.getLookHeader());
+
+    sb.append(AnsiColor.YELLOW).append("這裡有：\n").append(AnsiColor.RESET);
+
+    // 其他玩家 (亮藍色，排除自己)，只有這段是每個人不同
+    boolean first = true;
+    for (RoomLookCache.PlayerEntry entry : cache.getPlayers()) {
+      if (entry.id().equals(playerId)) {
+        continue;
+      }
+      if (first) {
+        sb.append(ColorText.wrap(AnsiColor.BRIGHT_MAGENTA, "[玩家]: "));
+        first = false;
+      } else {
+        sb.append(", ");
+      }
+      sb.append(entry.text());
+    }
+    if (!first) {
+      sb.append("\r\n");
+    }
+
+    sb.append(cache.getContents());
+    return sb.toString();
+  }
+
+  /**
+   * 房間的固定部分：標題、描述、出口 (Room 建立時呼叫一次)
+   */
+  public String renderLookHeader(RoomTemplate template) {
     StringBuilder sb = new StringBuilder();
 
     // 標題 (亮白色)
-    sb.append(ColorText.room("=== " + room.getTemplate().name() + " ===")).append("\r\n");
+    sb.append(ColorText.room("=== " + template.name() + " ===")).append("\r\n");
 
     // 描述 (預設色/灰色)
-    sb.append(ColorText.roomDesc(room.getTemplate().description())).append("\r\n");
+    sb.append(ColorText.roomDesc(template.description())).append("\r\n");
 
     // 出口 (黃色)
     sb.append(ColorText.exit("[出口]: "));
-    if (room.getTemplate().exits() == null || room.getTemplate().exits().isEmpty()) {
+    if (template.exits() == null || template.exits().isEmpty()) {
       sb.append("無");
     } else {
-      sb.append(String.join(", ", room.getTemplate().exits().keySet()));
+      sb.append(String.join(", ", template.exits().keySet()));
     }
     sb.append("\r\n");
+    return sb.toString();
+  }
 
-    // 取得房間內的玩家
-    List<Player> otherPlayers =
-        sortedPlayers(players.stream().filter(p -> !p.getId().equals(playerId)).toList());
-
-    // 取得房間內的怪物
-    // List<Mob> mobs = room.getMobs();
-    // mobs = sortedMobs(mobs);
-
-    // 取得房間內的物品
-    List<GameItem> sortedItems = sortedItems(items);
-
-    log.info("otherPlayers: {}, mobs: {} items: {}", otherPlayers.size(), mobs.size(),
-        sortedItems.size());
-
-
-    // 1. 篩選出 其他玩家 (亮藍色，排除自己)
-    List<String> otherPlayerNames = otherPlayers.stream().filter(p -> !p.getId().equals(playerId))
-        .map(p -> ColorText.player(p.getName() + "(" + p.getAliases().get(0) + ")")).toList();
-
+  private void rebuildLookCache(RoomLookCache cache, long version, List<Player> players,
+      List<Mob> mobs, List<GameItem> items) {
+    // 1. 玩家 (依名字排序)
+    List<RoomLookCache.PlayerEntry> playerEntries = sortedPlayers(players).stream()
+        .map(p -> new RoomLookCache.PlayerEntry(p.getId(),
+            ColorText.player(p.getName() + "(" + p.getAliases().get(0) + ")")))
+        .toList();
 
     // 2. 篩選出 NPC (綠色顯示)
     List<Mob> npcs = mobs.stream().filter(m -> m.getTemplate().kind() == MobKind.FRIENDLY).toList();
@@ -258,31 +430,22 @@ public class RoomService {
     monsters = sortedMobs(monsters);
 
     // items
-    List<String> itemNames = sortedItems.stream()
+    List<String> itemNames = sortedItems(items).stream()
         .map(i -> ColorText.item(i.getDisplayName() + "(" + i.getAliases().get(0) + ")")).toList();
 
-    sb.append(AnsiColor.YELLOW).append("這裡有：\n").append(AnsiColor.RESET);
-    if (!otherPlayerNames.isEmpty()) {
-      sb.append(ColorText.wrap(AnsiColor.BRIGHT_MAGENTA, "[玩家]: "))
-          .append(String.join(", ", otherPlayerNames)).append("\r\n");
-    }
+    StringBuilder sb = new StringBuilder();
     if (!npcs.isEmpty()) {
       sb.append(getMobDescription(npcs, AnsiColor.GREEN)).append("\r\n");
-      // sb.append(ColorText.npc(getMobDescription(npcs))).append("\r\n");
-      // sb.append(ColorText.npc("[人物]: ")).append(String.join(", ", npcNames)).append("\r\n");
     }
     if (!monsters.isEmpty()) {
       sb.append(getMobDescription(monsters, AnsiColor.RED)).append("\r\n");
-      // sb.append(ColorText.wrap(AnsiColor.RED, getMobDescription(monsters))).append("\r\n");
-      // sb.append(ColorText.wrap(AnsiColor.RED, "[怪物]: ")).append(String.join(", ", monsterNames))
-      // .append("\r\n");
     }
     if (!itemNames.isEmpty()) {
       sb.append(ColorText.wrap(AnsiColor.YELLOW, "[物品]: ")).append(String.join(", ", itemNames))
           .append("\r\n");
     }
 
-    return sb.toString();
+    cache.update(version, RoomLookCache.healthBuckets(mobs), playerEntries, sb.toString());
   }
 
   public String lookDirection(Room room, Player player, Direction dir) {
@@ -297,34 +460,109 @@ public class RoomService {
 
 
 
+  // 整個房間的快照 (取代之前的增減記錄)
   public void record(String roomTemplateId, List<GameItem> items) {
-    RoomStateRecord record = toRecord(roomTemplateId, items);
-    // TODO 還沒紀錄
     // 丟給 save 的 queue 就不管了
+    roomPersistenceService.saveAsync(toRecord(roomTemplateId, items));
+  }
 
+  // 地上物品的增減只記一筆 (只能在房間的 Actor 執行緒呼叫，記錄順序與實際順序相同)
+  public void itemAdded(Room room, GameItem item) {
+    String[] args = room.getId().split(":");
+    roomPersistenceService.appendAsync(RoomItemDiff.added(args[1], args[0], item));
+  }
 
-
+  public void itemRemoved(Room room, String itemId) {
+    String[] args = room.getId().split(":");
+    roomPersistenceService.appendAsync(RoomItemDiff.removed(args[1], args[0], itemId));
   }
 
 
 
   /**
-   * 房間初次載入時的生怪邏輯
+   * 房間初次載入時的生怪邏輯 (在建構子裡呼叫)
+   *
+   * 地上物品要先讀存檔：讀取排在寫入佇列裡，這個房間之前還沒寫完的增減記錄都會先寫入，完成後送 ItemsLoaded 給房間
    */
-  public void spawnInitial(Room room, List<Mob> mobs, List<GameItem> items) {
+  public void spawnInitial(Room room, List<Mob> mobs) {
+    String[] args = room.getId().split(":");
+    roomPersistenceService.loadItemsAsync(args[1], args[0])
+        .thenAccept(saved -> room.send(new RoomMessage.ItemsLoaded(saved)));
+
     List<SpawnRule> spawnRules = room.getTemplate().spawnRules();
     if (spawnRules != null && !spawnRules.isEmpty()) {
       for (SpawnRule rule : spawnRules) {
-        for (int i = 0; i < rule.count(); i++) {
-          switch (rule.type()) {
-            case "MOB" -> spawnOneMob(room, mobs, rule);
-            case "ITEM" -> spawnOneItem(room, items, rule);
+        if ("MOB".equals(rule.type())) {
+          for (int i = 0; i < rule.count(); i++) {
+            spawnOneMob(room, mobs, rule);
           }
         }
       }
     }
   }
 
+  /**
+   * 存檔的地上物品讀取完成 (房間的 Actor 執行緒)
+   *
+   * 存過檔的房間以存檔為準，不再依 spawn rule 產生物品；讀取完成前就放到地上的物品 (記錄排在讀取之後) 保留
+   */
+  public void itemsLoaded(Room room, List<GameItem> items, Optional<List<GameItem>> saved) {
+    if (saved.isPresent()) {
+      Set<String> present = items.stream().map(GameItem::getId).collect(Collectors.toSet());
+      items.addAll(0, saved.get().stream().filter(item -> !present.contains(item.getId())).toList());
+      return;
+    }
+
+    List<SpawnRule> spawnRules = room.getTemplate().spawnRules();
+    if (spawnRules != null) {
+      for (SpawnRule rule : spawnRules) {
+        if ("ITEM".equals(rule.type())) {
+          for (int i = 0; i < rule.count(); i++) {
+            spawnOneItem(room, items, rule);
+          }
+        }
+      }
+    }
+  }
+
+
+
+  /**
+   * 區域休眠：物品原樣保留，怪物只記模板 ID 與血量，然後停止怪物的 Actor
+   */
+  public RoomDormantState passivate(Room room, List<Mob> mobs, List<GameItem> items) {
+    String[] mobTemplateIds = new String[mobs.size()];
+    int[] mobHp = new int[mobs.size()];
+    for (int i = 0; i < mobs.size(); i++) {
+      Mob mob = mobs.get(i);
+      mobTemplateIds[i] = mob.getTemplate().id();
+      mobHp[i] = mob.getStats().getHp();
+
+      mob.markInvalid();
+      mob.stop();
+    }
+
+    RoomDormantState state = new RoomDormantState(List.copyOf(items), mobTemplateIds, mobHp);
+    mobs.clear();
+    items.clear();
+    return state;
+  }
+
+  /**
+   * 從休眠快照還原房間 (取代 spawnInitial)
+   */
+  public void restore(Room room, List<Mob> mobs, List<GameItem> items, RoomDormantState state) {
+    items.addAll(state.items());
+
+    String[] mobTemplateIds = state.mobTemplateIds();
+    for (int i = 0; i < mobTemplateIds.length; i++) {
+      Mob mob = worldFactory.createMob(mobTemplateIds[i]);
+      mob.getStats().setHp(state.mobHp()[i]);
+      mob.setCurrentRoomId(room.getId());
+      mobs.add(mob);
+    }
+  }
+
 
 
   // ---------------------------------------------------------------------------------------------
@@ -332,16 +570,12 @@ public class RoomService {
 
 
   // 定義一個簡單的狀態判斷
-  private String getHealthStatus(Mob mob) {
-    double pct = (double) mob.getStats().getHp() / mob.getStats().getMaxHp();
-    if (pct >= 0.85)
-      return AnsiColor.GREEN + "[狀態佳]" + AnsiColor.RESET;
-    if (pct > 0.5)
-      return AnsiColor.YELLOW + "[受輕傷]" + AnsiColor.RESET;
-    if (pct > 0.2)
-      return AnsiColor.RED + "[受重傷]" + AnsiColor.RESET;
+  private static final String[] HEALTH_STATUS = {AnsiColor.GREEN + "[狀態佳]" + AnsiColor.RESET,
+      AnsiColor.YELLOW + "[受輕傷]" + AnsiColor.RESET, AnsiColor.RED + "[受重傷]" + AnsiColor.RESET,
+      AnsiColor.RED_BOLD + "[瀕　死]" + AnsiColor.RESET};
 
-    return AnsiColor.RED_BOLD + "[瀕　死]" + AnsiColor.RESET;
+  private String getHealthStatus(Mob mob) {
+    return HEALTH_STATUS[RoomLookCache.healthBucket(mob)];
   }
 
   private String getMobDescription(List<Mob> mobs, AnsiColor color) {
@@ -350,7 +584,7 @@ public class RoomService {
     Map<String, Long> groups = mobs.stream()
         .collect(groupingBy(
             m -> m.getName() + "(" + m.getTemplate().aliases().get(0) + ") " + getHealthStatus(m),
-            counting()));
+            LinkedHashMap::new, counting()));
 
     // 輸出
     StringBuilder sb = new StringBuilder();
@@ -389,6 +623,14 @@ public class RoomService {
 
 
 
+  // respawnTime 單位是秒，WorldPulse 每 100ms 一個 tick；<= 0 視為不重生
+  public static boolean isRespawnTick(ZoneTemplate zone, long tickCount) {
+    if (zone.respawnTime() <= 0) {
+      return false;
+    }
+    return tickCount % (zone.respawnTime() * 10L) == 0;
+  }
+
   private void checkSpawnRule() {
 
   }
@@ -430,6 +672,7 @@ public class RoomService {
     }
 
     items.add(item);
+    itemAdded(room, item);
     log.info("Spawned {} in room {}", item.getDisplayName(), room.getId());
   }
 
@@ -191,7 +191,7 @@ public class SkillService {
 
     // 檢查種族是否有設定 nature attack (Race Default)
     // log.info("resolveCombatSkillId name:{} race:{}", self.getName(), self.getStats().getRace());
-    RaceTemplate race = TemplateRepository.getRaceTemplates().get(self.getStats().getRace());
+    RaceTemplate race = self.getRaceTemplate();
     // log.info("resolveCombatSkillId name:{} race:{}", self.getName(), race);
     switch (category) {
       case DODGE -> {
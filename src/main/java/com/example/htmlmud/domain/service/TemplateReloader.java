@@ -0,0 +1,309 @@
+package com.example.htmlmud.domain.service;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import com.example.htmlmud.domain.model.config.GameConfig;
+import com.example.htmlmud.domain.model.template.ItemTemplate;
+import com.example.htmlmud.domain.model.template.MobTemplate;
+import com.example.htmlmud.domain.model.template.RaceTemplate;
+import com.example.htmlmud.domain.model.template.RoomTemplate;
+import com.example.htmlmud.domain.model.template.SkillTemplate;
+import com.example.htmlmud.domain.model.template.ZoneBundle;
+import com.example.htmlmud.domain.model.template.ZoneTemplate;
+import com.example.htmlmud.infra.persistence.repository.TemplateGeneration;
+import com.example.htmlmud.infra.persistence.repository.TemplateRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 模板熱更新 (game-config.json 的 engine.hotReload)
+ *
+ * 監看技能、種族、區域的 JSON，有變動時在背景執行緒只重新解析變動的檔案 (區域以整個目錄為單位)，
+ * 與目前的模板比對後組成新一代模板 (TemplateGeneration)，交給 WorldPulse 在兩次 tick 之間換入。
+ * 只有 classpath 在檔案系統上 (開發環境、解開的部署目錄) 時才能監看，包在 jar 裡就不啟動。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TemplateReloader {
+
+  private final WorldManager worldManager;
+
+  // 收到第一個變更後再等一下，把編輯器連續寫入的事件合併成一次
+  @Value("${mud.world.hot-reload.debounce-ms:300}")
+  private long debounceMs;
+
+  // 等待換入的新一代模板 (一次只會有一個，換入後 watcher 才繼續處理下一批變更)
+  private final AtomicReference<PendingReload> pending = new AtomicReference<>();
+
+  private WatchService watchService;
+  private Thread watcher;
+
+  private record PendingReload(TemplateGeneration generation, CompletableFuture<Long> applied) {
+  }
+
+  // 一個被監看的來源檔屬於哪一類
+  private sealed interface Source {
+  }
+
+  private record SkillSource() implements Source {
+  }
+
+  private record RaceSource() implements Source {
+  }
+
+  private record ZoneSource(GameConfig.ZoneEntry entry) implements Source {
+  }
+
+  private record ConfigSource() implements Source {
+  }
+
+
+
+  public synchronized void start(GameConfig config) {
+    if (!config.engine().hotReload() || watcher != null) {
+      return;
+    }
+
+    Map<Path, Source> dirs = new HashMap<>();
+    try {
+      for (Resource res : worldManager.sourceFiles(config)) {
+        if (!res.isFile()) {
+          continue;
+        }
+        Path file = res.getFile().toPath().toAbsolutePath();
+        dirs.putIfAbsent(file.getParent(), classify(config, res));
+      }
+    } catch (IOException e) {
+      log.warn("Template hot reload 無法取得來源檔案，不啟動: {}", e.getMessage());
+      return;
+    }
+    if (dirs.isEmpty()) {
+      log.info("Template hot reload 來源不在檔案系統上 (jar)，不啟動");
+      return;
+    }
+
+    try {
+      watchService = FileSystems.getDefault().newWatchService();
+      for (Path dir : dirs.keySet()) {
+        dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+      }
+    } catch (IOException e) {
+      log.warn("Template hot reload 無法監看目錄，不啟動: {}", e.getMessage());
+      return;
+    }
+
+    watcher = Thread.ofVirtual().name("template-reloader").start(() -> watchLoop(config, dirs));
+    log.info("Template hot reload 已啟動，監看 {} 個目錄", dirs.size());
+  }
+
+  // 依檔案所在位置判斷類別 (同一個目錄只會有一種來源)
+  private static Source classify(GameConfig config, Resource res) {
+    String description = res.getDescription().replace('\\', '/');
+    GameConfig.Resources resources = config.resources();
+    if (description.contains(resources.rootPath() + resources.races())) {
+      return new RaceSource();
+    }
+    for (GameConfig.ZoneEntry entry : config.enabledZones()) {
+      if (description.contains(resources.rootPath() + entry.directory())) {
+        return new ZoneSource(entry);
+      }
+    }
+    if (description.contains("game-config.json")) {
+      return new ConfigSource();
+    }
+    return new SkillSource();
+  }
+
+  @PreDestroy
+  public synchronized void stop() {
+    if (watcher == null) {
+      return;
+    }
+    watcher.interrupt();
+    try {
+      watchService.close();
+    } catch (IOException e) {
+      log.warn("Template hot reload 關閉失敗: {}", e.getMessage());
+    }
+    watcher = null;
+  }
+
+
+
+  private void watchLoop(GameConfig config, Map<Path, Source> dirs) {
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        // 等到第一個變更，再收集 debounce 時間內的其他變更
+        Set<Path> changed = new HashSet<>();
+        drain(watchService.take(), changed);
+        WatchKey key;
+        while ((key = watchService.poll(debounceMs, TimeUnit.MILLISECONDS)) != null) {
+          drain(key, changed);
+        }
+
+        try {
+          reload(config, dirs, changed);
+        } catch (RuntimeException e) {
+          log.error("Template reload 失敗 files:{}", changed, e);
+        }
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void drain(WatchKey key, Set<Path> changed) {
+    Path dir = (Path) key.watchable();
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.context() instanceof Path name && name.toString().endsWith(".json")) {
+        changed.add(dir.resolve(name));
+      }
+    }
+    key.reset();
+  }
+
+  private void reload(GameConfig config, Map<Path, Source> dirs, Set<Path> changed)
+      throws InterruptedException {
+    long start = System.nanoTime();
+
+    // 1. 只重新解析有變動的檔案 (區域以目錄為單位，四個檔一起讀才能轉成絕對 ID)
+    Map<String, SkillTemplate> skills = new HashMap<>();
+    Map<String, RaceTemplate> races = new HashMap<>();
+    Map<String, ZoneTemplate> zones = new HashMap<>();
+    Map<String, MobTemplate> mobs = new HashMap<>();
+    Map<String, ItemTemplate> items = new HashMap<>();
+    Map<String, RoomTemplate> rooms = new HashMap<>();
+    Set<GameConfig.ZoneEntry> zoneEntries = new HashSet<>();
+    boolean racesChanged = false;
+
+    for (Path file : changed) {
+      switch (dirs.get(file.getParent())) {
+        case SkillSource() -> {
+          // 刪除的技能檔不處理 (已載入的技能保留到重新啟動)
+          if (!Files.isRegularFile(file)) {
+            continue;
+          }
+          SkillTemplate tpl = worldManager.readSkill(new FileSystemResource(file));
+          if (tpl != null) {
+            putIfChanged(skills, tpl.getId(), tpl,
+                TemplateRepository.findSkill(tpl.getId()).orElse(null));
+          }
+        }
+        case RaceSource() -> racesChanged = true;
+        case ZoneSource(var entry) -> zoneEntries.add(entry);
+        case ConfigSource() -> log.warn("game-config.json 已變更，區域增減與資源路徑需重新啟動才會生效");
+        case null -> {
+        }
+      }
+    }
+
+    if (racesChanged) {
+      try {
+        for (RaceTemplate tpl : worldManager.readRaces(config.resources())) {
+          putIfChanged(races, tpl.id(), tpl, TemplateRepository.findRace(tpl.id()).orElse(null));
+        }
+      } catch (IOException e) {
+        log.error("Template reload 種族讀取失敗: {}", e.getMessage());
+      }
+    }
+
+    for (GameConfig.ZoneEntry entry : zoneEntries) {
+      ZoneBundle bundle;
+      try {
+        bundle = worldManager.readZone(config.resources(), entry);
+      } catch (IOException | RuntimeException e) {
+        log.error("Template reload 區域讀取失敗 {}: {}", entry.id(), e.getMessage());
+        continue;
+      }
+      if (bundle == null) {
+        continue;
+      }
+      ZoneTemplate zone = bundle.zone();
+      putIfChanged(zones, zone.id(), zone, TemplateRepository.findZone(zone.id()).orElse(null));
+      for (MobTemplate tpl : bundle.mobs()) {
+        putIfChanged(mobs, tpl.id(), tpl, TemplateRepository.findMob(tpl.id()).orElse(null));
+      }
+      for (ItemTemplate tpl : bundle.items()) {
+        putIfChanged(items, tpl.id(), tpl, TemplateRepository.findItem(tpl.id()).orElse(null));
+      }
+      for (RoomTemplate tpl : bundle.rooms()) {
+        putIfChanged(rooms, tpl.id(), tpl, TemplateRepository.findRoom(tpl.id()).orElse(null));
+      }
+    }
+
+    TemplateGeneration next = new TemplateGeneration(skills, races, zones, mobs, items, rooms);
+    if (next.isEmpty()) {
+      log.info("Template reload files:{} 內容沒有變動", changed.size());
+      return;
+    }
+    TemplateRepository.prepare(next);
+
+    // 2. 交給 WorldPulse 換入，等換完才處理下一批 (比對的基準必須是已換入的內容)
+    PendingReload reload = new PendingReload(next, new CompletableFuture<>());
+    pending.set(reload);
+    long generation;
+    try {
+      generation = reload.applied().get();
+    } catch (ExecutionException e) {
+      log.error("Template reload 換入失敗", e.getCause());
+      return;
+    }
+
+    // 3. 影響範圍 (在背景計算，不佔用 pulse)
+    int activeRooms = worldManager.countActiveRooms(rooms.keySet());
+    int liveMobs = worldManager.countLiveMobs(mobs.keySet());
+    log.info(
+        "Template reload gen:{} files:{} | skills:{} races:{} zones:{} mobs:{} items:{} rooms:{} | affected activeRooms:{} liveMobs(舊模板直到重生):{} | latency:{}ms",
+        generation, changed.size(), skills.size(), races.size(), zones.size(), mobs.size(),
+        items.size(), rooms.size(), activeRooms, liveMobs,
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+  }
+
+  private static <T> void putIfChanged(Map<String, T> changes, String id, T next, T current) {
+    if (!Objects.equals(current, next)) {
+      changes.put(id, next);
+    }
+  }
+
+  /**
+   * 由 WorldPulse 在每次心跳開始 (任何 tick 工作之前) 呼叫，有待換入的模板就換入
+   */
+  public void applyPending() {
+    PendingReload reload = pending.getAndSet(null);
+    if (reload == null) {
+      return;
+    }
+    long start = System.nanoTime();
+    try {
+      long generation = TemplateRepository.swap(reload.generation());
+      log.info("Template swap gen:{} templates:{} {}µs", generation, reload.generation().size(),
+          TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+      reload.applied().complete(generation);
+    } catch (RuntimeException e) {
+      reload.applied().completeExceptionally(e);
+    }
+  }
+}
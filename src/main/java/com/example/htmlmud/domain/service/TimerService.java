@@ -0,0 +1,40 @@
+package com.example.htmlmud.domain.service;
+
+import java.time.Duration;
+import org.springframework.stereotype.Service;
+import com.example.htmlmud.domain.actor.core.TimerHandle;
+import com.example.htmlmud.domain.actor.core.TimingWheel;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 全引擎共用的計時器，由 WorldPulse 每個 tick 推進一次
+ *
+ * 取代原本每個房間一條 ScheduledExecutor、每次斷線一條 sleep 的 VT 等做法。 到期的任務在 WorldPulse 的執行緒上執行，請只投遞訊息給
+ * Actor。
+ */
+@Slf4j
+@Service
+public class TimerService {
+
+  // 與 WorldPulse 的頻率一致
+  public static final long TICK_MILLIS = 100;
+
+  private final TimingWheel wheel = new TimingWheel(TICK_MILLIS);
+
+  public TimerHandle schedule(long delayMillis, Runnable task) {
+    return wheel.schedule(delayMillis, task);
+  }
+
+  public TimerHandle schedule(Duration delay, Runnable task) {
+    return wheel.schedule(delay.toMillis(), task);
+  }
+
+  // 由 WorldPulse 呼叫
+  public void advance() {
+    wheel.advance();
+  }
+
+  public int getPendingCount() {
+    return wheel.getPendingCount();
+  }
+}
@@ -1,22 +1,40 @@
 package com.example.htmlmud.domain.service;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.ResourcePatternResolver;
 import org.springframework.stereotype.Service;
 import com.example.htmlmud.application.factory.WorldFactory;
+import com.example.htmlmud.domain.actor.core.VirtualActor;
 import com.example.htmlmud.domain.actor.impl.Living;
 import com.example.htmlmud.domain.actor.impl.Mob;
 import com.example.htmlmud.domain.actor.impl.Player;
 import com.example.htmlmud.domain.actor.impl.Room;
+import com.example.htmlmud.domain.exception.MudException;
+import com.example.htmlmud.domain.model.config.GameConfig;
+import com.example.htmlmud.domain.model.entity.RoomDormantState;
+import com.example.htmlmud.domain.model.enums.ZoneState;
 import com.example.htmlmud.domain.model.template.ItemTemplate;
 import com.example.htmlmud.domain.model.template.MobTemplate;
 import com.example.htmlmud.domain.model.template.RaceTemplate;
@@ -24,9 +42,11 @@ import com.example.htmlmud.domain.model.template.RoomExit;
 import com.example.htmlmud.domain.model.template.RoomTemplate;
 import com.example.htmlmud.domain.model.template.SkillTemplate;
 import com.example.htmlmud.domain.model.template.SpawnRule;
+import com.example.htmlmud.domain.model.template.ZoneBundle;
 import com.example.htmlmud.domain.model.template.ZoneTemplate;
+import com.example.htmlmud.infra.persistence.image.WorldImage;
 import com.example.htmlmud.infra.persistence.repository.TemplateRepository;
-import com.example.htmlmud.infra.util.IdUtils;
+import com.example.htmlmud.protocol.RoomMessage;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.PreDestroy;
@@ -45,6 +65,31 @@ public class WorldManager {
 
   private final WorldFactory worldFactory; // 注入 Factory
 
+  private final AutosaveScheduler autosaveScheduler;
+
+  // 冷啟動的時間預算 (超過只記錄警告)
+  @Value("${mud.world.load-budget-ms:5000}")
+  private long loadBudgetMs;
+
+  // 預先編譯的世界映像檔
+  @Value("${mud.world.image.enabled:true}")
+  private boolean imageEnabled;
+
+  @Value("${mud.world.image.path:./data/world.img}")
+  private String imagePath;
+
+  private static final long NO_STAMP = 0;
+
+  // 每個 zone 目錄下 (manifest 以外) 的資料檔
+  static final List<String> ZONE_FILES = List.of("mobs.json", "items.json", "rooms.json");
+
+  // 區域沒有玩家超過這個時間就休眠
+  @Value("${mud.world.zone-idle-ms:300000}")
+  private long zoneIdleMs;
+
+  // 休眠時等所有房間回覆的時間 (與 ask 的預設逾時相同)，超過就撤回還沒開始處理的房間
+  private static final long PASSIVATE_TIMEOUT_MS = VirtualActor.DEFAULT_ASK_TIMEOUT.toMillis();
+
   // 2. Runtime Actors: 存放正在運作的 RoomActor
   // 使用 ConcurrentHashMap 確保並發存取安全
   @Getter
@@ -53,202 +98,640 @@ public class WorldManager {
   // 快取：ID -> Living 實體
   private final ConcurrentHashMap<String, Living> activeLivings = new ConcurrentHashMap<>();
 
-  // 3. Write-Behind Queue: 存放待寫入資料庫的變更
-  private final BlockingQueue<RoomStateUpdate> persistenceQueue = new LinkedBlockingQueue<>();
-
-  private volatile boolean isRunning = true;
+  // 玩家位置索引 (由 RoomService 在 enter / leave / 移除時維護)
+  // playerId -> roomId
+  private final ConcurrentHashMap<String, String> playerRooms = new ConcurrentHashMap<>();
+  // 有玩家的房間 roomId -> 玩家數 (數量歸零時移除，所以 keySet 就是「有人的房間」)
+  private final ConcurrentHashMap<String, Integer> roomOccupancy = new ConcurrentHashMap<>();
+  // zoneId -> 玩家數
+  private final ConcurrentHashMap<String, Integer> zoneOccupancy = new ConcurrentHashMap<>();
+  // zoneId -> 已建立的 roomId (給重生檢查用)
+  private final ConcurrentHashMap<String, Set<String>> zoneRooms = new ConcurrentHashMap<>();
+
+  // zoneId -> 區域生命週期
+  private final ConcurrentHashMap<String, ZoneRuntime> zones = new ConcurrentHashMap<>();
+  private final AtomicBoolean passivationRunning = new AtomicBoolean(false);
+
+  // 載入世界時讀到的 game-config (熱更新依它決定要監看哪些檔案)
+  @Getter
+  private volatile GameConfig gameConfig = GameConfig.DEFAULT;
 
 
 
   /**
    * 伺服器啟動時載入地圖
+   *
+   * 依 game-config.json 啟用的 zones 載入，分三個階段並記錄各階段耗時：
+   * <ol>
+   * <li>parse：來源 JSON 沒有變動時直接讀世界映像檔 (WorldImage)；否則技能檔、種族、每個 zone 各自一個 Virtual Thread
+   * 平行解析 (只轉成絕對 ID，不註冊)</li>
+   * <li>resolve：依固定順序註冊模板，再檢查跨 zone 的出口與生怪 ID</li>
+   * <li>zones：登記區域的生命週期 (TEMPLATE_ONLY)，Room Actor 等第一位玩家進入時才整區建立</li>
+   * </ol>
    */
   public void loadWorld() {
+    long start = System.nanoTime();
+    GameConfig config = readGameConfig();
+    gameConfig = config;
+
+    // 1. parse：來源沒變就直接讀世界映像檔，否則解析 JSON 後重新產生映像檔
+    long sourceStamp = imageEnabled ? sourceStamp(config) : NO_STAMP;
+    Path imageFile = Path.of(imagePath);
+    WorldImage.Content content = (sourceStamp == NO_STAMP) ? null
+        : WorldImage.read(imageFile, sourceStamp, objectMapper).orElse(null);
+    String source = "IMAGE";
+    if (content == null) {
+      source = "JSON";
+      content = parseSources(config);
+      if (sourceStamp != NO_STAMP) {
+        writeImage(imageFile, sourceStamp, content);
+      }
+    }
+    List<SkillTemplate> skills = content.skills();
+    List<RaceTemplate> races = content.races();
+    List<ZoneBundle> zoneData = content.zones();
+    long parsed = System.nanoTime();
+
+    // 2. resolve
+    skills.forEach(TemplateRepository::registerSkill);
+    races.forEach(TemplateRepository::registerRace);
+    for (ZoneBundle data : zoneData) {
+      TemplateRepository.registerZone(data.zone());
+      data.mobs().forEach(TemplateRepository::registerMob);
+      data.items().forEach(TemplateRepository::registerItem);
+      data.rooms().forEach(TemplateRepository::registerRoom);
+    }
+    int unresolved = resolveReferences(zoneData);
+    long resolved = System.nanoTime();
+
+    // 3. zones
+    int roomCount = registerZones(zoneData);
+    long started = System.nanoTime();
+
+    long totalMs = toMs(started - start);
+    log.info(
+        "World loaded from {} zones:{} rooms:{} skills:{} races:{} unresolved:{} | parse:{}ms resolve:{}ms zones:{}ms total:{}ms",
+        source, zoneData.size(), roomCount, skills.size(), races.size(), unresolved,
+        toMs(parsed - start), toMs(resolved - parsed), toMs(started - resolved), totalMs);
+    if (totalMs > loadBudgetMs) {
+      log.warn("World 載入超過預算 {}ms > {}ms", totalMs, loadBudgetMs);
+    }
+  }
 
-    // 讀取 global 資料
-    loadgGlobalData();
+  // 技能檔、種族、每個 zone 各自一個 Virtual Thread 平行解析
+  private WorldImage.Content parseSources(GameConfig config) {
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      List<Future<SkillTemplate>> skillFutures = submitSkillFiles(executor, config.resources());
+      Future<List<RaceTemplate>> raceFuture = executor.submit(() -> readRaces(config.resources()));
+      List<Future<ZoneBundle>> zoneFutures = config.enabledZones().stream()
+          .map(zone -> executor.submit(() -> readZone(config.resources(), zone))).toList();
+
+      List<SkillTemplate> skills = collect(skillFutures);
+      List<RaceTemplate> races = collect(List.of(raceFuture)).stream().flatMap(List::stream).toList();
+      List<ZoneBundle> zoneData = collect(zoneFutures);
+      return new WorldImage.Content(config.dataVersion(), skills, races, zoneData);
+    }
+  }
 
-    // 讀取 newbie_village 資料
-    readZone("newbie_village");
+  // 映像檔在背景寫出，不拖慢這次啟動
+  private void writeImage(Path imageFile, long sourceStamp, WorldImage.Content content) {
+    Thread.ofVirtual().name("world-image-writer").start(() -> {
+      long start = System.nanoTime();
+      try {
+        WorldImage.write(imageFile, sourceStamp, content, objectMapper);
+        log.info("world image 已寫出 {} ({} bytes) {}ms", imageFile, Files.size(imageFile),
+            toMs(System.nanoTime() - start));
+      } catch (IOException | RuntimeException e) {
+        log.warn("world image 寫出失敗 {}: {}", imageFile, e.getMessage());
+      }
+    });
+  }
 
+  /**
+   * 所有來源 JSON 的指紋 (路徑、最後修改時間、大小)，任何一個檔案變動或增減都會不同
+   *
+   * @return 無法取得檔案資訊時回傳 NO_STAMP (不使用映像檔)
+   */
+  private long sourceStamp(GameConfig config) {
+    try {
+      long stamp = WorldImage.FORMAT_VERSION;
+      for (Resource res : sourceFiles(config)) {
+        if (!res.exists()) {
+          continue;
+        }
+        stamp = 31 * stamp + res.getDescription().hashCode();
+        stamp = 31 * stamp + res.lastModified();
+        stamp = 31 * stamp + res.contentLength();
+      }
+      return (stamp == NO_STAMP) ? stamp + 1 : stamp;
+    } catch (IOException e) {
+      log.warn("無法取得來源檔案資訊，不使用 world image: {}", e.getMessage());
+      return NO_STAMP;
+    }
+  }
 
+  /**
+   * 世界載入用到的所有來源檔 (game-config、技能、種族、每個 zone 的四個檔)，依描述排序
+   */
+  List<Resource> sourceFiles(GameConfig config) throws IOException {
+    GameConfig.Resources resources = config.resources();
+    String root = "classpath:" + resources.rootPath();
+    List<Resource> sources = new ArrayList<>();
+    sources.add(resourceResolver.getResource("classpath:game-config.json"));
+    sources.addAll(Arrays.asList(resourceResolver.getResources(root + resources.skills())));
+    sources.add(resourceResolver.getResource(root + resources.races()));
+    for (GameConfig.ZoneEntry zone : config.enabledZones()) {
+      sources.add(resourceResolver.getResource(root + zone.path()));
+      for (String file : ZONE_FILES) {
+        sources.add(resourceResolver.getResource(root + zone.directory() + file));
+      }
+    }
+    sources.sort(Comparator.comparing(Resource::getDescription));
+    return sources;
+  }
 
-    // 啟動 Write-Behind 消費者執行緒
-    // startPersistenceWorker();
+  private GameConfig readGameConfig() {
+    Resource resource = resourceResolver.getResource("classpath:game-config.json");
+    if (!resource.exists()) {
+      log.warn("game-config.json not found, 使用預設設定");
+      return GameConfig.DEFAULT;
+    }
 
-    // load zone
-    // loadZone("newbie_village");
+    try (var is = resource.getInputStream()) {
+      GameConfig config = objectMapper.readValue(is, GameConfig.class);
+      log.info("game-config {} {} dataVersion:{} zones:{}", config.gameName(), config.version(),
+          config.dataVersion(),
+          config.enabledZones().stream().map(GameConfig.ZoneEntry::id).toList());
+      return config;
+    } catch (IOException e) {
+      log.error("Error reading game-config.json, 使用預設設定", e);
+      return GameConfig.DEFAULT;
+    }
   }
 
-  private void loadgGlobalData() {
-    log.info("loadgGlobalData");
-
-    loadgSkillData();
+  private static <T> List<T> collect(List<Future<T>> futures) {
+    List<T> results = new ArrayList<>(futures.size());
+    for (Future<T> future : futures) {
+      try {
+        T result = future.get();
+        if (result != null) {
+          results.add(result);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new MudException("World 載入被中斷");
+      } catch (ExecutionException e) {
+        log.error("World 載入失敗", e.getCause());
+      }
+    }
+    return results;
+  }
 
-    loadRaceData();
+  private static long toMs(long nanos) {
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
   }
 
 
 
-  private void loadRaceData() {
-    log.info("load RaceData");
+  private List<Future<SkillTemplate>> submitSkillFiles(ExecutorService executor,
+      GameConfig.Resources resources) {
+    log.info("load SkillData {}", resources.skills());
 
+    Resource[] files;
     try {
-      Resource resource = resourceResolver.getResource("classpath:data/global/races.json");
-      if (resource == null) {
-        log.error("race not found");
-        return;
-      }
-
-      Set<RaceTemplate> list = objectMapper.readValue(resource.getInputStream(),
-          new TypeReference<Set<RaceTemplate>>() {});
-      // log.info("{}", objectMapper.writeValueAsString(list));
-      for (RaceTemplate race : list) {
-        TemplateRepository.registerRace(race);
-      }
-      //
+      // 使用 getResources (複數) 來支援萬用字元 *
+      files = resourceResolver
+          .getResources("classpath:" + resources.rootPath() + resources.skills());
     } catch (IOException e) {
-      log.error("Error reading resources race", e);
+      log.error("Error reading resources skills", e);
+      return List.of();
+    }
+    if (files.length == 0) {
+      log.error("skill files not found");
+      return List.of();
     }
 
+    // 依檔名排序，同一個技能 ID 出現在多個檔案時註冊順序固定
+    Arrays.sort(files, Comparator.comparing(Resource::getDescription));
+    return Arrays.stream(files).map(res -> executor.submit(() -> readSkill(res))).toList();
   }
 
-  private void loadgSkillData() {
-    log.info("loadgSkillData");
+  SkillTemplate readSkill(Resource res) {
+    // 使用 try-with-resources 確保串流正確關閉
+    try (var is = res.getInputStream()) {
+      SkillTemplate tpl = objectMapper.readValue(is, SkillTemplate.class);
+      log.debug("Successfully loaded skill: {}:{}", tpl.getId(), tpl.getName());
+      return tpl;
+    } catch (Exception e) {
+      log.error("Failed to parse JSON file: {} - Error: {}", res.getFilename(), e.getMessage());
+      return null;
+    }
+  }
 
-    try {
-      // 使用 getResources (複數) 來支援萬用字元 *
-      // Resource[] resources =
-      // resourceResolver.getResources("classpath:data/global/skills/**/*.json");
-      Resource[] resources =
-          resourceResolver.getResources("classpath:data/global/skills/test/*.json");
-      if (resources == null || resources.length == 0) {
-        log.error("skill files not found");
-        return;
-      }
-      for (Resource res : resources) {
-        // 使用 try-with-resources 確保串流正確關閉
-        try (var is = res.getInputStream()) {
-          SkillTemplate tpl = objectMapper.readValue(is, SkillTemplate.class);
-          log.info("Successfully loaded skill: {}:{}", tpl.getId(), tpl.getName());
-          // log.info("log:{}", objectMapper.writeValueAsString(tpl));
-          TemplateRepository.registerSkill(tpl);
-        } catch (Exception e) {
-          log.error("Failed to parse JSON file: {} - Error: {}", res.getFilename(), e.getMessage());
+  List<RaceTemplate> readRaces(GameConfig.Resources resources) throws IOException {
+    log.info("load RaceData");
+
+    Resource resource =
+        resourceResolver.getResource("classpath:" + resources.rootPath() + resources.races());
+    if (!resource.exists()) {
+      log.error("race not found");
+      return List.of();
+    }
+
+    try (var is = resource.getInputStream()) {
+      Set<RaceTemplate> set =
+          objectMapper.readValue(is, new TypeReference<Set<RaceTemplate>>() {});
+      return List.copyOf(set);
+    }
+  }
+
+  ZoneBundle readZone(GameConfig.Resources resources, GameConfig.ZoneEntry entry)
+      throws IOException {
+    String dir = "classpath:" + resources.rootPath() + entry.directory();
+
+    // 讀取 zone 資料
+    ZoneTemplate zoneTemplate = readJson(resourceResolver.getResource(
+        "classpath:" + resources.rootPath() + entry.path()), new TypeReference<ZoneTemplate>() {});
+    if (zoneTemplate == null) {
+      log.error("Zone manifest not found: {}", entry.path());
+      return null;
+    }
+    String zoneId = zoneTemplate.id();
+
+
+    // 讀取 mob 資料
+    Set<MobTemplate> mobs = readJson(resourceResolver.getResource(dir + "mobs.json"),
+        new TypeReference<Set<MobTemplate>>() {});
+
+    // 讀取 item 資料
+    Set<ItemTemplate> items = readJson(resourceResolver.getResource(dir + "items.json"),
+        new TypeReference<Set<ItemTemplate>>() {});
+
+    // 讀取 room 資料
+    // 使用 TypeReference 來正確讀取 JSON 陣列為 Collection<RoomTemplate>
+    List<RoomTemplate> rooms = readJson(resourceResolver.getResource(dir + "rooms.json"),
+        new TypeReference<List<RoomTemplate>>() {});
+    if (rooms == null) {
+      log.error("Zone rooms not found: {}", zoneId);
+    }
+
+    ZoneBundle bundle = ZoneBundle.resolve(zoneTemplate, mobs, items, rooms);
+    log.info("read zone:{} rooms:{} mobs:{} items:{}", zoneId, bundle.rooms().size(),
+        bundle.mobs().size(), bundle.items().size());
+    return bundle;
+  }
+
+  private <T> T readJson(Resource resource, TypeReference<T> type) throws IOException {
+    if (!resource.exists()) {
+      return null;
+    }
+    try (var is = resource.getInputStream()) {
+      return objectMapper.readValue(is, type);
+    }
+  }
+
+  /**
+   * 第二階段：所有 zone 都註冊後，才能檢查跨 zone 的 ID (例如 "snow:snow_gate")
+   *
+   * @return 找不到目標的參照數 (出口指向未載入的 zone 時只警告，之後載入該 zone 就會接上)
+   */
+  private int resolveReferences(List<ZoneBundle> zoneData) {
+    int unresolved = 0;
+    for (ZoneBundle data : zoneData) {
+      for (RoomTemplate room : data.rooms()) {
+        if (room.exits() != null) {
+          for (RoomExit exit : room.exits().values()) {
+            if (TemplateRepository.roomHandle(exit.targetRoomId()) == TemplateRepository.NO_HANDLE) {
+              log.warn("room:{} 出口指向不存在的房間 {}", room.id(), exit.targetRoomId());
+              unresolved++;
+            }
+          }
+        }
+        if (room.spawnRules() != null) {
+          for (SpawnRule rule : room.spawnRules()) {
+            boolean found = switch (String.valueOf(rule.type())) {
+              case "MOB" -> TemplateRepository.mobHandle(rule.id()) != TemplateRepository.NO_HANDLE;
+              case "ITEM" -> TemplateRepository.itemHandle(rule.id()) != TemplateRepository.NO_HANDLE;
+              default -> true;
+            };
+            if (!found) {
+              log.warn("room:{} 生怪規則找不到模板 {}:{}", room.id(), rule.type(), rule.id());
+              unresolved++;
+            }
+          }
         }
       }
-    } catch (IOException e) {
-      log.error("Error reading resources skills", e);
     }
+    return unresolved;
   }
 
+  // 第三階段：登記區域，房間等到有玩家進入才建立
+  private int registerZones(List<ZoneBundle> zoneData) {
+    int roomCount = 0;
+    for (ZoneBundle data : zoneData) {
+      List<String> roomIds = data.rooms().stream().map(RoomTemplate::id).toList();
+      zones.put(data.zone().id(), new ZoneRuntime(data.zone().id(), roomIds));
+      roomCount += roomIds.size();
+    }
+    return roomCount;
+  }
 
-  private void readZone(String zoneId) {
-    try {
+  /**
+   * 核心方法：取得或創建 RoomActor 這是進入遊戲世界的入口
+   *
+   * 房間所在的區域還沒啟用 (或已休眠) 時，整個區域一起啟用
+   */
+  public Room getRoomActor(String roomId) {
+    // 如果 Actor 已經存在，直接回傳
+    Room room = activeRooms.get(roomId);
+    if (room != null) {
+      return room;
+    }
 
-      // 讀取 zone 資料
-      Resource resource =
-          resourceResolver.getResource("classpath:data/zones/" + zoneId + "/manifest.json");
-      if (resource == null) {
-        log.error("Zone manifest not found: {}", zoneId);
-        return;
-      }
-      ZoneTemplate zoneTemplate =
-          objectMapper.readValue(resource.getInputStream(), ZoneTemplate.class);
-      // log.info("log:{}", objectMapper.writeValueAsString(zoneTemplate));
-      TemplateRepository.registerZone(zoneTemplate);
-      // String zoneId = zoneTemplate.id();
+    ZoneRuntime zone = TemplateRepository.findRoom(roomId).map(tpl -> zones.get(tpl.zoneId()))
+        .orElse(null);
+    if (zone == null) {
+      return activeRooms.computeIfAbsent(roomId, id -> createRoomActor(id, null));
+    }
 
+    synchronized (zone) {
+      awaitPassivation(zone);
+      activateZone(zone);
+      // activateZone 已建立區域內所有房間，這裡只補上建立失敗的房間 (休眠中止時重建失敗的房間，快照還留在 zone 裡)
+      return activeRooms.computeIfAbsent(roomId,
+          id -> createRoomActor(id, zone.snapshots.remove(id)));
+    }
+  }
 
-      // 讀取 mob 資料
-      resource = resourceResolver.getResource("classpath:data/zones/" + zoneId + "/mobs.json");
-      if (resource == null) {
-        log.error("Zone mobs not found: {}", zoneId);
-        return;
-      }
-      Set<MobTemplate> mobs = objectMapper.readValue(resource.getInputStream(),
-          new TypeReference<Set<MobTemplate>>() {});
-      for (MobTemplate mob : mobs) {
-        String newMobId = IdUtils.resolveId(zoneId, mob.id());
-        MobTemplate newMob = mob.toBuilder().id(newMobId).build();
-        // log.info("log:{}", objectMapper.writeValueAsString(newMob));
-        TemplateRepository.registerMob(newMob);
+  private Room createRoomActor(String roomId, RoomDormantState restore) {
+    Room room = worldFactory.createRoom(roomId, restore);
+    zoneRooms.computeIfAbsent(room.getTemplate().zoneId(), z -> ConcurrentHashMap.newKeySet())
+        .add(roomId);
+    return room;
+  }
+
+  // ==========================================
+  // 區域生命週期 (Zone Lifecycle)
+  // ==========================================
+
+  // 區域的執行期狀態，狀態轉換時持有這個物件的鎖
+  private static final class ZoneRuntime {
+    private final String zoneId;
+    private final List<String> roomIds;
+    private volatile ZoneState state = ZoneState.TEMPLATE_ONLY;
+    // 最後一位玩家離開後開始計時 (0 代表有人或尚未開始計時)
+    private volatile long idleSince = 0;
+    // roomId -> 休眠快照
+    private Map<String, RoomDormantState> snapshots = new HashMap<>();
+
+    private ZoneRuntime(String zoneId, List<String> roomIds) {
+      this.zoneId = zoneId;
+      this.roomIds = roomIds;
+    }
+  }
+
+  // 一個房間正在休眠中的區域 (回覆在鎖外等待)
+  private record Passivation(String roomId, Room room, RoomMessage.Passivate request) {
+  }
+
+  // 區域正在休眠時，等它完成 (DORMANT 或中止回到 ACTIVE) 再繼續；呼叫端必須持有 zone 的鎖
+  private static void awaitPassivation(ZoneRuntime zone) {
+    while (zone.state == ZoneState.PASSIVATING) {
+      try {
+        zone.wait();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new MudException("區域休眠被中斷 zoneId:" + zone.zoneId);
       }
+    }
+  }
+
+  // 呼叫端必須持有 zone 的鎖
+  private void activateZone(ZoneRuntime zone) {
+    if (zone.state == ZoneState.ACTIVE) {
+      return;
+    }
 
+    long start = System.nanoTime();
+    ZoneState previous = zone.state;
+    for (String roomId : zone.roomIds) {
+      try {
+        activeRooms.computeIfAbsent(roomId,
+            id -> createRoomActor(id, zone.snapshots.remove(id)));
+      } catch (Exception e) {
+        log.error("init roomActor failed roomId:{}", roomId, e);
+      }
+    }
+    zone.snapshots = new HashMap<>();
+    zone.idleSince = 0;
+    zone.state = ZoneState.ACTIVE;
+    log.info("zone:{} {} -> ACTIVE rooms:{} {}ms", zone.zoneId, previous, zone.roomIds.size(),
+        toMs(System.nanoTime() - start));
+  }
 
-      // 讀取 item 資料
-      resource = resourceResolver.getResource("classpath:data/zones/" + zoneId + "/items.json");
-      if (resource == null) {
-        log.error("Zone items not found: {}", zoneId);
-        return;
+  /**
+   * 由 WorldPulse 定期呼叫：沒有玩家超過 zoneIdleMs 的區域轉為休眠 (在獨立的 Virtual Thread 上執行，不阻塞心跳)
+   */
+  public void passivateIdleZones(long now) {
+    List<ZoneRuntime> idle = new ArrayList<>();
+    for (ZoneRuntime zone : zones.values()) {
+      if (zone.state != ZoneState.ACTIVE) {
+        continue;
+      }
+      if (getZoneOccupancy(zone.zoneId) > 0) {
+        zone.idleSince = 0;
+      } else if (zone.idleSince == 0) {
+        zone.idleSince = now;
+      } else if (now - zone.idleSince >= zoneIdleMs) {
+        idle.add(zone);
       }
-      Set<ItemTemplate> items = objectMapper.readValue(resource.getInputStream(),
-          new TypeReference<Set<ItemTemplate>>() {});
-      for (ItemTemplate item : items) {
-        String newItemId = IdUtils.resolveId(zoneId, item.id());
-        ItemTemplate newItem = item.toBuilder().id(newItemId).build();
-        // log.info("log:{}", objectMapper.writeValueAsString(newItem));
-        TemplateRepository.registerItem(newItem);
+    }
+
+    if (idle.isEmpty() || !passivationRunning.compareAndSet(false, true)) {
+      return;
+    }
+    Thread.ofVirtual().name("zone-passivation").start(() -> {
+      try {
+        idle.forEach(this::passivateZone);
+      } finally {
+        passivationRunning.set(false);
       }
+    });
+  }
 
+  private void passivateZone(ZoneRuntime zone) {
+    long start = System.nanoTime();
+    List<Passivation> pending = new ArrayList<>();
 
-      // 讀取 room 資料
-      resource = resourceResolver.getResource("classpath:data/zones/" + zoneId + "/rooms.json");
-      if (resource == null) {
-        log.error("Zone rooms not found: {}", zoneId);
+    // 1. 持有鎖：標記 PASSIVATING，房間移出索引並送出休眠訊息
+    synchronized (zone) {
+      if (zone.state != ZoneState.ACTIVE || getZoneOccupancy(zone.zoneId) > 0) {
         return;
       }
+      zone.state = ZoneState.PASSIVATING;
+
+      Set<String> roomIds = zoneRooms.getOrDefault(zone.zoneId, Set.of());
+      for (String roomId : List.copyOf(roomIds)) {
+        // 先從索引移除，之後的 getRoomActor 會等到休眠結束，再從快照還原
+        Room room = activeRooms.remove(roomId);
+        if (room == null) {
+          roomIds.remove(roomId);
+          continue;
+        }
+        pending.add(new Passivation(roomId, room, room.passivate()));
+      }
+    }
 
-      // 使用 TypeReference 來正確讀取 JSON 陣列為 Collection<RoomTemplate>
-      List<RoomTemplate> rooms = objectMapper.readValue(resource.getInputStream(),
-          new TypeReference<List<RoomTemplate>>() {});
-
-      for (RoomTemplate room : rooms) {
-        // 1. 處理 Mob Spawn Rules (使用 Stream 避免 ConcurrentModificationException)
-        List<SpawnRule> spawnRules = room.spawnRules() == null ? null
-            : room.spawnRules().stream()
-                .map(rule -> rule.toBuilder().id(IdUtils.resolveId(zoneId, rule.id())).build())
-                .toList();
-
-        // 3. 處理 Exits
-        Map<String, RoomExit> updatedExits = room.exits() == null ? null
-            : room.exits().entrySet().stream()
-                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().toBuilder()
-                    .targetRoomId(IdUtils.resolveId(zoneId, e.getValue().targetRoomId())).build()));
-
-        // 更新 room.id
-        String newRoomId = IdUtils.resolveId(zoneId, room.id());
-        RoomTemplate newRoom = room.toBuilder().id(newRoomId).zoneId(zoneId).exits(updatedExits)
-            .spawnRules(spawnRules).build();
-        // log.info("log:{}", objectMapper.writeValueAsString(newRoom));
-        TemplateRepository.registerRoom(newRoom);
-
-        // init roomActor
-        getRoomActor(newRoomId);
+    // 2. 不持有鎖：所有房間同時處理，在這裡等回覆 (getRoomActor 不會卡在監視器上等最慢的房間)
+    // empty 代表這個房間維持運作 (拒絕、撤回或失敗)
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(PASSIVATE_TIMEOUT_MS);
+    List<Optional<RoomDormantState>> states = new ArrayList<>(pending.size());
+    for (Passivation p : pending) {
+      states.add(awaitPassivateReply(p, deadline));
+    }
+    boolean aborted = states.stream().anyMatch(Optional::isEmpty);
+
+    // 3. 持有鎖：套用結果並喚醒等待中的 getRoomActor
+    synchronized (zone) {
+      Set<String> roomIds = zoneRooms.getOrDefault(zone.zoneId, Set.of());
+      int rooms = 0;
+      int mobs = 0;
+      int items = 0;
+
+      for (int i = 0; i < pending.size(); i++) {
+        Passivation p = pending.get(i);
+        Optional<RoomDormantState> state = states.get(i);
+
+        // 房間裡還有玩家 (剛好進來) 等原因沒有休眠：這個房間維持運作
+        if (state.isEmpty()) {
+          activeRooms.put(p.roomId(), p.room());
+          continue;
+        }
+
+        p.room().stop();
+        if (aborted) {
+          // 整個區域維持 ACTIVE：已經休眠的房間立刻從快照重建，不然要等到有人 getRoomActor 才會再有心跳與重生
+          try {
+            activeRooms.put(p.roomId(), createRoomActor(p.roomId(), state.get()));
+          } catch (Exception e) {
+            log.error("restore room failed roomId:{}", p.roomId(), e);
+            zone.snapshots.put(p.roomId(), state.get());
+          }
+          continue;
+        }
+        roomIds.remove(p.roomId());
+        // 空房間也留下快照：再次啟用時從快照還原，不重新讀資料庫
+        zone.snapshots.put(p.roomId(), state.get());
+        rooms++;
+        mobs += state.get().mobTemplateIds().length;
+        items += state.get().items().size();
       }
 
-    } catch (Exception e) {
-      log.error("read zone:{} rooms resources failed", zoneId, e);
+      zone.idleSince = 0;
+      zone.state = aborted ? ZoneState.ACTIVE : ZoneState.DORMANT;
+      zone.notifyAll();
+      log.info("zone:{} -> {} rooms:{} mobs:{} items:{} {}ms", zone.zoneId, zone.state, rooms,
+          mobs, items, toMs(System.nanoTime() - start));
     }
   }
 
-  private void loadZone(String zoneId) {
-    log.info("loadZone zoneId: {}", zoneId);
-    TemplateRepository.getRoomTemplates().values().forEach(room -> {
-      if (room.zoneId().equals(zoneId)) {
-        getRoomActor(room.id());
+  /**
+   * 等房間回覆休眠結果，逾時就撤回請求
+   *
+   * 撤回成功代表房間不會再處理這則訊息，可以放心放回 activeRooms；撤回失敗代表房間已經開始處理，等它真正的回覆。
+   */
+  private Optional<RoomDormantState> awaitPassivateReply(Passivation p, long deadline) {
+    CompletableFuture<Optional<RoomDormantState>> future = p.request().future();
+    try {
+      try {
+        return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+      } catch (TimeoutException e) {
+        if (p.request().claim()) {
+          log.warn("passivate room timed out, cancelled roomId:{}", p.roomId());
+          return Optional.empty();
+        }
+        return future.get();
       }
-    });
+    } catch (ExecutionException e) {
+      // 房間在處理途中失敗，不會再自己休眠
+      log.error("passivate room failed roomId:{}", p.roomId(), e.getCause());
+      return Optional.empty();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      if (p.request().claim()) {
+        return Optional.empty();
+      }
+      // 房間已經開始處理：處理本身不會卡住，等它做完
+      return future.handle((state, error) -> (error == null) ? state
+          : Optional.<RoomDormantState>empty()).join();
+    }
+  }
+
+  public ZoneState getZoneState(String zoneId) {
+    ZoneRuntime zone = zones.get(zoneId);
+    return (zone != null) ? zone.state : null;
   }
 
+  public Map<ZoneState, Integer> getZoneStateCounts() {
+    Map<ZoneState, Integer> counts = new EnumMap<>(ZoneState.class);
+    zones.values().forEach(zone -> counts.merge(zone.state, 1, Integer::sum));
+    return counts;
+  }
+
+  // ==========================================
+  // 玩家位置索引 (Occupancy Index)
+  // ==========================================
+
   /**
-   * 核心方法：取得或創建 RoomActor 這是進入遊戲世界的入口
+   * 玩家進入房間。若索引裡還記著舊房間 (leave 訊息比 enter 晚到)，先把舊房間扣掉。
    */
-  public Room getRoomActor(String roomId) {
-    // 如果 Actor 已經存在，直接回傳
-    return activeRooms.computeIfAbsent(roomId, id -> {
-      return worldFactory.createRoom(id);
-    });
+  public void playerEntered(String playerId, String roomId, String zoneId) {
+    String previous = playerRooms.put(playerId, roomId);
+    if (roomId.equals(previous)) {
+      return;
+    }
+    if (previous != null) {
+      decrementOccupancy(previous);
+    }
+    roomOccupancy.merge(roomId, 1, Integer::sum);
+    zoneOccupancy.merge(zoneId, 1, Integer::sum);
+  }
+
+  /**
+   * 玩家離開房間。只有索引裡記錄的仍是這個房間時才扣除，避免與 enter 的順序顛倒造成重複扣除。
+   */
+  public void playerLeft(String playerId, String roomId) {
+    if (playerRooms.remove(playerId, roomId)) {
+      decrementOccupancy(roomId);
+    }
+  }
+
+  private void decrementOccupancy(String roomId) {
+    roomOccupancy.computeIfPresent(roomId, (id, count) -> count > 1 ? count - 1 : null);
+    TemplateRepository.findRoom(roomId).ifPresent(tpl -> zoneOccupancy
+        .computeIfPresent(tpl.zoneId(), (id, count) -> count > 1 ? count - 1 : null));
+  }
+
+  public Optional<String> findPlayerRoomId(String playerId) {
+    return Optional.ofNullable(playerRooms.get(playerId));
+  }
+
+  // 目前有玩家的房間 (即時的 view，不需要複製)
+  public Set<String> getOccupiedRoomIds() {
+    return roomOccupancy.keySet();
+  }
+
+  public boolean isOccupied(String roomId) {
+    return roomOccupancy.containsKey(roomId);
+  }
+
+  public int getZoneOccupancy(String zoneId) {
+    return zoneOccupancy.getOrDefault(zoneId, 0);
+  }
+
+  // zoneId -> 已建立的 roomId
+  public Map<String, Set<String>> getZoneRooms() {
+    return zoneRooms;
   }
 
   public MobTemplate getMobTemplate(String mobId) {
@@ -259,16 +742,11 @@ public class WorldManager {
     });
   }
 
-  // ==========================================
-  // Write-Behind Implementation (非同步存檔機制)
-  // ==========================================
-
-  // 定義存檔請求的封包 (Record)
-  public record RoomStateUpdate(int roomId, String dataToSave) {
-  }
-
   public void addLivingActor(Living living) {
     activeLivings.put(living.getId(), living);
+    if (living instanceof Player player) {
+      autosaveScheduler.register(player);
+    }
   }
 
   public Optional<Living> findLivingActor(String livingId) {
@@ -289,6 +767,9 @@ public class WorldManager {
     if (living == null) {
       return;
     }
+    if (living instanceof Player) {
+      autosaveScheduler.unregister(livingId);
+    }
 
     // 2. 如果是 Mob，確保停止其 Actor 訊息處理迴圈
     if (living instanceof Mob) {
@@ -301,47 +782,9 @@ public class WorldManager {
 
 
 
-  /**
-   * RoomActor 呼叫此方法來請求存檔，不會阻塞 Actor 的運作
-   */
-  public void enqueueSave(int roomId, String data) {
-    persistenceQueue.offer(new RoomStateUpdate(roomId, data));
-  }
-
-  private void startPersistenceWorker() {
-    // 使用 Java 21+ Virtual Thread 來處理後台存檔
-    Thread.ofVirtual().name("world-persistence-worker").start(() -> {
-      log.info("World Persistence Worker started (Virtual Thread)");
-      while (isRunning) {
-        try {
-          // 阻塞直到有資料進來
-          RoomStateUpdate update = persistenceQueue.take();
-          processUpdate(update);
-        } catch (InterruptedException e) {
-          Thread.currentThread().interrupt();
-          break;
-        }
-      }
-    });
-  }
-
-  private void processUpdate(RoomStateUpdate update) {
-    // 模擬寫入資料庫 (MySQL JSON)
-    // 未來這裡會注入 JPA Repository
-    try {
-      // 模擬 IO 延遲
-      Thread.sleep(10);
-      log.info("[Write-Behind] Saved room {} state to DB: {}", update.roomId(),
-          update.dataToSave());
-    } catch (Exception e) {
-      log.error("Error saving room state", e);
-    }
-  }
-
   @PreDestroy
   public void shutdown() {
-    isRunning = false;
-    // 實際專案中這裡應該要把 Queue 裡的剩餘資料 flush 到資料庫
+    // 房間狀態的存檔由 RoomPersistenceService 在關機時 flush
     log.info("WorldManager shutting down...");
   }
 
@@ -385,6 +828,28 @@ public class WorldManager {
   // return itemTemplateMapper.toRecord(entity);
   // }
 
+  /**
+   * 熱更新影響範圍：已建立的房間中，模板在這次換新的數量
+   */
+  public int countActiveRooms(Set<String> roomTemplateIds) {
+    if (roomTemplateIds.isEmpty()) {
+      return 0;
+    }
+    return (int) activeRooms.keySet().stream().filter(roomTemplateIds::contains).count();
+  }
+
+  /**
+   * 熱更新影響範圍：還活著且仍持有舊模板的怪物 (數值在生成時已決定，重生後才會套用新模板)
+   */
+  public int countLiveMobs(Set<String> mobTemplateIds) {
+    if (mobTemplateIds.isEmpty()) {
+      return 0;
+    }
+    // activeLivings 只登記玩家，怪物由所在的房間持有 (讀房間發佈的快照，不經過信箱)
+    return (int) activeRooms.values().stream().flatMap(room -> room.getMobs().stream())
+        .filter(mob -> mobTemplateIds.contains(mob.getTemplate().id())).count();
+  }
+
   public Optional<Player> findPlayerByName(String targetName) {
     return activeLivings.values().stream().filter(Player.class::isInstance).map(Player.class::cast)
         .filter(player -> player.getName().equalsIgnoreCase(targetName)).findFirst();
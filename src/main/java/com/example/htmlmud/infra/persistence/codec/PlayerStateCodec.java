@@ -0,0 +1,598 @@
+package com.example.htmlmud.infra.persistence.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import org.springframework.stereotype.Component;
+import com.example.htmlmud.domain.model.entity.GameItem;
+import com.example.htmlmud.domain.model.entity.LivingStats;
+import com.example.htmlmud.domain.model.entity.PlayerRecord;
+import com.example.htmlmud.domain.model.entity.SkillEntry;
+import com.example.htmlmud.domain.model.enums.EquipmentSlot;
+import com.example.htmlmud.domain.model.enums.Gender;
+import com.example.htmlmud.domain.model.enums.ItemType;
+import com.example.htmlmud.domain.model.enums.SkillCategory;
+import com.example.htmlmud.domain.model.template.ItemTemplate;
+import com.example.htmlmud.infra.mapper.ItemTemplateMapper;
+import com.example.htmlmud.infra.mapper.PlayerMapper;
+import com.example.htmlmud.infra.persistence.entity.CharacterEntity;
+import com.example.htmlmud.infra.persistence.repository.TemplateRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 玩家 stats / inventory 的二進位格式 (characters.stats_bin / inventory_bin)
+ *
+ * JSON 欄位裡每件物品都重複存了一份模板的名稱、描述、別名、類型 (還有整個 ItemTemplate)，這些內容啟動時已經在記憶體裡。
+ * 這裡每件物品只存模板 ID 與跟模板不同的欄位 (耐久、數量、dynamicProps…)，讀取時由目前的模板重建；stats 以 varint 緊密排列。
+ * 模板 ID 不用執行期的 handle (每次啟動、熱更新的分配順序可能不同)，而是在每個欄位開頭放一張 ID 表，物品以表內索引引用。
+ *
+ * 格式：
+ *
+ * <pre>
+ * byte   FORMAT_VERSION
+ * varint 模板 ID 數量，後接各 ID (字串)
+ * 內容   inventory: varint 件數 + 物品 ... / stats: 依 writeStats 的順序
+ *
+ * 物品：varint 旗標 (F_*)，後面只接旗標有標示的欄位
+ * 字串：varint (位元組數 + 1，0 代表 null) + UTF-8；有號整數以 zigzag varint 儲存
+ * </pre>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PlayerStateCodec {
+
+  // 格式有變動時 +1，並保留舊版本的讀取
+  public static final int FORMAT_VERSION = 1;
+
+  private static final int F_TEMPLATE = 1;
+  private static final int F_UUID = 1 << 1;
+  private static final int F_ID = 1 << 2;
+  private static final int F_NAME = 1 << 3;
+  private static final int F_DESCRIPTION = 1 << 4;
+  private static final int F_ALIASES = 1 << 5;
+  private static final int F_TYPE = 1 << 6;
+  private static final int F_SUB_TYPE = 1 << 7;
+  private static final int F_LEVEL = 1 << 8;
+  private static final int F_MAX_DURABILITY = 1 << 9;
+  private static final int F_DURABILITY = 1 << 10;
+  private static final int F_AMOUNT = 1 << 11;
+  private static final int F_PROPS = 1 << 12;
+  private static final int F_CONTENTS = 1 << 13;
+
+  private static final TypeReference<Map<String, Object>> PROPS_TYPE = new TypeReference<>() {};
+
+  private final PlayerMapper playerMapper;
+
+  private final ItemTemplateMapper itemTemplateMapper;
+
+  private final ObjectMapper objectMapper;
+
+  // 編碼一個欄位時的暫存：模板 ID 表，以及每個模板的基準物品 (跟模板相同的欄位不寫)
+  private static final class Context {
+    final Map<String, Integer> templates = new LinkedHashMap<>();
+    final Map<String, GameItem> baselines = new HashMap<>();
+  }
+
+
+
+  /**
+   * 讀取角色：有二進位欄位就用二進位，沒有 (還沒轉換的舊資料) 就用 JSON 欄位
+   */
+  public PlayerRecord toRecord(CharacterEntity entity) {
+    PlayerRecord rec = playerMapper.toRecord(entity);
+    LivingStats stats =
+        (entity.getStatsBin() != null) ? decodeStats(entity.getStatsBin()) : rec.stats();
+    List<GameItem> inventory = (entity.getInventoryBin() != null)
+        ? decodeInventory(entity.getInventoryBin())
+        : rec.inventory();
+    return new PlayerRecord(rec.id(), rec.name(), rec.nickname(), rec.currentRoomId(), stats,
+        inventory);
+  }
+
+  public byte[] encodeInventory(List<GameItem> items) throws JsonProcessingException {
+    Context ctx = new Context();
+    Output body = new Output();
+    writeItems(body, items, ctx);
+    return finish(ctx, body);
+  }
+
+  public List<GameItem> decodeInventory(byte[] data) {
+    Input in = new Input(data);
+    List<String> templates = readHeader(in);
+    return readItems(in, templates);
+  }
+
+  public byte[] encodeStats(LivingStats stats) throws JsonProcessingException {
+    Context ctx = new Context();
+    Output body = new Output();
+    writeStats(body, stats, ctx);
+    return finish(ctx, body);
+  }
+
+  public LivingStats decodeStats(byte[] data) {
+    Input in = new Input(data);
+    List<String> templates = readHeader(in);
+    return readStats(in, templates);
+  }
+
+
+
+  private static byte[] finish(Context ctx, Output body) {
+    Output out = new Output();
+    out.writeByte(FORMAT_VERSION);
+    out.writeVarInt(ctx.templates.size());
+    for (String id : ctx.templates.keySet()) {
+      out.writeString(id);
+    }
+    out.write(body);
+    return out.toByteArray();
+  }
+
+  private static List<String> readHeader(Input in) {
+    int version = in.readByte();
+    if (version != FORMAT_VERSION) {
+      throw new IllegalStateException("不支援的玩家存檔格式版本: " + version);
+    }
+    int count = in.readVarInt();
+    List<String> templates = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      templates.add(in.readString());
+    }
+    return templates;
+  }
+
+
+
+  // stats 的欄位順序 (新增欄位只能加在最後並提升 FORMAT_VERSION)
+  private void writeStats(Output out, LivingStats stats, Context ctx)
+      throws JsonProcessingException {
+    out.writeString(stats.gender == null ? null : stats.gender.name());
+    out.writeString(stats.race);
+    out.writeSigned(stats.level);
+    out.writeSigned(stats.age);
+    out.writeSigned(stats.maxAge);
+    out.writeSigned(stats.hp);
+    out.writeSigned(stats.maxHp);
+    out.writeSigned(stats.mp);
+    out.writeSigned(stats.maxMp);
+    out.writeSigned(stats.stamina);
+    out.writeSigned(stats.maxStamina);
+    out.writeSigned(stats.coin);
+    out.writeSigned(stats.exp);
+    out.writeSigned(stats.combatExp);
+    out.writeSigned(stats.potential);
+    out.writeSigned(stats.str);
+    out.writeSigned(stats.intelligence);
+    out.writeSigned(stats.dex);
+    out.writeSigned(stats.con);
+
+    Map<EquipmentSlot, GameItem> equipment = (stats.equipment == null) ? Map.of() : stats.equipment;
+    out.writeVarInt(equipment.size());
+    for (Map.Entry<EquipmentSlot, GameItem> e : equipment.entrySet()) {
+      out.writeString(e.getKey().name());
+      writeItem(out, e.getValue(), ctx);
+    }
+
+    Map<String, SkillEntry> learned = (stats.learnedSkills == null) ? Map.of() : stats.learnedSkills;
+    out.writeVarInt(learned.size());
+    for (Map.Entry<String, SkillEntry> e : learned.entrySet()) {
+      SkillEntry skill = e.getValue();
+      out.writeString(e.getKey());
+      // 通常與 key 相同，相同時不重複存
+      out.writeString(e.getKey().equals(skill.getSkillId()) ? null : skill.getSkillId());
+      out.writeSigned(skill.getLevel());
+      out.writeSigned(skill.getXp());
+      out.writeSigned(skill.getMaxXp());
+      out.writeByte(skill.isTemporary() ? 1 : 0);
+    }
+
+    Map<SkillCategory, String> enabled =
+        (stats.enabledSkills == null) ? Map.of() : stats.enabledSkills;
+    out.writeVarInt(enabled.size());
+    for (Map.Entry<SkillCategory, String> e : enabled.entrySet()) {
+      out.writeString(e.getKey().name());
+      out.writeString(e.getValue());
+    }
+  }
+
+  private LivingStats readStats(Input in, List<String> templates) {
+    LivingStats stats = new LivingStats();
+    String gender = in.readString();
+    stats.gender = (gender == null) ? null : Gender.valueOf(gender);
+    stats.race = in.readString();
+    stats.level = in.readSignedInt();
+    stats.age = in.readSignedInt();
+    stats.maxAge = in.readSignedInt();
+    stats.hp = in.readSignedInt();
+    stats.maxHp = in.readSignedInt();
+    stats.mp = in.readSignedInt();
+    stats.maxMp = in.readSignedInt();
+    stats.stamina = in.readSignedInt();
+    stats.maxStamina = in.readSignedInt();
+    stats.coin = in.readSignedInt();
+    stats.exp = in.readSignedInt();
+    stats.combatExp = in.readSignedInt();
+    stats.potential = in.readSignedInt();
+    stats.str = in.readSignedInt();
+    stats.intelligence = in.readSignedInt();
+    stats.dex = in.readSignedInt();
+    stats.con = in.readSignedInt();
+
+    for (int i = in.readVarInt(); i > 0; i--) {
+      EquipmentSlot slot = EquipmentSlot.valueOf(in.readString());
+      stats.equipment.put(slot, readItem(in, templates));
+    }
+
+    for (int i = in.readVarInt(); i > 0; i--) {
+      String key = in.readString();
+      String skillId = in.readString();
+      SkillEntry skill = new SkillEntry((skillId == null) ? key : skillId, in.readSignedInt());
+      skill.setXp(in.readSigned());
+      skill.setMaxXp(in.readSigned());
+      skill.setTemporary(in.readByte() != 0);
+      stats.learnedSkills.put(key, skill);
+    }
+
+    for (int i = in.readVarInt(); i > 0; i--) {
+      SkillCategory category = SkillCategory.valueOf(in.readString());
+      stats.enabledSkills.put(category, in.readString());
+    }
+    return stats;
+  }
+
+
+
+  private void writeItems(Output out, List<GameItem> items, Context ctx)
+      throws JsonProcessingException {
+    if (items == null) {
+      out.writeVarInt(0);
+      return;
+    }
+    out.writeVarInt(items.size());
+    for (GameItem item : items) {
+      writeItem(out, item, ctx);
+    }
+  }
+
+  private List<GameItem> readItems(Input in, List<String> templates) {
+    int count = in.readVarInt();
+    List<GameItem> items = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      items.add(readItem(in, templates));
+    }
+    return items;
+  }
+
+  private void writeItem(Output out, GameItem item, Context ctx) throws JsonProcessingException {
+    ItemTemplate tpl = item.getTemplate();
+    GameItem base = (tpl == null) ? new GameItem()
+        : ctx.baselines.computeIfAbsent(tpl.id(), id -> itemTemplateMapper.toGameItem(tpl));
+    UUID uuid = parseUuid(item.getId());
+    Map<String, Object> props = item.getDynamicProps();
+    List<GameItem> contents = item.getContents();
+
+    int flags = 0;
+    if (tpl != null) {
+      flags |= F_TEMPLATE;
+    }
+    if (uuid != null) {
+      flags |= F_UUID;
+    } else if (item.getId() != null) {
+      flags |= F_ID;
+    }
+    if (!Objects.equals(item.getName(), base.getName())) {
+      flags |= F_NAME;
+    }
+    if (!Objects.equals(item.getDescription(), base.getDescription())) {
+      flags |= F_DESCRIPTION;
+    }
+    if (!Objects.equals(item.getAliases(), base.getAliases())) {
+      flags |= F_ALIASES;
+    }
+    if (item.getType() != base.getType()) {
+      flags |= F_TYPE;
+    }
+    if (!Objects.equals(item.getSubType(), base.getSubType())) {
+      flags |= F_SUB_TYPE;
+    }
+    if (item.getLevel() != base.getLevel()) {
+      flags |= F_LEVEL;
+    }
+    if (item.getMaxDurability() != base.getMaxDurability()) {
+      flags |= F_MAX_DURABILITY;
+    }
+    // 讀取時預設為滿耐久
+    if (item.getCurrentDurability() != item.getMaxDurability()) {
+      flags |= F_DURABILITY;
+    }
+    if (item.getAmount() != 1) {
+      flags |= F_AMOUNT;
+    }
+    if (props != null && !props.isEmpty()) {
+      flags |= F_PROPS;
+    }
+    if (contents != null && !contents.isEmpty()) {
+      flags |= F_CONTENTS;
+    }
+
+    out.writeVarInt(flags);
+    if ((flags & F_TEMPLATE) != 0) {
+      out.writeVarInt(ctx.templates.computeIfAbsent(tpl.id(), id -> ctx.templates.size()));
+    }
+    if ((flags & F_UUID) != 0) {
+      out.writeLong(uuid.getMostSignificantBits());
+      out.writeLong(uuid.getLeastSignificantBits());
+    }
+    if ((flags & F_ID) != 0) {
+      out.writeString(item.getId());
+    }
+    if ((flags & F_NAME) != 0) {
+      out.writeString(item.getName());
+    }
+    if ((flags & F_DESCRIPTION) != 0) {
+      out.writeString(item.getDescription());
+    }
+    if ((flags & F_ALIASES) != 0) {
+      List<String> aliases = (item.getAliases() == null) ? List.of() : item.getAliases();
+      out.writeVarInt(aliases.size());
+      for (String alias : aliases) {
+        out.writeString(alias);
+      }
+    }
+    if ((flags & F_TYPE) != 0) {
+      out.writeString(item.getType() == null ? null : item.getType().name());
+    }
+    if ((flags & F_SUB_TYPE) != 0) {
+      out.writeString(item.getSubType());
+    }
+    if ((flags & F_LEVEL) != 0) {
+      out.writeSigned(item.getLevel());
+    }
+    if ((flags & F_MAX_DURABILITY) != 0) {
+      out.writeSigned(item.getMaxDurability());
+    }
+    if ((flags & F_DURABILITY) != 0) {
+      out.writeSigned(item.getCurrentDurability());
+    }
+    if ((flags & F_AMOUNT) != 0) {
+      out.writeSigned(item.getAmount());
+    }
+    if ((flags & F_PROPS) != 0) {
+      // 值的型別不固定 (數字、字串…)，沿用 JSON
+      out.writeString(objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT)
+          .writeValueAsString(props));
+    }
+    if ((flags & F_CONTENTS) != 0) {
+      writeItems(out, contents, ctx);
+    }
+  }
+
+  private GameItem readItem(Input in, List<String> templates) {
+    int flags = in.readVarInt();
+
+    GameItem item;
+    if ((flags & F_TEMPLATE) != 0) {
+      String templateId = templates.get(in.readVarInt());
+      if (TemplateRepository.getItemCount() == 0) {
+        // 世界還沒載入：讀出來的物品會全部變成「模板不存在」，存回去就永久遺失了
+        throw new IllegalStateException("物品模板尚未載入，不能讀取玩家存檔 templateId:" + templateId);
+      }
+      ItemTemplate tpl = TemplateRepository.findItem(templateId).orElse(null);
+      if (tpl == null) {
+        // 模板已從世界資料移除：以只有 ID 的模板代替，名稱先用模板 ID；下次存檔仍引用原本的模板 ID
+        log.warn("玩家存檔中的物品模板不存在 templateId:{}", templateId);
+        tpl = ItemTemplate.builder().id(templateId).name(templateId).build();
+      }
+      item = itemTemplateMapper.toGameItem(tpl);
+    } else {
+      item = new GameItem();
+    }
+    item.setAmount(1);
+
+    if ((flags & F_UUID) != 0) {
+      item.setId(new UUID(in.readLong(), in.readLong()).toString());
+    }
+    if ((flags & F_ID) != 0) {
+      item.setId(in.readString());
+    }
+    if ((flags & F_NAME) != 0) {
+      item.setName(in.readString());
+    }
+    if ((flags & F_DESCRIPTION) != 0) {
+      item.setDescription(in.readString());
+    }
+    if ((flags & F_ALIASES) != 0) {
+      int count = in.readVarInt();
+      List<String> aliases = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        aliases.add(in.readString());
+      }
+      item.setAliases(aliases);
+    }
+    if ((flags & F_TYPE) != 0) {
+      String type = in.readString();
+      item.setType((type == null) ? null : ItemType.valueOf(type));
+    }
+    if ((flags & F_SUB_TYPE) != 0) {
+      item.setSubType(in.readString());
+    }
+    if ((flags & F_LEVEL) != 0) {
+      item.setLevel(in.readSignedInt());
+    }
+    if ((flags & F_MAX_DURABILITY) != 0) {
+      item.setMaxDurability(in.readSignedInt());
+    }
+    item.setCurrentDurability(item.getMaxDurability());
+    if ((flags & F_DURABILITY) != 0) {
+      item.setCurrentDurability(in.readSignedInt());
+    }
+    if ((flags & F_AMOUNT) != 0) {
+      item.setAmount(in.readSignedInt());
+    }
+    if ((flags & F_PROPS) != 0) {
+      try {
+        item.setDynamicProps(new HashMap<>(objectMapper.readValue(in.readString(), PROPS_TYPE)));
+      } catch (JsonProcessingException e) {
+        throw new IllegalStateException("玩家存檔的 dynamicProps 無法解析 itemId:" + item.getId(), e);
+      }
+    }
+    if ((flags & F_CONTENTS) != 0) {
+      item.setContents(readItems(in, templates));
+    }
+    return item;
+  }
+
+  // 物品 ID 幾乎都是 UUID，用 16 bytes 存 (不是標準格式的就存字串)
+  private static UUID parseUuid(String id) {
+    if (id == null || id.length() != 36) {
+      return null;
+    }
+    try {
+      UUID uuid = UUID.fromString(id);
+      return uuid.toString().equals(id) ? uuid : null;
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+
+
+  private static final class Output {
+
+    private byte[] buf = new byte[128];
+    private int size;
+
+    private void ensure(int extra) {
+      if (size + extra > buf.length) {
+        buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + extra));
+      }
+    }
+
+    void writeByte(int b) {
+      ensure(1);
+      buf[size++] = (byte) b;
+    }
+
+    void writeVarLong(long value) {
+      ensure(10);
+      while ((value & ~0x7FL) != 0) {
+        buf[size++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      buf[size++] = (byte) value;
+    }
+
+    void writeVarInt(int value) {
+      writeVarLong(value & 0xFFFFFFFFL);
+    }
+
+    // zigzag：小的負數也只佔一兩個位元組
+    void writeSigned(long value) {
+      writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    void writeLong(long value) {
+      ensure(8);
+      for (int shift = 56; shift >= 0; shift -= 8) {
+        buf[size++] = (byte) (value >>> shift);
+      }
+    }
+
+    void writeString(String value) {
+      if (value == null) {
+        writeVarInt(0);
+        return;
+      }
+      byte[] data = value.getBytes(StandardCharsets.UTF_8);
+      writeVarInt(data.length + 1);
+      ensure(data.length);
+      System.arraycopy(data, 0, buf, size, data.length);
+      size += data.length;
+    }
+
+    void write(Output other) {
+      ensure(other.size);
+      System.arraycopy(other.buf, 0, buf, size, other.size);
+      size += other.size;
+    }
+
+    byte[] toByteArray() {
+      return Arrays.copyOf(buf, size);
+    }
+  }
+
+  private static final class Input {
+
+    private final byte[] buf;
+    private int pos;
+
+    Input(byte[] buf) {
+      this.buf = buf;
+    }
+
+    int readByte() {
+      if (pos >= buf.length) {
+        throw new IllegalStateException("玩家存檔內容不完整");
+      }
+      return buf[pos++] & 0xFF;
+    }
+
+    long readVarLong() {
+      long value = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        int b = readByte();
+        value |= (long) (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+      throw new IllegalStateException("玩家存檔的 varint 格式錯誤");
+    }
+
+    int readVarInt() {
+      return (int) readVarLong();
+    }
+
+    long readSigned() {
+      long value = readVarLong();
+      return (value >>> 1) ^ -(value & 1);
+    }
+
+    int readSignedInt() {
+      return (int) readSigned();
+    }
+
+    long readLong() {
+      long value = 0;
+      for (int i = 0; i < 8; i++) {
+        value = (value << 8) | readByte();
+      }
+      return value;
+    }
+
+    String readString() {
+      int length = readVarInt() - 1;
+      if (length < 0) {
+        return null;
+      }
+      if (pos + length > buf.length) {
+        throw new IllegalStateException("玩家存檔內容不完整");
+      }
+      String value = new String(buf, pos, length, StandardCharsets.UTF_8);
+      pos += length;
+      return value;
+    }
+  }
+}
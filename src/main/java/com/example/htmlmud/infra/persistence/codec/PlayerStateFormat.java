@@ -0,0 +1,13 @@
+package com.example.htmlmud.infra.persistence.codec;
+
+/**
+ * characters 的 stats / inventory 寫入格式
+ */
+public enum PlayerStateFormat {
+
+  // stats_json / inventory_json (Jackson，每件物品帶完整模板內容)
+  JSON,
+
+  // stats_bin / inventory_bin (PlayerStateCodec，物品只存模板 ID 與實例差異)
+  BINARY
+}
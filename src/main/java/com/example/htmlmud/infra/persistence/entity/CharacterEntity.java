@@ -60,6 +60,14 @@ public class CharacterEntity {
   @Column(name = "inventory_json", columnDefinition = "CLOB")
   private List<GameItem> inventory; // 背包系統
 
+  // PlayerStateCodec 的二進位格式 (物品只存模板 ID 與實例差異)
+  // 有值時優先使用；上面兩個 JSON 欄位是舊格式，轉換後清為 null
+  @Column(name = "stats_bin", columnDefinition = "BLOB")
+  private byte[] statsBin;
+
+  @Column(name = "inventory_bin", columnDefinition = "BLOB")
+  private byte[] inventoryBin;
+
   // @JdbcTypeCode(SqlTypes.JSON)
   // @Column(name = "skills_json")
   // public PlayerSkills skills; // 技能系統 對應 skills_json
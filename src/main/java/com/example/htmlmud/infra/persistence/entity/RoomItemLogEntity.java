@@ -0,0 +1,48 @@
+package com.example.htmlmud.infra.persistence.entity;
+
+import java.time.LocalDateTime;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+/**
+ * 地上物品的增減記錄 (append-only)
+ *
+ * 只用來讓 Hibernate 建立資料表，寫入與重播都走 JDBC (見 RoomPersistenceService)。
+ * 房間的內容 = rooms_state 的快照 + 依 seq 重播這裡的記錄；壓縮後刪除已併入快照的記錄。
+ */
+@Entity
+@Table(name = "room_item_log", indexes = {@Index(name = "idx_room_item_log_room",
+    columnList = "zone_id,room_id,seq")})
+@Data
+public class RoomItemLogEntity {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long seq;
+
+  @Column(name = "room_id", nullable = false)
+  private String roomId;
+
+  @Column(name = "zone_id", nullable = false)
+  private String zoneId;
+
+  // A: 放下 / R: 移除
+  @Column(nullable = false, length = 1)
+  private String op;
+
+  @Column(name = "item_id", nullable = false)
+  private String itemId;
+
+  // 放下時的物品內容 (移除時為 null)
+  @Column(name = "item_json", columnDefinition = "CLOB")
+  private String itemJson;
+
+  @Column(name = "created_at")
+  private LocalDateTime createdAt;
+}
@@ -0,0 +1,134 @@
+package com.example.htmlmud.infra.persistence.image;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+import com.example.htmlmud.domain.model.template.RaceTemplate;
+import com.example.htmlmud.domain.model.template.SkillTemplate;
+import com.example.htmlmud.domain.model.template.ZoneBundle;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 預先編譯的世界映像檔
+ *
+ * 把已解析完成 (絕對 ID、出口、生怪規則都處理好) 的模板存成二進位檔，下次啟動直接 mmap 讀取，不必再逐一解析 JSON 與 toBuilder() 複製。
+ *
+ * 檔案格式：
+ *
+ * <pre>
+ * int  MAGIC ("MUDW")
+ * int  FORMAT_VERSION
+ * long sourceStamp   來源 JSON 的指紋，不一致就視為過期
+ * int  payload 長度
+ * byte[] payload     Smile (二進位 JSON) 編碼的 Content
+ * </pre>
+ */
+@Slf4j
+public final class WorldImage {
+
+  private static final int MAGIC = 0x4D554457; // "MUDW"
+
+  // 模板結構有變動時 +1，舊的映像檔就會被忽略
+  public static final int FORMAT_VERSION = 1;
+
+  private static final int HEADER_SIZE = 4 + 4 + 8 + 4;
+
+  public record Content(
+
+      String dataVersion,
+
+      List<SkillTemplate> skills,
+
+      List<RaceTemplate> races,
+
+      List<ZoneBundle> zones
+
+  ) {
+  }
+
+  private WorldImage() {}
+
+  public static void write(Path path, long sourceStamp, Content content, ObjectMapper objectMapper)
+      throws IOException {
+    byte[] payload = smile(objectMapper).writeValueAsBytes(content);
+
+    Path parent = path.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+
+    // 先寫暫存檔再搬移，避免啟動到一半讀到寫了一半的檔案
+    Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(sourceStamp).putInt(payload.length);
+      header.flip();
+      while (header.hasRemaining()) {
+        channel.write(header);
+      }
+      ByteBuffer body = ByteBuffer.wrap(payload);
+      while (body.hasRemaining()) {
+        channel.write(body);
+      }
+      channel.force(true);
+    }
+    Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * 讀取映像檔，檔案不存在、版本不符、來源較新或內容損壞時回傳 empty (由呼叫端改讀 JSON)
+   */
+  public static Optional<Content> read(Path path, long sourceStamp, ObjectMapper objectMapper) {
+    if (!Files.isRegularFile(path)) {
+      return Optional.empty();
+    }
+
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+        log.warn("world image 大小不正確 {} bytes", size);
+        return Optional.empty();
+      }
+
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+        log.info("world image 格式版本不同，改讀 JSON");
+        return Optional.empty();
+      }
+      if (buffer.getLong() != sourceStamp) {
+        log.info("world image 已過期 (來源 JSON 有變更)，改讀 JSON");
+        return Optional.empty();
+      }
+      int length = buffer.getInt();
+      if (length != buffer.remaining()) {
+        log.warn("world image 內容長度不符 header:{} actual:{}", length, buffer.remaining());
+        return Optional.empty();
+      }
+
+      return Optional.of(
+          smile(objectMapper).readValue(new ByteBufferBackedInputStream(buffer), Content.class));
+    } catch (IOException | RuntimeException e) {
+      log.warn("world image 讀取失敗，改讀 JSON: {}", e.getMessage());
+      return Optional.empty();
+    }
+  }
+
+  // 沿用 Spring 的 ObjectMapper 設定 (模組、命名)，只換成 Smile 編碼；null 欄位不寫出，讀回時才會走模板的預設值
+  private static ObjectMapper smile(ObjectMapper objectMapper) {
+    ObjectMapper mapper = objectMapper.copyWith(new SmileFactory());
+    mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    return mapper;
+  }
+}
@@ -0,0 +1,29 @@
+package com.example.htmlmud.infra.persistence.journal;
+
+/**
+ * 玩家兩次存檔之間的一筆狀態變化 (寫入 PlayerJournal)
+ *
+ * 每一筆都是變化後的值而不是增減量，重播多次結果相同；同一個玩家、同一個欄位 (物品、裝備部位) 只有最後一筆有意義。
+ */
+public sealed interface JournalEntry {
+
+  String playerId();
+
+  // hp / exp / coin
+  record StatsChanged(String playerId, int hp, int exp, int coin) implements JournalEntry {
+  }
+
+  record RoomChanged(String playerId, String roomId) implements JournalEntry {
+  }
+
+  // 背包多了一件物品或數量改變 (itemJson 是整件物品的內容)
+  record ItemPut(String playerId, String itemId, String itemJson) implements JournalEntry {
+  }
+
+  record ItemRemoved(String playerId, String itemId) implements JournalEntry {
+  }
+
+  // itemJson 為 null 代表卸下
+  record EquipmentChanged(String playerId, String slot, String itemJson) implements JournalEntry {
+  }
+}
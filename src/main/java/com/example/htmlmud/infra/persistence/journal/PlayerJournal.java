@@ -0,0 +1,433 @@
+package com.example.htmlmud.infra.persistence.journal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32C;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 玩家狀態的 write-ahead journal (mmap、append-only)
+ *
+ * 兩次存檔之間的狀態變化 (JournalEntry) 依序號附加到記憶體映射檔，寫入只是一次記憶體複製；行程當掉時內容還在 OS 的 page cache，
+ * 重新啟動後重播到資料庫最後一次存檔的內容上。存檔成功後以 checkpoint 移除已寫入資料庫的記錄。
+ *
+ * 兩個檔案 (path.0 / path.1) 輪流使用：checkpoint 把要留下的記錄複製到另一個檔案，最後才寫入較大的 generation，
+ * 中途當掉時原本的檔案仍然完整 (Windows 上映射中的檔案不能被取代，所以不用暫存檔 + 搬移)。
+ *
+ * 檔案格式：
+ *
+ * <pre>
+ * int  MAGIC ("MUDJ")
+ * int  FORMAT_VERSION
+ * long generation     兩個檔案中較大的是目前使用中的 (0 代表無效)
+ * 記錄 ...
+ *   int  length       seq + body 的長度 (0 代表結尾)
+ *   long seq          遞增序號
+ *   byte type         JournalEntry 種類，後面接各欄位 (字串是 int 長度 + UTF-8，null 長度為 -1)
+ *   int  crc32c       seq + body
+ * </pre>
+ *
+ * 寫入時先寫下一筆位置的結尾標記、再寫內容，最後才寫 length；讀取時遇到長度不合、序號沒有遞增或 CRC 不符就當作結尾 (寫到一半的記錄)。
+ * 只保證行程當掉不遺失，整台機器斷電則取決於最近一次 force()。
+ */
+@Slf4j
+public final class PlayerJournal implements Closeable {
+
+  private static final int MAGIC = 0x4D55444A; // "MUDJ"
+
+  public static final int FORMAT_VERSION = 1;
+
+  private static final int HEADER_SIZE = 4 + 4 + 8;
+
+  // length + seq + crc
+  private static final int RECORD_OVERHEAD = 4 + 8 + 4;
+
+  // type + playerId 的長度
+  private static final int MIN_BODY = 1 + 4;
+
+  private static final int TERMINATOR = 4;
+
+  private static final byte STATS = 1;
+  private static final byte ROOM = 2;
+  private static final byte ITEM_PUT = 3;
+  private static final byte ITEM_REMOVED = 4;
+  private static final byte EQUIPMENT = 5;
+
+  public record Entry(long seq, JournalEntry entry) {
+  }
+
+  // 掃描結果：記錄在檔案中的位置，以及判斷是否被後面的記錄取代用的 key
+  private record Slot(int offset, int size, long seq, String playerId, String key) {
+  }
+
+  private final Segment[] segments = new Segment[2];
+
+  // 以下欄位只在持有 this 的鎖時修改
+  private int active;
+  private long generation;
+  private int tail;
+
+  private volatile long lastSeq;
+
+  private PlayerJournal(Path path, int capacity) throws IOException {
+    for (int i = 0; i < segments.length; i++) {
+      segments[i] = new Segment(path.resolveSibling(path.getFileName() + "." + i), capacity);
+    }
+
+    long gen0 = segments[0].generation();
+    long gen1 = segments[1].generation();
+    if (gen0 == 0 && gen1 == 0) {
+      active = 0;
+      generation = 1;
+      segments[0].buffer.putInt(HEADER_SIZE, 0);
+      segments[0].writeHeader(generation);
+    } else {
+      active = (gen1 > gen0) ? 1 : 0;
+      generation = Math.max(gen0, gen1);
+    }
+
+    List<Slot> slots = scan();
+    if (slots.isEmpty()) {
+      tail = HEADER_SIZE;
+      lastSeq = 0;
+    } else {
+      Slot last = slots.get(slots.size() - 1);
+      tail = last.offset() + last.size();
+      lastSeq = last.seq();
+    }
+  }
+
+  public static PlayerJournal open(Path path, int capacity) throws IOException {
+    Path parent = path.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    return new PlayerJournal(path, Math.max(capacity, HEADER_SIZE + TERMINATOR));
+  }
+
+
+
+  /**
+   * 附加一筆記錄 (任何執行緒都可以呼叫)
+   *
+   * @return 這筆記錄的序號
+   */
+  public long append(JournalEntry entry) {
+    byte[] body = encode(entry);
+    int size = RECORD_OVERHEAD + body.length;
+
+    synchronized (this) {
+      try {
+        if (tail + size + TERMINATOR > segments[active].buffer.capacity()) {
+          // 滿了：先壓掉被後面記錄取代的舊記錄，還不夠才擴大
+          rewrite(compact(scan(), Map.of()));
+          segments[active].ensure(tail + size + TERMINATOR);
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+
+      MappedByteBuffer buffer = segments[active].buffer;
+      long seq = lastSeq + 1;
+      buffer.putInt(tail + size, 0);
+      buffer.putLong(tail + 4, seq);
+      buffer.put(tail + 12, body);
+      buffer.putInt(tail + 12 + body.length, crc(buffer, tail + 4, 8 + body.length));
+      buffer.putInt(tail, 8 + body.length);
+      tail += size;
+      lastSeq = seq;
+      return seq;
+    }
+  }
+
+  /**
+   * 存檔成功後呼叫：移除這些玩家序號不大於存檔當時序號的記錄，以及被同一欄位較新記錄取代的記錄
+   *
+   * @param savedSeq playerId -> 存檔內容涵蓋到的序號
+   * @return 移除的記錄數
+   */
+  public synchronized int checkpoint(Map<String, Long> savedSeq) {
+    if (savedSeq.isEmpty() || tail == HEADER_SIZE) {
+      return 0;
+    }
+    List<Slot> slots = scan();
+    List<Slot> kept = compact(slots, savedSeq);
+    if (kept.size() == slots.size()) {
+      return 0;
+    }
+    try {
+      rewrite(kept);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return slots.size() - kept.size();
+  }
+
+  /**
+   * 目前所有有效的記錄 (依序號)
+   */
+  public synchronized List<Entry> entries() {
+    MappedByteBuffer buffer = segments[active].buffer;
+    List<Entry> entries = new ArrayList<>();
+    for (Slot slot : scan()) {
+      ByteBuffer body = buffer.slice(slot.offset() + 12, slot.size() - RECORD_OVERHEAD);
+      entries.add(new Entry(slot.seq(), decode(body)));
+    }
+    return entries;
+  }
+
+  public long lastSeq() {
+    return lastSeq;
+  }
+
+  // 有效記錄佔用的位元組數
+  public synchronized int size() {
+    return tail - HEADER_SIZE;
+  }
+
+  // 寫回磁碟 (預防整台機器斷電；行程當掉不需要)
+  public synchronized void force() {
+    segments[active].buffer.force();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    force();
+    for (Segment segment : segments) {
+      segment.channel.close();
+    }
+  }
+
+
+
+  private List<Slot> scan() {
+    MappedByteBuffer buffer = segments[active].buffer;
+    int limit = buffer.capacity();
+    List<Slot> slots = new ArrayList<>();
+    int pos = HEADER_SIZE;
+    long prev = 0;
+    while (pos + 4 <= limit) {
+      int length = buffer.getInt(pos);
+      if (length < 8 + MIN_BODY || (long) pos + 4 + length + 4 > limit) {
+        break;
+      }
+      long seq = buffer.getLong(pos + 4);
+      if (seq <= prev || buffer.getInt(pos + 4 + length) != crc(buffer, pos + 4, length)) {
+        break;
+      }
+
+      int body = pos + 12;
+      byte type = buffer.get(body);
+      String playerId = readString(buffer, body + 1);
+      int next = body + 1 + 4 + Math.max(0, buffer.getInt(body + 1));
+      String key = switch (type) {
+        case STATS -> "S";
+        case ROOM -> "R";
+        case ITEM_PUT, ITEM_REMOVED -> "I" + readString(buffer, next);
+        case EQUIPMENT -> "E" + readString(buffer, next);
+        default -> null;
+      };
+      if (key == null) {
+        log.warn("player journal 未知的記錄種類 type:{} seq:{}", type, seq);
+        break;
+      }
+
+      slots.add(new Slot(pos, 4 + length + 4, seq, playerId, key));
+      prev = seq;
+      pos += 4 + length + 4;
+    }
+    return slots;
+  }
+
+  // 由後往前，同一個玩家的同一個欄位只留最後一筆；已存檔的記錄不留
+  private static List<Slot> compact(List<Slot> slots, Map<String, Long> savedSeq) {
+    Set<String> seen = new HashSet<>();
+    List<Slot> kept = new ArrayList<>();
+    for (int i = slots.size() - 1; i >= 0; i--) {
+      Slot slot = slots.get(i);
+      Long saved = savedSeq.get(slot.playerId());
+      if (saved != null && slot.seq() <= saved) {
+        continue;
+      }
+      if (seen.add(slot.playerId() + '\0' + slot.key())) {
+        kept.add(slot);
+      }
+    }
+    Collections.reverse(kept);
+    return kept;
+  }
+
+  // 把留下的記錄複製到另一個檔案，最後才寫入新的 generation 切換過去
+  private void rewrite(List<Slot> kept) throws IOException {
+    Segment from = segments[active];
+    int next = 1 - active;
+    Segment to = segments[next];
+    to.ensure(tail + TERMINATOR);
+
+    to.writeHeader(0);
+    int pos = HEADER_SIZE;
+    for (Slot slot : kept) {
+      to.buffer.put(pos, from.buffer, slot.offset(), slot.size());
+      pos += slot.size();
+    }
+    to.buffer.putInt(pos, 0);
+    to.writeHeader(++generation);
+
+    active = next;
+    tail = pos;
+  }
+
+  private static int crc(ByteBuffer buffer, int index, int length) {
+    CRC32C crc = new CRC32C();
+    crc.update(buffer.slice(index, length));
+    return (int) crc.getValue();
+  }
+
+
+
+  private static byte[] encode(JournalEntry entry) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      switch (entry) {
+        case JournalEntry.StatsChanged e -> {
+          out.writeByte(STATS);
+          writeString(out, e.playerId());
+          out.writeInt(e.hp());
+          out.writeInt(e.exp());
+          out.writeInt(e.coin());
+        }
+        case JournalEntry.RoomChanged e -> {
+          out.writeByte(ROOM);
+          writeString(out, e.playerId());
+          writeString(out, e.roomId());
+        }
+        case JournalEntry.ItemPut e -> {
+          out.writeByte(ITEM_PUT);
+          writeString(out, e.playerId());
+          writeString(out, e.itemId());
+          writeString(out, e.itemJson());
+        }
+        case JournalEntry.ItemRemoved e -> {
+          out.writeByte(ITEM_REMOVED);
+          writeString(out, e.playerId());
+          writeString(out, e.itemId());
+        }
+        case JournalEntry.EquipmentChanged e -> {
+          out.writeByte(EQUIPMENT);
+          writeString(out, e.playerId());
+          writeString(out, e.slot());
+          writeString(out, e.itemJson());
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static JournalEntry decode(ByteBuffer body) {
+    byte type = body.get();
+    String playerId = getString(body);
+    return switch (type) {
+      case STATS -> new JournalEntry.StatsChanged(playerId, body.getInt(), body.getInt(),
+          body.getInt());
+      case ROOM -> new JournalEntry.RoomChanged(playerId, getString(body));
+      case ITEM_PUT -> new JournalEntry.ItemPut(playerId, getString(body), getString(body));
+      case ITEM_REMOVED -> new JournalEntry.ItemRemoved(playerId, getString(body));
+      case EQUIPMENT -> new JournalEntry.EquipmentChanged(playerId, getString(body),
+          getString(body));
+      default -> throw new IllegalStateException("未知的 journal 記錄種類: " + type);
+    };
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+      return;
+    }
+    byte[] data = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(data.length);
+    out.write(data);
+  }
+
+  private static String getString(ByteBuffer buffer) {
+    int length = buffer.getInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] data = new byte[length];
+    buffer.get(data);
+    return new String(data, StandardCharsets.UTF_8);
+  }
+
+  private static String readString(ByteBuffer buffer, int index) {
+    int length = buffer.getInt(index);
+    if (length < 0) {
+      return null;
+    }
+    byte[] data = new byte[length];
+    buffer.get(index + 4, data);
+    return new String(data, StandardCharsets.UTF_8);
+  }
+
+
+
+  // 一個 journal 檔案與它的映射 (只在持有 PlayerJournal 的鎖時使用)
+  private static final class Segment {
+
+    private final FileChannel channel;
+
+    private MappedByteBuffer buffer;
+
+    Segment(Path path, int capacity) throws IOException {
+      channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+          StandardOpenOption.WRITE);
+      buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(capacity, channel.size()));
+    }
+
+    long generation() {
+      if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC
+          || buffer.getInt(4) != FORMAT_VERSION) {
+        return 0;
+      }
+      return buffer.getLong(8);
+    }
+
+    void writeHeader(long generation) {
+      buffer.putInt(0, MAGIC);
+      buffer.putInt(4, FORMAT_VERSION);
+      buffer.putLong(8, generation);
+    }
+
+    // 容量不夠時加倍重新映射 (檔案跟著變大)
+    void ensure(int needed) throws IOException {
+      if (needed <= buffer.capacity()) {
+        return;
+      }
+      long capacity = buffer.capacity();
+      while (capacity < needed) {
+        capacity *= 2;
+      }
+      if (capacity > Integer.MAX_VALUE) {
+        throw new IOException("player journal 超過 2GB");
+      }
+      buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package com.example.htmlmud.infra.persistence.repository;
+
+import java.util.Map;
+import com.example.htmlmud.domain.model.template.ItemTemplate;
+import com.example.htmlmud.domain.model.template.MobTemplate;
+import com.example.htmlmud.domain.model.template.RaceTemplate;
+import com.example.htmlmud.domain.model.template.RoomTemplate;
+import com.example.htmlmud.domain.model.template.SkillTemplate;
+import com.example.htmlmud.domain.model.template.ZoneTemplate;
+
+/**
+ * 熱更新產生的新一代模板 (只包含與目前內容不同的部分，Key 為絕對 ID)
+ *
+ * 在背景解析、比對完成後建立，之後不再修改；由 TemplateRepository.swap() 一次換入。
+ */
+public record TemplateGeneration(
+
+    Map<String, SkillTemplate> skills,
+
+    Map<String, RaceTemplate> races,
+
+    Map<String, ZoneTemplate> zones,
+
+    Map<String, MobTemplate> mobs,
+
+    Map<String, ItemTemplate> items,
+
+    Map<String, RoomTemplate> rooms
+
+) {
+
+  public TemplateGeneration {
+    skills = Map.copyOf(skills);
+    races = Map.copyOf(races);
+    zones = Map.copyOf(zones);
+    mobs = Map.copyOf(mobs);
+    items = Map.copyOf(items);
+    rooms = Map.copyOf(rooms);
+  }
+
+  public int size() {
+    return skills.size() + races.size() + zones.size() + mobs.size() + items.size() + rooms.size();
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+}
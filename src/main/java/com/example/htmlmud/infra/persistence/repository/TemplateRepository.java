@@ -1,9 +1,8 @@
 package com.example.htmlmud.infra.persistence.repository;
 
-import java.util.EnumMap;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
 import org.springframework.stereotype.Component;
 import com.example.htmlmud.domain.exception.MudException;
 import com.example.htmlmud.domain.model.enums.SkillCategory;
@@ -13,7 +12,8 @@ import com.example.htmlmud.domain.model.template.RaceTemplate;
 import com.example.htmlmud.domain.model.template.RoomTemplate;
 import com.example.htmlmud.domain.model.template.SkillTemplate;
 import com.example.htmlmud.domain.model.template.ZoneTemplate;
-import lombok.Getter;
+import com.example.htmlmud.infra.util.FormulaEvaluator;
+import com.example.htmlmud.infra.util.MessageTemplate;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -22,44 +22,44 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class TemplateRepository {
 
-  // 儲存所有的靜態資料
-  // Key: 絕對 ID (e.g., "newbie_village:sword")
-  private static final Map<String, ZoneTemplate> zoneTemplates = new ConcurrentHashMap<>();
-
-  @Getter
-  private static final Map<String, RoomTemplate> roomTemplates = new ConcurrentHashMap<>();
-  private static final Map<String, MobTemplate> mobTemplates = new ConcurrentHashMap<>();
-  private static final Map<String, ItemTemplate> itemTemplates = new ConcurrentHashMap<>();
+  public static final int NO_HANDLE = TemplateTable.NO_HANDLE;
 
-  private static final Map<String, SkillTemplate> skillTemplates = new ConcurrentHashMap<>();
+  // 儲存所有的靜態資料
+  // 載入時為每個絕對 ID (e.g., "newbie_village:sword") 分配連續的 int handle，熱路徑以 handle 查陣列
+  private static final TemplateTable<ZoneTemplate> zoneTemplates = new TemplateTable<>();
+  private static final TemplateTable<RoomTemplate> roomTemplates = new TemplateTable<>();
+  private static final TemplateTable<MobTemplate> mobTemplates = new TemplateTable<>();
+  private static final TemplateTable<ItemTemplate> itemTemplates = new TemplateTable<>();
+  private static final TemplateTable<SkillTemplate> skillTemplates = new TemplateTable<>();
+  private static final TemplateTable<RaceTemplate> raceTemplates = new TemplateTable<>();
 
-  @Getter
-  private static final Map<String, RaceTemplate> raceTemplates = new ConcurrentHashMap<>();
+  // 熱更新的世代編號 (每次 swap +1)
+  private static volatile long generation = 0;
 
 
 
-  // 預先計算基礎技能的 ID，避免在戰鬥等高頻率呼叫中重複進行字串拼接與轉換
-  private static final Map<SkillCategory, String> BASIC_SKILL_IDS =
-      new EnumMap<>(SkillCategory.class);
-  private static final Map<SkillCategory, String> MOB_BASIC_SKILL_IDS =
-      new EnumMap<>(SkillCategory.class);
+  // 預先取得基礎技能的 handle (以 SkillCategory.ordinal() 為索引)，避免在戰鬥等高頻率呼叫中進行字串拼接與查表
+  private static final int[] BASIC_SKILL_HANDLES = new int[SkillCategory.values().length];
+  private static final int[] MOB_BASIC_SKILL_HANDLES = new int[SkillCategory.values().length];
 
   static {
+    Arrays.fill(MOB_BASIC_SKILL_HANDLES, NO_HANDLE);
     for (SkillCategory cat : SkillCategory.values()) {
-      BASIC_SKILL_IDS.put(cat, ("basic_" + cat.name()).toLowerCase());
+      BASIC_SKILL_HANDLES[cat.ordinal()] =
+          skillTemplates.intern(("basic_" + cat.name()).toLowerCase());
     }
 
-    MOB_BASIC_SKILL_IDS.put(SkillCategory.UNARMED, "mob_hit");
-    MOB_BASIC_SKILL_IDS.put(SkillCategory.DODGE, "mob_dodge");
-    MOB_BASIC_SKILL_IDS.put(SkillCategory.PARRY, "mob_parry");
-    // MOB_BASIC_SKILL_IDS.put(SkillCategory.FORCE, "mob_force");
+    MOB_BASIC_SKILL_HANDLES[SkillCategory.UNARMED.ordinal()] = skillTemplates.intern("mob_hit");
+    MOB_BASIC_SKILL_HANDLES[SkillCategory.DODGE.ordinal()] = skillTemplates.intern("mob_dodge");
+    MOB_BASIC_SKILL_HANDLES[SkillCategory.PARRY.ordinal()] = skillTemplates.intern("mob_parry");
+    // MOB_BASIC_SKILL_HANDLES[SkillCategory.FORCE.ordinal()] = skillTemplates.intern("mob_force");
   }
 
 
 
   // 註冊方法
-  public static void registerZone(ZoneTemplate tpl) {
-    zoneTemplates.put(tpl.id(), tpl);
+  public static int registerZone(ZoneTemplate tpl) {
+    return zoneTemplates.register(tpl.id(), tpl);
   }
 
   // 查詢方法
@@ -67,9 +67,17 @@ public class TemplateRepository {
     return Optional.ofNullable(zoneTemplates.get(id));
   }
 
+  public static int zoneHandle(String id) {
+    return zoneTemplates.handleOf(id);
+  }
+
+  public static ZoneTemplate getZone(int handle) {
+    return zoneTemplates.get(handle);
+  }
+
   // 這是給 MapLoader 呼叫的，用來填入資料
-  public static void registerRoom(RoomTemplate tpl) {
-    roomTemplates.put(tpl.id(), tpl);
+  public static int registerRoom(RoomTemplate tpl) {
+    return roomTemplates.register(tpl.id(), tpl);
   }
 
   // 查詢方法
@@ -77,24 +85,72 @@ public class TemplateRepository {
     return Optional.ofNullable(roomTemplates.get(id));
   }
 
-  public static void registerMob(MobTemplate tpl) {
-    mobTemplates.put(tpl.id(), tpl);
+  public static int roomHandle(String id) {
+    return roomTemplates.handleOf(id);
+  }
+
+  public static RoomTemplate getRoom(int handle) {
+    return roomTemplates.get(handle);
+  }
+
+  public static List<RoomTemplate> getRoomTemplates() {
+    return roomTemplates.values();
+  }
+
+  public static int getRoomCount() {
+    return roomTemplates.size();
+  }
+
+  public static int registerMob(MobTemplate tpl) {
+    return mobTemplates.register(tpl.id(), tpl);
   }
 
   public static Optional<MobTemplate> findMob(String id) {
     return Optional.ofNullable(mobTemplates.get(id));
   }
 
-  public static void registerItem(ItemTemplate tpl) {
-    itemTemplates.put(tpl.id(), tpl);
+  public static int mobHandle(String id) {
+    return mobTemplates.handleOf(id);
+  }
+
+  public static MobTemplate getMob(int handle) {
+    return mobTemplates.get(handle);
+  }
+
+  public static int registerItem(ItemTemplate tpl) {
+    return itemTemplates.register(tpl.id(), tpl);
   }
 
   public static Optional<ItemTemplate> findItem(String id) {
     return Optional.ofNullable(itemTemplates.get(id));
   }
 
-  public static void registerSkill(SkillTemplate tpl) {
-    skillTemplates.put(tpl.getId(), tpl);
+  public static int itemHandle(String id) {
+    return itemTemplates.handleOf(id);
+  }
+
+  public static ItemTemplate getItem(int handle) {
+    return itemTemplates.get(handle);
+  }
+
+  public static int getItemCount() {
+    return itemTemplates.size();
+  }
+
+  public static int registerSkill(SkillTemplate tpl) {
+    int handle = skillTemplates.register(tpl.getId(), tpl);
+    precompile(tpl);
+    return handle;
+  }
+
+  // 預先解析技能公式與訊息樣板，戰鬥中直接取用快取
+  private static void precompile(SkillTemplate tpl) {
+    FormulaEvaluator.precompile(tpl);
+    MessageTemplate.precompile(tpl);
+  }
+
+  public static Optional<SkillTemplate> findSkill(String id) {
+    return Optional.ofNullable(skillTemplates.get(id));
   }
 
   public static SkillTemplate getSkill(String id) {
@@ -105,32 +161,81 @@ public class TemplateRepository {
     return tpl;
   }
 
+  public static int skillHandle(String id) {
+    return skillTemplates.handleOf(id);
+  }
+
+  public static SkillTemplate getSkill(int handle) {
+    SkillTemplate tpl = skillTemplates.get(handle);
+    if (tpl == null) {
+      throw new MudException("Skill not found id:" + skillTemplates.idOf(handle));
+    }
+    return tpl;
+  }
+
   public static SkillTemplate getDefaultSkill(SkillCategory category) {
-    return skillTemplates.get(BASIC_SKILL_IDS.get(category));
+    return skillTemplates.get(BASIC_SKILL_HANDLES[category.ordinal()]);
   }
 
   public static String getDefaultSkillId(SkillCategory category) {
-    return getDefaultSkill(category).getId();
+    return skillTemplates.idOf(BASIC_SKILL_HANDLES[category.ordinal()]);
   }
 
   public static SkillTemplate getMobDefaultSkill(SkillCategory category) {
-    return skillTemplates.get(MOB_BASIC_SKILL_IDS.get(category));
+    return skillTemplates.get(MOB_BASIC_SKILL_HANDLES[category.ordinal()]);
   }
 
   public static String getMobDefaultSkillId(SkillCategory category) {
-    return getMobDefaultSkill(category).getId();
+    return skillTemplates.idOf(MOB_BASIC_SKILL_HANDLES[category.ordinal()]);
   }
 
 
-  public static void registerRace(RaceTemplate tpl) {
-    raceTemplates.put(tpl.id(), tpl);
+  public static int registerRace(RaceTemplate tpl) {
+    return raceTemplates.register(tpl.id(), tpl);
   }
 
   public static Optional<RaceTemplate> findRace(String id) {
     return Optional.ofNullable(raceTemplates.get(id));
   }
 
+  public static int raceHandle(String id) {
+    return raceTemplates.handleOf(id);
+  }
+
+  public static RaceTemplate getRace(int handle) {
+    return raceTemplates.get(handle);
+  }
+
+
 
+  /**
+   * 熱更新第一步 (背景執行緒)：先編譯新技能的公式與訊息樣板，swap 時就不必再做
+   */
+  public static void prepare(TemplateGeneration next) {
+    next.skills().values().forEach(TemplateRepository::precompile);
+  }
+
+  /**
+   * 熱更新第二步：由 WorldPulse 在兩次 tick 之間換入新一代模板
+   *
+   * 每張表各自複製陣列後只發佈一次；表與表之間依參照方向換入 (技能、種族、物品、怪物 -> 區域 -> 房間)，
+   * 讀到新房間時，它指向的怪物、物品一定已經是新版。Actor 以 handle 查詢，下一次取用就是新模板。
+   *
+   * @return 新的世代編號
+   */
+  public static synchronized long swap(TemplateGeneration next) {
+    skillTemplates.replaceAll(next.skills());
+    raceTemplates.replaceAll(next.races());
+    itemTemplates.replaceAll(next.items());
+    mobTemplates.replaceAll(next.mobs());
+    zoneTemplates.replaceAll(next.zones());
+    roomTemplates.replaceAll(next.rooms());
+    return ++generation;
+  }
+
+  public static long getGeneration() {
+    return generation;
+  }
 
   // 檢查資料完整性 (Server 啟動時檢查)
   public static void validate() {
@@ -0,0 +1,137 @@
+package com.example.htmlmud.infra.persistence.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 以連續 int handle 為索引的模板表
+ *
+ * 字串 ID ("zone:id") 只在邊界使用 (JSON、指令)，載入時換成 handle 後，熱路徑直接用陣列索引取模板。 handle 一旦分配就不會改變，重新註冊同一個 ID
+ * 只會替換陣列裡的模板。
+ *
+ * 寫入 (intern / register / replaceAll) 互斥；讀取不加鎖，透過 volatile 陣列參照發佈。
+ */
+public final class TemplateTable<T> {
+
+  public static final int NO_HANDLE = -1;
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  // 邊界用：字串 ID -> handle
+  private final Map<String, Integer> handles = new ConcurrentHashMap<>();
+
+  private volatile String[] ids = new String[INITIAL_CAPACITY];
+  private volatile Object[] templates = new Object[INITIAL_CAPACITY];
+
+  // 已分配的 handle 數量 (只在持有鎖時修改)
+  private volatile int size = 0;
+
+  /**
+   * 取得 ID 的 handle，還沒有就分配一個 (模板可以之後再註冊)
+   */
+  public synchronized int intern(String id) {
+    Integer existing = handles.get(id);
+    if (existing != null) {
+      return existing;
+    }
+
+    int handle = size;
+    String[] newIds = ids;
+    if (handle == newIds.length) {
+      int capacity = handle * 2;
+      newIds = Arrays.copyOf(newIds, capacity);
+      templates = Arrays.copyOf(templates, capacity);
+    }
+    newIds[handle] = id;
+    ids = newIds;
+    size = handle + 1;
+    handles.put(id, handle);
+    return handle;
+  }
+
+  public synchronized int register(String id, T template) {
+    int handle = intern(id);
+    Object[] current = templates;
+    current[handle] = template;
+    // 重新寫入 volatile 參照，讓讀取端看得到新的元素
+    templates = current;
+    return handle;
+  }
+
+  /**
+   * 熱更新：一次替換多個模板，複製一份新陣列後只發佈一次，讀取端看到的不是全舊就是全新
+   *
+   * @return 替換 (或新增) 的模板數
+   */
+  public synchronized int replaceAll(Map<String, T> replacements) {
+    if (replacements.isEmpty()) {
+      return 0;
+    }
+    int[] slots = new int[replacements.size()];
+    int i = 0;
+    for (String id : replacements.keySet()) {
+      slots[i++] = intern(id);
+    }
+
+    Object[] next = templates.clone();
+    i = 0;
+    for (T template : replacements.values()) {
+      next[slots[i++]] = template;
+    }
+    templates = next;
+    return slots.length;
+  }
+
+  public int handleOf(String id) {
+    if (id == null) {
+      return NO_HANDLE;
+    }
+    Integer handle = handles.get(id);
+    return (handle != null) ? handle : NO_HANDLE;
+  }
+
+  @SuppressWarnings("unchecked")
+  public T get(int handle) {
+    Object[] current = templates;
+    if (handle < 0 || handle >= current.length) {
+      return null;
+    }
+    return (T) current[handle];
+  }
+
+  public T get(String id) {
+    int handle = handleOf(id);
+    return (handle == NO_HANDLE) ? null : get(handle);
+  }
+
+  public String idOf(int handle) {
+    String[] current = ids;
+    if (handle < 0 || handle >= current.length) {
+      return null;
+    }
+    return current[handle];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * 目前已註冊的模板 (依 handle 順序)
+   */
+  @SuppressWarnings("unchecked")
+  public List<T> values() {
+    Object[] current = templates;
+    int count = Math.min(size, current.length);
+    List<T> list = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      if (current[i] != null) {
+        list.add((T) current[i]);
+      }
+    }
+    return list;
+  }
+}
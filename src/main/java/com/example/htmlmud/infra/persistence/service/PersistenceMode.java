@@ -0,0 +1,12 @@
+package com.example.htmlmud.infra.persistence.service;
+
+/**
+ * 玩家存檔的寫入方式
+ */
+public enum PersistenceMode {
+  // 整批一次 JDBC batch update，序列化後的內容與上次存檔相同就跳過
+  JDBC,
+
+  // 原本的 JPA 寫法：每筆 findById + save (比較與除錯用)
+  JPA
+}
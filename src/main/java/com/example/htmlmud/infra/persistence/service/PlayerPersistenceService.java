@@ -1,24 +1,48 @@
 package com.example.htmlmud.infra.persistence.service;
 
+import com.example.htmlmud.domain.model.entity.GameItem;
+import com.example.htmlmud.domain.model.entity.LivingStats;
 import com.example.htmlmud.domain.model.entity.PlayerRecord;
-import com.example.htmlmud.domain.model.entity.RoomStateRecord;
+import com.example.htmlmud.domain.model.enums.EquipmentSlot;
 import com.example.htmlmud.infra.mapper.PlayerMapper;
+import com.example.htmlmud.infra.persistence.codec.PlayerStateCodec;
+import com.example.htmlmud.infra.persistence.codec.PlayerStateFormat;
 import com.example.htmlmud.infra.persistence.entity.CharacterEntity;
+import com.example.htmlmud.infra.persistence.journal.JournalEntry;
+import com.example.htmlmud.infra.persistence.journal.PlayerJournal;
 import com.example.htmlmud.infra.persistence.repository.CharacterRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
-import java.time.Duration;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
 
 @Slf4j
 @Service
@@ -27,10 +51,104 @@ public class PlayerPersistenceService {
 
   private final PlayerMapper mapper; // 注入 MapStruct
   private final CharacterRepository playerRepository;
+  private final JdbcTemplate jdbcTemplate;
+  private final ObjectMapper objectMapper;
+  private final PlayerStateCodec codec;
+
+  @Value("${mud.persistence.player.mode:JDBC}")
+  private PersistenceMode mode;
+
+  // stats / inventory 的寫入格式；讀取時兩種都支援
+  @Value("${mud.persistence.player.format:BINARY}")
+  private PlayerStateFormat format;
+
+  // 啟動時把還是 JSON 的舊資料一次轉成二進位 (關閉時在下次存檔才轉換)
+  @Value("${mud.persistence.player.migrate-on-start:true}")
+  private boolean migrateOnStart;
+
+  // 兩次存檔之間的狀態變化先寫入 journal，當機重啟時重播到資料庫
+  @Value("${mud.persistence.player.journal.enabled:true}")
+  private boolean journalEnabled;
+
+  @Value("${mud.persistence.player.journal.path:./data/player.journal}")
+  private String journalPath;
+
+  // 初始映射大小，不夠時自動加倍
+  @Value("${mud.persistence.player.journal.capacity-mb:16}")
+  private int journalCapacityMb;
+
+  // 與 PlayerMapper 相同的語意：來源是 null 的欄位不覆蓋；角色已被刪除 (找不到) 就不寫
+  // 寫入一種格式時清掉另一種格式的舊內容 (第 6、7 個參數：這次有沒有寫 stats / inventory)
+  private static final String UPDATE_BINARY_SQL = """
+      UPDATE characters SET name = COALESCE(?, name), nickname = COALESCE(?, nickname),
+        current_room_id = COALESCE(?, current_room_id), stats_bin = COALESCE(?, stats_bin),
+        inventory_bin = COALESCE(?, inventory_bin),
+        stats_json = CASE WHEN ? THEN NULL ELSE stats_json END,
+        inventory_json = CASE WHEN ? THEN NULL ELSE inventory_json END, modify_at = ?
+      WHERE id = ?""";
+
+  private static final String UPDATE_JSON_SQL = """
+      UPDATE characters SET name = COALESCE(?, name), nickname = COALESCE(?, nickname),
+        current_room_id = COALESCE(?, current_room_id), stats_json = COALESCE(?, stats_json),
+        inventory_json = COALESCE(?, inventory_json),
+        stats_bin = CASE WHEN ? THEN NULL ELSE stats_bin END,
+        inventory_bin = CASE WHEN ? THEN NULL ELSE inventory_bin END, modify_at = ?
+      WHERE id = ?""";
+
+  // 舊資料轉換：依 id 分頁 (轉換失敗的列會留在原地，不能用「再查一次」的方式)
+  private static final String MIGRATE_SELECT_SQL = """
+      SELECT id, stats_json, inventory_json FROM characters
+      WHERE stats_bin IS NULL AND inventory_bin IS NULL
+        AND (stats_json IS NOT NULL OR inventory_json IS NOT NULL) AND id > ?
+      ORDER BY id LIMIT 500""";
+
+  // 轉換途中玩家已存過檔 (stats_bin 有值) 就不覆蓋
+  private static final String MIGRATE_UPDATE_SQL = """
+      UPDATE characters SET stats_bin = ?, inventory_bin = ?, stats_json = NULL,
+        inventory_json = NULL
+      WHERE id = ? AND stats_bin IS NULL AND inventory_bin IS NULL""";
+
+  private static final TypeReference<List<GameItem>> INVENTORY_TYPE = new TypeReference<>() {};
+
+  // 計算 hash 時區隔欄位，避免 ("ab", "c") 與 ("a", "bc") 相同
+  private static final byte[] NULL_FIELD = {0};
+  private static final int FIELD_SEPARATOR = 0x1F;
+
+  // 存檔用的 JSON 不需要排版 (JacksonConfig 預設開啟 INDENT_OUTPUT)
+  private ObjectWriter jsonWriter;
+
+  // null 代表沒有啟用 (或開啟失敗)
+  private PlayerJournal journal;
+
+  private long lastForceAt = 0;
+
+  // playerId -> 上次成功寫入時序列化內容的 CRC32C
+  private final Map<String, Long> savedHashes = new ConcurrentHashMap<>();
+
+  // playerId -> 最後一次確認已寫入 (或內容與資料庫相同) 的時間
+  private final Map<String, Long> lastSavedAt = new ConcurrentHashMap<>();
+
+  // 統計 (WorldPulse 每分鐘記錄一次)
+  private final AtomicLong flushes = new AtomicLong();
+  private final AtomicLong rowsWritten = new AtomicLong();
+  private final AtomicLong rowsSkipped = new AtomicLong();
+  private final AtomicLong bytesWritten = new AtomicLong();
+  private final AtomicLong flushNanos = new AtomicLong();
+  private final AtomicLong journalAppends = new AtomicLong();
+  private final AtomicLong journalRemoved = new AtomicLong();
+  private final AtomicLong checkpointNanos = new AtomicLong();
+
+  // 一筆序列化好的存檔 (JDBC 寫入與 hash 比對共用)，stats / inventory 依 format 是 JSON 的 UTF-8 或二進位
+  private record Row(PlayerRecord record, byte[] stats, byte[] inventory, long hash, int bytes) {
+  }
+
+  // 一筆待寫入的存檔，journalSeq 是建立存檔時 journal 的序號 (這個玩家在此之前的記錄都已包含在存檔內)
+  private record Pending(PlayerRecord record, long journalSeq) {
+  }
 
   // 1. 緩衝佇列 (Thread-Safe)
   // LinkedBlockingQueue 是最適合生產者-消費者模式的結構
-  private final BlockingQueue<PlayerRecord> saveQueue = new LinkedBlockingQueue<>();
+  private final BlockingQueue<Pending> saveQueue = new LinkedBlockingQueue<>();
 
   // 控制迴圈的旗標
   private volatile boolean running = true;
@@ -42,17 +160,84 @@ public class PlayerPersistenceService {
     if (record == null)
       return;
 
+    // 在玩家的 Actor 執行緒上呼叫，這個玩家先前的 journal 記錄都已寫入
+    long seq = (journal == null) ? 0 : journal.lastSeq();
+
     // 丟入佇列，如果不滿就立刻返回，不會阻塞
-    if (!saveQueue.offer(record)) {
+    if (!saveQueue.offer(new Pending(record, seq))) {
       log.error("存檔佇列已滿！可能資料庫寫入過慢，資料遺失風險: {}", record.id());
     }
   }
 
+  public boolean isJournalEnabled() {
+    return journal != null;
+  }
+
+  /**
+   * 【對外 API】記下一筆狀態變化 (玩家的 Actor 執行緒呼叫，只是一次記憶體寫入)
+   */
+  public void journal(JournalEntry entry) {
+    if (journal == null) {
+      return;
+    }
+    try {
+      journal.append(entry);
+      journalAppends.incrementAndGet();
+    } catch (RuntimeException e) {
+      log.error("player journal 寫入失敗 id:{}", entry.playerId(), e);
+    }
+  }
+
+  public void journalItem(String playerId, GameItem item) {
+    if (journal == null) {
+      return;
+    }
+    try {
+      journal(new JournalEntry.ItemPut(playerId, item.getId(), jsonWriter.writeValueAsString(item)));
+    } catch (JsonProcessingException e) {
+      log.error("player journal 物品序列化失敗 id:{} itemId:{}", playerId, item.getId(), e);
+    }
+  }
+
+  public void journalEquipment(String playerId, EquipmentSlot slot, GameItem item) {
+    if (journal == null) {
+      return;
+    }
+    try {
+      String json = (item == null) ? null : jsonWriter.writeValueAsString(item);
+      journal(new JournalEntry.EquipmentChanged(playerId, slot.name(), json));
+    } catch (JsonProcessingException e) {
+      log.error("player journal 裝備序列化失敗 id:{} slot:{}", playerId, slot, e);
+    }
+  }
+
   /**
    * 2. 啟動背景消費者執行緒 使用 @PostConstruct 在 Bean 建立後自動執行
    */
   @PostConstruct
   public void init() {
+    jsonWriter = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+    log.info("Player persistence mode: {} format: {}", mode, format);
+
+    if (format == PlayerStateFormat.BINARY && migrateOnStart) {
+      try {
+        migrateLegacyRows();
+      } catch (DataAccessException e) {
+        // 沒轉換到的玩家在下次存檔時轉換
+        log.error("玩家存檔格式轉換失敗", e);
+      }
+    }
+
+    if (journalEnabled) {
+      try {
+        // 重播要等模板載入後 (recoverJournal)，二進位存檔的物品要靠模板重建
+        journal = PlayerJournal.open(Path.of(journalPath), journalCapacityMb * 1024 * 1024);
+      } catch (IOException | RuntimeException e) {
+        log.error("player journal 開啟失敗，不使用 journal: {}", journalPath, e);
+        journal = null;
+      }
+    }
+
     // 啟動一個虛擬執行緒來專門處理存檔
     Thread.ofVirtual().name("db-writer-player").start(this::processQueue);
   }
@@ -64,29 +249,36 @@ public class PlayerPersistenceService {
     log.info("Write-Behind DB Writer started.");
 
     // 用來暫存批次資料的 List
-    List<PlayerRecord> batch = new ArrayList<>();
+    List<Pending> batch = new ArrayList<>();
 
     while (running) {
       try {
         // A. 從佇列取出一筆 (如果空的，這裡會阻塞等待，節省 CPU)
         // 使用 poll 設定超時，這樣我們可以定期檢查 running 狀態或處理剩餘批次
-        PlayerRecord record = saveQueue.poll(1, java.util.concurrent.TimeUnit.SECONDS);
+        Pending pending = saveQueue.poll(1, java.util.concurrent.TimeUnit.SECONDS);
 
-        if (record != null) {
-          batch.add(record);
+        if (pending != null) {
+          batch.add(pending);
         }
 
         // B. 檢查是否需要寫入 DB (滿足數量 或 佇列沒東西了但還有殘存資料)
         // 條件：累積滿 50 筆 OR (佇列空了 且 手上還有資料)
-        if (batch.size() >= 50 || (record == null && !batch.isEmpty())) {
-          flushBatch(batch);
+        if (batch.size() >= 50 || (pending == null && !batch.isEmpty())) {
+          flushPending(batch);
         }
 
         // C. 額外優化：如果佇列裡還有很多，一口氣全部撈出來 (Drain)
         // 這能大幅提升高負載時的吞吐量
         if (!saveQueue.isEmpty() && batch.size() < 100) {
           saveQueue.drainTo(batch, 100 - batch.size());
-          flushBatch(batch); // 再寫一次
+          flushPending(batch); // 再寫一次
+        }
+
+        // D. journal 每秒寫回磁碟一次 (預防整台機器斷電)
+        long now = System.currentTimeMillis();
+        if (journal != null && now - lastForceAt >= 1000) {
+          lastForceAt = now;
+          journal.force();
         }
 
       } catch (InterruptedException e) {
@@ -100,31 +292,419 @@ public class PlayerPersistenceService {
   }
 
   /**
-   * 4. 實際寫入資料庫
+   * 直接寫入一批存檔 (不經過佇列，基準測試用)
    */
-  private void flushBatch(List<PlayerRecord> batch) {
+  public void flushBatch(List<PlayerRecord> batch) {
+    List<Pending> pending = new ArrayList<>(batch.size());
+    for (PlayerRecord rec : batch) {
+      pending.add(new Pending(rec, 0));
+    }
+    batch.clear();
+    flushPending(pending);
+  }
+
+  /**
+   * 4. 實際寫入資料庫，成功後移除 journal 中已包含在存檔內的記錄
+   */
+  private void flushPending(List<Pending> batch) {
     if (batch.isEmpty())
       return;
 
-    // 使用 Map 來去重，只保留每個 Room 的最新狀態
-    Map<String, PlayerRecord> latestRecords = new HashMap<>();
-    for (PlayerRecord rec : batch) {
-      latestRecords.put(rec.id(), rec);
+    // 使用 Map 來去重，只保留每個玩家的最新狀態
+    Map<String, Pending> latest = new LinkedHashMap<>();
+    for (Pending pending : batch) {
+      latest.put(pending.record().id(), pending);
+    }
+    // 呼叫端會重複使用同一個 List，寫過的就清掉 (否則下一輪會重寫一次)
+    batch.clear();
+
+    Set<String> saved = write(latest.values().stream().map(Pending::record).toList());
+
+    Map<String, Long> savedSeq = new HashMap<>();
+    for (String id : saved) {
+      long seq = latest.get(id).journalSeq();
+      if (seq > 0) {
+        savedSeq.put(id, seq);
+      }
+    }
+    checkpoint(savedSeq);
+  }
+
+  private void checkpoint(Map<String, Long> savedSeq) {
+    if (journal == null || savedSeq.isEmpty()) {
+      return;
+    }
+    long start = System.nanoTime();
+    try {
+      journalRemoved.addAndGet(journal.checkpoint(savedSeq));
+    } catch (RuntimeException e) {
+      // 記錄留著，下次存檔時再移除 (重播是冪等的)
+      log.error("player journal checkpoint 失敗", e);
+    }
+    checkpointNanos.addAndGet(System.nanoTime() - start);
+  }
+
+  /**
+   * @return 已確定寫入資料庫 (或內容與資料庫相同) 的 playerId
+   */
+  private Set<String> write(List<PlayerRecord> records) {
+    long start = System.nanoTime();
+    Set<String> saved = switch (mode) {
+      case JDBC -> flushJdbc(records);
+      case JPA -> flushJpa(records);
+    };
+    flushNanos.addAndGet(System.nanoTime() - start);
+    flushes.incrementAndGet();
+
+    // Hibernate 每次都寫整列，位元組數以相同格式的序列化結果估計 (不計入 DB Time)
+    if (mode == PersistenceMode.JPA) {
+      for (PlayerRecord rec : records) {
+        try {
+          bytesWritten.addAndGet(serialize(rec).bytes());
+        } catch (JsonProcessingException e) {
+          // 只影響統計
+        }
+      }
+    }
+    return saved;
+  }
+
+  // 整批一次 batch update；序列化後與上次存檔相同的玩家直接跳過
+  private Set<String> flushJdbc(Iterable<PlayerRecord> records) {
+    Set<String> saved = new HashSet<>();
+    List<Row> rows = new ArrayList<>();
+    for (PlayerRecord rec : records) {
+      Row row;
+      try {
+        row = serialize(rec);
+      } catch (JsonProcessingException e) {
+        log.error("玩家存檔序列化失敗 id:{}", rec.id(), e);
+        continue;
+      }
+      Long previous = savedHashes.get(rec.id());
+      if (previous != null && previous == row.hash()) {
+        rowsSkipped.incrementAndGet();
+        lastSavedAt.put(rec.id(), System.currentTimeMillis());
+        saved.add(rec.id());
+        continue;
+      }
+      rows.add(row);
+    }
+    if (rows.isEmpty()) {
+      return saved;
     }
 
-    // 只寫入去重後的資料
-    for (PlayerRecord rec : latestRecords.values()) {
+    Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+    boolean binary = format == PlayerStateFormat.BINARY;
+    int[][] counts;
+    try {
+      counts = jdbcTemplate.batchUpdate(binary ? UPDATE_BINARY_SQL : UPDATE_JSON_SQL, rows,
+          rows.size(), (ps, row) -> {
+            PlayerRecord rec = row.record();
+            ps.setString(1, rec.name());
+            ps.setString(2, rec.nickname());
+            ps.setString(3, rec.currentRoomId());
+            if (binary) {
+              ps.setBytes(4, row.stats());
+              ps.setBytes(5, row.inventory());
+            } else {
+              ps.setString(4, toJson(row.stats()));
+              ps.setString(5, toJson(row.inventory()));
+            }
+            ps.setBoolean(6, row.stats() != null);
+            ps.setBoolean(7, row.inventory() != null);
+            ps.setTimestamp(8, now);
+            ps.setString(9, rec.id());
+          });
+    } catch (DataAccessException e) {
+      // hash 不更新，下次存檔會整批重寫
+      log.error("玩家存檔批次寫入失敗 rows:{}", rows.size(), e);
+      return saved;
+    }
+
+    int[] updated = counts.length == 0 ? new int[0] : counts[0];
+    for (int i = 0; i < rows.size(); i++) {
+      Row row = rows.get(i);
+      // 驅動回報 SUCCESS_NO_INFO (-2) 也視為成功
+      if (i < updated.length && updated[i] == 0) {
+        savedHashes.remove(row.record().id());
+        continue;
+      }
+      savedHashes.put(row.record().id(), row.hash());
+      lastSavedAt.put(row.record().id(), System.currentTimeMillis());
+      saved.add(row.record().id());
+      rowsWritten.incrementAndGet();
+      bytesWritten.addAndGet(row.bytes());
+    }
+    return saved;
+  }
+
+  private Row serialize(PlayerRecord rec) throws JsonProcessingException {
+    byte[] stats = null;
+    byte[] inventory = null;
+    if (format == PlayerStateFormat.BINARY) {
+      stats = (rec.stats() == null) ? null : codec.encodeStats(rec.stats());
+      inventory = (rec.inventory() == null) ? null : codec.encodeInventory(rec.inventory());
+    } else {
+      stats = (rec.stats() == null) ? null : jsonWriter.writeValueAsBytes(rec.stats());
+      inventory = (rec.inventory() == null) ? null : jsonWriter.writeValueAsBytes(rec.inventory());
+    }
+
+    CRC32C crc = new CRC32C();
+    int bytes = 0;
+    for (byte[] data : new byte[][] {utf8(rec.name()), utf8(rec.nickname()),
+        utf8(rec.currentRoomId()), stats, inventory}) {
+      crc.update((data == null) ? NULL_FIELD : data);
+      crc.update(FIELD_SEPARATOR);
+      bytes += (data == null) ? 0 : data.length;
+    }
+    return new Row(rec, stats, inventory, crc.getValue(), bytes);
+  }
+
+  private static byte[] utf8(String value) {
+    return (value == null) ? null : value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static String toJson(byte[] data) {
+    return (data == null) ? null : new String(data, StandardCharsets.UTF_8);
+  }
+
+  // 原本的寫法：每筆兩次 round-trip (查詢 + 更新)，Hibernate 每次都重新序列化 JSON 欄位
+  private Set<String> flushJpa(Iterable<PlayerRecord> records) {
+    Set<String> saved = new HashSet<>();
+    for (PlayerRecord rec : records) {
       // 直接用 CharacterRepo 查 (查出來的物件本來就沒有密碼)
       playerRepository.findById(rec.id()).ifPresent(entity -> {
 
         // Record -> Entity (MapStruct 自動更新)
         // 這行程式碼取代了原本手寫的 entity.setNickname(), entity.setState()...
         mapper.updateEntityFromRecord(rec, entity);
+        try {
+          applyFormat(rec, entity);
+        } catch (JsonProcessingException e) {
+          log.error("玩家存檔序列化失敗 id:{}", rec.id(), e);
+          return;
+        }
+        entity.setModifyAt(LocalDateTime.now());
 
         // 存檔
         playerRepository.save(entity);
+        lastSavedAt.put(rec.id(), System.currentTimeMillis());
+        saved.add(rec.id());
+        rowsWritten.incrementAndGet();
       });
     }
+    return saved;
+  }
+
+  // MapStruct 只會填 JSON 欄位；BINARY 時改存到二進位欄位，並清掉另一種格式的舊內容
+  private void applyFormat(PlayerRecord rec, CharacterEntity entity)
+      throws JsonProcessingException {
+    if (format == PlayerStateFormat.BINARY) {
+      if (rec.stats() != null) {
+        entity.setStatsBin(codec.encodeStats(rec.stats()));
+        entity.setStats(null);
+      }
+      if (rec.inventory() != null) {
+        entity.setInventoryBin(codec.encodeInventory(rec.inventory()));
+        entity.setInventory(null);
+      }
+    } else {
+      if (rec.stats() != null) {
+        entity.setStatsBin(null);
+      }
+      if (rec.inventory() != null) {
+        entity.setInventoryBin(null);
+      }
+    }
+  }
+
+
+
+  /**
+   * 啟動時把 stats_json / inventory_json 的舊資料轉成二進位格式
+   *
+   * 轉換失敗的列保留 JSON (讀取時仍可使用)，記錄警告後略過。
+   */
+  private void migrateLegacyRows() {
+    long start = System.nanoTime();
+    int rows = 0;
+    int failed = 0;
+    long jsonBytes = 0;
+    long binaryBytes = 0;
+
+    String lastId = "";
+    while (true) {
+      List<String[]> page = jdbcTemplate.query(MIGRATE_SELECT_SQL,
+          (rs, n) -> new String[] {rs.getString(1), rs.getString(2), rs.getString(3)}, lastId);
+      if (page.isEmpty()) {
+        break;
+      }
+
+      List<Object[]> updates = new ArrayList<>(page.size());
+      for (String[] row : page) {
+        String id = row[0];
+        lastId = id;
+        try {
+          byte[] stats = (row[1] == null) ? null
+              : codec.encodeStats(objectMapper.readValue(row[1], LivingStats.class));
+          byte[] inventory = (row[2] == null) ? null
+              : codec.encodeInventory(objectMapper.readValue(row[2], INVENTORY_TYPE));
+          updates.add(new Object[] {stats, inventory, id});
+          jsonBytes += utf8Length(row[1]) + utf8Length(row[2]);
+          binaryBytes += ((stats == null) ? 0 : stats.length)
+              + ((inventory == null) ? 0 : inventory.length);
+        } catch (JsonProcessingException | RuntimeException e) {
+          failed++;
+          log.warn("玩家存檔無法轉換，保留 JSON id:{}", id, e);
+        }
+      }
+      if (!updates.isEmpty()) {
+        jdbcTemplate.batchUpdate(MIGRATE_UPDATE_SQL, updates);
+        rows += updates.size();
+      }
+    }
+
+    if (rows > 0 || failed > 0) {
+      log.info("玩家存檔轉換為二進位格式 rows:{} failed:{} bytes:{} -> {} ({}%) {}ms", rows, failed,
+          jsonBytes, binaryBytes, jsonBytes == 0 ? 0 : binaryBytes * 100 / jsonBytes,
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+  }
+
+  private static int utf8Length(String value) {
+    return (value == null) ? 0 : value.getBytes(StandardCharsets.UTF_8).length;
+  }
+
+
+
+  /**
+   * 啟動時重播 journal：上次沒有正常存檔的玩家，以資料庫的內容為基礎套用記錄後立即寫回
+   *
+   * 由 WorldInitializer 在 loadWorld() 之後呼叫 (模板還沒載入時讀不出二進位存檔裡的物品)。
+   */
+  public void recoverJournal() {
+    if (journal == null) {
+      return;
+    }
+    try {
+      recover();
+    } catch (RuntimeException e) {
+      // 記錄留在 journal 裡，下次啟動再重播
+      log.error("player journal 重播失敗", e);
+    }
+  }
+
+  private void recover() {
+    List<PlayerJournal.Entry> entries = journal.entries();
+    if (entries.isEmpty()) {
+      return;
+    }
+    long start = System.nanoTime();
+
+    Map<String, List<JournalEntry>> byPlayer = new LinkedHashMap<>();
+    for (PlayerJournal.Entry e : entries) {
+      byPlayer.computeIfAbsent(e.entry().playerId(), k -> new ArrayList<>()).add(e.entry());
+    }
+
+    List<PlayerRecord> records = new ArrayList<>();
+    Set<String> done = new HashSet<>();
+    for (Map.Entry<String, List<JournalEntry>> e : byPlayer.entrySet()) {
+      try {
+        playerRepository.findById(e.getKey()).map(codec::toRecord).ifPresentOrElse(
+            base -> records.add(replay(base, e.getValue())), () -> {
+              log.warn("player journal 找不到角色 (已刪除?) id:{}", e.getKey());
+              done.add(e.getKey());
+            });
+      } catch (RuntimeException ex) {
+        // 存檔讀不出來就不寫回，記錄留著
+        log.error("player journal 重播時讀取角色失敗 id:{}", e.getKey(), ex);
+      }
+    }
+    Set<String> saved = write(records);
+    done.addAll(saved);
+
+    // 寫回成功的玩家 (以及已不存在的角色) 的記錄都可以移除
+    // 只到這次讀出的最後一筆：重播期間已經可以登入，之後新增的記錄不能一起清掉
+    long seq = entries.get(entries.size() - 1).seq();
+    Map<String, Long> savedSeq = new HashMap<>();
+    done.forEach(id -> savedSeq.put(id, seq));
+    checkpoint(savedSeq);
+
+    log.info("Player journal 重播 entries:{} players:{} saved:{} {}ms", entries.size(),
+        byPlayer.size(), saved.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+  }
+
+  // 記錄都是變化後的值，依序套用即可 (重複套用結果相同)
+  private PlayerRecord replay(PlayerRecord base, List<JournalEntry> entries) {
+    LivingStats stats = (base.stats() == null) ? new LivingStats() : base.stats();
+    List<GameItem> inventory =
+        (base.inventory() == null) ? new ArrayList<>() : new ArrayList<>(base.inventory());
+    String roomId = base.currentRoomId();
+    if (stats.equipment == null) {
+      stats.equipment = new HashMap<>();
+    }
+
+    for (JournalEntry entry : entries) {
+      try {
+        switch (entry) {
+          case JournalEntry.StatsChanged(var id, var hp, var exp, var coin) -> {
+            stats.hp = hp;
+            stats.exp = exp;
+            stats.coin = coin;
+          }
+          case JournalEntry.RoomChanged(var id, var room) -> roomId = room;
+          case JournalEntry.ItemPut(var id, var itemId, var json) -> {
+            GameItem item = objectMapper.readValue(json, GameItem.class);
+            inventory.removeIf(i -> itemId.equals(i.getId()));
+            inventory.add(item);
+          }
+          case JournalEntry.ItemRemoved(var id, var itemId) -> inventory
+              .removeIf(i -> itemId.equals(i.getId()));
+          case JournalEntry.EquipmentChanged(var id, var slot, var json) -> {
+            EquipmentSlot equipmentSlot = EquipmentSlot.valueOf(slot);
+            if (json == null) {
+              stats.equipment.remove(equipmentSlot);
+            } else {
+              stats.equipment.put(equipmentSlot, objectMapper.readValue(json, GameItem.class));
+            }
+          }
+        }
+      } catch (JsonProcessingException | IllegalArgumentException e) {
+        log.error("player journal 記錄無法套用 id:{} entry:{}", base.id(), entry, e);
+      }
+    }
+    return new PlayerRecord(base.id(), base.name(), base.nickname(), roomId, stats, inventory);
+  }
+
+  // 等待寫入的存檔數 (AutosaveScheduler 依此退避)
+  public int getQueueDepth() {
+    return saveQueue.size();
+  }
+
+  /**
+   * @return 最後一次存檔完成的時間 (毫秒)，這次啟動後還沒存過就回傳 0
+   */
+  public long getLastSavedAt(String playerId) {
+    return lastSavedAt.getOrDefault(playerId, 0L);
+  }
+
+  public void logStats() {
+    long rows = rowsWritten.getAndSet(0);
+    long skipped = rowsSkipped.getAndSet(0);
+    long bytes = bytesWritten.getAndSet(0);
+    long count = flushes.getAndSet(0);
+    long nanos = flushNanos.getAndSet(0);
+    log.info(
+        "Player Persistence Stats ({}) - Flushes: {}, Rows: {}, Skipped: {}, Bytes: {} (avg {}/flush), DB Time: {}ms, Rows/s: {}",
+        mode, count, rows, skipped, bytes, count == 0 ? 0 : bytes / count,
+        TimeUnit.NANOSECONDS.toMillis(nanos),
+        nanos == 0 ? 0 : (long) (rows / (nanos / 1_000_000_000.0)));
+    if (journal != null) {
+      log.info("Player Journal Stats - Appends: {}, Removed: {}, Live Bytes: {}, Checkpoint Time: {}ms",
+          journalAppends.getAndSet(0), journalRemoved.getAndSet(0), journal.size(),
+          TimeUnit.NANOSECONDS.toMillis(checkpointNanos.getAndSet(0)));
+    }
   }
 
   /**
@@ -136,12 +716,21 @@ public class PlayerPersistenceService {
     running = false; // 停止迴圈讀取
 
     // 把佇列中剩下的全部寫完
-    List<PlayerRecord> remaining = new ArrayList<>();
+    List<Pending> remaining = new ArrayList<>();
     saveQueue.drainTo(remaining);
 
     if (!remaining.isEmpty()) {
       log.info("Flushing remaining {} records...", remaining.size());
-      flushBatch(remaining);
+      flushPending(remaining);
+    }
+
+    // 沒有存到檔的玩家留在 journal，下次啟動時重播
+    if (journal != null) {
+      try {
+        journal.close();
+      } catch (IOException e) {
+        log.error("player journal 關閉失敗", e);
+      }
     }
 
     log.info("PersistenceService shutdown complete.");
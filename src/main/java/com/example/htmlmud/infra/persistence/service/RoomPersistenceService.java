@@ -1,45 +1,211 @@
 package com.example.htmlmud.infra.persistence.service;
 
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import com.example.htmlmud.domain.model.entity.GameItem;
+import com.example.htmlmud.domain.model.entity.RoomItemDiff;
+import com.example.htmlmud.domain.model.entity.RoomStateChange;
 import com.example.htmlmud.domain.model.entity.RoomStateRecord;
-import com.example.htmlmud.infra.persistence.repository.RoomStateRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * 房間地上物品的存檔
+ *
+ * 平常只 append 增減記錄 (room_item_log)，寫入成本與變動量成正比，與房間裡有多少物品無關。
+ * 同一個房間累積的記錄超過門檻、或定期壓縮時，把 rooms_state 的快照 + 記錄重播成新快照，再刪掉已併入的記錄。
+ * 房間第一次啟動時以同樣的方式重播 (RoomService.spawnInitial)。
+ *
+ * 所有寫入都由同一條背景執行緒依佇列順序處理，所以記錄的 seq 順序就是發生順序。
+ * 讀取也排進同一個佇列：排在它前面、還沒寫完的增減記錄一定先寫入，讀到的不會是舊狀態。
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class RoomPersistenceService {
 
-  private final RoomStateRepository roomRepository;
+  private final JdbcTemplate jdbcTemplate;
+
+  private final TransactionTemplate transactionTemplate;
+
+  private final ObjectMapper objectMapper;
+
+  // 單一房間累積多少筆記錄就壓縮成快照
+  @Value("${mud.persistence.room.compact-threshold:64}")
+  private int compactThreshold;
+
+  // 定期把所有還有記錄的房間壓縮一次
+  @Value("${mud.persistence.room.compact-interval-ms:600000}")
+  private long compactIntervalMs;
+
+  private static final String INSERT_DIFF_SQL = """
+      INSERT INTO room_item_log (zone_id, room_id, op, item_id, item_json, created_at)
+      VALUES (?, ?, ?, ?, ?, ?)""";
+
+  private static final String SELECT_SNAPSHOT_SQL =
+      "SELECT dropped_items_json FROM rooms_state WHERE zone_id = ? AND room_id = ?";
+
+  private static final String SELECT_DIFFS_SQL = """
+      SELECT seq, op, item_id, item_json FROM room_item_log
+      WHERE zone_id = ? AND room_id = ? ORDER BY seq""";
+
+  private static final String MERGE_SNAPSHOT_SQL = """
+      MERGE INTO rooms_state (zone_id, room_id, dropped_items_json) KEY (zone_id, room_id)
+      VALUES (?, ?, ? FORMAT JSON)""";
+
+  private static final String DELETE_DIFFS_SQL =
+      "DELETE FROM room_item_log WHERE zone_id = ? AND room_id = ? AND seq <= ?";
+
+  private static final String OP_ADDED = "A";
+  private static final String OP_REMOVED = "R";
+
+  // 佇列中的一筆工作：寫入一筆變化，或是在前面的寫入都完成後讀取房間的地上物品
+  private sealed interface Task {
+  }
+
+  private record Write(RoomStateChange change) implements Task {
+  }
+
+  private record Load(String roomId, String zoneId,
+      CompletableFuture<Optional<List<GameItem>>> reply) implements Task {
+  }
 
   // 1. 緩衝佇列 (Thread-Safe)
   // LinkedBlockingQueue 是最適合生產者-消費者模式的結構
-  private final BlockingQueue<RoomStateRecord> saveQueue = new LinkedBlockingQueue<>();
+  private final BlockingQueue<Task> saveQueue = new LinkedBlockingQueue<>();
 
   // 控制迴圈的旗標
   private volatile boolean running = true;
 
+  // "zoneId:roomId" -> 還沒併入快照的記錄數
+  private final Map<String, Integer> pendingDiffs = new ConcurrentHashMap<>();
+
+  private ObjectWriter jsonWriter;
+
+  private long lastCompactAt = System.currentTimeMillis();
+
+  // 統計 (WorldPulse 每分鐘記錄一次)
+  private final AtomicLong diffsWritten = new AtomicLong();
+  private final AtomicLong bytesWritten = new AtomicLong();
+  private final AtomicLong snapshotsWritten = new AtomicLong();
+  private final AtomicLong diffsCompacted = new AtomicLong();
+
+  private record LogRow(long seq, String op, String itemId, String itemJson) {
+  }
+
 
   /**
    * 【對外 API】非同步存檔 Actor 呼叫這個方法時，幾乎是瞬間完成的。
+   *
+   * 整個房間的快照 (之前的增減記錄都會被取代)
    */
   public void saveAsync(RoomStateRecord record) {
-    if (record == null)
+    enqueue(record);
+  }
+
+  /**
+   * 【對外 API】地上物品的一筆增減
+   */
+  public void appendAsync(RoomItemDiff diff) {
+    enqueue(diff);
+  }
+
+  private void enqueue(RoomStateChange change) {
+    if (change == null)
       return;
 
     // 丟入佇列，如果不滿就立刻返回，不會阻塞
-    if (!saveQueue.offer(record)) {
-      log.error("存檔佇列已滿！可能資料庫寫入過慢，資料遺失風險: roomId:{} zoneId:{}", record.roomId(), record.zoneId());
+    if (!saveQueue.offer(new Write(change))) {
+      log.error("存檔佇列已滿！可能資料庫寫入過慢，資料遺失風險: roomId:{} zoneId:{}", change.roomId(),
+          change.zoneId());
+    }
+  }
+
+  /**
+   * 【對外 API】讀取房間的地上物品 (快照 + 重播增減記錄)，房間第一次啟動時呼叫
+   *
+   * 在寫入執行緒上依佇列順序執行，回覆時之前排入的寫入都已完成
+   *
+   * @return 從來沒有存過這個房間時回傳 empty (由呼叫端依 spawn rule 產生)
+   */
+  public CompletableFuture<Optional<List<GameItem>>> loadItemsAsync(String roomId,
+      String zoneId) {
+    CompletableFuture<Optional<List<GameItem>>> reply = new CompletableFuture<>();
+    if (!saveQueue.offer(new Load(roomId, zoneId, reply))) {
+      log.error("存檔佇列已滿！房間狀態無法讀取 roomId:{} zoneId:{}", roomId, zoneId);
+      reply.complete(Optional.empty());
+    }
+    return reply;
+  }
+
+  private Optional<List<GameItem>> loadItems(String roomId, String zoneId) {
+    try {
+      List<String> snapshot =
+          jdbcTemplate.queryForList(SELECT_SNAPSHOT_SQL, String.class, zoneId, roomId);
+      List<LogRow> rows = selectDiffs(roomId, zoneId);
+      if (snapshot.isEmpty() && rows.isEmpty()) {
+        return Optional.empty();
+      }
+      if (!rows.isEmpty()) {
+        pendingDiffs.merge(key(roomId, zoneId), rows.size(), Math::max);
+      }
+      return Optional.of(replay(snapshot.isEmpty() ? null : snapshot.get(0), rows));
+    } catch (DataAccessException | JsonProcessingException e) {
+      log.error("房間狀態讀取失敗 roomId:{} zoneId:{}", roomId, zoneId, e);
+      return Optional.empty();
+    }
+  }
+
+  private List<LogRow> selectDiffs(String roomId, String zoneId) {
+    return jdbcTemplate.query(SELECT_DIFFS_SQL, (rs, i) -> new LogRow(rs.getLong("seq"),
+        rs.getString("op"), rs.getString("item_id"), rs.getString("item_json")), zoneId, roomId);
+  }
+
+  // 重播是冪等的：重複的放下以最後一次為準，移除不存在的物品直接略過
+  private List<GameItem> replay(String snapshotJson, List<LogRow> rows)
+      throws JsonProcessingException {
+    Map<String, GameItem> items = new LinkedHashMap<>();
+    if (snapshotJson != null) {
+      List<GameItem> snapshot =
+          objectMapper.readValue(snapshotJson, new TypeReference<List<GameItem>>() {});
+      if (snapshot != null) {
+        snapshot.forEach(item -> items.put(item.getId(), item));
+      }
+    }
+    for (LogRow row : rows) {
+      if (OP_ADDED.equals(row.op())) {
+        items.put(row.itemId(), objectMapper.readValue(row.itemJson(), GameItem.class));
+      } else {
+        items.remove(row.itemId());
+      }
     }
+    return new ArrayList<>(items.values());
+  }
+
+  private static String key(String roomId, String zoneId) {
+    return zoneId + ":" + roomId;
   }
 
 
@@ -48,6 +214,9 @@ public class RoomPersistenceService {
    */
   @PostConstruct
   public void init() {
+    // 存檔用的 JSON 不需要排版 (JacksonConfig 預設開啟 INDENT_OUTPUT)
+    jsonWriter = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+
     // 啟動一個虛擬執行緒來專門處理存檔
     Thread.ofVirtual().name("db-writer-room").start(this::processQueue);
   }
@@ -59,21 +228,21 @@ public class RoomPersistenceService {
     log.info("Write-Behind DB Writer Room started.");
 
     // 用來暫存批次資料的 List
-    List<RoomStateRecord> batch = new ArrayList<>();
+    List<Task> batch = new ArrayList<>();
 
     while (running) {
       try {
         // A. 從佇列取出一筆 (如果空的，這裡會阻塞等待，節省 CPU)
         // 使用 poll 設定超時，這樣我們可以定期檢查 running 狀態或處理剩餘批次
-        RoomStateRecord record = saveQueue.poll(1, java.util.concurrent.TimeUnit.SECONDS);
+        Task task = saveQueue.poll(1, java.util.concurrent.TimeUnit.SECONDS);
 
-        if (record != null) {
-          batch.add(record);
+        if (task != null) {
+          batch.add(task);
         }
 
-        // B. 檢查是否需要寫入 DB (滿足數量 或 佇列沒東西了但還有殘存資料)
+        // B. 檢查是否需要寫入 DB (滿足數量 或 佇列沒東西了但還有殘存資料 或 有房間在等讀取)
         // 條件：累積滿 50 筆 OR (佇列空了 且 手上還有資料)
-        if (batch.size() >= 50 || (record == null && !batch.isEmpty())) {
+        if (batch.size() >= 50 || (task == null && !batch.isEmpty()) || task instanceof Load) {
           flushBatch(batch);
         }
 
@@ -84,6 +253,13 @@ public class RoomPersistenceService {
           flushBatch(batch); // 再寫一次
         }
 
+        // D. 定期壓縮
+        long now = System.currentTimeMillis();
+        if (now - lastCompactAt >= compactIntervalMs) {
+          lastCompactAt = now;
+          compactAll();
+        }
+
       } catch (InterruptedException e) {
         Thread.currentThread().interrupt();
         log.warn("DB Writer thread interrupted.");
@@ -95,35 +271,136 @@ public class RoomPersistenceService {
   }
 
   /**
-   * 4. 實際寫入資料庫
+   * 4. 實際寫入資料庫 (依佇列順序：連續的增減記錄合成一次 batch insert，遇到快照或讀取先把前面的記錄寫完)
    */
-  private void flushBatch(List<RoomStateRecord> batch) {
+  private void flushBatch(List<Task> batch) {
     if (batch.isEmpty())
       return;
 
-    // 使用 Map 來去重，只保留每個 Room 的最新狀態
-    Map<String, RoomStateRecord> latestRecords = new HashMap<>();
-    for (RoomStateRecord rec : batch) {
-      // key 可以是 roomId + zoneId
-      String key = rec.zoneId() + ":" + rec.roomId();
-      latestRecords.put(key, rec);
+    List<RoomItemDiff> diffs = new ArrayList<>();
+    for (Task task : batch) {
+      switch (task) {
+        case Write(RoomItemDiff diff) -> diffs.add(diff);
+        case Write(RoomStateRecord record) -> {
+          insertDiffs(diffs);
+          diffs.clear();
+          writeSnapshot(record);
+        }
+        case Load(var roomId, var zoneId, var reply) -> {
+          insertDiffs(diffs);
+          diffs.clear();
+          reply.complete(loadItems(roomId, zoneId));
+        }
+      }
+    }
+    insertDiffs(diffs);
+    // 呼叫端會重複使用同一個 List，寫過的就清掉 (否則下一輪會重寫一次)
+    batch.clear();
+  }
+
+  private void insertDiffs(List<RoomItemDiff> diffs) {
+    if (diffs.isEmpty()) {
+      return;
+    }
+
+    List<Object[]> args = new ArrayList<>(diffs.size());
+    Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+    long bytes = 0;
+    for (RoomItemDiff diff : diffs) {
+      String json = null;
+      if (diff.isAdded()) {
+        try {
+          json = jsonWriter.writeValueAsString(diff.item());
+        } catch (JsonProcessingException e) {
+          log.error("物品序列化失敗 itemId:{}", diff.itemId(), e);
+          continue;
+        }
+        bytes += json.length();
+      }
+      args.add(new Object[] {diff.zoneId(), diff.roomId(), diff.isAdded() ? OP_ADDED : OP_REMOVED,
+          diff.itemId(), json, now});
+    }
+
+    try {
+      jdbcTemplate.batchUpdate(INSERT_DIFF_SQL, args);
+    } catch (DataAccessException e) {
+      log.error("房間物品記錄寫入失敗 rows:{}", args.size(), e);
+      return;
     }
+    diffsWritten.addAndGet(args.size());
+    bytesWritten.addAndGet(bytes);
 
-    // 只寫入去重後的資料
-    for (RoomStateRecord rec : latestRecords.values()) {
-      // 直接用 CharacterRepo 查 (查出來的物件本來就沒有密碼)
-      roomRepository.findByRoomIdAndZoneId(rec.roomId(), rec.zoneId()).ifPresent(entity -> {
+    // 累積超過門檻的房間立即壓縮
+    for (RoomItemDiff diff : diffs) {
+      int pending = pendingDiffs.merge(key(diff.roomId(), diff.zoneId()), 1, Integer::sum);
+      if (pending >= compactThreshold) {
+        compact(diff.roomId(), diff.zoneId());
+      }
+    }
+  }
 
-        // entity.setId(rec.id());
-        // entity.setDroppedItems(rec.items());
-        // entity.setItems(rec.items());
+  // 整個房間的快照：取代之前所有的記錄
+  private void writeSnapshot(RoomStateRecord record) {
+    try {
+      String json = jsonWriter.writeValueAsString(record.droppedItems());
+      transactionTemplate.executeWithoutResult(status -> {
+        jdbcTemplate.update(MERGE_SNAPSHOT_SQL, record.zoneId(), record.roomId(), json);
+        jdbcTemplate.update(DELETE_DIFFS_SQL, record.zoneId(), record.roomId(), Long.MAX_VALUE);
+      });
+      pendingDiffs.remove(key(record.roomId(), record.zoneId()));
+      snapshotsWritten.incrementAndGet();
+      bytesWritten.addAndGet(json.length());
+    } catch (JsonProcessingException | DataAccessException e) {
+      log.error("房間快照寫入失敗 roomId:{} zoneId:{}", record.roomId(), record.zoneId(), e);
+    }
+  }
 
-        // 存檔
-        roomRepository.save(entity);
+  /**
+   * 把房間的快照 + 記錄重播成新快照，刪除已併入的記錄 (同一個交易內)
+   */
+  private void compact(String roomId, String zoneId) {
+    try {
+      int folded = transactionTemplate.execute(status -> {
+        List<String> snapshot =
+            jdbcTemplate.queryForList(SELECT_SNAPSHOT_SQL, String.class, zoneId, roomId);
+        List<LogRow> rows = selectDiffs(roomId, zoneId);
+        if (rows.isEmpty()) {
+          return 0;
+        }
+        List<GameItem> items;
+        String json;
+        try {
+          items = replay(snapshot.isEmpty() ? null : snapshot.get(0), rows);
+          json = jsonWriter.writeValueAsString(items);
+        } catch (JsonProcessingException e) {
+          throw new IllegalStateException(e);
+        }
+        jdbcTemplate.update(MERGE_SNAPSHOT_SQL, zoneId, roomId, json);
+        jdbcTemplate.update(DELETE_DIFFS_SQL, zoneId, roomId, rows.get(rows.size() - 1).seq());
+        return rows.size();
       });
+      pendingDiffs.remove(key(roomId, zoneId));
+      diffsCompacted.addAndGet(folded);
+      snapshotsWritten.incrementAndGet();
+    } catch (RuntimeException e) {
+      log.error("房間狀態壓縮失敗 roomId:{} zoneId:{}", roomId, zoneId, e);
     }
   }
 
+  private void compactAll() {
+    for (String key : List.copyOf(pendingDiffs.keySet())) {
+      int colon = key.indexOf(':');
+      compact(key.substring(colon + 1), key.substring(0, colon));
+    }
+  }
+
+  public void logStats() {
+    log.info(
+        "Room Persistence Stats - Diffs: {}, Bytes: {}, Snapshots: {}, Compacted Diffs: {}, Rooms With Diffs: {}",
+        diffsWritten.getAndSet(0), bytesWritten.getAndSet(0), snapshotsWritten.getAndSet(0),
+        diffsCompacted.getAndSet(0), pendingDiffs.size());
+  }
+
   /**
    * 5. 優雅關機 (Graceful Shutdown) 當 Spring Boot 關閉時，確保佇列裡的資料都寫完
    */
@@ -133,7 +410,7 @@ public class RoomPersistenceService {
     running = false; // 停止迴圈讀取
 
     // 把佇列中剩下的全部寫完
-    List<RoomStateRecord> remaining = new ArrayList<>();
+    List<Task> remaining = new ArrayList<>();
     saveQueue.drainTo(remaining);
 
     if (!remaining.isEmpty()) {
@@ -4,7 +4,6 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
-import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 import com.example.htmlmud.application.dto.GameRequest;
 import com.example.htmlmud.application.service.GameCommandService;
@@ -32,11 +31,8 @@ public class MudWebSocketHandler extends TextWebSocketHandler {
 
   @Override
   public void afterConnectionEstablished(WebSocketSession session) {
-    // 包裝 Session
-    // 這會自動加上 Lock，確保同時寫入時會排隊，不會噴出 IllegalStateException
-    // 參數說明：session, sendTimeLimit(ms), bufferSizeLimit(bytes)
-    // WebSocketSession concurrentSession =
-    // new ConcurrentWebSocketSessionDecorator(session, 1000, 64 * 1024);
+    // 不再使用 ConcurrentWebSocketSessionDecorator：
+    // WebSocketOutput 只有一個 writer 寫入 session，並自行處理寫入逾時與佇列上限 (mud.session.outbound.*)
 
     try {
 
@@ -86,7 +82,7 @@ public class MudWebSocketHandler extends TextWebSocketHandler {
 
   @Override
   public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
-    log.info("afterConnectionClosed");
+    log.info("afterConnectionClosed {}", status);
     // 從 Registry 移除並取得 Actor
     Player actor = sessionRegistry.remove(session.getId());
 
@@ -106,8 +102,8 @@ public class MudWebSocketHandler extends TextWebSocketHandler {
     // 1. 取得登入產生的 Guest Actor
     Player oldGuest = sessionRegistry.get(newSession.getId());
 
-    // 2. 讓 Player 接管 Session
-    player.setOutput(new WebSocketOutput(newSession, objectMapper));
+    // 2. 讓 Player 接管 Session (沿用 Guest 的輸出，同一個連線只會有一個 writer)
+    player.setOutput(oldGuest.getOutput());
 
     // 3. 更新 sessionRegistry，之後的訊息直接灌給 Player
     sessionRegistry.register(newSession, player);
@@ -2,10 +2,14 @@ package com.example.htmlmud.infra.server;
 
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.WebSocketSession;
+import com.example.htmlmud.domain.actor.core.MessageOutput;
 import com.example.htmlmud.domain.actor.impl.Player;
+import com.example.htmlmud.protocol.WebSocketOutput;
+import lombok.extern.slf4j.Slf4j;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+@Slf4j
 @Component
 public class SessionRegistry {
 
@@ -29,4 +33,32 @@ public class SessionRegistry {
     return sessions.size();
   }
 
+  // 所有連線的輸出佇列統計 (WorldPulse 每分鐘記錄一次)
+  public void logOutputStats() {
+    int totalDepth = 0;
+    int maxDepth = 0;
+    long totalBytes = 0;
+    String maxSessionId = null;
+    for (Map.Entry<String, Player> entry : sessions.entrySet()) {
+      MessageOutput output = entry.getValue().getOutput();
+      if (output == null) {
+        continue;
+      }
+      int depth = output.getQueueDepth();
+      totalDepth += depth;
+      totalBytes += output.getBytesWritten();
+      if (depth > maxDepth) {
+        maxDepth = depth;
+        maxSessionId = entry.getKey();
+      }
+      log.debug("Session {} - Queue: {}, Bytes Written: {}", entry.getKey(), depth,
+          output.getBytesWritten());
+    }
+    log.info("Session Stats - Connections: {}, Queued: {}, Max Queue: {} ({}), Bytes Written: {}",
+        sessions.size(), totalDepth, maxDepth, maxSessionId, totalBytes);
+    log.info("Slow Consumer Stats - Degraded: {} (total {}), Evicted: {}, Dropped Frames: {}",
+        WebSocketOutput.getDegradedSessions(), WebSocketOutput.getDegradeEvents(),
+        WebSocketOutput.getEvictedSessions(), WebSocketOutput.getDroppedFrames());
+  }
+
 }
@@ -4,7 +4,10 @@ import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
+import com.example.htmlmud.domain.service.AutosaveScheduler;
+import com.example.htmlmud.domain.service.TemplateReloader;
 import com.example.htmlmud.domain.service.WorldManager;
+import com.example.htmlmud.infra.persistence.service.PlayerPersistenceService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -16,6 +19,12 @@ public class WorldInitializer implements ApplicationRunner {
 
   private final WorldManager worldManager;
 
+  private final TemplateReloader templateReloader;
+
+  private final AutosaveScheduler autosaveScheduler;
+
+  private final PlayerPersistenceService playerPersistenceService;
+
 
   @Override
   public void run(ApplicationArguments args) throws Exception {
@@ -26,6 +35,15 @@ public class WorldInitializer implements ApplicationRunner {
     // 1. 載入地圖 (從原本 WorldManager 的 @PostConstruct 移過來)
     worldManager.loadWorld();
 
+    // 重播上次沒存到的玩家狀態 (二進位存檔的物品要由模板重建，必須在 loadWorld 之後)
+    playerPersistenceService.recoverJournal();
+
+    // 監看模板檔案 (game-config.json 的 engine.hotReload)
+    templateReloader.start(worldManager.getGameConfig());
+
+    // 依 engine.saveInterval 切分自動存檔的時段
+    autosaveScheduler.start(worldManager.getGameConfig());
+
     // 2. (未來) 啟動全域計時器 (Tick Loop)
     // gameLoop.start();
     // startServerEngine();
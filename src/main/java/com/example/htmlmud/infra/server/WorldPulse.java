@@ -1,10 +1,21 @@
 package com.example.htmlmud.infra.server;
 
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import com.example.htmlmud.domain.actor.core.ActorMetrics;
+import com.example.htmlmud.domain.actor.impl.Room;
+import com.example.htmlmud.domain.model.template.ZoneTemplate;
+import com.example.htmlmud.domain.service.AutosaveScheduler;
 import com.example.htmlmud.domain.service.CombatService;
+import com.example.htmlmud.domain.service.RoomService;
+import com.example.htmlmud.domain.service.TemplateReloader;
+import com.example.htmlmud.domain.service.TimerService;
 import com.example.htmlmud.domain.service.WorldManager;
+import com.example.htmlmud.infra.persistence.repository.TemplateRepository;
+import com.example.htmlmud.infra.persistence.service.PlayerPersistenceService;
+import com.example.htmlmud.infra.persistence.service.RoomPersistenceService;
 import com.example.htmlmud.infra.monitor.GameMetrics;
 import com.example.htmlmud.protocol.util.AnsiColor;
 import lombok.RequiredArgsConstructor;
@@ -21,6 +32,18 @@ public class WorldPulse {
 
   private final GameMetrics gameMetrics;
 
+  private final TimerService timerService;
+
+  private final SessionRegistry sessionRegistry;
+
+  private final TemplateReloader templateReloader;
+
+  private final PlayerPersistenceService playerPersistenceService;
+
+  private final AutosaveScheduler autosaveScheduler;
+
+  private final RoomPersistenceService roomPersistenceService;
+
 
   // 全域計數器，伺服器啟動後開始累加
   private final AtomicLong globalTickCounter = new AtomicLong(0);
@@ -35,6 +58,12 @@ public class WorldPulse {
     try {
       long now = System.currentTimeMillis();
 
+      // 熱更新：在任何 tick 工作之前換入新一代模板，這次心跳從頭到尾都看到同一代
+      templateReloader.applyPending();
+
+      // 推進計時器 (訊息合併、斷線清理、復活、連擊間隔)
+      timerService.advance();
+
       // 對處於戰鬥清單
       combatService.tick(currentTick, now);
 
@@ -42,20 +71,38 @@ public class WorldPulse {
 
       // 對 Dirty Mobs
 
-      // 對 Active Rooms 定義：只對「活躍」的房間發送
-      worldManager.getActiveRooms().values().forEach(room -> {
-        // 先檢查最簡單的條件：有沒有玩家
-        boolean hasPlayers = !room.getPlayers().isEmpty();
-        boolean isRespawnTick = (currentTick % 10 % room.getZoneTemplate().respawnTime() == 0);
-
-        if (hasPlayers || isRespawnTick) {
+      // 對 Active Rooms 定義：只對「有玩家」的房間發送 (由 WorldManager 的位置索引維護，不需要詢問房間)
+      Set<String> occupied = worldManager.getOccupiedRoomIds();
+      for (String roomId : occupied) {
+        Room room = worldManager.getActiveRooms().get(roomId);
+        if (room != null) {
           room.tick(currentTick, now);
         }
+      }
+
+      // 到了重生時間的區域，整區的房間都要 tick (上面已經 tick 過的有人房間跳過)
+      worldManager.getZoneRooms().forEach((zoneId, roomIds) -> {
+        ZoneTemplate zone = TemplateRepository.findZone(zoneId).orElse(null);
+        if (zone == null || !RoomService.isRespawnTick(zone, currentTick)) {
+          return;
+        }
+        for (String roomId : roomIds) {
+          Room room = worldManager.getActiveRooms().get(roomId);
+          if (room != null && !occupied.contains(roomId)) {
+            room.tick(currentTick, now);
+          }
+        }
       });
 
       // 對房間事件 Spawn rule
 
-      // 對 zone / world 事件
+      // 對 zone / world 事件：每 10 秒檢查一次沒有玩家的區域，閒置太久就休眠
+      if (currentTick % 100 == 0) {
+        worldManager.passivateIdleZones(now);
+      }
+
+      // 自動存檔：推進到現在的時段，經過的時段裡的玩家送出存檔
+      autosaveScheduler.tick(now);
 
     } finally {
       duration = System.nanoTime() - startTime;
@@ -67,14 +114,16 @@ public class WorldPulse {
     // 每次心跳為 100毫秒，若有處理時間超過 50毫秒的就印出來警告
     if (duration > 50_000_000) {
       log.warn(
-          AnsiColor.YELLOW + "高負載警告 - Tick: {}, Pulse: {}ms, Player Cmds: {}, System Tasks: {}"
+          AnsiColor.YELLOW
+              + "高負載警告 - Tick: {}, Pulse: {}ms, Player Cmds: {}, System Tasks: {}, Asks: {}"
               + AnsiColor.RESET,
           currentTick, duration / 1_000_000.0, gameMetrics.getPerCommands(),
-          gameMetrics.getPerTasks());
+          gameMetrics.getPerTasks(), ActorMetrics.getPerTickAsks());
     }
 
     // 清除每次心跳的計數
     gameMetrics.resetPerMetrics();
+    ActorMetrics.resetPerTick();
 
     // 每分鐘印一次 Log 確保心臟還在跳
     if (currentTick % 600 == 0) {
@@ -83,7 +132,25 @@ public class WorldPulse {
           "World Pulse Stats - Tick: {}, Total Work: {}ms, Avg Pulse: {}ms, Player Cmds: {}, System Tasks: {}",
           currentTick, totalNanos / 1_000_000.0, (totalNanos / 10.0) / 1_000_000.0,
           gameMetrics.getPlayerCommands(), gameMetrics.getSystemTasks());
+      log.info(
+          "Actor Stats - Messages: {}, Activations: {}, Requeues: {}, Dropped: {}, Rejected: {}, Asks: {} (avg {}/tick), Ask Timeouts: {}",
+          ActorMetrics.getProcessedMessages(), ActorMetrics.getActivations(),
+          ActorMetrics.getRequeues(), ActorMetrics.getDroppedMessages(),
+          ActorMetrics.getRejectedMessages(), ActorMetrics.getAsks(),
+          ActorMetrics.getAsks() / 600.0, ActorMetrics.getAskTimeouts());
+      log.info("Timer Stats - Pending: {}, Combat Events: {}", timerService.getPendingCount(),
+          combatService.getPendingEvents());
+      long flushes = ActorMetrics.getBufferFlushes();
+      log.info("Broadcast Stats - Flushes: {}, Fragments Merged: {} (avg {}/flush)", flushes,
+          ActorMetrics.getMergedFragments(),
+          flushes == 0 ? 0 : ActorMetrics.getMergedFragments() / (double) flushes);
+      log.info("Zone Stats - {}", worldManager.getZoneStateCounts());
+      sessionRegistry.logOutputStats();
+      playerPersistenceService.logStats();
+      roomPersistenceService.logStats();
+      autosaveScheduler.logStats(System.currentTimeMillis());
       gameMetrics.resetMetrics();
+      ActorMetrics.reset();
     }
   }
 
@@ -1,13 +1,21 @@
 package com.example.htmlmud.infra.util;
 
-import org.springframework.expression.ExpressionParser;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToIntFunction;
+import org.springframework.context.expression.MapAccessor;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.ReflectiveMethodResolver;
+import org.springframework.expression.spel.support.ReflectivePropertyAccessor;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.stereotype.Service;
 import com.example.htmlmud.domain.actor.impl.Player;
 import com.example.htmlmud.domain.model.template.SkillTemplate;
 import com.example.htmlmud.infra.util.formula.PlayerSkillMap;
-import com.example.htmlmud.infra.util.formula.SkillContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -15,7 +23,51 @@ import lombok.extern.slf4j.Slf4j;
 @Service
 @RequiredArgsConstructor
 public class FormulaEvaluator {
-  private static final ExpressionParser parser = new SpelExpressionParser();
+  // MIXED: 先用直譯執行，型別穩定後自動編譯成 bytecode；編譯後遇到型別不符會退回直譯
+  private static final SpelExpressionParser parser = new SpelExpressionParser(
+      new SpelParserConfiguration(SpelCompilerMode.MIXED, FormulaEvaluator.class.getClassLoader()));
+
+  // 解析過的公式 Key: 公式字串
+  private static final Map<String, Expression> cache = new ConcurrentHashMap<>();
+
+  // 共用的 Context (唯讀，RootObject 每次計算時傳入)
+  // 明確指定可編譯的 MapAccessor / ReflectivePropertyAccessor，讓 skill.level、wudang_force.level 都能被編譯
+  private static final StandardEvaluationContext context = createContext();
+
+  private static StandardEvaluationContext createContext() {
+    StandardEvaluationContext ctx = new StandardEvaluationContext();
+    ctx.setPropertyAccessors(List.of(new MapAccessor(), new ReflectivePropertyAccessor()));
+    ctx.setMethodResolvers(List.of(new ReflectiveMethodResolver()));
+    return ctx;
+  }
+
+  /**
+   * 取得 (或解析並快取) 公式
+   */
+  public static Expression compile(String formula) {
+    return cache.computeIfAbsent(formula, parser::parseExpression);
+  }
+
+  /**
+   * 技能載入時預先解析所有公式，戰鬥中不再 parse
+   */
+  public static void precompile(SkillTemplate skill) {
+    if (skill.getMechanics() == null || skill.getMechanics().formulas() == null) {
+      return;
+    }
+
+    skill.getMechanics().formulas().forEach((name, formula) -> {
+      try {
+        compile(formula);
+      } catch (Exception e) {
+        log.error("公式解析失敗 skill:{} {}: [{}] {}", skill.getId(), name, formula, e.getMessage());
+      }
+    });
+  }
+
+  public static int getCachedCount() {
+    return cache.size();
+  }
 
   /**
    * 計算公式
@@ -29,34 +81,34 @@ public class FormulaEvaluator {
       return 0;
     }
 
-    try {
-      // 1. 建立我們的魔法 Map
-      PlayerSkillMap rootMap = new PlayerSkillMap(player);
-
-      // 2. 處理 'skill' (this)
-      // 將「當前這招技能」的等級放進去
-      // 這樣公式裡的 skill.level 就能讀到這招的等級
-      int currentSkillLv = player.getSkillLevel(currentSkill.getId());
-      rootMap.put("skill", new SkillContext(currentSkillLv));
+    // 將「當前這招技能」的等級放進去，這樣公式裡的 skill.level 就能讀到這招的等級
+    return evaluateInt(formula, player::getSkillLevel, player.getSkillLevel(currentSkill.getId()));
+  }
 
-      // 3. 處理 'Math'
-      // SpEL 預設要用 T(java.lang.Math).max(...) 很醜
-      // 我們直接把 Math 類別塞進去，讓公式可以直接寫 Math.max(...)
-      rootMap.put("Math", Math.class);
+  /**
+   * 計算公式
+   *
+   * @param formula 公式字串
+   * @param skillLevels 技能等級查詢 (公式裡的 wudang_force.level)
+   * @param currentSkillLevel 當前技能等級 (公式裡的 skill.level)
+   */
+  public static int evaluateInt(String formula, ToIntFunction<String> skillLevels,
+      int currentSkillLevel) {
+    if (formula == null || formula.isEmpty()) {
+      return 0;
+    }
 
-      // 4. 設定 Context
+    try {
       // 將 rootMap 設為 RootObject，這樣公式裡的變數會直接對應到 Map 的 key
-      StandardEvaluationContext context = new StandardEvaluationContext(rootMap);
+      PlayerSkillMap rootMap = new PlayerSkillMap(skillLevels, currentSkillLevel);
 
-      // 5. 解析並計算
       // SpEL 會自動轉型，我們預期結果是 Number
-      Double result = parser.parseExpression(formula).getValue(context, Double.class);
+      Double result = compile(formula).getValue(context, rootMap, Double.class);
 
       return result != null ? result.intValue() : 0;
 
     } catch (Exception e) {
-      // 建議用 Logger 記錄錯誤，這裡先印出
-      System.err.println("公式計算失敗 [" + formula + "]: " + e.getMessage());
+      log.error("公式計算失敗 [{}]: {}", formula, e.getMessage());
       return 0; // 發生錯誤時的回退值
     }
   }
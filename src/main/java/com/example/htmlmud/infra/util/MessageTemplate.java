@@ -0,0 +1,205 @@
+package com.example.htmlmud.infra.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import com.example.htmlmud.domain.model.config.MoveAction;
+import com.example.htmlmud.domain.model.config.MoveMessage;
+import com.example.htmlmud.domain.model.template.SkillTemplate;
+
+/**
+ * 預先編譯的訊息樣板
+ *
+ * 把 "$N用$W砍向$n的$l" 拆成 文字片段 + 插槽，渲染時依序填入 StringBuilder，不用 regex 也不產生中間字串。 技能招式的訊息在載入時編譯並快取；
+ * 其他動態文字 (例如說話內容) 用 {@link #render(String, String[])} 單次掃描，不進快取。
+ */
+public final class MessageTemplate {
+
+  // 插槽 (values 陣列的索引)
+  public static final int EXECUTOR = 0; // $N 做動作的人
+  public static final int TARGET = 1; // $n 對象
+  public static final int WEAPON = 2; // $W 做動作的人的武器
+  public static final int TARGET_WEAPON = 3; // $w 對象的武器
+  public static final int LIMB = 4; // $l 部位
+  public static final int DAMAGE = 5; // $d 傷害
+  public static final int SLOT_COUNT = 6;
+
+  private static final char[] TOKENS = {'N', 'n', 'W', 'w', 'l', 'd'};
+
+  public static final MessageTemplate EMPTY = new MessageTemplate(new String[] {""}, new int[0]);
+
+  // 技能訊息的快取 Key: 原始字串
+  private static final Map<String, MessageTemplate> cache = new ConcurrentHashMap<>();
+
+  // literals.length == slots.length + 1
+  private final String[] literals;
+  private final int[] slots;
+
+  private MessageTemplate(String[] literals, int[] slots) {
+    this.literals = literals;
+    this.slots = slots;
+  }
+
+  /**
+   * 取得 (或編譯並快取) 樣板，只給載入時就確定的文字使用 (技能招式訊息)
+   */
+  public static MessageTemplate of(String text) {
+    if (text == null || text.isEmpty()) {
+      return EMPTY;
+    }
+    return cache.computeIfAbsent(text, MessageTemplate::compile);
+  }
+
+  /**
+   * 技能載入時預先編譯所有招式訊息
+   */
+  public static void precompile(SkillTemplate skill) {
+    if (skill.getMoves() == null) {
+      return;
+    }
+
+    for (MoveAction move : skill.getMoves()) {
+      MoveMessage msg = move.msg();
+      if (msg == null) {
+        continue;
+      }
+      of(msg.cast());
+      of(msg.hit());
+      of(msg.crit());
+      of(msg.miss());
+    }
+  }
+
+  public static int getCachedCount() {
+    return cache.size();
+  }
+
+  public static MessageTemplate compile(String text) {
+    List<String> literals = new ArrayList<>();
+    int[] slots = new int[4];
+    int slotCount = 0;
+
+    int start = 0;
+    for (int i = 0; i < text.length() - 1; i++) {
+      if (text.charAt(i) != '$') {
+        continue;
+      }
+      int slot = slotOf(text.charAt(i + 1));
+      if (slot < 0) {
+        continue;
+      }
+      literals.add(text.substring(start, i));
+      if (slotCount == slots.length) {
+        slots = Arrays.copyOf(slots, slotCount * 2);
+      }
+      slots[slotCount++] = slot;
+      i++;
+      start = i + 1;
+    }
+    literals.add(text.substring(start));
+
+    return new MessageTemplate(literals.toArray(String[]::new), Arrays.copyOf(slots, slotCount));
+  }
+
+  private static int slotOf(char c) {
+    return switch (c) {
+      case 'N' -> EXECUTOR;
+      case 'n' -> TARGET;
+      case 'W' -> WEAPON;
+      case 'w' -> TARGET_WEAPON;
+      case 'l' -> LIMB;
+      case 'd' -> DAMAGE;
+      default -> -1;
+    };
+  }
+
+  /**
+   * 依序填入插槽
+   *
+   * @param values 以插槽常數為索引，null 代表保留原本的 $X (留給之後的階段替換)
+   */
+  public void appendTo(StringBuilder sb, String[] values) {
+    for (int i = 0; i < slots.length; i++) {
+      sb.append(literals[i]);
+      appendSlot(sb, slots[i], values);
+    }
+    sb.append(literals[slots.length]);
+  }
+
+  public String render(String[] values) {
+    if (slots.length == 0) {
+      return literals[0];
+    }
+    StringBuilder sb = new StringBuilder(64);
+    appendTo(sb, values);
+    return sb.toString();
+  }
+
+  public boolean isEmpty() {
+    return slots.length == 0 && literals[0].isEmpty();
+  }
+
+  /**
+   * 動態文字的單次掃描替換 (不編譯、不快取)
+   */
+  public static String render(String text, String[] values) {
+    if (text == null) {
+      return null;
+    }
+
+    StringBuilder sb = null;
+    int start = 0;
+    for (int i = 0; i < text.length() - 1; i++) {
+      if (text.charAt(i) != '$') {
+        continue;
+      }
+      int slot = slotOf(text.charAt(i + 1));
+      if (slot < 0 || values[slot] == null) {
+        continue;
+      }
+      if (sb == null) {
+        sb = new StringBuilder(text.length() + 16);
+      }
+      sb.append(text, start, i).append(values[slot]);
+      i++;
+      start = i + 1;
+    }
+
+    // 沒有任何插槽就直接回傳原字串
+    if (sb == null) {
+      return text;
+    }
+    return sb.append(text, start, text.length()).toString();
+  }
+
+  private static void appendSlot(StringBuilder sb, int slot, String[] values) {
+    String value = values[slot];
+    if (value != null) {
+      sb.append(value);
+    } else {
+      sb.append('$').append(TOKENS[slot]);
+    }
+  }
+
+  /**
+   * 戰鬥訊息的時間戳記 [秒.毫秒] (取代 String.format)
+   */
+  public static void appendTimestamp(StringBuilder sb, long nowMs) {
+    int sec = (int) ((nowMs / 1000) % 60);
+    int ms = (int) (nowMs % 1000);
+    sb.append('[');
+    if (sec < 10) {
+      sb.append('0');
+    }
+    sb.append(sec).append('.');
+    if (ms < 100) {
+      sb.append('0');
+    }
+    if (ms < 10) {
+      sb.append('0');
+    }
+    sb.append(ms).append("] ");
+  }
+}
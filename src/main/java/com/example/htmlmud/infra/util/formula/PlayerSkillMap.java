@@ -1,33 +1,41 @@
 package com.example.htmlmud.infra.util.formula;
 
-import java.util.HashMap;
-import com.example.htmlmud.domain.actor.impl.Player;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Set;
+import java.util.function.ToIntFunction;
 
 /**
  * 這是一個「動態」的 Map 它平時是空的，但當你跟它要 "wudang_force" 時， 它會立刻去 Player 身上查等級，並回傳一個 SkillContext
+ *
+ * 只有兩個欄位，不再繼承 HashMap 逐次 put，公式每次計算只配置這一個物件
  */
-public class PlayerSkillMap extends HashMap<String, Object> {
-  private final Player player;
-
-  public PlayerSkillMap(Player player) {
-    this.player = player;
+public class PlayerSkillMap extends AbstractMap<String, Object> {
+  // 查詢技能等級 (通常是 player::getSkillLevel)
+  private final ToIntFunction<String> skillLevels;
+  // 'skill' 代表當前這招技能
+  private final SkillContext skill;
+
+  public PlayerSkillMap(ToIntFunction<String> skillLevels, int currentSkillLevel) {
+    this.skillLevels = skillLevels;
+    this.skill = SkillContext.of(currentSkillLevel);
   }
 
   @Override
   public Object get(Object key) {
-    // 1. 如果 Map 裡原本就有這個 key (例如 "skill", "Math")，直接回傳
-    if (super.containsKey(key)) {
-      return super.get(key);
+    // 1. 保留字 "skill", "Math"
+    if ("skill".equals(key)) {
+      return skill;
+    }
+    // SpEL 預設要用 T(java.lang.Math).max(...) 很醜，讓公式可以直接寫 Math.max(...)
+    if ("Math".equals(key)) {
+      return Math.class;
     }
 
-    // 2. 如果沒有，我們假設這個 key 是一個 Skill ID (例如 "wudang_force")
-    String skillId = (String) key;
-
+    // 2. 其他的我們假設這個 key 是一個 Skill ID (例如 "wudang_force")
     // 3. 去 Player 身上查等級 (如果沒學過，通常回傳 0)
-    int level = player.getSkillLevel(skillId);
-
     // 4. 包裝成 Wrapper 回傳，這樣 SpEL 就能繼續呼叫 .level
-    return new SkillContext(level);
+    return SkillContext.of(skillLevels.applyAsInt((String) key));
   }
 
   // 騙 SpEL 說我們什麼 Key 都有，誘發它呼叫 get()
@@ -35,4 +43,9 @@ public class PlayerSkillMap extends HashMap<String, Object> {
   public boolean containsKey(Object key) {
     return true;
   }
+
+  @Override
+  public Set<Entry<String, Object>> entrySet() {
+    return Collections.emptySet();
+  }
 }
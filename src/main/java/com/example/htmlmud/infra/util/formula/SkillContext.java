@@ -4,12 +4,25 @@ package com.example.htmlmud.infra.util.formula;
  * 這就是那個 Wrapper 用途：讓 SpEL 可以用 object.level 這種語法來呼叫 getLevel()
  */
 public class SkillContext {
+  // 常用等級預先建好，公式計算時不用每次 new
+  private static final int CACHED_LEVELS = 1024;
+  private static final SkillContext[] CACHE = new SkillContext[CACHED_LEVELS];
+  static {
+    for (int i = 0; i < CACHED_LEVELS; i++) {
+      CACHE[i] = new SkillContext(i);
+    }
+  }
+
   private final int level;
 
   public SkillContext(int level) {
     this.level = level;
   }
 
+  public static SkillContext of(int level) {
+    return (level >= 0 && level < CACHED_LEVELS) ? CACHE[level] : new SkillContext(level);
+  }
+
   // SpEL 看到 .level 會自動呼叫這個 getter
   public int getLevel() {
     return level;
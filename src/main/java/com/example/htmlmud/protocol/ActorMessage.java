@@ -1,6 +1,6 @@
 package com.example.htmlmud.protocol;
 
-import java.util.Optional;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import com.example.htmlmud.domain.actor.impl.Living;
 import com.example.htmlmud.domain.actor.impl.Player;
@@ -13,8 +13,8 @@ public sealed interface ActorMessage
 
 
 
-  sealed interface LivingMessage extends ActorMessage permits Tick, OnAttacked, OnDamage, onDeath,
-      onHeal, Say, BuffEffect, Equip, Unequip, OnMessage, LookAtMe {
+  sealed interface LivingMessage extends ActorMessage permits Tick, OnAttacked, OnDamage,
+      OnBatchDamage, onDeath, onHeal, Say, BuffEffect, Equip, Unequip, OnMessage, LookAtMe {
   }
   /**
    * 心跳訊息
@@ -28,6 +28,13 @@ public sealed interface ActorMessage
   }
   record OnDamage(int amount, String attackerId) implements LivingMessage {
   }
+  /**
+   * 房間批次結算後的傷害，一個 tick 內同一目標只會收到一則
+   *
+   * @param damageByAttacker 依出手順序排列的 攻擊者ID -> 累計傷害
+   */
+  record OnBatchDamage(Map<String, Integer> damageByAttacker) implements LivingMessage {
+  }
   record onDeath(String killerId) implements LivingMessage {
   }
   record onHeal(int amount) implements LivingMessage {
@@ -48,7 +55,7 @@ public sealed interface ActorMessage
 
 
   sealed interface PlayerMessage extends ActorMessage permits Command, SendText, GainExp, SaveData,
-      QuestUpdate, Reconnect, Disconnect, SendStatUpdate, Relive {
+      QuestUpdate, Reconnect, Disconnect, SendStatUpdate, Relive, ReaperTimeout, SendFrame {
   }
   record Command(String traceId, GameCommand command) implements PlayerMessage {
   }
@@ -68,11 +75,25 @@ public sealed interface ActorMessage
   }
   record Relive() implements PlayerMessage {
   }
+  /**
+   * 斷線緩衝時間到期 (由 TimerService 投遞)
+   *
+   * @param disconnectTimestamp 觸發這個計時器的那一次斷線時間
+   */
+  record ReaperTimeout(long disconnectTimestamp) implements PlayerMessage {
+  }
+  /**
+   * 已經序列化好的 JSON frame (房間廣播共用同一份字串)
+   *
+   * @param kind 分類 (旁觀的戰鬥訊息在連線變慢時可以丟棄)
+   */
+  record SendFrame(String json, FrameKind kind) implements PlayerMessage {
+  }
 
 
 
   sealed interface MobMessage extends ActorMessage permits OnPlayerEnter, OnPlayerFlee, OnInteract,
-      GetHighestAggroTarget, AgroScan, RandomMove, Respawn {
+      AgroScan, RandomMove, Respawn {
   }
   record OnPlayerEnter(String playerId) implements MobMessage {
   }
@@ -80,8 +101,6 @@ public sealed interface ActorMessage
   }
   record OnInteract(String playerId, String command) implements MobMessage {
   }
-  record GetHighestAggroTarget(CompletableFuture<Optional<Living>> future) implements MobMessage {
-  }
   // scanForEnemies
   record AgroScan() implements MobMessage {
   }
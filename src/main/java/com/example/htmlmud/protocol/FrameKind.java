@@ -0,0 +1,17 @@
+package com.example.htmlmud.protocol;
+
+/**
+ * 輸出訊息的分類，連線變慢時依此決定哪些可以丟棄或合併
+ */
+public enum FrameKind {
+
+  // 一般訊息，不會被丟棄
+  NORMAL,
+
+  // 旁觀的戰鬥訊息 (自己不是出手者也不是目標)，第一級降級時丟棄
+  SPECTATOR,
+
+  // 狀態列更新，第二級降級時只保留最新一筆
+  STAT_UPDATE
+
+}
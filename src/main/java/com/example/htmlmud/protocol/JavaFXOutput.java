@@ -28,6 +28,11 @@ public class JavaFXOutput implements MessageOutput {
     }
   }
 
+  @Override
+  public void sendSerialized(String json) {
+    MudGuiLauncher.executeJavaScript("handleServerMessage(" + json + ")");
+  }
+
   @Override
   public void close() {}
 
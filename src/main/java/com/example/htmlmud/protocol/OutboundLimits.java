@@ -0,0 +1,26 @@
+package com.example.htmlmud.protocol;
+
+/**
+ * 每個連線的輸出限制 (慢速客戶端保護)
+ *
+ * @param capacity 輸出佇列上限，滿了就視為無法跟上，強制斷線
+ * @param degradeDepth 佇列深度到達此值時開始丟棄旁觀的戰鬥訊息
+ * @param collapseDepth 佇列深度到達此值時 STAT_UPDATE 只保留最新一筆
+ * @param sendTimeLimitMs 單次寫入超過此時間視為無法跟上，強制斷線
+ */
+public record OutboundLimits(int capacity, int degradeDepth, int collapseDepth,
+    long sendTimeLimitMs) {
+
+  private static final int DEFAULT_CAPACITY = 1024;
+
+  public static final OutboundLimits DEFAULT =
+      new OutboundLimits(DEFAULT_CAPACITY, DEFAULT_CAPACITY / 4, DEFAULT_CAPACITY / 2, 5000);
+
+  public OutboundLimits {
+    if (capacity <= 0) {
+      capacity = DEFAULT_CAPACITY;
+    }
+    degradeDepth = Math.min(Math.max(degradeDepth, 1), capacity);
+    collapseDepth = Math.min(Math.max(collapseDepth, degradeDepth), capacity);
+  }
+}
@@ -2,11 +2,15 @@ package com.example.htmlmud.protocol;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 import com.example.htmlmud.domain.actor.impl.Living;
 import com.example.htmlmud.domain.actor.impl.Mob;
 import com.example.htmlmud.domain.actor.impl.Player;
 import com.example.htmlmud.domain.model.entity.GameItem;
+import com.example.htmlmud.domain.model.entity.RoomDormantState;
 import com.example.htmlmud.domain.model.enums.Direction;
 
 /**
@@ -17,7 +21,9 @@ public sealed interface RoomMessage permits RoomMessage.Enter, RoomMessage.Leave
     RoomMessage.BroadcastJson, RoomMessage.BroadcastToOthers, RoomMessage.FindLiving,
     RoomMessage.GetLivings, RoomMessage.GetPlayers, RoomMessage.GetMobs, RoomMessage.Record,
     RoomMessage.RemovePlayer, RoomMessage.RemoveMob, RoomMessage.GetItems, RoomMessage.RemoveItem,
-    RoomMessage.DropItem, RoomMessage.LookAtRoom, RoomMessage.LookDirection {
+    RoomMessage.DropItem, RoomMessage.LookAtRoom, RoomMessage.LookDirection,
+    RoomMessage.CombatHit, RoomMessage.ResolveCombat, RoomMessage.Passivate,
+    RoomMessage.ItemsLoaded {
 
   record Tick(long tickCount, long timestamp) implements RoomMessage {
   }
@@ -65,7 +71,13 @@ public sealed interface RoomMessage permits RoomMessage.Enter, RoomMessage.Leave
   record Broadcast(String sourceId, String targetId, String message) implements RoomMessage {
   }
 
-  record BroadcastJson(MudMessage<Object> message) implements RoomMessage {
+  /**
+   * 合併後的 JSON 廣播
+   *
+   * @param participants 訊息裡牽涉到的生物 ID (其他玩家收到的是旁觀訊息)
+   */
+  record BroadcastJson(MudMessage<Object> message, Set<String> participants)
+      implements RoomMessage {
   }
 
   record BroadcastToOthers(String sourceId, String message) implements RoomMessage {
@@ -107,7 +119,49 @@ public sealed interface RoomMessage permits RoomMessage.Enter, RoomMessage.Leave
 
 
 
+  /**
+   * 戰鬥批次模式下的一次攻擊結果，先暫存在房間，等 ResolveCombat 一起結算
+   *
+   * @param attacker 出手者
+   * @param target 目標
+   * @param damage 傷害 (<= 0 代表未命中)
+   * @param views 已渲染好的三種視角戰鬥訊息 (MessageUtil.perspectives)
+   */
+  record CombatHit(Living attacker, Living target, int damage, Map<String, Object> views)
+      implements RoomMessage {
+  }
+
+  /**
+   * 結算這個 tick 累積的所有攻擊 (由 CombatService 每個 tick 送出)
+   */
+  record ResolveCombat() implements RoomMessage {
+  }
+
   record Record() implements RoomMessage {
   }
 
+  /**
+   * 區域休眠：房間把物品與怪物存成快照，停止房間內的怪物並清空內容
+   *
+   * 回覆 empty 代表房間拒絕休眠 (還有玩家、或存檔的物品還沒讀回來)，失敗時以例外結束。
+   * 房間開始處理前與發送端撤回前都要先 claim()，只有先搶到的一方成功：發送端撤回成功後房間就不會再處理這則訊息。
+   */
+  record Passivate(AtomicBoolean claimed, CompletableFuture<Optional<RoomDormantState>> future)
+      implements RoomMessage {
+
+    public Passivate() {
+      this(new AtomicBoolean(), new CompletableFuture<>());
+    }
+
+    public boolean claim() {
+      return claimed.compareAndSet(false, true);
+    }
+  }
+
+  /**
+   * 房間第一次啟動時，存檔的地上物品讀取完成 (empty 代表從沒存過，改依 spawn rule 產生)
+   */
+  record ItemsLoaded(Optional<List<GameItem>> saved) implements RoomMessage {
+  }
+
 }
@@ -1,34 +1,274 @@
 package com.example.htmlmud.protocol;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import com.example.htmlmud.domain.actor.core.MessageOutput;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * WebSocket 輸出
+ *
+ * Actor 只負責把訊息放進有上限的佇列，真正寫入 session 的是每個連線專屬的 writer (Virtual Thread)。 writer 會把短時間內累積的訊息合併成一個
+ * JSON 陣列送出，慢的客戶端不會卡住 Player Actor。
+ *
+ * 慢速客戶端的處理 (依佇列深度)：
+ * <ol>
+ * <li>degradeDepth：丟棄旁觀的戰鬥訊息</li>
+ * <li>collapseDepth：STAT_UPDATE 只保留最新一筆</li>
+ * <li>佇列滿了或單次寫入超過 sendTimeLimitMs：以 SESSION_NOT_RELIABLE 關閉連線，交給 LINK_DEAD / 死神計時器流程</li>
+ * </ol>
+ */
 @Slf4j
 public class WebSocketOutput implements MessageOutput {
+  // 收到第一則訊息後等待的合併窗口
+  private static final long FLUSH_WINDOW_MS = 20;
+  // 單一 frame 最多合併的訊息數
+  private static final int MAX_BATCH = 256;
+  // writer 閒置時多久檢查一次被合併的 STAT_UPDATE
+  private static final long IDLE_POLL_MS = 1000;
+
+  // 由 WebSocketConfig 在啟動時設定
+  private static volatile OutboundLimits limits = OutboundLimits.DEFAULT;
+
+  // 全部連線的統計
+  private static final AtomicInteger degradedSessions = new AtomicInteger();
+  private static final LongAdder degradeEvents = new LongAdder();
+  private static final LongAdder evictedSessions = new LongAdder();
+  private static final LongAdder droppedFrames = new LongAdder();
+
   private final WebSocketSession session;
   private final ObjectMapper objectMapper;
+  private final OutboundLimits sessionLimits;
+
+  private final BlockingQueue<String> outbound;
+  // 第二級降級時，只保留最新的 STAT_UPDATE，由 writer 附在下一個 frame 後面
+  private final AtomicReference<String> pendingStat = new AtomicReference<>();
+  private final Thread writer;
+  private volatile boolean closed = false;
+  private volatile boolean evicted = false;
+  private volatile boolean degraded = false;
+  // writer 目前這次寫入的開始時間 (0 代表沒有在寫)
+  private volatile long sendStartedAt = 0;
+
+  // 統計
+  private final LongAdder bytesWritten = new LongAdder();
+  private final LongAdder framesWritten = new LongAdder();
+  private final LongAdder droppedMessages = new LongAdder();
 
   public WebSocketOutput(WebSocketSession session, ObjectMapper objectMapper) {
     this.session = session;
     this.objectMapper = objectMapper;
+    this.sessionLimits = limits;
+    this.outbound = new ArrayBlockingQueue<>(sessionLimits.capacity());
+    this.writer = Thread.ofVirtual().name("ws-writer-" + session.getId()).start(this::writeLoop);
+  }
+
+  public static void setLimits(OutboundLimits newLimits) {
+    limits = newLimits;
+  }
+
+  public static OutboundLimits getLimits() {
+    return limits;
   }
 
   @Override
   public void sendJson(Object payload) {
+    FrameKind kind = (payload instanceof Map<?, ?> map && "STAT_UPDATE".equals(map.get("type")))
+        ? FrameKind.STAT_UPDATE
+        : FrameKind.NORMAL;
     try {
-      session.sendMessage(new TextMessage(objectMapper.writeValueAsString(payload)));
-    } catch (IOException e) {
+      enqueue(objectMapper.writeValueAsString(payload), kind);
+    } catch (JsonProcessingException e) {
       log.error("sendJson {}", e.getMessage(), e);
     }
   }
 
   @Override
-  public void close() {
-    if (session == null || !session.isOpen()) {
+  public void sendSerialized(String json) {
+    enqueue(json, FrameKind.NORMAL);
+  }
+
+  @Override
+  public void sendSerialized(String json, FrameKind kind) {
+    enqueue(json, kind);
+  }
+
+  private void enqueue(String json, FrameKind kind) {
+    if (closed) {
+      return;
+    }
+
+    // 上一次寫入卡太久，客戶端已經跟不上了
+    long started = sendStartedAt;
+    if (started != 0 && System.currentTimeMillis() - started > sessionLimits.sendTimeLimitMs()) {
+      evict("寫入逾時 " + (System.currentTimeMillis() - started) + "ms");
+      return;
+    }
+
+    int depth = outbound.size();
+    updateDegraded(depth);
+
+    // 第一級：丟棄旁觀的戰鬥訊息
+    if (kind == FrameKind.SPECTATOR && depth >= sessionLimits.degradeDepth()) {
+      dropped();
+      return;
+    }
+
+    // 第二級：STAT_UPDATE 只保留最新一筆
+    if (kind == FrameKind.STAT_UPDATE && depth >= sessionLimits.collapseDepth()) {
+      if (pendingStat.getAndSet(json) != null) {
+        dropped();
+      }
+      return;
+    }
+
+    // 最後：佇列滿了，強制斷線
+    if (!outbound.offer(json)) {
+      evict("輸出佇列已滿 depth:" + depth);
+    }
+  }
+
+  private void dropped() {
+    droppedMessages.increment();
+    droppedFrames.increment();
+  }
+
+  // Actor 與 writer 都會呼叫
+  private synchronized void updateDegraded(int depth) {
+    boolean nowDegraded = depth >= sessionLimits.degradeDepth();
+    if (closed || nowDegraded == degraded) {
+      return;
+    }
+    degraded = nowDegraded;
+    if (nowDegraded) {
+      degradedSessions.incrementAndGet();
+      degradeEvents.increment();
+      log.warn("連線變慢，開始降級 session:{} depth:{}", session.getId(), depth);
+    } else {
+      degradedSessions.decrementAndGet();
+      log.info("連線恢復 session:{}", session.getId());
+    }
+  }
+
+  /**
+   * 強制斷線：關閉後 MudWebSocketHandler 會通知 Actor 斷線，正式玩家進入 LINK_DEAD 並排入死神計時器
+   */
+  private void evict(String reason) {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    evicted = true;
+    evictedSessions.increment();
+    clearDegraded();
+    log.warn("慢速客戶端，強制斷線 session:{} 原因:{}", session.getId(), reason);
+
+    outbound.clear();
+    writer.interrupt();
+    // 不在 Actor 的執行緒上關閉 (寫入卡住時 close 也可能卡住)
+    Thread.ofVirtual().name("ws-evict-" + session.getId()).start(() -> {
+      try {
+        session.close(CloseStatus.SESSION_NOT_RELIABLE);
+      } catch (IOException e) {
+        log.error("WebSocketOutput evict {}", e.getMessage(), e);
+      }
+    });
+  }
+
+  private synchronized void clearDegraded() {
+    if (degraded) {
+      degraded = false;
+      degradedSessions.decrementAndGet();
+    }
+  }
+
+  // --- writer ---------------------------------------------------------------------------------
+
+  private void writeLoop() {
+    List<String> batch = new ArrayList<>(MAX_BATCH);
+    try {
+      while (!closed && session.isOpen()) {
+        String first = outbound.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS);
+        if (first != null) {
+          batch.add(first);
+
+          // 等一個很短的窗口，讓同一回合產生的訊息一起出去
+          Thread.sleep(FLUSH_WINDOW_MS);
+          outbound.drainTo(batch, MAX_BATCH - 1);
+        }
+
+        String stat = pendingStat.getAndSet(null);
+        if (stat != null) {
+          batch.add(stat);
+        }
+
+        write(batch);
+        batch.clear();
+        updateDegraded(outbound.size());
+      }
+    } catch (InterruptedException e) {
+      // close() 觸發：把還在佇列裡的訊息盡量送完 (被強制斷線時就不送了)
+      if (!evicted) {
+        outbound.drainTo(batch);
+        write(batch);
+      }
+    }
+    // 強制斷線由 evict 以 SESSION_NOT_RELIABLE 關閉
+    if (!evicted) {
+      closeSession();
+    }
+  }
+
+  private void write(List<String> batch) {
+    if (batch.isEmpty() || !session.isOpen()) {
+      return;
+    }
+
+    String payload;
+    if (batch.size() == 1) {
+      payload = batch.get(0);
+    } else {
+      // 多則訊息合併成一個 JSON 陣列
+      StringBuilder sb = new StringBuilder();
+      sb.append('[');
+      for (int i = 0; i < batch.size(); i++) {
+        if (i > 0) {
+          sb.append(',');
+        }
+        sb.append(batch.get(i));
+      }
+      sb.append(']');
+      payload = sb.toString();
+    }
+
+    try {
+      TextMessage message = new TextMessage(payload);
+      sendStartedAt = System.currentTimeMillis();
+      session.sendMessage(message);
+      bytesWritten.add(message.getPayloadLength());
+      framesWritten.increment();
+    } catch (IOException | IllegalStateException e) {
+      log.error("WebSocketOutput write {}", e.getMessage(), e);
+    } finally {
+      sendStartedAt = 0;
+    }
+  }
+
+  private void closeSession() {
+    if (!session.isOpen()) {
       return;
     }
 
@@ -39,8 +279,61 @@ public class WebSocketOutput implements MessageOutput {
     }
   }
 
+  // ---------------------------------------------------------------------------------------------
+
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    clearDegraded();
+    // writer 送完剩下的訊息後會關閉 session
+    writer.interrupt();
+  }
+
   @Override
   public WebSocketSession getSession() {
     return session;
   }
+
+  @Override
+  public int getQueueDepth() {
+    return outbound.size();
+  }
+
+  @Override
+  public long getBytesWritten() {
+    return bytesWritten.sum();
+  }
+
+  public long getFramesWritten() {
+    return framesWritten.sum();
+  }
+
+  public long getDroppedMessages() {
+    return droppedMessages.sum();
+  }
+
+  public boolean isDegraded() {
+    return degraded;
+  }
+
+  // 目前處於降級狀態的連線數
+  public static int getDegradedSessions() {
+    return degradedSessions.get();
+  }
+
+  // 累計進入降級的次數
+  public static long getDegradeEvents() {
+    return degradeEvents.sum();
+  }
+
+  public static long getEvictedSessions() {
+    return evictedSessions.sum();
+  }
+
+  public static long getDroppedFrames() {
+    return droppedFrames.sum();
+  }
 }
@@ -5,11 +5,17 @@ ansi_up.use_classes = false;
 const logDiv = document.getElementById('log');
 const cmdInput = document.getElementById('cmd-input');
 
+// 自己的角色 ID (由 STAT_UPDATE 帶入)，用來在合併廣播中挑選自己的視角
+let myId = null;
+
 /**
  * 更新血量與魔力條
  */
 function updateStats(s) {
     const payload = s.payload || s;
+    if (payload.id !== undefined) {
+        myId = payload.id;
+    }
     if (payload.hp !== undefined) {
         const hpMax = payload.maxHp || 100;
         document.getElementById('hp-val').innerText = `${payload.hp}/${hpMax}`;
@@ -67,6 +73,29 @@ function handleCorpseDetail(json) {
   appendHtml("\n");
 }
 
+/**
+ * 處理房間合併廣播 (每 100ms 一包)
+ */
+function handleBatchedUpdate(payload) {
+    if (!payload) return;
+    // 戰鬥訊息：依自己是出手者、對象或旁觀者挑選對應的文字
+    (payload.combat || []).forEach(c => {
+        let text = c.text;
+        if (myId && c.actorId === myId) {
+            text = c.actorText;
+        } else if (myId && c.targetId === myId) {
+            text = c.targetText;
+        }
+        appendHtml(text);
+    });
+    // 狀態變化：目前只更新自己的狀態列
+    (payload.status || []).forEach(s => {
+        if (myId && s.id === myId) {
+            updateStats({ hp: s.hp, maxHp: s.maxHp });
+        }
+    });
+}
+
 /**
  * 統一的訊息分配器 (Dispatcher)
  */
@@ -82,7 +111,15 @@ function handleServerMessage(data) {
     }
 //    console.log(data.type);
 
-    if (data.type === 'TEXT' || data.content) {
+    // 伺服器會把短時間內的多則訊息合併成一個陣列
+    if (Array.isArray(data)) {
+        data.forEach(handleServerMessage);
+        return;
+    }
+
+    if (data.type === 'BATCHED_UPDATE') {
+        handleBatchedUpdate(data.payload);
+    } else if (data.type === 'TEXT' || data.content) {
         appendHtml(data.content || data.text);
     } else if (data.type === 'STAT_UPDATE' || data.type === 'stats' || data.hp !== undefined) {
         updateStats(data);
@@ -0,0 +1,110 @@
+package com.example.htmlmud.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import com.example.htmlmud.infra.util.MessageTemplate;
+import com.example.htmlmud.protocol.util.ColorText;
+
+/**
+ * 一行完整的戰鬥訊息 (出招 + 命中 + 時間戳記) 送給房間內的旁觀者
+ *
+ * legacy：原本 CombineString + replace("$d") + String.format 時間戳記，再對每個接收者 replace $N/$n<br>
+ * compiled：技能載入時編譯好的樣板，三種視角各渲染一次 (旁觀者共用)
+ *
+ * 執行方式：mvn test-compile 後直接跑 main()
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CombatMessageBenchmark {
+
+  private static final String CAST = "$N手中$W一抖，劍尖化作點點寒星，刺向$n的$l。";
+  private static final String HIT = "$n躲閃不及，被$N擊中，受到 $d 傷害！";
+
+  @Param({"30"})
+  public int spectators;
+
+  private String[] receivers;
+  private MessageTemplate cast;
+  private MessageTemplate hit;
+  private final StringBuilder sb = new StringBuilder(128);
+
+  @Setup
+  public void setup() {
+    receivers = new String[spectators + 2];
+    receivers[0] = "attacker";
+    receivers[1] = "target";
+    for (int i = 0; i < spectators; i++) {
+      receivers[i + 2] = "spectator" + i;
+    }
+    // 模擬技能載入時的預先編譯
+    cast = MessageTemplate.of(CAST);
+    hit = MessageTemplate.of(HIT);
+  }
+
+  @Benchmark
+  public void legacy(Blackhole bh) {
+    String msg = CAST + "\r\n" + HIT;
+    msg = msg.replace("$l", "左臂").replace("$W", "長劍").replace("$w", "");
+    msg = msg.replace("$d", ColorText.damage(42));
+    long nowMs = System.currentTimeMillis();
+    msg = String.format("[%02d.%03d] ", (nowMs / 1000) % 60, nowMs % 1000) + msg;
+
+    for (String receiver : receivers) {
+      String executorNoun = receiver.equals("attacker") ? "你" : "張三";
+      String targetNoun = receiver.equals("target") ? "你" : "野狼";
+      bh.consume(msg.replace("$N", executorNoun).replace("$n", targetNoun));
+    }
+  }
+
+  @Benchmark
+  public void compiled(Blackhole bh) {
+    String[] values = new String[MessageTemplate.SLOT_COUNT];
+    values[MessageTemplate.WEAPON] = "長劍";
+    values[MessageTemplate.TARGET_WEAPON] = "";
+    values[MessageTemplate.LIMB] = "左臂";
+    values[MessageTemplate.DAMAGE] = ColorText.damage(42);
+    long nowMs = System.currentTimeMillis();
+
+    // 出手者、對象、旁觀者三種視角，旁觀者共用同一份
+    bh.consume(render(nowMs, values, "你", "野狼"));
+    bh.consume(render(nowMs, values, "張三", "你"));
+    String others = render(nowMs, values, "張三", "野狼");
+    for (int i = 0; i < spectators; i++) {
+      bh.consume(others);
+    }
+  }
+
+  private String render(long nowMs, String[] values, String executor, String target) {
+    values[MessageTemplate.EXECUTOR] = executor;
+    values[MessageTemplate.TARGET] = target;
+    sb.setLength(0);
+    MessageTemplate.appendTimestamp(sb, nowMs);
+    cast.appendTo(sb, values);
+    sb.append("\r\n");
+    hit.appendTo(sb, values);
+    return sb.toString();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(CombatMessageBenchmark.class.getSimpleName()).build())
+        .run();
+  }
+}
@@ -0,0 +1,99 @@
+package com.example.htmlmud.bench;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import com.example.htmlmud.infra.util.FormulaEvaluator;
+import com.example.htmlmud.infra.util.formula.SkillContext;
+
+/**
+ * 技能公式計算：原本每次 parse + new Context vs 快取並編譯後的公式
+ *
+ * 公式取自技能 JSON 的 chargeRegen / maxComboCount。執行方式：mvn test-compile 後直接跑 main()
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FormulaBenchmark {
+
+  private static final ExpressionParser legacyParser = new SpelExpressionParser();
+
+  @Param({"2 + (wudang_force.level * 0.5)", "Math.max(0, (skill.level / 10) - 2)"})
+  public String formula;
+
+  private final Map<String, Integer> levels = Map.of("wudang_force", 80, "basic_sword", 55);
+
+  private ToIntFunction<String> skillLevels;
+
+  @Setup
+  public void setup() {
+    skillLevels = id -> levels.getOrDefault(id, 0);
+    // 模擬技能載入時的預先解析
+    FormulaEvaluator.compile(formula);
+  }
+
+  /**
+   * 原本的做法 (FormulaEvaluator 改寫前)
+   */
+  @Benchmark
+  public int legacy() {
+    LegacySkillMap rootMap = new LegacySkillMap(skillLevels);
+    rootMap.put("skill", new SkillContext(55));
+    rootMap.put("Math", Math.class);
+    StandardEvaluationContext context = new StandardEvaluationContext(rootMap);
+    Double result = legacyParser.parseExpression(formula).getValue(context, Double.class);
+    return result != null ? result.intValue() : 0;
+  }
+
+  @Benchmark
+  public int cached() {
+    return FormulaEvaluator.evaluateInt(formula, skillLevels, 55);
+  }
+
+  // 原本的 PlayerSkillMap (繼承 HashMap，每次計算都要 put)
+  private static class LegacySkillMap extends HashMap<String, Object> {
+    private final transient ToIntFunction<String> skillLevels;
+
+    LegacySkillMap(ToIntFunction<String> skillLevels) {
+      this.skillLevels = skillLevels;
+    }
+
+    @Override
+    public Object get(Object key) {
+      if (super.containsKey(key)) {
+        return super.get(key);
+      }
+      return new SkillContext(skillLevels.applyAsInt((String) key));
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return true;
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(FormulaBenchmark.class.getSimpleName()).build()).run();
+  }
+}
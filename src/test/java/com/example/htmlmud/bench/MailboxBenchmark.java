@@ -0,0 +1,130 @@
+package com.example.htmlmud.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import com.example.htmlmud.domain.actor.core.LinkedMailbox;
+import com.example.htmlmud.domain.actor.core.Mailbox;
+import com.example.htmlmud.domain.actor.core.MpscArrayMailbox;
+import com.example.htmlmud.domain.actor.core.OverflowPolicy;
+
+/**
+ * 信箱吞吐量比較：原本的 LinkedBlockingQueue vs MPSC 陣列信箱，1 / 8 / 64 個生產者對 1 個消費者
+ *
+ * 執行方式：mvn test-compile 後直接跑 main()
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MailboxBenchmark {
+
+  // 兩種信箱都用同樣的上限做背壓，避免無上限的 queue 在量測中無限長大
+  private static final int CAPACITY = 8192;
+
+  private static final Object MESSAGE = new Object();
+
+  @Param({"linked", "mpsc"})
+  public String type;
+
+  private Mailbox<Object> mailbox;
+
+  @Setup(Level.Iteration)
+  public void setup() {
+    mailbox = switch (type) {
+      case "linked" -> new LinkedMailbox<>();
+      case "mpsc" -> new MpscArrayMailbox<>(CAPACITY, OverflowPolicy.REJECT);
+      default -> throw new IllegalArgumentException(type);
+    };
+  }
+
+  private void produce() {
+    while (mailbox.size() >= CAPACITY || !mailbox.offer(MESSAGE)) {
+      Thread.onSpinWait();
+    }
+  }
+
+  private void consume(Blackhole bh) {
+    Object msg = mailbox.poll();
+    if (msg == null) {
+      Thread.onSpinWait();
+    }
+    bh.consume(msg);
+  }
+
+  // -----------------------------------------------------------------------------
+  // 1 producer
+  // -----------------------------------------------------------------------------
+
+  @Benchmark
+  @Group("p1")
+  @GroupThreads(1)
+  public void p1Offer() {
+    produce();
+  }
+
+  @Benchmark
+  @Group("p1")
+  @GroupThreads(1)
+  public void p1Poll(Blackhole bh) {
+    consume(bh);
+  }
+
+  // -----------------------------------------------------------------------------
+  // 8 producers
+  // -----------------------------------------------------------------------------
+
+  @Benchmark
+  @Group("p8")
+  @GroupThreads(8)
+  public void p8Offer() {
+    produce();
+  }
+
+  @Benchmark
+  @Group("p8")
+  @GroupThreads(1)
+  public void p8Poll(Blackhole bh) {
+    consume(bh);
+  }
+
+  // -----------------------------------------------------------------------------
+  // 64 producers
+  // -----------------------------------------------------------------------------
+
+  @Benchmark
+  @Group("p64")
+  @GroupThreads(64)
+  public void p64Offer() {
+    produce();
+  }
+
+  @Benchmark
+  @Group("p64")
+  @GroupThreads(1)
+  public void p64Poll(Blackhole bh) {
+    consume(bh);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(MailboxBenchmark.class.getSimpleName()).build()).run();
+  }
+}
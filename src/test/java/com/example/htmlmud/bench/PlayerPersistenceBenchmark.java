@@ -0,0 +1,143 @@
+package com.example.htmlmud.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import com.example.htmlmud.HtmlmudApplication;
+import com.example.htmlmud.domain.model.entity.GameItem;
+import com.example.htmlmud.domain.model.entity.LivingStats;
+import com.example.htmlmud.domain.model.entity.PlayerRecord;
+import com.example.htmlmud.infra.persistence.entity.CharacterEntity;
+import com.example.htmlmud.infra.persistence.repository.CharacterRepository;
+import com.example.htmlmud.infra.persistence.service.PlayerPersistenceService;
+
+/**
+ * 玩家存檔一次 flush：JDBC batch update (內容沒變就跳過) vs 原本的 JPA findById + save
+ *
+ * 用專案的 H2 (檔案模式，放在暫存目錄) 啟動完整的 Spring Context，每次 flush 寫入 players 位玩家，
+ * 其中 changed 比例的玩家狀態有變動。rows/s = players / 每次 flush 的時間；每次 flush 的位元組數在 tearDown 時由
+ * PlayerPersistenceService.logStats() 印出。 執行方式：mvn test-compile 後直接跑 main()
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlayerPersistenceBenchmark {
+
+  @Param({"JDBC", "JPA"})
+  public String mode;
+
+  @Param({"500"})
+  public int players;
+
+  // 每次 flush 有變動的玩家比例
+  @Param({"1.0", "0.1"})
+  public double changed;
+
+  private Path dir;
+  private ConfigurableApplicationContext context;
+  private PlayerPersistenceService service;
+  private List<PlayerRecord> records;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    dir = Files.createTempDirectory("persistence-bench");
+    context = new SpringApplicationBuilder(HtmlmudApplication.class)
+        .properties("server.port=0", "spring.h2.console.enabled=false",
+            "spring.datasource.url=jdbc:h2:file:" + dir.resolve("muddb").toAbsolutePath()
+                + ";DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE",
+            "mud.world.image.enabled=false", "mud.persistence.player.mode=" + mode,
+            "mud.persistence.player.journal.path=" + dir.resolve("player.journal"),
+            "logging.level.root=WARN",
+            "logging.level.com.example.htmlmud.infra.persistence.service=INFO")
+        .run();
+    service = context.getBean(PlayerPersistenceService.class);
+
+    CharacterRepository repository = context.getBean(CharacterRepository.class);
+    List<CharacterEntity> entities = new ArrayList<>(players);
+    for (int i = 0; i < players; i++) {
+      entities.add(CharacterEntity.builder().uid("bench").name("bench" + i).stats(new LivingStats())
+          .inventory(inventory(i)).build());
+    }
+    records = new ArrayList<>(players);
+    for (CharacterEntity entity : repository.saveAll(entities)) {
+      records.add(new PlayerRecord(entity.getId(), entity.getName(), null,
+          "newbie_village:square", entity.getStats(), entity.getInventory()));
+    }
+  }
+
+  private static List<GameItem> inventory(int seed) {
+    List<GameItem> items = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      GameItem item = new GameItem();
+      item.setId("item-" + seed + "-" + i);
+      item.setName("物品" + i);
+      item.setDescription("一件普通的物品。");
+      item.setAmount(1);
+      item.setMaxDurability(100);
+      item.setCurrentDurability(100);
+      items.add(item);
+    }
+    return items;
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    service.logStats();
+    context.close();
+    try (Stream<Path> files = Files.walk(dir)) {
+      files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+    }
+  }
+
+  @Benchmark
+  public void flush() {
+    List<PlayerRecord> batch = new ArrayList<>(players);
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    for (int i = 0; i < players; i++) {
+      PlayerRecord rec = records.get(i);
+      if (random.nextDouble() < changed) {
+        // 與 Player.toRecord() 相同，存檔用的是狀態的複本
+        LivingStats stats = new LivingStats();
+        stats.setHp(random.nextInt(1, 101));
+        stats.setExp(rec.stats().getExp() + 1);
+        rec = new PlayerRecord(rec.id(), rec.name(), rec.nickname(), rec.currentRoomId(), stats,
+            rec.inventory());
+        records.set(i, rec);
+      }
+      batch.add(rec);
+    }
+    service.flushBatch(batch);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(PlayerPersistenceBenchmark.class.getSimpleName()).build())
+        .run();
+  }
+}
@@ -0,0 +1,177 @@
+package com.example.htmlmud.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import com.example.htmlmud.HtmlmudApplication;
+import com.example.htmlmud.application.factory.WorldFactory;
+import com.example.htmlmud.domain.model.entity.GameItem;
+import com.example.htmlmud.domain.model.entity.LivingStats;
+import com.example.htmlmud.domain.model.entity.SkillEntry;
+import com.example.htmlmud.domain.model.enums.EquipmentSlot;
+import com.example.htmlmud.domain.model.enums.SkillCategory;
+import com.example.htmlmud.infra.persistence.codec.PlayerStateCodec;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * 玩家 stats / inventory 欄位：JSON (stats_json / inventory_json) vs PlayerStateCodec 的二進位格式
+ *
+ * 啟動完整的 Spring Context (載入世界模板)，用 newbie_village 的物品組成背包與裝備，量測每秒可序列化 / 解序列化幾位玩家。
+ * 兩種格式每位玩家的欄位大小在 setup 時印出。 執行方式：mvn test-compile 後直接跑 main()
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlayerStateCodecBenchmark {
+
+  private static final String[] ITEM_IDS = {"newbie_village:rusty_sword",
+      "newbie_village:standard_spear", "newbie_village:rusty_shield",
+      "newbie_village:rusty_armor", "newbie_village:rusty_ring", "newbie_village:village_bread"};
+
+  private static final TypeReference<List<GameItem>> INVENTORY_TYPE = new TypeReference<>() {};
+
+  @Param({"JSON", "BINARY"})
+  public String format;
+
+  // 背包物品數
+  @Param({"20"})
+  public int items;
+
+  private Path dir;
+  private ConfigurableApplicationContext context;
+  private PlayerStateCodec codec;
+  private ObjectMapper objectMapper;
+  private ObjectWriter jsonWriter;
+
+  private LivingStats stats;
+  private List<GameItem> inventory;
+  private byte[] statsData;
+  private byte[] inventoryData;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    dir = Files.createTempDirectory("codec-bench");
+    context = new SpringApplicationBuilder(HtmlmudApplication.class)
+        .properties("server.port=0", "spring.h2.console.enabled=false",
+            "spring.datasource.url=jdbc:h2:file:" + dir.resolve("muddb").toAbsolutePath()
+                + ";DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE",
+            "mud.world.image.enabled=false",
+            "mud.persistence.player.journal.path=" + dir.resolve("player.journal"),
+            "logging.level.root=WARN")
+        .run();
+    codec = context.getBean(PlayerStateCodec.class);
+    objectMapper = context.getBean(ObjectMapper.class);
+    // 與 PlayerPersistenceService 存檔時相同 (不排版)
+    jsonWriter = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+
+    WorldFactory factory = context.getBean(WorldFactory.class);
+    inventory = new ArrayList<>(items);
+    for (int i = 0; i < items; i++) {
+      GameItem item = factory.createItem(ITEM_IDS[i % ITEM_IDS.length]);
+      // 一部分物品有實例差異 (耐久磨損、堆疊、隨機屬性)
+      if (i % 3 == 0) {
+        item.setCurrentDurability(Math.max(0, item.getMaxDurability() - i));
+      }
+      if (i % 5 == 0) {
+        item.setAmount(i + 2);
+      }
+      if (i % 7 == 0) {
+        item.getDynamicProps().put("attack_bonus", i);
+      }
+      inventory.add(item);
+    }
+
+    stats = new LivingStats();
+    stats.level = 12;
+    stats.hp = 87;
+    stats.exp = 123_456;
+    stats.coin = 3_200;
+    stats.equipment.put(EquipmentSlot.MAIN_HAND, factory.createItem(ITEM_IDS[0]));
+    stats.equipment.put(EquipmentSlot.OFF_HAND, factory.createItem(ITEM_IDS[2]));
+    stats.equipment.put(EquipmentSlot.BODY, factory.createItem(ITEM_IDS[3]));
+    stats.equipment.put(EquipmentSlot.FINGER, factory.createItem(ITEM_IDS[4]));
+    for (String skill : new String[] {"basic_unarmed", "basic_sword", "basic_dodge"}) {
+      SkillEntry entry = new SkillEntry(skill, 10);
+      entry.setXp(420);
+      stats.learnedSkills.put(skill, entry);
+    }
+    stats.enabledSkills.put(SkillCategory.UNARMED, "basic_unarmed");
+
+    byte[] statsJson = jsonWriter.writeValueAsBytes(stats);
+    byte[] inventoryJson = jsonWriter.writeValueAsBytes(inventory);
+    byte[] statsBin = codec.encodeStats(stats);
+    byte[] inventoryBin = codec.encodeInventory(inventory);
+    System.out.printf("%n每位玩家的欄位大小 stats: JSON %d -> BINARY %d bytes, inventory (%d 件): JSON %d -> BINARY %d bytes (%d%%)%n",
+        statsJson.length, statsBin.length, items, inventoryJson.length, inventoryBin.length,
+        (statsBin.length + inventoryBin.length) * 100L / (statsJson.length + inventoryJson.length));
+
+    boolean binary = "BINARY".equals(format);
+    statsData = binary ? statsBin : statsJson;
+    inventoryData = binary ? inventoryBin : inventoryJson;
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    context.close();
+    try (Stream<Path> files = Files.walk(dir)) {
+      files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+    }
+  }
+
+  @Benchmark
+  public void serialize(Blackhole bh) throws IOException {
+    if ("BINARY".equals(format)) {
+      bh.consume(codec.encodeStats(stats));
+      bh.consume(codec.encodeInventory(inventory));
+    } else {
+      bh.consume(jsonWriter.writeValueAsBytes(stats));
+      bh.consume(jsonWriter.writeValueAsBytes(inventory));
+    }
+  }
+
+  @Benchmark
+  public void deserialize(Blackhole bh) throws IOException {
+    if ("BINARY".equals(format)) {
+      bh.consume(codec.decodeStats(statsData));
+      bh.consume(codec.decodeInventory(inventoryData));
+    } else {
+      bh.consume(objectMapper.readValue(statsData, LivingStats.class));
+      bh.consume(objectMapper.readValue(inventoryData, INVENTORY_TYPE));
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(PlayerStateCodecBenchmark.class.getSimpleName()).build())
+        .run();
+  }
+}
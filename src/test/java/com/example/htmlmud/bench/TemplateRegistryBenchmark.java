@@ -0,0 +1,120 @@
+package com.example.htmlmud.bench;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import com.example.htmlmud.domain.model.template.RoomTemplate;
+import com.example.htmlmud.infra.persistence.repository.TemplateTable;
+
+/**
+ * 模板查詢：原本的 ConcurrentHashMap<"zone:id", Template> vs TemplateTable 的 int handle
+ *
+ * 以 100k 個房間的合成世界測量查詢成本，並在 setup 時印出兩種結構約略的 heap 用量。 執行方式：mvn test-compile 後直接跑 main()
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class TemplateRegistryBenchmark {
+
+  @Param({"100000"})
+  public int rooms;
+
+  private Map<String, RoomTemplate> legacy;
+  private TemplateTable<RoomTemplate> table;
+
+  // 查詢順序預先打亂，避免只打到 CPU 快取裡的熱點
+  private String[] lookupIds;
+  private int[] lookupHandles;
+  private int cursor;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    RoomTemplate[] templates = new RoomTemplate[rooms];
+    for (int i = 0; i < rooms; i++) {
+      String id = "zone" + (i / 1000) + ":room" + i;
+      templates[i] = RoomTemplate.builder().id(id).zoneId("zone" + (i / 1000)).name("房間" + i)
+          .description("一個普通的房間").build();
+    }
+
+    long before = usedHeap();
+    legacy = new ConcurrentHashMap<>();
+    for (RoomTemplate tpl : templates) {
+      legacy.put(tpl.id(), tpl);
+    }
+    long legacyBytes = usedHeap() - before;
+
+    before = usedHeap();
+    table = new TemplateTable<>();
+    for (RoomTemplate tpl : templates) {
+      table.register(tpl.id(), tpl);
+    }
+    long tableBytes = usedHeap() - before;
+
+    System.out.printf("%n[heap] rooms:%d ConcurrentHashMap:%,d bytes TemplateTable:%,d bytes%n", rooms,
+        legacyBytes, tableBytes);
+
+    lookupIds = new String[rooms];
+    lookupHandles = new int[rooms];
+    for (int i = 0; i < rooms; i++) {
+      int pick = ThreadLocalRandom.current().nextInt(rooms);
+      // 複製字串，模擬從 JSON/指令進來的 ID (不是同一個參照，要真的比對內容)
+      lookupIds[i] = new String(templates[pick].id());
+      lookupHandles[i] = table.handleOf(templates[pick].id());
+    }
+  }
+
+  private static long usedHeap() {
+    Runtime rt = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return rt.totalMemory() - rt.freeMemory();
+  }
+
+  private int next() {
+    int i = cursor;
+    cursor = (i + 1 == rooms) ? 0 : i + 1;
+    return i;
+  }
+
+  @Benchmark
+  public RoomTemplate legacyStringLookup() {
+    return legacy.get(lookupIds[next()]);
+  }
+
+  // 邊界：字串 ID 先換成 handle 再查
+  @Benchmark
+  public RoomTemplate tableStringLookup() {
+    return table.get(lookupIds[next()]);
+  }
+
+  // 熱路徑：已經持有 handle
+  @Benchmark
+  public RoomTemplate tableHandleLookup() {
+    return table.get(lookupHandles[next()]);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(TemplateRegistryBenchmark.class.getSimpleName()).build())
+        .run();
+  }
+}
@@ -0,0 +1,195 @@
+package com.example.htmlmud.bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import com.example.htmlmud.config.JacksonConfig;
+import com.example.htmlmud.domain.model.template.ItemTemplate;
+import com.example.htmlmud.domain.model.template.MobTemplate;
+import com.example.htmlmud.domain.model.template.RaceTemplate;
+import com.example.htmlmud.domain.model.template.RoomTemplate;
+import com.example.htmlmud.domain.model.template.SkillTemplate;
+import com.example.htmlmud.domain.model.template.ZoneBundle;
+import com.example.htmlmud.domain.model.template.ZoneTemplate;
+import com.example.htmlmud.infra.persistence.image.WorldImage;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 冷啟動載入世界：逐檔解析 JSON + 轉絕對 ID vs 讀取預先編譯的 world image
+ *
+ * bundled：專案內建的 newbie_village + 技能 + 種族<br>
+ * generated50k：合成 50 個 zone、每個 1000 間房 (出口互連、每間一條生怪規則)
+ *
+ * 來源 JSON 與映像檔都先寫到暫存目錄，兩邊都從磁碟讀。 執行方式：mvn test-compile 後直接跑 main()
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class WorldImageBenchmark {
+
+  private static final long STAMP = 42L;
+  private static final int ROOMS_PER_ZONE = 1000;
+
+  @Param({"bundled", "generated50k"})
+  public String world;
+
+  private ObjectMapper objectMapper;
+  private Path dir;
+  private Path image;
+  private List<Path> skillFiles;
+  private Path racesFile;
+  private List<Path> zoneDirs;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    objectMapper = new JacksonConfig().objectMapper();
+    dir = Files.createTempDirectory("world-image-bench");
+    image = dir.resolve("world.img");
+
+    PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+    Resource[] skills = resolver.getResources("classpath:data/global/skills/test/*.json");
+    skillFiles = new ArrayList<>(skills.length);
+    for (Resource res : skills) {
+      Path file = dir.resolve("skill_" + res.getFilename());
+      copy(res, file);
+      skillFiles.add(file);
+    }
+    racesFile = dir.resolve("races.json");
+    copy(resolver.getResource("classpath:data/global/races.json"), racesFile);
+
+    zoneDirs = new ArrayList<>();
+    String village = "classpath:data/zones/newbie_village/";
+    if ("bundled".equals(world)) {
+      Path zoneDir = Files.createDirectories(dir.resolve("newbie_village"));
+      for (String name : List.of("manifest.json", "mobs.json", "items.json", "rooms.json")) {
+        copy(resolver.getResource(village + name), zoneDir.resolve(name));
+      }
+      zoneDirs.add(zoneDir);
+    } else {
+      // 怪物與物品沿用新手村，房間用合成的
+      int zones = 50_000 / ROOMS_PER_ZONE;
+      for (int z = 0; z < zones; z++) {
+        Path zoneDir = Files.createDirectories(dir.resolve("gen" + z));
+        Files.writeString(zoneDir.resolve("manifest.json"),
+            objectMapper.writeValueAsString(Map.of("id", "gen" + z, "name", "合成區域" + z)));
+        copy(resolver.getResource(village + "mobs.json"), zoneDir.resolve("mobs.json"));
+        copy(resolver.getResource(village + "items.json"), zoneDir.resolve("items.json"));
+        objectMapper.writeValue(zoneDir.resolve("rooms.json").toFile(), generateRooms(z, zones));
+        zoneDirs.add(zoneDir);
+      }
+    }
+
+    WorldImage.write(image, STAMP, json(), objectMapper);
+    System.out.printf("%n[%s] source:%,d bytes image:%,d bytes%n", world, sourceBytes(),
+        Files.size(image));
+  }
+
+  // 每間房往東西接成一條鏈，最後一間接到下一個 zone 的第一間 (跨 zone 的絕對 ID)
+  private static List<Map<String, Object>> generateRooms(int zone, int zones) {
+    List<Map<String, Object>> rooms = new ArrayList<>(ROOMS_PER_ZONE);
+    for (int i = 0; i < ROOMS_PER_ZONE; i++) {
+      Map<String, Object> exits = new LinkedHashMap<>();
+      if (i > 0) {
+        exits.put("west", "room" + (i - 1));
+      }
+      exits.put("east", (i + 1 < ROOMS_PER_ZONE) ? "room" + (i + 1)
+          : "gen" + ((zone + 1) % zones) + ":room0");
+
+      Map<String, Object> room = new LinkedHashMap<>();
+      room.put("id", "room" + i);
+      room.put("name", "荒野小徑" + i);
+      room.put("description", "一條蜿蜒的小徑，兩旁長滿了雜草，遠處傳來野狼的嚎叫聲。");
+      room.put("exits", exits);
+      room.put("spawns", List.of(Map.of("type", "MOB", "id", "village_guard", "count", 1,
+          "maxCount", 1, "time", 60, "rate", 1)));
+      rooms.add(room);
+    }
+    return rooms;
+  }
+
+  private static void copy(Resource res, Path target) throws IOException {
+    try (InputStream is = res.getInputStream()) {
+      Files.copy(is, target);
+    }
+  }
+
+  private long sourceBytes() throws IOException {
+    try (Stream<Path> files = Files.walk(dir)) {
+      return files.filter(Files::isRegularFile).filter(p -> !p.equals(image))
+          .mapToLong(p -> p.toFile().length()).sum();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    try (Stream<Path> files = Files.walk(dir)) {
+      files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+    }
+  }
+
+  // 與 WorldManager.parseSources 相同的工作 (單執行緒，只比較格式本身的成本)
+  @Benchmark
+  public WorldImage.Content json() throws IOException {
+    List<SkillTemplate> skills = new ArrayList<>(skillFiles.size());
+    for (Path file : skillFiles) {
+      skills.add(objectMapper.readValue(file.toFile(), SkillTemplate.class));
+    }
+    Set<RaceTemplate> races =
+        objectMapper.readValue(racesFile.toFile(), new TypeReference<Set<RaceTemplate>>() {});
+
+    List<ZoneBundle> zones = new ArrayList<>(zoneDirs.size());
+    for (Path zoneDir : zoneDirs) {
+      ZoneTemplate zone =
+          objectMapper.readValue(zoneDir.resolve("manifest.json").toFile(), ZoneTemplate.class);
+      Set<MobTemplate> mobs = objectMapper.readValue(zoneDir.resolve("mobs.json").toFile(),
+          new TypeReference<Set<MobTemplate>>() {});
+      Set<ItemTemplate> items = objectMapper.readValue(zoneDir.resolve("items.json").toFile(),
+          new TypeReference<Set<ItemTemplate>>() {});
+      List<RoomTemplate> rooms = objectMapper.readValue(zoneDir.resolve("rooms.json").toFile(),
+          new TypeReference<List<RoomTemplate>>() {});
+      zones.add(ZoneBundle.resolve(zone, mobs, items, rooms));
+    }
+    return new WorldImage.Content(null, skills, List.copyOf(races), zones);
+  }
+
+  @Benchmark
+  public WorldImage.Content image() {
+    return WorldImage.read(image, STAMP, objectMapper).orElseThrow();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(WorldImageBenchmark.class.getSimpleName()).build())
+        .run();
+  }
+}
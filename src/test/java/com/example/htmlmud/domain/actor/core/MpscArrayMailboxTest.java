@@ -0,0 +1,231 @@
+package com.example.htmlmud.domain.actor.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+/**
+ * MpscArrayMailbox：三種溢位策略，以及多個生產者同時投遞、單一消費者 take() 時不遺失、不重複、各生產者內的順序不變
+ */
+class MpscArrayMailboxTest {
+
+  @Test
+  void roundsCapacityUpToPowerOfTwo() {
+    assertEquals(1, new MpscArrayMailbox<Integer>(1, OverflowPolicy.REJECT).capacity());
+    assertEquals(8, new MpscArrayMailbox<Integer>(5, OverflowPolicy.REJECT).capacity());
+    assertEquals(8, new MpscArrayMailbox<Integer>(8, OverflowPolicy.REJECT).capacity());
+    assertThrows(IllegalArgumentException.class,
+        () -> new MpscArrayMailbox<Integer>(0, OverflowPolicy.REJECT));
+  }
+
+  @Test
+  void rejectKeepsExistingMessagesAndReturnsFalse() {
+    MpscArrayMailbox<Integer> mailbox = new MpscArrayMailbox<>(4, OverflowPolicy.REJECT);
+    for (int i = 0; i < 4; i++) {
+      assertTrue(mailbox.offer(i));
+    }
+    assertFalse(mailbox.offer(4));
+    assertEquals(4, mailbox.size());
+
+    assertEquals(List.of(0, 1, 2, 3), drain(mailbox));
+    assertTrue(mailbox.offer(5));
+    assertEquals(5, mailbox.poll());
+  }
+
+  @Test
+  void dropNewestDiscardsIncomingMessage() {
+    MpscArrayMailbox<Integer> mailbox = new MpscArrayMailbox<>(4, OverflowPolicy.DROP_NEWEST);
+    for (int i = 0; i < 6; i++) {
+      assertEquals(i < 4, mailbox.offer(i));
+    }
+    assertEquals(List.of(0, 1, 2, 3), drain(mailbox));
+  }
+
+  @Test
+  void dropOldestEvictsOldestMessage() {
+    MpscArrayMailbox<Integer> mailbox = new MpscArrayMailbox<>(4, OverflowPolicy.DROP_OLDEST);
+    for (int i = 0; i < 6; i++) {
+      assertTrue(mailbox.offer(i));
+    }
+    assertEquals(List.of(2, 3, 4, 5), drain(mailbox));
+  }
+
+  @Test
+  void staysFifoAcrossWrapAround() {
+    MpscArrayMailbox<Integer> mailbox = new MpscArrayMailbox<>(4, OverflowPolicy.REJECT);
+    int next = 0;
+    int expected = 0;
+    for (int round = 0; round < 100; round++) {
+      for (int i = 0; i < 3; i++) {
+        assertTrue(mailbox.offer(next++));
+      }
+      for (int i = 0; i < 3; i++) {
+        assertEquals(expected++, mailbox.poll());
+      }
+    }
+    assertNull(mailbox.poll());
+    assertTrue(mailbox.isEmpty());
+  }
+
+  @Test
+  void drainToStopsAtMaxElements() {
+    MpscArrayMailbox<Integer> mailbox = new MpscArrayMailbox<>(8, OverflowPolicy.REJECT);
+    for (int i = 0; i < 5; i++) {
+      mailbox.offer(i);
+    }
+    List<Integer> target = new ArrayList<>();
+    assertEquals(3, mailbox.drainTo(target, 3));
+    assertEquals(List.of(0, 1, 2), target);
+    assertEquals(2, mailbox.size());
+  }
+
+  @Test
+  void rejectsNullMessage() {
+    MpscArrayMailbox<Integer> mailbox = new MpscArrayMailbox<>(4, OverflowPolicy.REJECT);
+    assertThrows(NullPointerException.class, () -> mailbox.offer(null));
+  }
+
+  @Test
+  void takeWakesUpOnOffer() throws Exception {
+    MpscArrayMailbox<Integer> mailbox = new MpscArrayMailbox<>(4, OverflowPolicy.REJECT);
+    AtomicReference<Integer> taken = new AtomicReference<>();
+    CountDownLatch started = new CountDownLatch(1);
+    Thread consumer = Thread.ofVirtual().start(() -> {
+      started.countDown();
+      try {
+        taken.set(mailbox.take());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    started.await();
+    Thread.sleep(50);
+    assertTrue(mailbox.offer(42));
+    consumer.join(TimeUnit.SECONDS.toMillis(5));
+    assertFalse(consumer.isAlive());
+    assertEquals(42, taken.get());
+  }
+
+  @Test
+  void takeIsInterruptible() throws Exception {
+    MpscArrayMailbox<Integer> mailbox = new MpscArrayMailbox<>(4, OverflowPolicy.REJECT);
+    AtomicReference<Throwable> error = new AtomicReference<>();
+    Thread consumer = Thread.ofVirtual().start(() -> {
+      try {
+        mailbox.take();
+      } catch (Throwable e) {
+        error.set(e);
+      }
+    });
+    Thread.sleep(50);
+    consumer.interrupt();
+    consumer.join(TimeUnit.SECONDS.toMillis(5));
+    assertTrue(error.get() instanceof InterruptedException);
+  }
+
+  @Test
+  void concurrentProducersSingleConsumer() throws Exception {
+    int producers = 4;
+    int perProducer = 20_000;
+    // 容量很小，生產者會一直碰到滿的信箱 (REJECT 時自己重試)
+    MpscArrayMailbox<Long> mailbox = new MpscArrayMailbox<>(64, OverflowPolicy.REJECT);
+
+    ExecutorService pool = Executors.newFixedThreadPool(producers);
+    try {
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<?>> futures = new ArrayList<>();
+      for (int p = 0; p < producers; p++) {
+        long producer = p;
+        futures.add(pool.submit(() -> {
+          start.await();
+          for (long i = 0; i < perProducer; i++) {
+            // 高 32 位元是生產者編號，低 32 位元是序號
+            long message = (producer << 32) | i;
+            while (!mailbox.offer(message)) {
+              Thread.onSpinWait();
+            }
+          }
+          return null;
+        }));
+      }
+
+      long[] nextSeq = new long[producers];
+      start.countDown();
+      for (int received = 0; received < producers * perProducer; received++) {
+        long message = mailbox.take();
+        int producer = (int) (message >>> 32);
+        long seq = message & 0xFFFFFFFFL;
+        assertEquals(nextSeq[producer], seq, "生產者 " + producer + " 的訊息順序錯亂或遺失");
+        nextSeq[producer]++;
+      }
+      for (Future<?> future : futures) {
+        future.get(10, TimeUnit.SECONDS);
+      }
+      for (int p = 0; p < producers; p++) {
+        assertEquals(perProducer, nextSeq[p]);
+      }
+      assertNull(mailbox.poll());
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  @Test
+  void concurrentDropOldestNeverExceedsCapacity() throws Exception {
+    int producers = 4;
+    int perProducer = 50_000;
+    MpscArrayMailbox<Long> mailbox = new MpscArrayMailbox<>(16, OverflowPolicy.DROP_OLDEST);
+
+    ExecutorService pool = Executors.newFixedThreadPool(producers);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int p = 0; p < producers; p++) {
+        long producer = p;
+        futures.add(pool.submit(() -> {
+          for (long i = 0; i < perProducer; i++) {
+            assertTrue(mailbox.offer((producer << 32) | i));
+          }
+          return null;
+        }));
+      }
+
+      // 消費者同時取，每個生產者的訊息可能被丟掉，但留下來的順序不變、也不會重複
+      long[] lastSeq = {-1, -1, -1, -1};
+      boolean producing = true;
+      while (producing || !mailbox.isEmpty()) {
+        producing = futures.stream().anyMatch(f -> !f.isDone());
+        Long message = mailbox.poll();
+        if (message == null) {
+          continue;
+        }
+        int producer = (int) (message >>> 32);
+        long seq = message & 0xFFFFFFFFL;
+        assertTrue(seq > lastSeq[producer], "生產者 " + producer + " 的訊息順序錯亂或重複");
+        lastSeq[producer] = seq;
+      }
+      for (Future<?> future : futures) {
+        future.get(10, TimeUnit.SECONDS);
+      }
+      assertTrue(mailbox.size() <= mailbox.capacity());
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private static List<Integer> drain(MpscArrayMailbox<Integer> mailbox) {
+    List<Integer> out = new ArrayList<>();
+    mailbox.drainTo(out, Integer.MAX_VALUE);
+    return out;
+  }
+}
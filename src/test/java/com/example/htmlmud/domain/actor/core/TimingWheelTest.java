@@ -0,0 +1,166 @@
+package com.example.htmlmud.domain.actor.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+/**
+ * TimingWheel：delay 進位到 tick、跨層往內重新放置時剛好在到期的 tick 執行、取消、超過時間輪範圍的長延遲
+ */
+class TimingWheelTest {
+
+  private static final long TICK = 100;
+
+  // 各層的邊界 (以 tick 計)：64、64^2、64^3、64^4
+  private static final long L1 = 1L << 6;
+  private static final long L2 = 1L << 12;
+  private static final long L3 = 1L << 18;
+  private static final long MAX_SPAN = 1L << 24;
+
+  @Test
+  void roundsDelayUpToWholeTicks() {
+    TimingWheel wheel = new TimingWheel(TICK);
+    assertEquals(1, firedAt(wheel, 0));
+    assertEquals(1, firedAt(wheel, 1));
+    assertEquals(1, firedAt(wheel, TICK));
+    assertEquals(2, firedAt(wheel, TICK + 1));
+    assertEquals(3, firedAt(wheel, 3 * TICK));
+  }
+
+  @Test
+  void firesExactlyOnDeadlineAcrossLevels() {
+    long[] ticks = {1, L1 - 1, L1, L1 + 1, L2 - 1, L2, L2 + 1, L3 - 1, L3, L3 + 1};
+    // 從對齊與不對齊的起點各排一次，涵蓋外層格子剛好轉到 / 還差一點的情況
+    for (long start : new long[] {0, 37, L1 - 1, L2 - 1}) {
+      TimingWheel wheel = new TimingWheel(TICK);
+      advance(wheel, start);
+
+      Map<Long, AtomicLong> fired = new HashMap<>();
+      for (long t : ticks) {
+        AtomicLong at = new AtomicLong(-1);
+        fired.put(t, at);
+        wheel.schedule(t * TICK, () -> at.set(wheel.getCurrentTick()));
+      }
+      advance(wheel, L3 + 2);
+
+      for (long t : ticks) {
+        assertEquals(start + t, fired.get(t).get(), "start=" + start + " delay=" + t + " ticks");
+      }
+      assertEquals(0, wheel.getPendingCount());
+    }
+  }
+
+  @Test
+  void randomDelaysFireOnDeadline() {
+    TimingWheel wheel = new TimingWheel(TICK);
+    Random random = new Random(42);
+    List<long[]> results = new ArrayList<>();
+    // 邊推進邊排入，deadline 分散在四層
+    for (int round = 0; round < 2_000; round++) {
+      long delay = 1 + random.nextLong(3 * L2);
+      long[] result = {wheel.getCurrentTick() + delay, -1};
+      results.add(result);
+      wheel.schedule(delay * TICK, () -> result[1] = wheel.getCurrentTick());
+      advance(wheel, random.nextInt(8));
+    }
+    advance(wheel, 3 * L2);
+
+    for (long[] result : results) {
+      assertEquals(result[0], result[1]);
+    }
+    assertEquals(0, wheel.getPendingCount());
+  }
+
+  @Test
+  void cancelledTimerNeverRuns() {
+    TimingWheel wheel = new TimingWheel(TICK);
+    AtomicInteger runs = new AtomicInteger();
+    TimerHandle near = wheel.schedule(5 * TICK, runs::incrementAndGet);
+    TimerHandle far = wheel.schedule(L2 * TICK, runs::incrementAndGet);
+
+    // 一個在放進時間輪之前取消，一個在外層等待時取消
+    assertTrue(near.cancel());
+    wheel.advance();
+    assertTrue(far.cancel());
+    assertFalse(far.cancel());
+    advance(wheel, L2 + 1);
+
+    assertEquals(0, runs.get());
+    assertTrue(near.isCancelled());
+    assertTrue(far.isCancelled());
+    assertEquals(0, wheel.getPendingCount());
+  }
+
+  @Test
+  void cancelAfterFireReturnsFalse() {
+    TimingWheel wheel = new TimingWheel(TICK);
+    AtomicInteger runs = new AtomicInteger();
+    TimerHandle handle = wheel.schedule(2 * TICK, runs::incrementAndGet);
+    assertTrue(handle.isPending());
+
+    advance(wheel, 2);
+    assertTrue(handle.isFired());
+    assertFalse(handle.cancel());
+    assertFalse(handle.isCancelled());
+
+    advance(wheel, L1);
+    assertEquals(1, runs.get());
+  }
+
+  @Test
+  void failingTaskDoesNotStopOthers() {
+    TimingWheel wheel = new TimingWheel(TICK);
+    AtomicInteger runs = new AtomicInteger();
+    wheel.schedule(TICK, () -> {
+      throw new IllegalStateException("boom");
+    });
+    wheel.schedule(TICK, runs::incrementAndGet);
+
+    wheel.advance();
+    assertEquals(1, runs.get());
+    assertEquals(0, wheel.getPendingCount());
+  }
+
+  @Test
+  void delayBeyondWheelSpanFiresOnDeadline() {
+    TimingWheel wheel = new TimingWheel(TICK);
+    advance(wheel, 11);
+    long delay = MAX_SPAN + L2 + 5;
+    long deadline = wheel.getCurrentTick() + delay;
+    AtomicLong fired = new AtomicLong(-1);
+    wheel.schedule(delay * TICK, () -> fired.set(wheel.getCurrentTick()));
+
+    // 第一次轉到最外層時還沒到期，要重新放置
+    advance(wheel, MAX_SPAN);
+    assertEquals(-1, fired.get());
+    assertEquals(1, wheel.getPendingCount());
+
+    advance(wheel, deadline - wheel.getCurrentTick());
+    assertEquals(deadline, fired.get());
+    assertEquals(0, wheel.getPendingCount());
+  }
+
+  private static long firedAt(TimingWheel wheel, long delayMillis) {
+    long start = wheel.getCurrentTick();
+    AtomicLong fired = new AtomicLong(-1);
+    wheel.schedule(delayMillis, () -> fired.set(wheel.getCurrentTick()));
+    for (int i = 0; i < 10 && fired.get() < 0; i++) {
+      wheel.advance();
+    }
+    return fired.get() - start;
+  }
+
+  private static void advance(TimingWheel wheel, long ticks) {
+    for (long i = 0; i < ticks; i++) {
+      wheel.advance();
+    }
+  }
+}
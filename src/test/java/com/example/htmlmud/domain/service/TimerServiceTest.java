@@ -0,0 +1,50 @@
+package com.example.htmlmud.domain.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import com.example.htmlmud.domain.actor.core.TimerHandle;
+
+/**
+ * TimerService：以 WorldPulse 的 tick (100ms) 推進，Duration 與毫秒兩種排程方式結果相同
+ */
+class TimerServiceTest {
+
+  @Test
+  void firesAfterDelayRoundedUpToPulseTicks() {
+    TimerService timers = new TimerService();
+    AtomicInteger millisRuns = new AtomicInteger();
+    AtomicInteger durationRuns = new AtomicInteger();
+    timers.schedule(250, millisRuns::incrementAndGet);
+    timers.schedule(Duration.ofMillis(250), durationRuns::incrementAndGet);
+    assertEquals(2, timers.getPendingCount());
+
+    // 250ms 進位成 3 個 tick
+    timers.advance();
+    timers.advance();
+    assertEquals(0, millisRuns.get());
+    assertEquals(0, durationRuns.get());
+
+    timers.advance();
+    assertEquals(1, millisRuns.get());
+    assertEquals(1, durationRuns.get());
+    assertEquals(0, timers.getPendingCount());
+  }
+
+  @Test
+  void cancelledTimerIsClearedWhenReached() {
+    TimerService timers = new TimerService();
+    AtomicInteger runs = new AtomicInteger();
+    TimerHandle handle = timers.schedule(Duration.ofSeconds(30), runs::incrementAndGet);
+    assertTrue(handle.cancel());
+
+    long ticks = Duration.ofSeconds(30).toMillis() / TimerService.TICK_MILLIS;
+    for (long i = 0; i < ticks; i++) {
+      timers.advance();
+    }
+    assertEquals(0, runs.get());
+    assertEquals(0, timers.getPendingCount());
+  }
+}
@@ -0,0 +1,158 @@
+package com.example.htmlmud.infra.persistence.codec;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import com.example.htmlmud.domain.model.config.EquipmentProp;
+import com.example.htmlmud.domain.model.entity.GameItem;
+import com.example.htmlmud.domain.model.entity.LivingStats;
+import com.example.htmlmud.domain.model.entity.SkillEntry;
+import com.example.htmlmud.domain.model.enums.EquipmentSlot;
+import com.example.htmlmud.domain.model.enums.ItemType;
+import com.example.htmlmud.domain.model.enums.SkillCategory;
+import com.example.htmlmud.domain.model.template.ItemTemplate;
+import com.example.htmlmud.infra.mapper.ItemTemplateMapper;
+import com.example.htmlmud.infra.mapper.PlayerMapper;
+import com.example.htmlmud.infra.persistence.repository.TemplateRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * PlayerStateCodec：物品與 stats 編碼後再解回來內容相同，模板已被移除的物品也不會遺失 (下次存檔仍引用原本的模板 ID)
+ *
+ * TemplateRepository 是全域的，這裡註冊的模板 ID 都加上 codec_test: 前綴，不會與世界資料衝突。
+ */
+class PlayerStateCodecTest {
+
+  private static final ItemTemplateMapper ITEM_MAPPER = Mappers.getMapper(ItemTemplateMapper.class);
+
+  private static ItemTemplate sword;
+
+  private final PlayerStateCodec codec = new PlayerStateCodec(
+      Mappers.getMapper(PlayerMapper.class), ITEM_MAPPER, new ObjectMapper());
+
+  @BeforeAll
+  static void registerTemplates() {
+    sword = ItemTemplate.builder().id("codec_test:sword").name("鐵劍").aliases(List.of("sword"))
+        .description("一把普通的鐵劍。").type(ItemType.WEAPON).subType("SWORD")
+        .equipmentProp(EquipmentProp.builder().slot(EquipmentSlot.MAIN_HAND).maxDurability(50)
+            .build())
+        .build();
+    TemplateRepository.registerItem(sword);
+  }
+
+  @Test
+  void roundTripsInventory() throws Exception {
+    GameItem plain = newItem(sword);
+    GameItem worn = newItem(sword);
+    worn.setCurrentDurability(12);
+    worn.setAmount(3);
+    worn.getDynamicProps().put("attack_bonus", 5);
+    worn.getDynamicProps().put("crafter", "玩家A");
+    GameItem renamed = newItem(sword);
+    renamed.setId("legacy-item-1");
+    renamed.setName("斷劍");
+
+    List<GameItem> decoded =
+        codec.decodeInventory(codec.encodeInventory(List.of(plain, worn, renamed)));
+
+    assertEquals(3, decoded.size());
+    assertItem(plain, decoded.get(0));
+    assertItem(worn, decoded.get(1));
+    assertItem(renamed, decoded.get(2));
+    assertSame(sword, decoded.get(0).getTemplate());
+  }
+
+  @Test
+  void roundTripsStats() throws Exception {
+    LivingStats stats = new LivingStats();
+    stats.level = 12;
+    stats.hp = -3;
+    stats.exp = 123_456;
+    stats.coin = 3_200;
+    GameItem weapon = newItem(sword);
+    weapon.setCurrentDurability(7);
+    stats.equipment.put(EquipmentSlot.MAIN_HAND, weapon);
+    SkillEntry skill = new SkillEntry("basic_sword", 10);
+    skill.setXp(420);
+    stats.learnedSkills.put("basic_sword", skill);
+    stats.enabledSkills.put(SkillCategory.SWORD, "basic_sword");
+
+    LivingStats decoded = codec.decodeStats(codec.encodeStats(stats));
+
+    assertEquals(12, decoded.level);
+    assertEquals(-3, decoded.hp);
+    assertEquals(123_456, decoded.exp);
+    assertEquals(3_200, decoded.coin);
+    assertItem(weapon, decoded.equipment.get(EquipmentSlot.MAIN_HAND));
+    SkillEntry decodedSkill = decoded.learnedSkills.get("basic_sword");
+    assertEquals("basic_sword", decodedSkill.getSkillId());
+    assertEquals(10, decodedSkill.getLevel());
+    assertEquals(420, decodedSkill.getXp());
+    assertEquals(Map.of(SkillCategory.SWORD, "basic_sword"), decoded.enabledSkills);
+  }
+
+  @Test
+  void keepsItemWhoseTemplateWasRemoved() throws Exception {
+    // 存檔時還在、讀取時已從世界資料移除 (從沒註冊過) 的模板
+    String removedId = "codec_test:removed_" + UUID.randomUUID();
+    ItemTemplate removed = sword.toBuilder().id(removedId).name("舊劍").isStackable(true).build();
+    GameItem item = newItem(removed);
+    item.setCurrentDurability(20);
+    item.setAmount(2);
+    item.getDynamicProps().put("attack_bonus", 3);
+
+    byte[] saved = codec.encodeInventory(List.of(item));
+    GameItem orphan = codec.decodeInventory(saved).get(0);
+
+    assertNotNull(orphan.getTemplate());
+    assertEquals(removedId, orphan.getTemplate().id());
+    assertEquals(removedId, orphan.getName());
+    assertEquals(item.getId(), orphan.getId());
+    assertEquals(20, orphan.getCurrentDurability());
+    assertEquals(2, orphan.getAmount());
+    assertEquals(3, orphan.getDynamicProps().get("attack_bonus"));
+    assertFalse(orphan.isStackable());
+
+    // 再存一次仍引用原本的模板 ID，模板加回來之後就恢復成原本的物品
+    byte[] resaved = codec.encodeInventory(List.of(orphan));
+    TemplateRepository.registerItem(removed);
+    GameItem restored = codec.decodeInventory(resaved).get(0);
+
+    assertSame(removed, restored.getTemplate());
+    assertEquals("舊劍", restored.getName());
+    assertEquals(item.getId(), restored.getId());
+    assertEquals(20, restored.getCurrentDurability());
+    assertEquals(2, restored.getAmount());
+    assertTrue(restored.isStackable());
+  }
+
+  private static GameItem newItem(ItemTemplate tpl) {
+    GameItem item = ITEM_MAPPER.toGameItem(tpl);
+    item.setId(UUID.randomUUID().toString());
+    item.setAmount(1);
+    return item;
+  }
+
+  private static void assertItem(GameItem expected, GameItem actual) {
+    assertEquals(expected.getId(), actual.getId());
+    assertEquals(expected.getTemplate().id(), actual.getTemplate().id());
+    assertEquals(expected.getName(), actual.getName());
+    assertEquals(expected.getDescription(), actual.getDescription());
+    assertEquals(expected.getAliases(), actual.getAliases());
+    assertEquals(expected.getType(), actual.getType());
+    assertEquals(expected.getSubType(), actual.getSubType());
+    assertEquals(expected.getLevel(), actual.getLevel());
+    assertEquals(expected.getMaxDurability(), actual.getMaxDurability());
+    assertEquals(expected.getCurrentDurability(), actual.getCurrentDurability());
+    assertEquals(expected.getAmount(), actual.getAmount());
+    assertEquals(expected.getDynamicProps(), actual.getDynamicProps());
+  }
+}
@@ -0,0 +1,161 @@
+package com.example.htmlmud.infra.persistence.journal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * PlayerJournal 當機復原
+ *
+ * 另開一個 JVM 不停寫入並定期 checkpoint (模擬每次存檔批次成功)，在寫入途中強制結束，再重新開啟檢查：
+ * 沒存檔的玩家最後確認寫入的狀態都還在，已存檔的記錄都已移除。
+ */
+class PlayerJournalTest {
+
+  private static final int PLAYERS = 10;
+
+  // 前一半的玩家每 CHECKPOINT_EVERY 筆存檔一次，後一半從不存檔
+  private static final int CHECKPOINT_EVERY = 200;
+
+  // 故意很小，寫入途中會一直觸發壓縮與擴大
+  private static final int CAPACITY = 4096;
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void recoversAfterKillMidFlush() throws Exception {
+    Path path = dir.resolve("player.journal");
+    Process process = new ProcessBuilder(
+        Path.of(System.getProperty("java.home"), "bin", "java").toString(), "-cp",
+        System.getProperty("java.class.path"), Writer.class.getName(), path.toString())
+        .redirectErrorStream(true).start();
+
+    Map<String, Integer> ackedHp = new HashMap<>();
+    long checkpointSeq = 0;
+    int appends = 0;
+    int checkpoints = 0;
+    try (BufferedReader reader = new BufferedReader(
+        new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+      String line;
+      while (appends < 20_000 || checkpoints < 20) {
+        line = reader.readLine();
+        assertNotNull(line, "writer 提早結束");
+        String[] parts = line.split(" ");
+        switch (parts[0]) {
+          case "A" -> {
+            ackedHp.put(parts[1], Integer.parseInt(parts[2]));
+            appends++;
+          }
+          case "C" -> {
+            checkpointSeq = Long.parseLong(parts[1]);
+            checkpoints++;
+          }
+          default -> {
+          }
+        }
+      }
+      // 子行程還在寫入 (也可能正在 checkpoint) 時直接砍掉
+      process.destroyForcibly();
+      assertTrue(process.waitFor(10, TimeUnit.SECONDS));
+    }
+
+    try (PlayerJournal journal = PlayerJournal.open(path, CAPACITY)) {
+      List<PlayerJournal.Entry> entries = journal.entries();
+      assertTrue(!entries.isEmpty());
+
+      for (int i = 1; i < entries.size(); i++) {
+        assertTrue(entries.get(i).seq() > entries.get(i - 1).seq());
+      }
+
+      Map<String, Integer> recoveredHp = new HashMap<>();
+      for (PlayerJournal.Entry e : entries) {
+        int player = Integer.parseInt(e.entry().playerId().substring(1));
+        if (player < PLAYERS / 2) {
+          // 已完成的 checkpoint 之前的記錄不會再出現
+          assertTrue(e.seq() > checkpointSeq, "checkpoint 前的記錄沒有移除 seq:" + e.seq());
+        }
+        if (e.entry() instanceof JournalEntry.StatsChanged stats) {
+          recoveredHp.merge(stats.playerId(), stats.hp(), Math::max);
+        }
+      }
+
+      // 沒存檔的玩家：最後確認寫入的狀態 (或更新的) 一定還在
+      for (int p = PLAYERS / 2; p < PLAYERS; p++) {
+        String playerId = "p" + p;
+        assertTrue(recoveredHp.getOrDefault(playerId, 0) >= ackedHp.get(playerId),
+            playerId + " 遺失已確認的記錄");
+      }
+
+      // 復原後可以接著寫，序號延續
+      long seq = journal.append(new JournalEntry.RoomChanged("p0", "newbie_village:square"));
+      assertTrue(seq > entries.get(entries.size() - 1).seq());
+    }
+  }
+
+  @Test
+  void dropsTornRecord() throws IOException {
+    Path path = dir.resolve("torn.journal");
+    try (PlayerJournal journal = PlayerJournal.open(path, CAPACITY)) {
+      for (int i = 1; i <= 3; i++) {
+        journal.append(new JournalEntry.StatsChanged("p1", i, i, i));
+      }
+    }
+
+    // 模擬寫到一半：弄壞最後一筆的內容 (header 16 bytes，每筆 StatsChanged("p1") 35 bytes)
+    try (FileChannel channel = FileChannel.open(dir.resolve("torn.journal.0"),
+        StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[] {0x7F}), 16 + 35 * 2 + 20);
+    }
+
+    try (PlayerJournal journal = PlayerJournal.open(path, CAPACITY)) {
+      assertEquals(2, journal.entries().size());
+      assertEquals(3, journal.append(new JournalEntry.StatsChanged("p1", 9, 9, 9)));
+      assertEquals(new JournalEntry.StatsChanged("p1", 9, 9, 9),
+          journal.entries().get(2).entry());
+    }
+  }
+
+  /**
+   * 被測試強制結束的子行程：不停寫入，每寫完一筆輸出 "A playerId hp"，每次 checkpoint 完成輸出 "C seq"
+   */
+  public static final class Writer {
+
+    public static void main(String[] args) throws IOException {
+      PlayerJournal journal = PlayerJournal.open(Path.of(args[0]), CAPACITY);
+      for (int i = 1;; i++) {
+        String playerId = "p" + (i % PLAYERS);
+        journal.append(new JournalEntry.StatsChanged(playerId, i, i, i));
+        if (i % 3 == 0) {
+          journal.append(
+              new JournalEntry.ItemPut(playerId, "item-" + (i % 7), "{\"amount\":" + i + "}"));
+        }
+        System.out.println("A " + playerId + " " + i);
+
+        if (i % CHECKPOINT_EVERY == 0) {
+          long seq = journal.lastSeq();
+          Map<String, Long> saved = new HashMap<>();
+          for (int p = 0; p < PLAYERS / 2; p++) {
+            saved.put("p" + p, seq);
+          }
+          journal.checkpoint(saved);
+          System.out.println("C " + seq);
+        }
+      }
+    }
+  }
+}